@@ -10,17 +10,16 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
+import org.apache.http.entity.ContentType;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.http.HttpTransport;
+import com.yahoo.ycsb.measurements.WireCounter;
 
 /**
  * Akumuli client for YCSB-TS framework.<br>
@@ -41,7 +40,7 @@ public class AkumuliClient extends DB {
 	private Socket insertSocket;
 	private PrintWriter insertWriter;
 
-	private HttpClient akumuliHTTPClient;
+	private HttpTransport transport;
 
 	/** URL to HTTP API */
 	private String akumuliHTTPUrl;
@@ -88,11 +87,11 @@ public class AkumuliClient extends DB {
 
 			try {
 
-				insertSocket = new Socket(ip, tcpPort);
+				insertSocket = new WireCounter.CountingSocket(ip, tcpPort);
 				insertWriter = new PrintWriter(insertSocket.getOutputStream(), false);
 
 				akumuliHTTPUrl = "http://" + ip + ':' + httpPort;
-				akumuliHTTPClient = HttpClients.createDefault();
+				transport = HttpTransport.acquire(getProperties());
 
 			} catch (Exception e) {
 				throw new DBException(e);
@@ -107,6 +106,7 @@ public class AkumuliClient extends DB {
 		try {
 			insertWriter.close();
 			insertSocket.close();
+			transport.release();
 		} catch (Exception e) {
 			throw new DBException(e);
 		}
@@ -116,14 +116,10 @@ public class AkumuliClient extends DB {
 		return timestamp.getTime() / 1000 * 1000000000 + timestamp.getNanos();
 	}
 
-	@Override
-	public int read(String metric, Timestamp timestamp, HashMap<String, ArrayList<String>> tags) {
-
-		if (metric == null || metric.isEmpty() || timestamp == null) {
-			return -1;
-		}
-
-		String timestampNanos = df.format(timestamp)+timestamp.getNanos();
+	/**
+	 * Builds the query for the value at timestampNanos (formatted as the HTTP API expects it).
+	 */
+	static JSONObject readQuery(String metric, String timestampNanos, Map<String, ArrayList<String>> tags) {
 		JSONObject range = new JSONObject().put("from", timestampNanos).put("to", timestampNanos);
 
 		JSONObject where = new JSONObject();
@@ -133,14 +129,50 @@ public class AkumuliClient extends DB {
 
 		JSONObject output = new JSONObject().put("format", "csv");
 
-		JSONObject readQuery;
-        if (where.length() > 0) {
-            readQuery = new JSONObject().put("metric", metric).put("range", range).put("where", where).put("output", output);
-        }
-        else {
-            readQuery = new JSONObject().put("metric", metric).put("range", range).put("output", output);
-        }
+		if (where.length() > 0) {
+			return new JSONObject().put("metric", metric).put("range", range).put("where", where).put("output", output);
+		}
+		return new JSONObject().put("metric", metric).put("range", range).put("output", output);
+	}
 
+	/**
+	 * Splits the CSV answer of a read into its fields: series, timestamp and value for exactly one value.
+	 */
+	static String[] parseReadResponse(String responseStr) {
+		return responseStr.replace(" ", "").split(",");
+	}
+
+	/**
+	 * Builds the RESP request that inserts one point through the TCP server.
+	 */
+	static String insertRequest(String metric, long timestampNanos, double value, Map<String, ByteIterator> tags) {
+		StringBuilder insertRequest = new StringBuilder("+");
+		insertRequest.append(metric);
+
+		for (Map.Entry<String, ByteIterator> tag : tags.entrySet()) {
+			insertRequest.append(' ');
+			insertRequest.append(tag.getKey());
+			insertRequest.append('=');
+			insertRequest.append(tag.getValue().toString());
+		}
+
+		insertRequest.append("\r\n:");
+		insertRequest.append(timestampNanos);
+		insertRequest.append("\r\n+");
+		insertRequest.append(value);
+		insertRequest.append("\r\n");
+		return insertRequest.toString();
+	}
+
+	@Override
+	public int read(String metric, Timestamp timestamp, HashMap<String, ArrayList<String>> tags) {
+
+		if (metric == null || metric.isEmpty() || timestamp == null) {
+			return -1;
+		}
+
+		String timestampNanos = df.format(timestamp)+timestamp.getNanos();
+		JSONObject readQuery = readQuery(metric, timestampNanos, tags);
 
 		HttpPost readRequest = new HttpPost(akumuliHTTPUrl);
 
@@ -152,19 +184,20 @@ public class AkumuliClient extends DB {
 			return SUCCESS;
 		}
 
+		CloseableHttpResponse response = null;
 		try {
 
-			readRequest.setEntity(new StringEntity(readQuery.toString()));
+			readRequest.setEntity(transport.entity(readQuery.toString(), ContentType.TEXT_PLAIN));
 
-			HttpResponse response = akumuliHTTPClient.execute(readRequest);
+			response = transport.execute(readRequest);
 
-			String responseStr = EntityUtils.toString(response.getEntity());
+			String responseStr = HttpTransport.readBody(response);
 
 			if (_debug) {
 				System.out.println('\n' + "Read Response: " + responseStr);
 			}
 
-			String[] responseData = responseStr.replace(" ","").split(",");
+			String[] responseData = parseReadResponse(responseStr);
 
 			if (responseData.length < 3) {
 				System.err.println("ERROR: No value found for metric " + metric + ", timestamp " + timestamp.toString()
@@ -190,6 +223,8 @@ public class AkumuliClient extends DB {
 		} catch (Exception exc) {
 			exc.printStackTrace();
 			return -1;
+		} finally {
+			HttpTransport.release(response);
 		}
 
 		return SUCCESS;
@@ -279,13 +314,14 @@ public class AkumuliClient extends DB {
 			return SUCCESS;
 		}
 
+		CloseableHttpResponse response = null;
 		try {
 
-			readRequest.setEntity(new StringEntity(scanQuery.toString()));
+			readRequest.setEntity(transport.entity(scanQuery.toString(), ContentType.TEXT_PLAIN));
 
-			HttpResponse response = akumuliHTTPClient.execute(readRequest);
+			response = transport.execute(readRequest);
 
-			String responseStr = EntityUtils.toString(response.getEntity());
+			String responseStr = HttpTransport.readBody(response);
 
 			if (_debug) {
 				System.out.println("Scan Request: " + scanQuery.toString() + '\n' + "Scan Response: " + responseStr);
@@ -312,6 +348,8 @@ public class AkumuliClient extends DB {
 		} catch (Exception exc) {
 			exc.printStackTrace();
 			return -1;
+		} finally {
+			HttpTransport.release(response);
 		}
 
 		return SUCCESS;
@@ -325,26 +363,12 @@ public class AkumuliClient extends DB {
 			return -1;
 		}
 
+		String insertRequest = insertRequest(metric, getNanoSecOfTimestamp(timestamp), value, tags);
+
 		if (test) {
 			return SUCCESS;
 		}
 
-		StringBuilder insertRequest = new StringBuilder("+");
-		insertRequest.append(metric);
-
-		for (Map.Entry<String, ByteIterator> tag : tags.entrySet()) {
-			insertRequest.append(' ');
-			insertRequest.append(tag.getKey());
-			insertRequest.append('=');
-			insertRequest.append(tag.getValue().toString());
-		}
-
-		insertRequest.append("\r\n:");
-		insertRequest.append(getNanoSecOfTimestamp(timestamp));
-		insertRequest.append("\r\n+");
-		insertRequest.append(value);
-		 insertRequest.append("\r\n");
-
 		if (_debug) {
 			System.out.println("Insert Request:\n" + insertRequest);
 		}
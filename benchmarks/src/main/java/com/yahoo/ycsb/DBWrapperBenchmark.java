@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead DBWrapper adds to every operation: timing it and recording latency and return code in the shared
+ * Measurements. Every thread has its own wrapper, as every client thread has; the "direct" benchmarks call the DB
+ * without a wrapper. Both go to a {@link NullDB}, which consumes its arguments so the JIT can't drop building them.
+ * <p/>
+ * Measurements is a singleton, so every measurementtype runs in its own fork.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DBWrapperBenchmark {
+    private static final TagFilter FILTER = new TagFilter.Builder().add("TAG0", "a").add("TAG1", "b").build();
+
+    @Param({"histogram", "hdrhistogram", "hdrhistogram+histogram", "timeseries"})
+    public String measurementtype;
+
+    private DB direct;
+    private DB wrapped;
+    private DataPoint point;
+
+    @Setup
+    public void setup() {
+        Properties props = new Properties();
+        props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, measurementtype);
+        Measurements.setProperties(props);
+        direct = new NullDB();
+        wrapped = new DBWrapper(new NullDB());
+        point = new DataPoint();
+        point.reset("usermetric", 1439241005000L, 42.5);
+        point.addTag("TAG0", null, "a");
+        point.addTag("TAG1", null, "b");
+    }
+
+    @TearDown
+    public void tearDown() throws DBException {
+        direct.cleanup();
+        wrapped.cleanup();
+    }
+
+    @Benchmark
+    public int directInsert() {
+        return direct.insert(point);
+    }
+
+    @Benchmark
+    public int wrappedInsert() {
+        return wrapped.insert(point);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int wrappedInsertContended() {
+        return wrapped.insert(point);
+    }
+
+    @Benchmark
+    public int wrappedRead() {
+        return wrapped.read("usermetric", 1439241005000L, TimeUnit.MILLISECONDS, FILTER);
+    }
+
+    @Benchmark
+    public int wrappedScan() {
+        return wrapped.scan("usermetric", 1439241005000L, 1439241065000L, TimeUnit.MILLISECONDS, FILTER,
+                true, false, false, 1, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Random;
+
+/**
+ * RandomByteIterator as it was before bulk generation: six bytes per fill, a new Random and a rejection loop per
+ * byte. Kept only as the baseline for {@link RandomByteIteratorBenchmark}.
+ */
+class LegacyRandomByteIterator extends ByteIterator {
+    private long len;
+    private long off;
+    private int bufOff;
+    private byte[] buf;
+
+    LegacyRandomByteIterator(long len) {
+        this.len = len;
+        this.buf = new byte[6];
+        this.bufOff = buf.length;
+        fillBytes();
+        this.off = 0;
+    }
+
+    @Override
+    protected int getRandAN() {
+        int randomNumber = 0;
+        Random rand = new Random();
+        while (randomNumber < 48 ||
+                (randomNumber > 57 && randomNumber < 65) ||
+                (randomNumber > 90 && randomNumber < 97) ||
+                randomNumber > 122) {
+            randomNumber = rand.nextInt((122 - 48) + 1) + 48;
+        }
+        return randomNumber;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return (off + bufOff) < len;
+    }
+
+    private void fillBytesImpl(byte[] buffer, int base) {
+        try {
+            buffer[base + 0] = (byte) this.getRandAN();
+            buffer[base + 1] = (byte) this.getRandAN();
+            buffer[base + 2] = (byte) this.getRandAN();
+            buffer[base + 3] = (byte) this.getRandAN();
+            buffer[base + 4] = (byte) this.getRandAN();
+            buffer[base + 5] = (byte) this.getRandAN();
+        } catch (ArrayIndexOutOfBoundsException e) { /* ignore it */ }
+    }
+
+    private void fillBytes() {
+        if (bufOff == buf.length) {
+            fillBytesImpl(buf, 0);
+            bufOff = 0;
+            off += buf.length;
+        }
+    }
+
+    public byte nextByte() {
+        fillBytes();
+        bufOff++;
+        return buf[bufOff - 1];
+    }
+
+    @Override
+    public int nextBuf(byte[] buffer, int bufferOffset) {
+        int ret;
+        if (len - off < buffer.length - bufferOffset) {
+            ret = (int) (len - off);
+        } else {
+            ret = buffer.length - bufferOffset;
+        }
+        int i;
+        for (i = 0; i < ret; i += 6) {
+            fillBytesImpl(buffer, i + bufferOffset);
+        }
+        off += ret;
+        return ret + bufferOffset;
+    }
+
+    @Override
+    public long bytesLeft() {
+        return len - off - bufOff;
+    }
+}
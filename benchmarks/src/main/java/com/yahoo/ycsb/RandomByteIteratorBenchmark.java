@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of generating one random tag value of the given length.
+ * <p/>
+ * The "legacy" benchmark is RandomByteIterator before bulk generation, the "iterator" ones the current
+ * RandomByteIterator; "fill" writes into a reused buffer, either with {@link Utils#randomAlphanumeric} or with up to
+ * ten characters cut out of every random long (6 bits each, rejecting indices 62 and 63).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RandomByteIteratorBenchmark {
+    private static final byte[] ALPHANUMERIC =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".getBytes();
+
+    @Param({"10", "100"})
+    public int length;
+
+    private byte[] buffer;
+    private Random random;
+
+    @Setup
+    public void setup() {
+        buffer = new byte[length];
+        random = Utils.random();
+    }
+
+    @Benchmark
+    public String legacyToString() {
+        return new LegacyRandomByteIterator(length).toString();
+    }
+
+    @Benchmark
+    public String iteratorToString() {
+        return new RandomByteIterator(length).toString();
+    }
+
+    @Benchmark
+    public byte[] iteratorToArray() {
+        return new RandomByteIterator(length).toArray();
+    }
+
+    @Benchmark
+    public byte[] perLongFill() {
+        int i = 0;
+        while (i < length) {
+            long bits = random.nextLong() >>> 4;
+            for (int k = 0; k < 10 && i < length; k++) {
+                int index = (int) bits & 63;
+                bits >>>= 6;
+                if (index < ALPHANUMERIC.length) {
+                    buffer[i++] = ALPHANUMERIC[index];
+                }
+            }
+        }
+        return buffer;
+    }
+
+    @Benchmark
+    public byte[] utilsFill() {
+        Utils.randomAlphanumeric(random, buffer, 0, length);
+        return buffer;
+    }
+}
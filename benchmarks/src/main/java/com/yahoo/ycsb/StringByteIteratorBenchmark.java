@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of passing tag values as StringByteIterators, the way the HashMap based insert path of the bindings does:
+ * wrapping and unwrapping single values and whole tag maps.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StringByteIteratorBenchmark {
+    @Param({"10", "100"})
+    public int length;
+
+    private String value;
+    private HashMap<String, String> tags;
+
+    @Setup
+    public void setup() {
+        value = new RandomByteIterator(length).toString();
+        tags = new HashMap<String, String>();
+        for (int i = 0; i < 3; i++) {
+            tags.put("TAG" + i, new RandomByteIterator(length).toString());
+        }
+    }
+
+    @Benchmark
+    public String wrapToString() {
+        return new StringByteIterator(value).toString();
+    }
+
+    @Benchmark
+    public byte[] wrapToArray() {
+        return new StringByteIterator(value).toArray();
+    }
+
+    @Benchmark
+    public HashMap<String, String> tagMapRoundTrip() {
+        return StringByteIterator.getStringMap(StringByteIterator.getByteIteratorMap(tags));
+    }
+}
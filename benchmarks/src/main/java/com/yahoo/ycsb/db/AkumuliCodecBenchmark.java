@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import com.yahoo.ycsb.ByteIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client side cost of the Akumuli binding without a server: assembling the RESP insert sent to the TCP server,
+ * building the JSON of a read, and splitting a captured CSV read answer.
+ * <p/>
+ * Run with -prof gc for the allocated bytes per operation (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AkumuliCodecBenchmark {
+    private static final long TIMESTAMP_NANOS = Payloads.TIMESTAMP * 1000000L;
+
+    private HashMap<String, ByteIterator> tags;
+    private HashMap<String, ArrayList<String>> tagQuery;
+    private String response;
+
+    @Setup
+    public void setup() throws IOException {
+        tags = Payloads.tags(3);
+        tagQuery = Payloads.tagQuery(2);
+        response = new String(Payloads.read("akumuli-read.csv"), "UTF-8");
+    }
+
+    @Benchmark
+    public String encodeInsert() {
+        return AkumuliClient.insertRequest(Payloads.METRIC, TIMESTAMP_NANOS, Payloads.VALUE, tags);
+    }
+
+    @Benchmark
+    public String encodeRead() {
+        return AkumuliClient.readQuery(Payloads.METRIC, "20150810T211005.000000000", tagQuery).toString();
+    }
+
+    @Benchmark
+    public String[] decodeRead() {
+        return AkumuliClient.parseReadResponse(response);
+    }
+}
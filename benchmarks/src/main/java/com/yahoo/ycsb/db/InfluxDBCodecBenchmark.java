@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import com.google.gson.Gson;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DBException;
+import org.influxdb.dto.QueryResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client side cost of the InfluxDB binding without a server: building a point and its line protocol
+ * (Point.lineProtocol, what influxdb-java sends), and parsing a captured query answer of 60 values with Gson, as
+ * influxdb-java's retrofit converter does, then counting the values of a read in it.
+ * <p/>
+ * Run with -prof gc for the allocated bytes per operation (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InfluxDBCodecBenchmark {
+    private InfluxDBClient client;
+    private HashMap<String, ByteIterator> tags;
+    private byte[] response;
+    private Gson gson;
+
+    @Setup
+    public void setup() throws DBException, IOException {
+        client = new InfluxDBClient();
+        Properties props = new Properties();
+        props.setProperty("test", "true");
+        client.setProperties(props);
+        client.init();
+        tags = Payloads.tags(3);
+        response = Payloads.read("influxdb-query.json");
+        gson = new Gson();
+    }
+
+    @Benchmark
+    public String encodeInsert() {
+        return client.point(Payloads.METRIC, Payloads.TIMESTAMP, Payloads.VALUE, tags).lineProtocol();
+    }
+
+    @Benchmark
+    public QueryResult decodeQuery() {
+        return gson.fromJson(new InputStreamReader(new ByteArrayInputStream(response)), QueryResult.class);
+    }
+
+    @Benchmark
+    public int decodeAndCount() {
+        QueryResult qr = gson.fromJson(new InputStreamReader(new ByteArrayInputStream(response)), QueryResult.class);
+        return InfluxDBClient.countValues(qr, Payloads.TIMESTAMP + 30000);
+    }
+}
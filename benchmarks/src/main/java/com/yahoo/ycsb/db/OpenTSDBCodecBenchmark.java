@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.TagFilter;
+import com.yahoo.ycsb.json.JsonBuffer;
+import com.yahoo.ycsb.json.JsonPoints;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client side cost of the OpenTSDB binding without a server: writing the JSON of a put, a read and an avg scan
+ * into the reused request buffer, and counting the points of a captured /api/query answer of 60 values while it is
+ * parsed.
+ * <p/>
+ * Run with -prof gc for the allocated bytes per operation (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OpenTSDBCodecBenchmark {
+    private OpenTSDBClient client;
+    private HashMap<String, ByteIterator> tags;
+    private HashMap<String, ArrayList<String>> tagQuery;
+    private byte[] response;
+    private JsonBuffer body;
+    private JsonPoints points;
+
+    @Setup
+    public void setup() throws DBException, IOException {
+        client = new OpenTSDBClient();
+        Properties props = new Properties();
+        props.setProperty("test", "true");
+        client.setProperties(props);
+        client.init();
+        tags = Payloads.tags(3);
+        tagQuery = Payloads.tagQuery(2);
+        response = Payloads.read("opentsdb-query.json");
+        body = new JsonBuffer();
+        points = new JsonPoints("dps");
+    }
+
+    @Benchmark
+    public int encodeInsert() throws IOException {
+        return OpenTSDBClient.insertQuery(body, Payloads.METRIC, Payloads.TIMESTAMP, Payloads.VALUE, tags).size();
+    }
+
+    @Benchmark
+    public int encodeRead() throws IOException {
+        return client.readQuery(body, Payloads.METRIC, Payloads.TIMESTAMP, TagFilter.fromMap(tagQuery)).size();
+    }
+
+    @Benchmark
+    public int encodeScan() throws IOException {
+        return client.scanQuery(body, Payloads.METRIC, Payloads.TIMESTAMP, Payloads.TIMESTAMP + 60000,
+                TagFilter.fromMap(tagQuery), true, false, false, 10, TimeUnit.SECONDS).size();
+    }
+
+    @Benchmark
+    public long decodeQuery() throws IOException {
+        return points.setMatch(JsonPoints.NONE).parse(new ByteArrayInputStream(response)).getCount();
+    }
+
+    @Benchmark
+    public long decodeAndCount() throws IOException {
+        return points.setMatch(Payloads.TIMESTAMP + 30000).parse(new ByteArrayInputStream(response)).getMatches();
+    }
+}
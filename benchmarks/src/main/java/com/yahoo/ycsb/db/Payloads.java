@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.StringByteIterator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Captured responses (in src/main/resources/payloads) and the point the binding benchmarks encode.
+ */
+final class Payloads {
+    static final String METRIC = "usermetric";
+    static final long TIMESTAMP = 1439241005000L;
+    static final double VALUE = 42.5;
+
+    private Payloads() {
+    }
+
+    /**
+     * @return the bytes of payloads/name
+     */
+    static byte[] read(String name) throws IOException {
+        InputStream in = Payloads.class.getResourceAsStream("/payloads/" + name);
+        if (in == null) {
+            throw new IOException("Missing payload " + name);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return tags TAG0 .. TAGn-1 with values a, b, c, ...
+     */
+    static HashMap<String, ByteIterator> tags(int n) {
+        HashMap<String, ByteIterator> tags = new HashMap<String, ByteIterator>();
+        for (int i = 0; i < n; i++) {
+            tags.put("TAG" + i, new StringByteIterator(String.valueOf((char) ('a' + i))));
+        }
+        return tags;
+    }
+
+    /**
+     * @return a query for values a or z of each of the tags TAG0 .. TAGn-1
+     */
+    static HashMap<String, ArrayList<String>> tagQuery(int n) {
+        HashMap<String, ArrayList<String>> tags = new HashMap<String, ArrayList<String>>();
+        for (int i = 0; i < n; i++) {
+            ArrayList<String> values = new ArrayList<String>();
+            values.add(String.valueOf((char) ('a' + i)));
+            values.add("z");
+            tags.put("TAG" + i, values);
+        }
+        return tags;
+    }
+}
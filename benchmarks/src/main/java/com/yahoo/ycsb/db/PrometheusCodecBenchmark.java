@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.json.JsonPoints;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client side cost of the Prometheus binding without a server: building the text exposition body of a push, the
+ * query strings of a read and an avg_over_time scan, and counting the series of a captured /api/v1/query answer of
+ * 60 series while it is parsed.
+ * <p/>
+ * Run with -prof gc for the allocated bytes per operation (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PrometheusCodecBenchmark {
+    private PrometheusClient client;
+    private HashMap<String, ByteIterator> tags;
+    private HashMap<String, ArrayList<String>> tagQuery;
+    private byte[] response;
+    private JsonPoints points;
+
+    @Setup
+    public void setup() throws DBException, IOException {
+        client = new PrometheusClient();
+        Properties props = new Properties();
+        props.setProperty("test", "true");
+        client.setProperties(props);
+        client.init();
+        tags = Payloads.tags(3);
+        tagQuery = Payloads.tagQuery(2);
+        response = Payloads.read("prometheus-query.json");
+        points = new JsonPoints("result").capture("status");
+    }
+
+    @Benchmark
+    public String encodeInsert() {
+        return PrometheusClient.insertBody(Payloads.METRIC, Payloads.VALUE, tags);
+    }
+
+    @Benchmark
+    public String encodeRead() throws IOException {
+        return PrometheusClient.readQuery(Payloads.METRIC, Payloads.TIMESTAMP, tagQuery);
+    }
+
+    @Benchmark
+    public String encodeScan() throws IOException {
+        return client.scanQuery(Payloads.METRIC, Payloads.TIMESTAMP, Payloads.TIMESTAMP + 60000, tagQuery,
+                true, false, false, Payloads.TIMESTAMP + 3600000);
+    }
+
+    @Benchmark
+    public long decodeAndCount() throws IOException {
+        return points.parse(new ByteArrayInputStream(response)).getCount();
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of taking and acknowledging one insert key, as CoreWorkload does for every insert of a transaction phase.
+ * lastLong is what the latest distribution reads, with four threads sharing the counter.
+ * <p/>
+ * Acknowledging is only measured from one thread: without a DB call in between, threads that share the counter
+ * run more than the 2^20 keys of the acknowledge window ahead as soon as one of them is descheduled between
+ * nextLong and acknowledge, and the generator (correctly) gives up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AcknowledgedCounterGeneratorBenchmark {
+    private AcknowledgedCounterGenerator counter;
+
+    @Setup
+    public void setup() {
+        counter = new AcknowledgedCounterGenerator(0);
+    }
+
+    @Benchmark
+    public long nextAndAcknowledge() {
+        long value = counter.nextLong();
+        counter.acknowledge(value);
+        return value;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long nextLongContended() {
+        return counter.nextLong();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long lastLongContended() {
+        return counter.lastLong();
+    }
+}
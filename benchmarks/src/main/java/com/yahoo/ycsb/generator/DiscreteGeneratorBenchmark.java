@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import com.yahoo.ycsb.Operation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-operation cost of choosing and dispatching the next transaction type.
+ * <p/>
+ * The "legacy" benchmarks are the linear-scan generator plus the String.compareTo chain that
+ * CoreWorkload.doTransaction used before, the others are the alias-table generators with
+ * (for the enum variant) switch-based dispatch. Proportions are the ones of workloads/energy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiscreteGeneratorBenchmark {
+    private static final double[] WEIGHTS = {0, 2123, 34, 34, 0, 8};
+
+    private LegacyDiscreteGenerator legacy;
+    private DiscreteGenerator alias;
+    private DiscreteEnumGenerator<Operation> aliasEnum;
+
+    @Setup
+    public void setup() {
+        legacy = new LegacyDiscreteGenerator();
+        alias = new DiscreteGenerator();
+        aliasEnum = new DiscreteEnumGenerator<Operation>();
+        Operation[] ops = Operation.values();
+        for (int i = 0; i < WEIGHTS.length; i++) {
+            if (WEIGHTS[i] > 0) {
+                legacy.addValue(WEIGHTS[i], ops[i].name());
+                alias.addValue(WEIGHTS[i], ops[i].name());
+                aliasEnum.addValue(WEIGHTS[i], ops[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public String legacyNextString() {
+        return legacy.nextString();
+    }
+
+    @Benchmark
+    public String aliasNextString() {
+        return alias.nextString();
+    }
+
+    @Benchmark
+    public Operation aliasNextValue() {
+        return aliasEnum.nextValue();
+    }
+
+    @Benchmark
+    public int legacyChooseAndDispatch() {
+        String op = legacy.nextString();
+        if (op.compareTo("READ") == 0) {
+            return 1;
+        }
+        else if (op.compareTo("INSERT") == 0) {
+            return 2;
+        }
+        else if (op.compareTo("SCAN") == 0) {
+            return 3;
+        }
+        else if (op.compareTo("AVG") == 0) {
+            return 4;
+        }
+        else if (op.compareTo("COUNT") == 0) {
+            return 5;
+        }
+        else if (op.compareTo("SUM") == 0) {
+            return 6;
+        }
+        return 0;
+    }
+
+    @Benchmark
+    public int aliasChooseAndDispatch() {
+        switch (aliasEnum.nextValue()) {
+            case READ:
+                return 1;
+            case INSERT:
+                return 2;
+            case SCAN:
+                return 3;
+            case AVG:
+                return 4;
+            case COUNT:
+                return 5;
+            case SUM:
+                return 6;
+            default:
+                return 0;
+        }
+    }
+}
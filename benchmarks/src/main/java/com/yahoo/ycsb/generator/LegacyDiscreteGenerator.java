@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import com.yahoo.ycsb.Utils;
+
+import java.util.Vector;
+
+/**
+ * The linear-scan DiscreteGenerator as it was before the switch to an alias table.
+ * Kept only as the baseline for {@link DiscreteGeneratorBenchmark}.
+ */
+class LegacyDiscreteGenerator {
+    Vector<Pair> _values = new Vector<Pair>();
+
+    String nextString() {
+        double sum = 0;
+
+        for (Pair p : _values) {
+            sum += p._weight;
+        }
+
+        double val = Utils.random().nextDouble();
+
+        for (Pair p : _values) {
+            if (val < p._weight / sum) {
+                return p._value;
+            }
+
+            val -= p._weight / sum;
+        }
+        return null;
+    }
+
+    void addValue(double weight, String value) {
+        _values.add(new Pair(weight, value));
+    }
+
+    class Pair {
+        public double _weight;
+        public String _value;
+
+        Pair(double weight, String value) {
+            _weight = weight;
+            _value = value;
+        }
+    }
+}
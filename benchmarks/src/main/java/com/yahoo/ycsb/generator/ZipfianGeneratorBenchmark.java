@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-value cost of the zipfian generators, drawn by one thread and by four threads sharing the generator as client
+ * threads share CoreWorkload's.
+ * <p/>
+ * The "growing" benchmarks pass an item count that increases with every call, which makes every call update zeta
+ * incrementally (the latest and insert-heavy transaction phases do this).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ZipfianGeneratorBenchmark {
+    private static final long ITEMS = 10000000L;
+
+    private ZipfianGenerator zipfian;
+    private ZipfianGenerator growing;
+    private ScrambledZipfianGenerator scrambled;
+
+    /** The item count each thread passes to the growing generator. */
+    @State(Scope.Thread)
+    public static class ItemCount {
+        long itemcount = ITEMS;
+    }
+
+    @Setup
+    public void setup() {
+        zipfian = new ZipfianGenerator(ITEMS);
+        growing = new ZipfianGenerator(ITEMS);
+        scrambled = new ScrambledZipfianGenerator(ITEMS);
+    }
+
+    @Benchmark
+    public long zipfianNextLong() {
+        return zipfian.nextLong();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long zipfianNextLongContended() {
+        return zipfian.nextLong();
+    }
+
+    @Benchmark
+    public long zipfianGrowing(ItemCount count) {
+        return growing.nextLong(++count.itemcount);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long zipfianGrowingContended(ItemCount count) {
+        return growing.nextLong(++count.itemcount);
+    }
+
+    @Benchmark
+    public long scrambledNextLong() {
+        return scrambled.nextLong();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long scrambledNextLongContended() {
+        return scrambled.nextLong();
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording one latency in each OneMeasurement implementation, from one thread and from four and eight
+ * threads sharing it as client threads share the measurement of an operation type.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OneMeasurementBenchmark {
+    @Param({"histogram", "hdrhistogram", "hdrhistogram+histogram", "timeseries"})
+    public String measurementtype;
+
+    private OneMeasurement measurement;
+
+    /** Latencies between 0 and 4095 us, different per thread. */
+    @State(Scope.Thread)
+    public static class Latency {
+        int next = (int) Thread.currentThread().getId() * 977;
+
+        int next() {
+            next = (next + 977) & 4095;
+            return next;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        Properties props = new Properties();
+        if (measurementtype.equals("histogram")) {
+            measurement = new OneMeasurementHistogram("READ", props);
+        }
+        else if (measurementtype.equals("hdrhistogram")) {
+            measurement = new OneMeasurementHdrHistogram("READ", props);
+        }
+        else if (measurementtype.equals("hdrhistogram+histogram")) {
+            measurement = new TwoInOneMeasurement("READ", new OneMeasurementHdrHistogram("HdrREAD", props),
+                    new OneMeasurementHistogram("BucketREAD", props));
+        }
+        else {
+            measurement = new OneMeasurementTimeSeries("READ", props);
+        }
+    }
+
+    @Benchmark
+    public void measure(Latency latency) {
+        measurement.measure(latency.next());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void measureContended4(Latency latency) {
+        measurement.measure(latency.next());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void measureContended8(Latency latency) {
+        measurement.measure(latency.next());
+    }
+
+    @Benchmark
+    public void reportReturnCode() {
+        measurement.reportReturnCode(0);
+    }
+}
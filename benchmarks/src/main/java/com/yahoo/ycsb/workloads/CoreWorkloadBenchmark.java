@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.NullDB;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client side cost of one CoreWorkload operation against a {@link NullDB}, which only consumes the operation's
+ * arguments so the JIT can't drop generating them: doInsert is dominated by buildValues (choosing the tag values of a
+ * point), a read by generateSearchTagFilter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CoreWorkloadBenchmark {
+    @Param({"3", "10"})
+    public int tagcount;
+
+    /** true: values out of predefinedtagvalues per tag, false: new random values for every point. */
+    @Param({"true", "false"})
+    public boolean predefinedtagvalues;
+
+    private File tagFile;
+    private CoreWorkload workload;
+    private CoreWorkload.ThreadState state;
+    private DB db;
+
+    @Setup
+    public void setup() throws IOException, WorkloadException {
+        tagFile = File.createTempFile("predefinedtags", ".bin");
+        tagFile.delete();
+        Properties props = new Properties();
+        props.setProperty(CoreWorkload.INSERT_START_PROPERTY, "1439241005000");
+        props.setProperty(CoreWorkload.INSERT_END_PROPERTY, "1440241005000");
+        props.setProperty(CoreWorkload.TAG_COUNT_PROPERTY, Integer.toString(tagcount));
+        props.setProperty(CoreWorkload.PREDEFINED_TAG_VALUES_PROPERTY, Boolean.toString(predefinedtagvalues));
+        props.setProperty(CoreWorkload.PREDEFINED_TAG_STORE_USED_PROPERTY, "false");
+        props.setProperty(CoreWorkload.PREDEFINED_TAG_STORAGE_FILE_PROPERTY, tagFile.getAbsolutePath());
+        props.setProperty(CoreWorkload.QUERY_MAX_TAG_PROPERTY, "2");
+        props.setProperty(CoreWorkload.NO_TAGS_FOR_READ_PROPERTY, "false");
+        Measurements.setProperties(props);
+        workload = new CoreWorkload();
+        workload.init(props);
+        state = (CoreWorkload.ThreadState) workload.initThread(props, 0, 1);
+        db = new NullDB();
+    }
+
+    @TearDown
+    public void tearDown() throws DBException {
+        db.cleanup();
+        workload.cleanup();
+        tagFile.delete();
+    }
+
+    @Benchmark
+    public boolean insert() {
+        return workload.doInsert(db, state);
+    }
+
+    @Benchmark
+    public void read() {
+        workload.doTransactionRead(db, state);
+    }
+}
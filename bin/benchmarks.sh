@@ -0,0 +1,37 @@
+#!/bin/sh
+#
+# Copyright (c) 2015 YCSB contributors. All rights reserved.
+#
+# Licensed under the Apache License, Version 2.0 (the "License"); you
+# may not use this file except in compliance with the License. You
+# may obtain a copy of the License at
+#
+# http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+# implied. See the License for the specific language governing
+# permissions and limitations under the License. See accompanying
+# LICENSE file.
+#
+
+# Builds the benchmarks module and runs the JMH micro-benchmarks, writing the results as JSON.
+#
+# Usage: bin/benchmarks.sh [result.json] [JMH options and benchmark name patterns]
+#   e.g. bin/benchmarks.sh zipfian.json Zipfian -wi 2 -i 3
+# The result file defaults to benchmarks/target/jmh-result.json, `bin/benchmarks.sh -h` lists all JMH options.
+
+set -e
+
+YCSB_HOME=$(cd "$(dirname "$0")/.." && pwd)
+RESULT="$YCSB_HOME/benchmarks/target/jmh-result.json"
+case "$1" in
+    *.json)
+        RESULT="$1"
+        shift
+        ;;
+esac
+
+mvn -B -q -f "$YCSB_HOME/pom.xml" -pl benchmarks -am package -DskipTests
+exec java -jar "$YCSB_HOME/benchmarks/target/benchmarks.jar" -rf json -rff "$RESULT" "$@"
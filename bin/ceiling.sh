@@ -0,0 +1,92 @@
+#!/bin/sh
+#
+# Copyright (c) 2015 YCSB contributors. All rights reserved.
+#
+# Licensed under the Apache License, Version 2.0 (the "License"); you
+# may not use this file except in compliance with the License. You
+# may obtain a copy of the License at
+#
+# http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+# implied. See the License for the specific language governing
+# permissions and limitations under the License. See accompanying
+# LICENSE file.
+#
+
+# Measures the client ceiling: the throughput the harness itself can generate, without a database.
+# Runs the load (-load) and the transaction phase (-t) of each workload against com.yahoo.ycsb.NullDB with 1, 2, 4, ...
+# up to maxthreads client threads and prints ops/s and ops/s per core of every run, then the best of each workload and
+# phase. A database result close to these numbers is limited by the client, not by the database.
+#
+# Usage: bin/ceiling.sh [-t maxthreads] [-n operations] [workload ...]
+#   maxthreads defaults to the number of cores, operations (per run) to 1000000 and the workloads to the shipped
+#   energy smartFactory medicalMonitoring withtags workloada workloadb.
+#   Further client options can be given in CEILING_OPTS, e.g. CEILING_OPTS="-p prefetchthreads=2" bin/ceiling.sh
+
+set -e
+
+YCSB_HOME=$(cd "$(dirname "$0")/.." && pwd)
+CORES=$(getconf _NPROCESSORS_ONLN 2>/dev/null || echo 1)
+MAXTHREADS=$CORES
+OPERATIONS=1000000
+while getopts "t:n:h" opt; do
+    case $opt in
+        t) MAXTHREADS=$OPTARG ;;
+        n) OPERATIONS=$OPTARG ;;
+        *) sed -n 's/^# \{0,1\}//;/^Usage/,/^ *Further/p' "$0"; exit 1 ;;
+    esac
+done
+shift $((OPTIND - 1))
+WORKLOADS=${*:-"energy smartFactory medicalMonitoring withtags workloada workloadb"}
+
+mvn -B -q -f "$YCSB_HOME/pom.xml" -pl core compile dependency:build-classpath \
+    -Dmdep.outputFile="$YCSB_HOME/core/target/classpath.txt"
+CP="$YCSB_HOME/core/target/classes:$(cat "$YCSB_HOME/core/target/classpath.txt")"
+
+# the workloads keep their generated tag values in the working directory
+WORKDIR=$(mktemp -d)
+trap 'rm -rf "$WORKDIR"' EXIT
+RESULTS="$WORKDIR/results"
+
+# run phase threads workload: prints the throughput in ops/s
+run() {
+    (cd "$WORKDIR" && java -cp "$CP" com.yahoo.ycsb.Client "$1" -db com.yahoo.ycsb.NullDB \
+        -P "$YCSB_HOME/workloads/$3" -threads "$2" -p recordcount="$OPERATIONS" -p operationcount="$OPERATIONS" \
+        -p predefinedtagstoreused=false $CEILING_OPTS 2>/dev/null) \
+        | sed -n 's/^\[OVERALL\], Throughput(ops\/sec), //p'
+}
+
+printf "%-18s %-6s %7s %12s %14s\n" workload phase threads ops/s ops/s/core
+for workload in $WORKLOADS; do
+    for phase in load run; do
+        flag=-load
+        [ $phase = run ] && flag=-t
+        threads=1
+        while :; do
+            ops=$(run $flag $threads "$workload")
+            if [ -z "$ops" ]; then
+                echo "ERROR: $workload $phase with $threads threads failed." >&2
+                exit 1
+            fi
+            echo "$workload $phase $threads $ops" | awk -v cores="$CORES" '{
+                used = $3 < cores ? $3 : cores
+                printf "%-18s %-6s %7d %12.0f %14.0f\n", $1, $2, $3, $4, $4 / used }' | tee -a "$RESULTS"
+            [ $threads -ge "$MAXTHREADS" ] && break
+            threads=$((threads * 2))
+            [ $threads -gt "$MAXTHREADS" ] && threads=$MAXTHREADS
+        done
+    done
+done
+
+echo
+echo "Client ceiling (best of all thread counts, $CORES cores):"
+awk '{ key = $1 " " $2
+       if ($4 > best[key]) { best[key] = $4; at[key] = $3 }
+       if ($5 > core[key]) core[key] = $5
+       if (!(key in seen)) { seen[key] = 1; order[n++] = key } }
+     END { for (i = 0; i < n; i++) { split(order[i], k, " ")
+             printf "%-18s %-6s %12.0f ops/s with %d threads, %.0f ops/s per core\n", k[1], k[2], best[order[i]],
+                 at[order[i]], core[order[i]] } }' "$RESULTS"
@@ -7,19 +7,15 @@ package com.yahoo.ycsb.db;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.config.RequestConfig;
+import com.yahoo.ycsb.http.HttpTransport;
+import com.yahoo.ycsb.json.JsonBuffer;
+import com.yahoo.ycsb.json.JsonPoints;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-
-import org.apache.http.util.EntityUtils;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import org.codehaus.jackson.JsonGenerator;
 
 import java.io.*;
 import java.net.*;
@@ -28,8 +24,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.concurrent.TimeUnit;
 
-// Need to use Json 20140107, newer versions drop an error "Unsupported major.minor version 52.0"
-
 /**
  * Blueflood client for YCSB framework.
  * Blueflood has no Tags (see: https://github.com/rackerlabs/blueflood/wiki/FAQ)
@@ -48,10 +42,11 @@ public class BluefloodClient extends DB {
     private int ingestPort = 19000;
     private int queryPort = 19001;
     private boolean _debug = false;
-    private CloseableHttpClient client;
+    private HttpTransport transport;
     private int ttl = 60*60*24*365; // 1 Year TTL
-    private int retries = 3;
     private boolean test = false;
+    private final JsonBuffer body = new JsonBuffer();
+    private final JsonPoints points = new JsonPoints("values").capture("metadata");
 
     /**
      * Initialize any state for this DB.
@@ -74,9 +69,8 @@ public class BluefloodClient extends DB {
                     System.out.println(element + ": " + getProperties().getProperty(element));
                 }
             }
-            RequestConfig requestConfig = RequestConfig.custom().build();
             if (!test) {
-                client = HttpClientBuilder.create().setDefaultRequestConfig(requestConfig).build();
+                transport = HttpTransport.acquire(getProperties());
             }
         }
         catch (Exception e) {
@@ -98,15 +92,19 @@ public class BluefloodClient extends DB {
         }
     }
 
-    private JSONObject runQuery(URL url, String queryStr) {
-        JSONObject jsonObj = new JSONObject();
-        HttpResponse response = null;
+    /**
+     * Posts body, or gets url if body is null.
+     *
+     * @return the counted values of the answer, null on errors
+     */
+    private JsonPoints runQuery(URL url, JsonBuffer body) {
+        CloseableHttpResponse response = null;
+        points.clear();
         try {
             HttpRequestBase method=null;
-            if (queryStr != null){
+            if (body != null){
                 HttpPost postMethod = new HttpPost(url.toString());
-                StringEntity requestEntity = new StringEntity(queryStr, ContentType.APPLICATION_JSON);
-                postMethod.setEntity(requestEntity);
+                postMethod.setEntity(transport.entity(body.buffer(), body.size(), ContentType.APPLICATION_JSON));
                 postMethod.addHeader("accept", "application/json");
                 method=postMethod;
             }
@@ -116,27 +114,13 @@ public class BluefloodClient extends DB {
                 method=getMethod;
             }
 
-            int tries = retries + 1;
-            while (true)
-            {
-                tries--;
-                try
-                {
-                    response = client.execute(method);
-                    break;
-                }
-                catch (IOException e)
-                {
-                    if (tries < 1) {
-                        System.err.print("ERROR: Connection to " + url.toString() + " failed " + retries + "times.");
-                        e.printStackTrace();
-                        if (response != null) {
-                            EntityUtils.consumeQuietly(response.getEntity());
-                        }
-                        method.releaseConnection();
-                        return null;
-                    }
-                }
+            try {
+                response = transport.execute(method);
+            }
+            catch (IOException e) {
+                System.err.print("ERROR: Connection to " + url.toString() + " failed.");
+                e.printStackTrace();
+                return null;
             }
             if(response.getStatusLine().getStatusCode() == HttpURLConnection.HTTP_OK ||
                     response.getStatusLine().getStatusCode() == HttpURLConnection.HTTP_NO_CONTENT  ||
@@ -144,28 +128,21 @@ public class BluefloodClient extends DB {
                 if (response.getStatusLine().getStatusCode() == HttpURLConnection.HTTP_MOVED_PERM) {
                     System.err.println("WARNING: Query returned 301, that means 'API call has migrated or should be forwarded to another server'");
                 }
-                if (response.getStatusLine().getStatusCode() != HttpURLConnection.HTTP_NO_CONTENT && response.getEntity().getContentLength() > 0){
+                if (response.getStatusLine().getStatusCode() != HttpURLConnection.HTTP_NO_CONTENT && response.getEntity() != null
+                        && response.getEntity().getContentLength() != 0){
                     // Maybe also not HTTP_MOVED_PERM? Can't Test it right now
-                    BufferedReader bis = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-                    StringBuilder builder = new StringBuilder();
-                    String line;
-                    while ((line = bis.readLine()) != null) {
-                        builder.append(line);
-                    }
-                    jsonObj = new JSONObject(builder.toString());
+                    points.parse(response.getEntity().getContent());
                 }
-                EntityUtils.consumeQuietly(response.getEntity());
-                method.releaseConnection();
            }
         } catch (Exception e) {
-            System.err.println("ERROR: Errror while trying to query " + url.toString() + " for '" + queryStr + "'.");
+            System.err.println("ERROR: Errror while trying to query " + url.toString() + " for '" + body + "'.");
             e.printStackTrace();
-            if (response != null) {
-                EntityUtils.consumeQuietly(response.getEntity());
-            }
             return null;
         }
-        return jsonObj;
+        finally {
+            HttpTransport.release(response);
+        }
+        return points;
     }
 
     /**
@@ -176,7 +153,7 @@ public class BluefloodClient extends DB {
     public void cleanup() throws DBException {
         try {
             if (! test) {
-                client.close();
+                transport.release();
             }
         }
         catch (Exception e) {
@@ -205,30 +182,25 @@ public class BluefloodClient extends DB {
         // We may get more than that, but we just take the right one
         // There could also be more of them, so count
         try {
-            int counter = 0;
+            long counter = 0;
             long timestampLong = timestamp.getTime();
             String urlStr = String.format("%s/%s?from=%s&to=%s&resolution=FULL", urlQuery.toString(), metric, timestampLong, timestampLong+1);
             URL newQueryURL = new URL(urlStr);
             if (_debug) {
                 System.out.println("QueryURL: " + newQueryURL.toString());
             }
-            JSONObject jsonObj = runQuery(newQueryURL, null);
+            points.setMatch(timestampLong);
+            JsonPoints result = runQuery(newQueryURL, null);
+            if (result != null) {
+                reportResult(result.getCount(), result.getBytes());
+            }
             if (_debug) {
-                System.out.println("Answer: " + jsonObj);
+                System.out.println("Answer: " + result);
             }
-            if (jsonObj.has("values")) {
-                JSONArray jsonArr = jsonObj.getJSONArray("values");
-                if (jsonArr.length() > 1) {
-                    System.err.println("WARNING: More than 1 value found for READ.");
-                }
-                if (jsonArr.length() > 0) {
-                    for (int i = 0; i < jsonArr.length(); i++) {
-                        if (jsonArr.getJSONObject(i).has("timestamp") && jsonArr.getJSONObject(i).getLong("timestamp") == timestampLong) {
-                            counter++;
-                        }
-                    }
-                }
+            if (result.getCount() > 1) {
+                System.err.println("WARNING: More than 1 value found for READ.");
             }
+            counter = result.getMatches();
             if (counter == 0){
                 System.err.println("ERROR: Found no values for metric: " + metric + " for timestamp: " + timestamp + ".");
                 return -1;
@@ -305,26 +277,23 @@ public class BluefloodClient extends DB {
             urlAppendix+="&select=min";
         }
         try {
-            int counter = 0;
             String urlStr = String.format("%s/%s?from=%s&to=%s%s", urlQuery.toString(), metric, startTs.getTime(), endTs.getTime(),urlAppendix);
             URL newQueryURL = new URL(urlStr);
             if (_debug) {
                 System.out.println("QueryURL: " + newQueryURL.toString());
             }
-            JSONObject jsonObj = runQuery(newQueryURL, null);
-            if (_debug) {
-                System.out.println("Answer: " + jsonObj);
+            points.setMatch(JsonPoints.NONE);
+            JsonPoints result = runQuery(newQueryURL, null);
+            if (result != null) {
+                reportResult(result.getCount(), result.getBytes());
             }
-            if (jsonObj.has("values")) {
-                JSONArray jsonArr = jsonObj.getJSONArray("values");
-                if (jsonArr.length() < 1) {
-                   return -1;
-                }
+            if (_debug) {
+                System.out.println("Answer: " + result);
             }
-            else {
+            if (result.getCount() < 1) {
                 return -1;
             }
-            if (! jsonObj.has("metadata")) {
+            if (! result.has("metadata")) {
                 return -1;
             }
             // Could check further here, but costs to much time, we expect the db to work right
@@ -360,25 +329,28 @@ public class BluefloodClient extends DB {
         }
 
         try {
-            JSONObject query = new JSONObject();
-            query.put("collectionTime", timestamp.getTime());
-            query.put("ttlInSeconds", this.ttl);
-            query.put("metricValue", value);
-            query.put("metricName", metric);
-            JSONArray jsonArr = new JSONArray();
-            jsonArr.put(query);
+            JsonGenerator query = body.start();
+            query.writeStartArray();
+            query.writeStartObject();
+            query.writeNumberField("collectionTime", timestamp.getTime());
+            query.writeNumberField("ttlInSeconds", this.ttl);
+            query.writeNumberField("metricValue", value);
+            query.writeStringField("metricName", metric);
+            query.writeEndObject();
+            query.writeEndArray();
+            body.finish();
             if (_debug) {
-                System.out.println("Input Query String: " + query.toString());
+                System.out.println("Input Query String: " + body);
                 System.out.println("Querying URL: " + urlIngest.toString());
             }
             if (test) {
                 return SUCCESS;
             }
-            JSONObject jsonObj = runQuery(urlIngest, jsonArr.toString());
+            JsonPoints result = runQuery(urlIngest, body);
             if (_debug) {
-                System.out.println("Answer: " + jsonObj);
+                System.out.println("Answer: " + result);
             }
-            if (jsonObj == null) {
+            if (result == null) {
                 System.err.println("ERROR: Error in processing insert to metric: " + metric);
                 return -1;
             }
@@ -195,6 +195,28 @@ public class BasicDB extends DB {
         return 0;
     }
 
+    /**
+     * Insert a record from a reusable point, without converting it to a map first.
+     *
+     * @param point The point to insert
+     * @return Zero on success, a non-zero error code on error
+     */
+    @Override
+    public int insert(DataPoint point) {
+        delay();
+
+        if (verbose) {
+            System.out.print("INSERT " + point.getMetric() + " " + point.toTimestamp() + " " + point.getValue() + " " + " [ ");
+            for (int i = 0; i < point.getTagCount(); i++) {
+                System.out.print(point.getTagName(i) + "=" + point.getTagValue(i) + " ");
+            }
+
+            System.out.println("]");
+        }
+
+        return 0;
+    }
+
     /**
      * Short test of BasicDB
      */
@@ -63,7 +63,7 @@ public abstract class ByteIterator implements Iterator<Byte> {
     // Converting this to Ascii or UTF-8 leads to something in A-Za-z0-9
     protected int getRandAN() {
         int randomNumber = 0;
-        Random rand = new Random();
+        Random rand = Utils.random();
         while (randomNumber < 48 ||
                 (randomNumber > 57 && randomNumber < 65) ||
                 (randomNumber > 90 && randomNumber < 97) ||
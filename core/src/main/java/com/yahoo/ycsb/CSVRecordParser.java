@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * Minimal, allocation-conscious CSV parser over UTF-8 bytes, used to parse chunks of a file in parallel.
+ * <p/>
+ * Fields are separated by ',' and records by '\n' or "\r\n". Fields may be quoted with '"', a doubled quote inside a
+ * quoted field is a literal quote and quoted fields may contain separators and line breaks. Unquoted fields are
+ * trimmed and empty lines are skipped (like javacsv's defaults, which were used before).
+ */
+public final class CSVRecordParser {
+    private static final byte QUOTE = '"';
+    private static final byte DELIMITER = ',';
+
+    private CSVRecordParser() {
+    }
+
+    /**
+     * Scan buf from from (which must be the start of a record) to to for the ends of records. Chunk boundaries are
+     * only placed at record ends, so every chunk can be parsed on its own.
+     *
+     * @param minChunk minimum number of bytes of a chunk
+     * @param ends     receives the (exclusive) end of every chunk; the last chunk may be shorter than minChunk
+     * @return the end of the last complete record in [from, to), or from if there is none
+     */
+    public static int splitChunks(ByteBuffer buf, int from, int to, int minChunk, ArrayList<Integer> ends) {
+        boolean inQuotes = false;
+        int chunkStart = from;
+        int lastRecordEnd = from;
+        for (int i = from; i < to; i++) {
+            byte b = buf.get(i);
+            if (b == QUOTE) {
+                // "" inside quotes toggles twice, so the state stays correct
+                inQuotes = !inQuotes;
+            }
+            else if (b == '\n' && !inQuotes) {
+                lastRecordEnd = i + 1;
+                if (lastRecordEnd - chunkStart >= minChunk) {
+                    ends.add(lastRecordEnd);
+                    chunkStart = lastRecordEnd;
+                }
+            }
+        }
+        if (lastRecordEnd > chunkStart) {
+            ends.add(lastRecordEnd);
+        }
+        return lastRecordEnd;
+    }
+
+    /**
+     * Parse all records in buf[from, to).
+     */
+    public static String[][] parseRecords(byte[] buf, int from, int to) {
+        ArrayList<String[]> records = new ArrayList<String[]>();
+        ArrayList<String> fields = new ArrayList<String>();
+        ByteArrayOutputStream scratch = new ByteArrayOutputStream();
+        int pos = from;
+        while (pos < to) {
+            int next = parseRecord(buf, pos, to, fields, scratch);
+            if (!isEmptyLine(buf, pos, next)) {
+                records.add(fields.toArray(new String[fields.size()]));
+            }
+            pos = next;
+        }
+        return records.toArray(new String[records.size()][]);
+    }
+
+    private static boolean isEmptyLine(byte[] buf, int from, int next) {
+        for (int i = from; i < next; i++) {
+            if (buf[i] != '\n' && buf[i] != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse one record starting at from into fields.
+     *
+     * @return the position after the record and its line break
+     */
+    public static int parseRecord(byte[] buf, int from, int to, ArrayList<String> fields, ByteArrayOutputStream scratch) {
+        fields.clear();
+        int i = from;
+        while (true) {
+            if (i < to && buf[i] == QUOTE) {
+                scratch.reset();
+                i++;
+                while (i < to) {
+                    if (buf[i] == QUOTE) {
+                        if (i + 1 < to && buf[i + 1] == QUOTE) {
+                            scratch.write(QUOTE);
+                            i += 2;
+                        }
+                        else {
+                            i++;
+                            break;
+                        }
+                    }
+                    else {
+                        scratch.write(buf[i++]);
+                    }
+                }
+                // Ignore anything between the closing quote and the next delimiter
+                while (i < to && buf[i] != DELIMITER && buf[i] != '\n' && buf[i] != '\r') {
+                    i++;
+                }
+                fields.add(new String(scratch.toByteArray(), DataPoint.UTF8));
+            }
+            else {
+                int start = i;
+                while (i < to && buf[i] != DELIMITER && buf[i] != '\n' && buf[i] != '\r') {
+                    i++;
+                }
+                int end = i;
+                while (start < end && (buf[start] == ' ' || buf[start] == '\t')) {
+                    start++;
+                }
+                while (end > start && (buf[end - 1] == ' ' || buf[end - 1] == '\t')) {
+                    end--;
+                }
+                fields.add(new String(buf, start, end - start, DataPoint.UTF8));
+            }
+            if (i >= to) {
+                return to;
+            }
+            if (buf[i] == DELIMITER) {
+                i++;
+                continue;
+            }
+            if (buf[i] == '\r') {
+                i++;
+                if (i < to && buf[i] == '\n') {
+                    i++;
+                }
+            }
+            else {
+                i++;
+            }
+            return i;
+        }
+    }
+}
@@ -29,6 +29,7 @@ import java.util.Date;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Properties;
+import java.util.Random;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.LockSupport;
@@ -36,6 +37,7 @@ import java.util.concurrent.locks.LockSupport;
 import com.yahoo.ycsb.measurements.Measurements;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+import com.yahoo.ycsb.workloads.PrefetchingWorkload;
 
 /**
  * A thread to periodically show the status of the experiment, to reassure you that progress is being made.
@@ -247,6 +249,7 @@ class ClientThread extends Thread
     Properties _props;
     long _targetOpsTickNs;
     final Measurements _measurements;
+    volatile Exception _failure;
 
     /**
      * Constructor.
@@ -254,16 +257,20 @@ class ClientThread extends Thread
      * @param db the DB implementation to use
      * @param dotransactions true to do transactions, false to insert data
      * @param workload the workload to use
+     * @param threadid the id of this thread, from 0 to threadcount-1
+     * @param threadcount the number of client threads
      * @param props the properties defining the experiment
      * @param opcount the number of operations (transactions or inserts) to do
      * @param targetperthreadperms target number of operations per thread per ms
      * @param completeLatch The latch tracking the completion of all clients.
      */
-    public ClientThread(DB db, boolean dotransactions, Workload workload, Properties props, int opcount, double targetperthreadperms, CountDownLatch completeLatch)
+    public ClientThread(DB db, boolean dotransactions, Workload workload, int threadid, int threadcount, Properties props, int opcount, double targetperthreadperms, CountDownLatch completeLatch)
     {
         _db=db;
         _dotransactions=dotransactions;
         _workload=workload;
+        _threadid=threadid;
+        _threadcount=threadcount;
         _opcount=opcount;
         _opsdone=0;
         if(targetperthreadperms > 0){
@@ -281,9 +288,19 @@ class ClientThread extends Thread
         return _opsdone;
     }
 
+    /**
+     * @return the exception that aborted the operations of this thread, null if there was none
+     */
+    public Exception getFailure()
+    {
+        return _failure;
+    }
+
     @Override
     public void run()
     {
+        // Every client thread draws from its own stream, so a seeded run is reproducible
+        Utils.setRandom(Utils.newRandom(_threadid));
         try
         {
             _db.init();
@@ -358,7 +375,9 @@ class ClientThread extends Thread
         {
             e.printStackTrace();
             e.printStackTrace(System.out);
-            System.exit(0);
+            // the run fails, the other threads need not finish their operations
+            _failure=e;
+            _workload.requestStop();
         }
 
         try
@@ -435,6 +454,11 @@ public class Client
      */
     public static final String DB_PROPERTY="db";
 
+    /**
+     * The status {@link #run} returns if the run failed before it could export measurements.
+     */
+    public static final int FAILED=1;
+
     /**
      * The exporter class to be used. The default is
      * com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter.
@@ -476,6 +500,15 @@ public class Client
      */
     public static final String PHASE_PROPERTY = "phase";
 
+    /**
+     * The seed of all random numbers. Runs with the same seed and number of threads draw the same random numbers in
+     * each client thread. With one client thread (and at most one prefetch thread) they issue the same operations;
+     * with more, the keys the threads share through counters of the workload (e.g. the insert sequence of the load
+     * phase) still go to whichever thread comes first, so the operations differ. Not set by default, so every run is
+     * different.
+     */
+    public static final String SEED_PROPERTY = "seed";
+
 
     public static void usageMessage()
     {
@@ -505,6 +538,17 @@ public class Client
         System.out.println("use the \"insertcount\" and \"insertstart\" properties to divide up the records to be inserted");
     }
 
+    /**
+     * Apply the seed property, or a fresh random seed if it is not set, so a daemon run without one does not
+     * repeat the seed of an earlier run, and give the calling thread its own random stream.
+     */
+    public static void initRandom(Properties props)
+    {
+        String seed=props.getProperty(SEED_PROPERTY);
+        Utils.setSeed(seed!=null ? Long.parseLong(seed) : new Random().nextLong());
+        Utils.setRandom(Utils.newRandom(-1));
+    }
+
     public static boolean checkRequiredProperties(Properties props)
     {
         if (props.getProperty(WORKLOAD_PROPERTY)==null)
@@ -522,18 +566,18 @@ public class Client
      * loaded from conf.
      * @throws IOException Either failed to write to output stream or failed to close it.
      */
-    private static void exportMeasurements(Properties props, int opcount, long runtime)
+    private static void exportMeasurements(Properties props, OutputStream defaultOut, int opcount, long runtime)
             throws IOException
     {
         MeasurementsExporter exporter = null;
         try
         {
-            // if no destination file is provided the results will be written to stdout
+            // if no destination file is provided the results will be written to stdout (or the daemon's response)
             OutputStream out;
             String exportFile = props.getProperty(EXPORT_FILE_PROPERTY);
             if (exportFile == null)
             {
-                out = System.out;
+                out = defaultOut;
             } else
             {
                 out = new FileOutputStream(exportFile);
@@ -555,6 +599,11 @@ public class Client
             exporter.write("OVERALL", "RunTime(ms)", runtime);
             double throughput = 1000.0 * (opcount) / (runtime);
             exporter.write("OVERALL", "Throughput(ops/sec)", throughput);
+            long points = Measurements.getMeasurements().getTotalResultPoints();
+            if (points > 0)
+            {
+                exporter.write("OVERALL", "Throughput(points/sec)", 1000.0 * points / runtime);
+            }
 
             Measurements.getMeasurements().exportMeasurements(exporter);
         } finally
@@ -566,8 +615,22 @@ public class Client
         }
     }
 
-    @SuppressWarnings("unchecked")
     public static void main(String[] args)
+    {
+        int status=run(args, System.out);
+        // the command line has always exited with 0 after the errors it printed
+        System.exit(status==FAILED ? 0 : status);
+    }
+
+    /**
+     * Executes one load or transaction phase, as given by the command line arguments.
+     *
+     * @param out where the measurements are exported to if no exportfile is set, closed at the end
+     * @return 0 on success, {@link #FAILED} if the arguments, the workload, the DB or a client thread failed, -1 if
+     * the measurements could not be exported
+     */
+    @SuppressWarnings("unchecked")
+    public static int run(String[] args, OutputStream out)
     {
         String dbname;
         Properties props=new Properties();
@@ -584,7 +647,7 @@ public class Client
         if (args.length==0)
         {
             usageMessage();
-            System.exit(0);
+            return FAILED;
         }
 
         while (args[argindex].startsWith("-"))
@@ -595,7 +658,7 @@ public class Client
                 if (argindex>=args.length)
                 {
                     usageMessage();
-                    System.exit(0);
+                    return FAILED;
                 }
                 int tcount=Integer.parseInt(args[argindex]);
                 props.setProperty(THREAD_COUNT_PROPERTY, tcount+"");
@@ -607,7 +670,7 @@ public class Client
                 if (argindex>=args.length)
                 {
                     usageMessage();
-                    System.exit(0);
+                    return FAILED;
                 }
                 int ttarget=Integer.parseInt(args[argindex]);
                 props.setProperty(TARGET_PROPERTY, ttarget+"");
@@ -636,7 +699,7 @@ public class Client
                 if (argindex>=args.length)
                 {
                     usageMessage();
-                    System.exit(0);
+                    return FAILED;
                 }
                 props.setProperty(DB_PROPERTY,args[argindex]);
                 argindex++;
@@ -647,7 +710,7 @@ public class Client
                 if (argindex>=args.length)
                 {
                     usageMessage();
-                    System.exit(0);
+                    return FAILED;
                 }
                 label=args[argindex];
                 argindex++;
@@ -658,7 +721,7 @@ public class Client
                 if (argindex>=args.length)
                 {
                     usageMessage();
-                    System.exit(0);
+                    return FAILED;
                 }
                 String propfile=args[argindex];
                 argindex++;
@@ -671,7 +734,7 @@ public class Client
                 catch (IOException e)
                 {
                     System.out.println(e.getMessage());
-                    System.exit(0);
+                    return FAILED;
                 }
 
                 //Issue #5 - remove call to stringPropertyNames to make compilable under Java 1.5
@@ -689,13 +752,13 @@ public class Client
                 if (argindex>=args.length)
                 {
                     usageMessage();
-                    System.exit(0);
+                    return FAILED;
                 }
                 int eq=args[argindex].indexOf('=');
                 if (eq<0)
                 {
                     usageMessage();
-                    System.exit(0);
+                    return FAILED;
                 }
 
                 String name=args[argindex].substring(0,eq);
@@ -708,7 +771,7 @@ public class Client
             {
                 System.out.println("Unknown option "+args[argindex]);
                 usageMessage();
-                System.exit(0);
+                return FAILED;
             }
 
             if (argindex>=args.length)
@@ -720,7 +783,7 @@ public class Client
         if (argindex!=args.length)
         {
             usageMessage();
-            System.exit(0);
+            return FAILED;
         }
 
         //set up logging
@@ -740,7 +803,7 @@ public class Client
 
         if (!checkRequiredProperties(props))
         {
-            System.exit(0);
+            return FAILED;
         }
 
         long maxExecutionTime = Integer.parseInt(props.getProperty(MAX_EXECUTION_TIME, "0"));
@@ -791,6 +854,7 @@ public class Client
 
         //set up measurements
         Measurements.setProperties(props);
+        initRandom(props);
 
         //load the workload
         ClassLoader classLoader = Client.class.getClassLoader();
@@ -807,7 +871,7 @@ public class Client
         {
             e.printStackTrace();
             e.printStackTrace(System.out);
-            System.exit(0);
+            return FAILED;
         }
 
         try
@@ -818,7 +882,7 @@ public class Client
         {
             e.printStackTrace();
             e.printStackTrace(System.out);
-            System.exit(0);
+            return FAILED;
         }
 
         warningthread.interrupt();
@@ -844,6 +908,12 @@ public class Client
             }
         }
 
+        if (PrefetchingWorkload.isEnabled(props))
+        {
+            System.err.println("Prefetching operations in "+props.getProperty(PrefetchingWorkload.PREFETCH_THREADS_PROPERTY)+" generator threads.");
+            workload=new PrefetchingWorkload(workload,props,dotransactions,threadcount,opcount);
+        }
+
         CountDownLatch completeLatch=new CountDownLatch(threadcount);
         final List<ClientThread> clients=new ArrayList<ClientThread>(threadcount);
         for (int threadid=0; threadid<threadcount; threadid++)
@@ -856,7 +926,7 @@ public class Client
             catch (UnknownDBException e)
             {
                 System.out.println("Unknown DB "+dbname);
-                System.exit(0);
+                return FAILED;
             }
 
 
@@ -868,7 +938,7 @@ public class Client
                 ++threadopcount;
             }
 
-            ClientThread t=new ClientThread(db,dotransactions,workload,props,threadopcount, targetperthreadperms, completeLatch);
+            ClientThread t=new ClientThread(db,dotransactions,workload,threadid,threadcount,props,threadopcount, targetperthreadperms, completeLatch);
 
             clients.add(t);
         }
@@ -894,6 +964,22 @@ public class Client
             t.start();
         }
 
+        FreshnessProbe freshnessProbe = null;
+
+        if (FreshnessProbe.isEnabled(props))
+        {
+            try
+            {
+                freshnessProbe = new FreshnessProbe(DBFactory.newDB(dbname, props), DBFactory.newDB(dbname, props), props);
+                freshnessProbe.start();
+            }
+            catch (UnknownDBException e)
+            {
+                System.out.println("Unknown DB "+dbname);
+                return FAILED;
+            }
+        }
+
         Thread terminator = null;
 
         if (maxExecutionTime > 0) {
@@ -902,13 +988,15 @@ public class Client
         }
 
         int opsDone = 0;
+        boolean failed = false;
 
-        for (Thread t : clients)
+        for (ClientThread t : clients)
         {
             try
             {
                 t.join();
-                opsDone += ((ClientThread)t).getOpsDone();
+                opsDone += t.getOpsDone();
+                failed |= t.getFailure() != null;
             }
             catch (InterruptedException e)
             {
@@ -917,6 +1005,18 @@ public class Client
 
         long en=System.currentTimeMillis();
 
+        if (freshnessProbe != null)
+        {
+            System.err.println("Waiting for the pending sentinels of the freshness probe.");
+            try
+            {
+                freshnessProbe.stopProbe();
+            }
+            catch (InterruptedException e)
+            {
+            }
+        }
+
         if (terminator != null && !terminator.isInterrupted()) {
             terminator.interrupt();
         }
@@ -940,19 +1040,25 @@ public class Client
         {
             e.printStackTrace();
             e.printStackTrace(System.out);
-            System.exit(0);
+            return FAILED;
+        }
+
+        if (failed)
+        {
+            System.err.println("ERROR: A client thread failed, the measurements are not exported.");
+            return FAILED;
         }
 
         try
         {
-            exportMeasurements(props, opsDone, en - st);
+            exportMeasurements(props, out, opsDone, en - st);
         } catch (IOException e)
         {
             System.err.println("Could not export measurements, error: " + e.getMessage());
             e.printStackTrace();
-            System.exit(-1);
+            return -1;
         }
 
-        System.exit(0);
+        return 0;
     }
 }
@@ -0,0 +1,303 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.yahoo.ycsb.http.HttpTransport;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Keeps a client resident between runs, so a series of load and transaction phases runs in one warmed up JVM
+ * instead of starting a new one (and waiting for the JIT) for every phase. Runs are requested over HTTP on the
+ * loopback interface and executed one after another by {@link Client#run}:
+ * <ul>
+ * <li>{@code POST /run?phase=load|run[&status=true]} executes a phase, the body holds the properties of the run in
+ * {@link Properties} format (they overwrite the properties given to the daemon). The measurements are streamed back
+ * as the response (unless an exportfile is set), a failed run is answered with 500.</li>
+ * <li>{@code POST /shutdown} stops the daemon after the current run.</li>
+ * </ul>
+ * Options: {@code -port n} (default {@value #DEFAULT_PORT}) and {@code -keepconnections}, which keeps the shared
+ * connection pool of {@link HttpTransport} (configured by the http.* properties given to the daemon) open between
+ * runs. All other arguments (e.g. -db, -P, -p) are given to every run.
+ */
+public class ClientDaemon {
+    public static final int DEFAULT_PORT = 8765;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final String[] baseArgs;
+    private final HttpServer server;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    public ClientDaemon(String[] baseArgs, int port) throws IOException {
+        this.baseArgs = baseArgs;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        // no executor: the runs are executed one after another by the dispatcher thread
+        server.createContext("/run", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleRun(exchange);
+            }
+        });
+        server.createContext("/shutdown", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if (post(exchange)) {
+                    respond(exchange, 200, "Shutting down\n");
+                    stopped.countDown();
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the port the daemon listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Waits for a shutdown request, then stops the daemon.
+     */
+    public void awaitShutdown() throws InterruptedException {
+        stopped.await();
+        stop();
+    }
+
+    public void stop() {
+        stopped.countDown();
+        server.stop(0);
+    }
+
+    private void handleRun(HttpExchange exchange) throws IOException {
+        if (!post(exchange)) {
+            return;
+        }
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        String phase = query.containsKey("phase") ? query.get("phase") : "run";
+        if (!phase.equals("load") && !phase.equals("run")) {
+            respond(exchange, 400, "Unknown phase " + phase + ", use load or run\n");
+            return;
+        }
+        Properties props = new Properties();
+        InputStream in = exchange.getRequestBody();
+        try {
+            props.load(in);
+        } finally {
+            in.close();
+        }
+
+        List<String> args = new ArrayList<String>();
+        args.add(phase.equals("load") ? "-load" : "-t");
+        if (Boolean.parseBoolean(query.get("status"))) {
+            args.add("-s");
+        }
+        for (String arg : baseArgs) {
+            args.add(arg);
+        }
+        for (Enumeration<?> e = props.propertyNames(); e.hasMoreElements(); ) {
+            String name = (String) e.nextElement();
+            args.add("-p");
+            args.add(name + "=" + props.getProperty(name));
+        }
+
+        ResponseStream out = new ResponseStream(exchange);
+        int status;
+        try {
+            status = Client.run(args.toArray(new String[args.size()]), out);
+        } catch (RuntimeException e) {
+            System.err.println("ERROR: The run failed: " + e);
+            e.printStackTrace();
+            status = -1;
+        }
+        if (out.started) {
+            exchange.close();
+        } else if (status == 0) {
+            respond(exchange, 200, "");
+        } else {
+            respond(exchange, 500, "The run failed with status " + status + ", see the output of the daemon\n");
+        }
+    }
+
+    /**
+     * Sends the response headers with the first measurements, so they are streamed while they are exported.
+     */
+    private static class ResponseStream extends OutputStream {
+        private final HttpExchange exchange;
+        private boolean started = false;
+
+        ResponseStream(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        private OutputStream body() throws IOException {
+            if (!started) {
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                exchange.sendResponseHeaders(200, 0);
+                started = true;
+            }
+            return exchange.getResponseBody();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            body().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            body().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (started) {
+                exchange.getResponseBody().flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (started) {
+                exchange.getResponseBody().close();
+            }
+        }
+    }
+
+    private static boolean post(HttpExchange exchange) throws IOException {
+        if (exchange.getRequestMethod().equals("POST")) {
+            return true;
+        }
+        exchange.getResponseHeaders().set("Allow", "POST");
+        respond(exchange, 405, "Use POST\n");
+        return false;
+    }
+
+    private static void respond(HttpExchange exchange, int code, String message) throws IOException {
+        byte[] body = message.getBytes(UTF8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(code, body.length == 0 ? -1 : body.length);
+        OutputStream out = exchange.getResponseBody();
+        try {
+            out.write(body);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static Map<String, String> query(String query) throws IOException {
+        Map<String, String> params = new HashMap<String, String>();
+        if (query == null) {
+            return params;
+        }
+        for (String param : query.split("&")) {
+            int eq = param.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(param.substring(0, eq), "UTF-8"),
+                        URLDecoder.decode(param.substring(eq + 1), "UTF-8"));
+            }
+        }
+        return params;
+    }
+
+    /**
+     * @return the properties of the -P files and -p arguments, as a run would see them before its own properties
+     */
+    static Properties properties(List<String> args) throws IOException {
+        Properties fileprops = new Properties();
+        Properties props = new Properties();
+        for (int i = 0; i + 1 < args.size(); i++) {
+            if (args.get(i).equals("-P")) {
+                InputStream in = new FileInputStream(args.get(++i));
+                try {
+                    fileprops.load(in);
+                } finally {
+                    in.close();
+                }
+            } else if (args.get(i).equals("-p")) {
+                String prop = args.get(++i);
+                int eq = prop.indexOf('=');
+                if (eq >= 0) {
+                    props.setProperty(prop.substring(0, eq), prop.substring(eq + 1));
+                }
+            }
+        }
+        fileprops.putAll(props);
+        return fileprops;
+    }
+
+    public static void main(String[] args) {
+        int port = DEFAULT_PORT;
+        boolean keepConnections = false;
+        List<String> baseArgs = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-port") && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-keepconnections")) {
+                keepConnections = true;
+            } else {
+                baseArgs.add(args[i]);
+            }
+        }
+
+        HttpTransport transport = null;
+        try {
+            if (keepConnections) {
+                // the runs acquire and release the shared pool, this reference keeps it open in between
+                transport = HttpTransport.acquire(properties(baseArgs));
+            }
+            ClientDaemon daemon = new ClientDaemon(baseArgs.toArray(new String[baseArgs.size()]), port);
+            daemon.start();
+            System.err.println("Client daemon listening on http://localhost:" + daemon.getPort()
+                    + "/ (POST /run?phase=load|run with the properties as body, POST /shutdown)");
+            daemon.awaitShutdown();
+        } catch (IOException e) {
+            System.err.println("ERROR: Could not start the client daemon: " + e);
+            System.exit(-1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (transport != null) {
+                transport.release();
+            }
+        }
+        System.exit(0);
+    }
+}
@@ -48,6 +48,17 @@ public abstract class DB {
      */
     Properties _p = new Properties();
 
+    /**
+     * Size of the result of the current read or scan, -1 if it was not reported, see {@link #reportResult}.
+     */
+    long _resultPoints = -1;
+    long _resultBytes = -1;
+    /**
+     * Value of the current avg, count or sum scan over one bucket, NaN if it was not reported, see
+     * {@link #reportAggregate}.
+     */
+    double _resultAggregate = Double.NaN;
+
     /**
      * Get the set of properties for this DB.
      */
@@ -104,6 +115,96 @@ public abstract class DB {
     public abstract int scan(String metric, Timestamp startTs, Timestamp endTs, HashMap<String,
             ArrayList<String>> tags, boolean avg, boolean count, boolean sum, int timeValue,  TimeUnit timeUnit );
 
+    /**
+     * Read a record from the database, with the timestamp given as epoch value in the given precision.
+     * <p/>
+     * The default implementation converts the arguments for {@link #read(String, Timestamp, HashMap)}, so existing
+     * bindings keep working. Bindings should override this to avoid the Timestamp and map per query.
+     *
+     * @param metric    The name of the metric
+     * @param timestamp The timestamp of the record to read, since 1970 in the given precision
+     * @param precision The unit of timestamp
+     * @param tags      actual tags that were want to receive (can be empty)
+     * @return Zero on success, a non-zero error code on error or "not found".
+     */
+    public int read(String metric, long timestamp, TimeUnit precision, TagFilter tags) {
+        return read(metric, toTimestamp(timestamp, precision), tags.toMap());
+    }
+
+    /**
+     * Perform a range scan, with start and end given as epoch values in the given precision.
+     * <p/>
+     * The default implementation converts the arguments for
+     * {@link #scan(String, Timestamp, Timestamp, HashMap, boolean, boolean, boolean, int, TimeUnit)}, so existing
+     * bindings keep working. Bindings should override this to avoid the Timestamps and map per query.
+     *
+     * @param metric    The name of the metric
+     * @param startTs   The timestamp of the first record to read, since 1970 in the given precision
+     * @param endTs     The timestamp of the last record to read, since 1970 in the given precision
+     * @param precision The unit of startTs and endTs
+     * @param tags      actual tags that were want to receive (can be empty)
+     * @param avg    do averageing
+     * @param sum    do summarize
+     * @param count  do count
+     * @param timeValue  value for timeUnit for sum/count/avg
+     * @param timeUnit  timeUnit for sum/count/avg
+     * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
+     */
+    public int scan(String metric, long startTs, long endTs, TimeUnit precision, TagFilter tags,
+                    boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+        return scan(metric, toTimestamp(startTs, precision), toTimestamp(endTs, precision), tags.toMap(),
+                avg, count, sum, timeValue, timeUnit);
+    }
+
+    /**
+     * Report the size of the result of the current read or scan: the points (rows, or buckets of an aggregation)
+     * and the bytes of the response, -1 if one is unknown. Optional; {@link DBWrapper} measures it per operation,
+     * so a scan that returned no points can be told apart from one that returned a day of them.
+     *
+     * @param points The number of points returned
+     * @param bytes  The bytes received for the result
+     */
+    protected void reportResult(long points, long bytes) {
+        _resultPoints = points;
+        _resultBytes = bytes;
+    }
+
+    /**
+     * Report the value of the current avg, count or sum scan if it aggregated the whole range into one bucket
+     * (timeValue 0). Optional; it lets {@link com.yahoo.ycsb.workloads.VerificationWorkload} compare sums.
+     *
+     * @param value The aggregated value
+     */
+    protected void reportAggregate(double value) {
+        _resultAggregate = value;
+    }
+
+    /**
+     * @return the points reported for the last read or scan, -1 if they were not reported
+     */
+    public long getResultPoints() {
+        return _resultPoints;
+    }
+
+    /**
+     * @return the aggregate reported for the last scan, NaN if it was not reported
+     */
+    public double getResultAggregate() {
+        return _resultAggregate;
+    }
+
+    /**
+     * Convert an epoch value in the given precision to a Timestamp, keeping sub-millisecond precision in its nanos.
+     */
+    public static Timestamp toTimestamp(long time, TimeUnit precision) {
+        Timestamp ts = new Timestamp(precision.toMillis(time));
+        if (precision == TimeUnit.MICROSECONDS || precision == TimeUnit.NANOSECONDS) {
+            long nanos = precision.toNanos(time) % 1000000000L;
+            ts.setNanos((int) (nanos < 0 ? nanos + 1000000000L : nanos));
+        }
+        return ts;
+    }
+
     /**
      * Insert a record in the database. Any tags/tagvalue pairs in the specified tags HashMap and the given value
      * will be written into the record with the specified timestamp
@@ -116,4 +217,19 @@ public abstract class DB {
      */
     public abstract int insert(String metric, Timestamp timestamp, double value, HashMap<String, ByteIterator> tags);
 
+    /**
+     * Insert a record in the database from a reusable point. The point is only valid during this call,
+     * see {@link DataPoint}.
+     * <p/>
+     * The default implementation adapts the point to {@link #insert(String, Timestamp, double, HashMap)}, so
+     * existing bindings keep working. Bindings that care about client side overhead should override this and
+     * read the metric, timestamp, value and (pre-encoded) tags from the point directly.
+     *
+     * @param point The point to insert
+     * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
+     */
+    public int insert(DataPoint point) {
+        return insert(point.getMetric(), point.toTimestamp(), point.getValue(), point.toTagMap());
+    }
+
 }
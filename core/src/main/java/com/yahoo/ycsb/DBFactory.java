@@ -37,7 +37,7 @@ public class DBFactory {
         }
         catch (Exception e) {
             e.printStackTrace();
-            return null;
+            throw new UnknownDBException("Could not create DB " + dbname, e);
         }
 
         ret.setProperties(properties);
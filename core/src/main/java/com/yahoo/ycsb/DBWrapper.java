@@ -18,6 +18,7 @@
 package com.yahoo.ycsb;
 
 import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.WireCounter;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
@@ -26,11 +27,15 @@ import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Wrapper around a "real" DB that measures latencies and counts return codes.
+ * Wrapper around a "real" DB that measures latencies, result sizes, bytes on the wire and counts return codes.
  */
 public class DBWrapper extends DB {
     DB _db;
     Measurements _measurements;
+    // wire counts of this thread after the last operation, see measureWire
+    long _wireSent;
+    long _wireReceived;
+    long _wirePayload;
 
     public DBWrapper(DB db) {
         _db = db;
@@ -57,6 +62,10 @@ public class DBWrapper extends DB {
      */
     public void init() throws DBException {
         _db.init();
+        WireCounter.Counts counts = WireCounter.get();
+        _wireSent = counts.getSent();
+        _wireReceived = counts.getReceived();
+        _wirePayload = counts.getPayload();
     }
 
     /**
@@ -69,6 +78,7 @@ public class DBWrapper extends DB {
         _db.cleanup();
         long en = System.nanoTime();
         measure("CLEANUP", ist, st, en);
+        measureWire("CLEANUP");
     }
 
     /**
@@ -81,11 +91,15 @@ public class DBWrapper extends DB {
      */
     public int read(String metric, Timestamp timestamp, HashMap<String, ArrayList<String>> tags) {
         long ist = _measurements.getIntendedtartTimeNs();
+        _db._resultPoints = -1;
+        _db._resultBytes = -1;
         long st = System.nanoTime();
         int res = _db.read(metric, timestamp, tags);
         long en = System.nanoTime();
-        measure("READ", ist, st, en);
-        _measurements.reportReturnCode("READ", res);
+        measure(Operation.READ.name(), ist, st, en);
+        measureResult(Operation.READ.name(), st, en);
+        measureWire(Operation.READ.name());
+        _measurements.reportReturnCode(Operation.READ.name(), res);
         return res;
     }
 
@@ -106,20 +120,71 @@ public class DBWrapper extends DB {
     public int scan(String metric, Timestamp startTs, Timestamp endTs, HashMap<String,
             ArrayList<String>> tags, boolean avg, boolean count, boolean sum, int timeValue,  TimeUnit timeUnit ) {
         long ist = _measurements.getIntendedtartTimeNs();
+        _db._resultPoints = -1;
+        _db._resultBytes = -1;
+        _db._resultAggregate = Double.NaN;
         long st = System.nanoTime();
         int res = _db.scan(metric, startTs, endTs, tags, avg, count, sum, timeValue, timeUnit);
         long en = System.nanoTime();
-        String operation = "SCAN";
-        if (avg) {
-            operation = "AVG";
-        }
-        else if (count) {
-            operation = "COUNT";
-        }
-        else if (sum) {
-            operation = "SUM";
-        }
+        String operation = Operation.forScan(avg, count, sum).name();
+        measure(operation, ist, st, en);
+        measureResult(operation, st, en);
+        measureWire(operation);
+        _measurements.reportReturnCode(operation, res);
+        return res;
+    }
+
+    /**
+     * Read a record from the database, see {@link DB#read(String, long, TimeUnit, TagFilter)}.
+     *
+     * @param metric    The name of the metric
+     * @param timestamp The timestamp of the record to read, since 1970 in the given precision
+     * @param precision The unit of timestamp
+     * @param tags      actual tags that were want to receive (can be empty)
+     * @return Zero on success, a non-zero error code on error or "not found".
+     */
+    public int read(String metric, long timestamp, TimeUnit precision, TagFilter tags) {
+        long ist = _measurements.getIntendedtartTimeNs();
+        _db._resultPoints = -1;
+        _db._resultBytes = -1;
+        long st = System.nanoTime();
+        int res = _db.read(metric, timestamp, precision, tags);
+        long en = System.nanoTime();
+        measure(Operation.READ.name(), ist, st, en);
+        measureResult(Operation.READ.name(), st, en);
+        measureWire(Operation.READ.name());
+        _measurements.reportReturnCode(Operation.READ.name(), res);
+        return res;
+    }
+
+    /**
+     * Perform a range scan, see {@link DB#scan(String, long, long, TimeUnit, TagFilter, boolean, boolean, boolean, int, TimeUnit)}.
+     *
+     * @param metric    The name of the metric
+     * @param startTs   The timestamp of the first record to read, since 1970 in the given precision
+     * @param endTs     The timestamp of the last record to read, since 1970 in the given precision
+     * @param precision The unit of startTs and endTs
+     * @param tags      actual tags that were want to receive (can be empty)
+     * @param avg    do averageing
+     * @param sum    do summarize
+     * @param count  do count
+     * @param timeValue  value for timeUnit for sum/count/avg
+     * @param timeUnit  timeUnit for sum/count/avg
+     * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
+     */
+    public int scan(String metric, long startTs, long endTs, TimeUnit precision, TagFilter tags,
+                    boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+        long ist = _measurements.getIntendedtartTimeNs();
+        _db._resultPoints = -1;
+        _db._resultBytes = -1;
+        _db._resultAggregate = Double.NaN;
+        long st = System.nanoTime();
+        int res = _db.scan(metric, startTs, endTs, precision, tags, avg, count, sum, timeValue, timeUnit);
+        long en = System.nanoTime();
+        String operation = Operation.forScan(avg, count, sum).name();
         measure(operation, ist, st, en);
+        measureResult(operation, st, en);
+        measureWire(operation);
         _measurements.reportReturnCode(operation, res);
         return res;
     }
@@ -129,6 +194,42 @@ public class DBWrapper extends DB {
         _measurements.measureIntended(op, (int) ((endTimeNanos - intendedStartTimeNanos) / 1000));
     }
 
+    @Override
+    public long getResultPoints() {
+        return _db.getResultPoints();
+    }
+
+    @Override
+    public double getResultAggregate() {
+        return _db.getResultAggregate();
+    }
+
+    /**
+     * Measures the result size if the binding reported it, see {@link DB#reportResult}.
+     */
+    private void measureResult(String op, long startTimeNanos, long endTimeNanos) {
+        if (_db._resultPoints >= 0 || _db._resultBytes >= 0) {
+            _measurements.measureResult(op, _db._resultPoints, _db._resultBytes,
+                    (endTimeNanos - startTimeNanos) / 1000);
+        }
+    }
+
+    /**
+     * Measures the bytes this thread sent and received since the last operation if the binding counts them, see
+     * {@link WireCounter}. Batches flushed in cleanup are counted as CLEANUP.
+     */
+    private void measureWire(String op) {
+        WireCounter.Counts counts = WireCounter.get();
+        long sent = counts.getSent() - _wireSent;
+        long received = counts.getReceived() - _wireReceived;
+        if (sent > 0 || received > 0) {
+            _measurements.measureWire(op, sent, received, counts.getPayload() - _wirePayload);
+            _wireSent = counts.getSent();
+            _wireReceived = counts.getReceived();
+            _wirePayload = counts.getPayload();
+        }
+    }
+
     /**
      * Insert a record in the database. Any tags/tagvalue pairs in the specified tags HashMap and the given value
      * will be written into the record with the specified timestamp
@@ -144,8 +245,26 @@ public class DBWrapper extends DB {
         long st = System.nanoTime();
         int res = _db.insert(metric, timestamp, value, tags);
         long en = System.nanoTime();
-        measure("INSERT", ist, st, en);
-        _measurements.reportReturnCode("INSERT", res);
+        measure(Operation.INSERT.name(), ist, st, en);
+        measureWire(Operation.INSERT.name());
+        _measurements.reportReturnCode(Operation.INSERT.name(), res);
+        return res;
+    }
+
+    /**
+     * Insert a record in the database from a reusable point, see {@link DB#insert(DataPoint)}.
+     *
+     * @param point The point to insert
+     * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
+     */
+    public int insert(DataPoint point) {
+        long ist = _measurements.getIntendedtartTimeNs();
+        long st = System.nanoTime();
+        int res = _db.insert(point);
+        long en = System.nanoTime();
+        measure(Operation.INSERT.name(), ist, st, en);
+        measureWire(Operation.INSERT.name());
+        _measurements.reportReturnCode(Operation.INSERT.name(), res);
         return res;
     }
 
@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.nio.charset.Charset;
+import java.sql.Timestamp;
+import java.util.HashMap;
+
+/**
+ * A reusable (flyweight) time series point: metric, timestamp, value and tags.
+ * <p/>
+ * Workloads keep one instance per client thread and refill it for every insert, so the insert path does not
+ * allocate maps, iterators or timestamps. Tag names and tag values can be handed in pre-encoded as UTF-8
+ * byte arrays; the String view of a value is only created (and then cached) if a binding asks for it.
+ * <p/>
+ * A point is only valid for the duration of the {@link DB#insert(DataPoint)} call it is passed to. Bindings
+ * that need to keep it (e.g. for asynchronous batching) must {@link #copy()} it.
+ */
+public final class DataPoint {
+    public static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private String metric;
+    private long timestamp;
+    private double value;
+
+    private int tagCount;
+    private String[] tagNames;
+    private byte[][] tagNameBytes;
+    private String[] tagValues;
+    private byte[][] tagValueBytes;
+    private int[] tagValueLengths;
+    /** Per slot buffers that are owned by this point and reused by {@link #addTag(String, byte[], int)}. */
+    private byte[][] ownedBuffers;
+
+    public DataPoint() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public DataPoint(int tagCapacity) {
+        int capacity = Math.max(1, tagCapacity);
+        tagNames = new String[capacity];
+        tagNameBytes = new byte[capacity][];
+        tagValues = new String[capacity];
+        tagValueBytes = new byte[capacity][];
+        tagValueLengths = new int[capacity];
+        ownedBuffers = new byte[capacity][];
+    }
+
+    /**
+     * Start a new point, dropping all tags of the previous one.
+     *
+     * @param metric    The name of the metric
+     * @param timestamp The timestamp in milliseconds since 1970
+     * @param value     The value of the point
+     */
+    public void reset(String metric, long timestamp, double value) {
+        this.metric = metric;
+        this.timestamp = timestamp;
+        this.value = value;
+        for (int i = 0; i < tagCount; i++) {
+            tagValues[i] = null;
+            tagValueBytes[i] = null;
+        }
+        this.tagCount = 0;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public void setValue(double value) {
+        this.value = value;
+    }
+
+    private int nextSlot() {
+        if (tagCount == tagNames.length) {
+            int capacity = tagNames.length * 2;
+            String[] names = new String[capacity];
+            byte[][] nameBytes = new byte[capacity][];
+            String[] values = new String[capacity];
+            byte[][] valueBytes = new byte[capacity][];
+            int[] lengths = new int[capacity];
+            byte[][] buffers = new byte[capacity][];
+            System.arraycopy(tagNames, 0, names, 0, tagCount);
+            System.arraycopy(tagNameBytes, 0, nameBytes, 0, tagCount);
+            System.arraycopy(tagValues, 0, values, 0, tagCount);
+            System.arraycopy(tagValueBytes, 0, valueBytes, 0, tagCount);
+            System.arraycopy(tagValueLengths, 0, lengths, 0, tagCount);
+            System.arraycopy(ownedBuffers, 0, buffers, 0, tagCount);
+            tagNames = names;
+            tagNameBytes = nameBytes;
+            tagValues = values;
+            tagValueBytes = valueBytes;
+            tagValueLengths = lengths;
+            ownedBuffers = buffers;
+        }
+        return tagCount++;
+    }
+
+    /**
+     * Add a tag whose name and value are both available as String and as pre-encoded UTF-8 bytes.
+     * The arrays are referenced, not copied, and must not be modified afterwards.
+     */
+    public void addTag(String name, byte[] nameBytes, String value, byte[] valueBytes) {
+        int slot = nextSlot();
+        tagNames[slot] = name;
+        tagNameBytes[slot] = nameBytes;
+        tagValues[slot] = value;
+        tagValueBytes[slot] = valueBytes;
+        tagValueLengths[slot] = valueBytes.length;
+    }
+
+    /**
+     * Add a tag whose value is only available as String; the bytes are encoded on first request.
+     */
+    public void addTag(String name, byte[] nameBytes, String value) {
+        int slot = nextSlot();
+        tagNames[slot] = name;
+        tagNameBytes[slot] = nameBytes;
+        tagValues[slot] = value;
+        tagValueBytes[slot] = null;
+        tagValueLengths[slot] = -1;
+    }
+
+    /**
+     * Add a tag and return a buffer of at least valueLength bytes that the caller must fill with the (UTF-8) value.
+     * The buffer is owned by this point and reused for later points, so no allocation happens in steady state.
+     */
+    public byte[] addTag(String name, byte[] nameBytes, int valueLength) {
+        int slot = nextSlot();
+        byte[] buffer = ownedBuffers[slot];
+        if (buffer == null || buffer.length < valueLength) {
+            buffer = new byte[valueLength];
+            ownedBuffers[slot] = buffer;
+        }
+        tagNames[slot] = name;
+        tagNameBytes[slot] = nameBytes;
+        tagValues[slot] = null;
+        tagValueBytes[slot] = buffer;
+        tagValueLengths[slot] = valueLength;
+        return buffer;
+    }
+
+    public String getMetric() {
+        return metric;
+    }
+
+    /**
+     * @return the timestamp in milliseconds since 1970
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public int getTagCount() {
+        return tagCount;
+    }
+
+    public String getTagName(int i) {
+        return tagNames[i];
+    }
+
+    /**
+     * @return the UTF-8 encoded tag name, the whole array is the name
+     */
+    public byte[] getTagNameBytes(int i) {
+        if (tagNameBytes[i] == null) {
+            tagNameBytes[i] = tagNames[i].getBytes(UTF8);
+        }
+        return tagNameBytes[i];
+    }
+
+    /**
+     * @return the tag value as String, decoded and cached on first use if it was given as bytes
+     */
+    public String getTagValue(int i) {
+        if (tagValues[i] == null) {
+            tagValues[i] = new String(tagValueBytes[i], 0, tagValueLengths[i], UTF8);
+        }
+        return tagValues[i];
+    }
+
+    /**
+     * @return the UTF-8 encoded tag value; only the first {@link #getTagValueLength(int)} bytes are valid
+     */
+    public byte[] getTagValueBytes(int i) {
+        if (tagValueBytes[i] == null) {
+            tagValueBytes[i] = tagValues[i].getBytes(UTF8);
+            tagValueLengths[i] = tagValueBytes[i].length;
+        }
+        return tagValueBytes[i];
+    }
+
+    public int getTagValueLength(int i) {
+        if (tagValueLengths[i] < 0) {
+            getTagValueBytes(i);
+        }
+        return tagValueLengths[i];
+    }
+
+    /**
+     * Adapter for bindings that only implement the legacy insert: a new Timestamp for this point.
+     */
+    public Timestamp toTimestamp() {
+        return new Timestamp(timestamp);
+    }
+
+    /**
+     * Adapter for bindings that only implement the legacy insert: a new map of tag name to tag value.
+     */
+    public HashMap<String, ByteIterator> toTagMap() {
+        HashMap<String, ByteIterator> tags = new HashMap<String, ByteIterator>();
+        for (int i = 0; i < tagCount; i++) {
+            tags.put(tagNames[i], new StringByteIterator(getTagValue(i)));
+        }
+        return tags;
+    }
+
+    /**
+     * @return an independent copy of this point that is safe to keep after the insert call returned
+     */
+    public DataPoint copy() {
+        DataPoint copy = new DataPoint(tagCount);
+        copy.reset(metric, timestamp, value);
+        for (int i = 0; i < tagCount; i++) {
+            byte[] bytes = new byte[getTagValueLength(i)];
+            System.arraycopy(getTagValueBytes(i), 0, bytes, 0, bytes.length);
+            copy.addTag(tagNames[i], getTagNameBytes(i), tagValues[i], bytes);
+        }
+        return copy;
+    }
+
+    /**
+     * Make this point a copy of other, reusing the buffers of this point for the tag values other owns.
+     */
+    public void copyFrom(DataPoint other) {
+        reset(other.metric, other.timestamp, other.value);
+        for (int i = 0; i < other.tagCount; i++) {
+            if (other.tagValueBytes[i] == null) {
+                addTag(other.tagNames[i], other.tagNameBytes[i], other.tagValues[i]);
+            }
+            else {
+                int length = other.tagValueLengths[i];
+                byte[] buffer = addTag(other.tagNames[i], other.tagNameBytes[i], length);
+                System.arraycopy(other.tagValueBytes[i], 0, buffer, 0, length);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(metric).append(' ').append(timestamp).append(' ').append(value);
+        for (int i = 0; i < tagCount; i++) {
+            sb.append(' ').append(tagNames[i]).append('=').append(getTagValue(i));
+        }
+        return sb.toString();
+    }
+}
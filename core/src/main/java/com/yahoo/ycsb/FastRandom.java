@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Random;
+
+/**
+ * xoroshiro128+ pseudo random number generator, seeded through SplitMix64. Much faster than java.util.Random, but
+ * not thread safe: every thread needs its own instance, see {@link Utils#random()}.
+ * <p/>
+ * It extends Random so it can be passed wherever a Random is expected; all methods of Random are based on the 64 bit
+ * output of xoroshiro128+, of which the upper bits are used because the lowest bit is weak.
+ */
+public class FastRandom extends Random {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+    private long s0;
+    private long s1;
+
+    public FastRandom() {
+        super();
+    }
+
+    public FastRandom(long seed) {
+        super(seed);
+    }
+
+    /**
+     * The SplitMix64 finalizer, a bijective mix of all bits of z.
+     */
+    public static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Reset the state, the same seed always yields the same sequence.
+     * Called by the constructors of Random, so there must be no field initializers.
+     */
+    @Override
+    public synchronized void setSeed(long seed) {
+        s0 = mix64(seed + GOLDEN_GAMMA);
+        s1 = mix64(seed + 2 * GOLDEN_GAMMA);
+        if (s0 == 0 && s1 == 0) {
+            s1 = GOLDEN_GAMMA;
+        }
+    }
+
+    /**
+     * @return a new generator whose sequence is independent of this one's; advances this generator
+     */
+    public FastRandom split() {
+        return new FastRandom(mix64(nextLong()) ^ nextLong());
+    }
+
+    @Override
+    public long nextLong() {
+        long a = s0;
+        long b = s1;
+        long result = a + b;
+        b ^= a;
+        s0 = Long.rotateLeft(a, 24) ^ b ^ (b << 16);
+        s1 = Long.rotateLeft(b, 37);
+        return result;
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public int nextInt() {
+        return (int) (nextLong() >>> 32);
+    }
+
+    /**
+     * @return a value between 0 (inclusive) and bound (exclusive), by multiplying 32 random bits with bound; the
+     * bias of this method is below bound / 2^32
+     */
+    @Override
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    @Override
+    public float nextFloat() {
+        return (nextLong() >>> 40) / (float) (1 << 24);
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+}
@@ -0,0 +1,255 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.workloads.CoreWorkload;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures the ingest-to-query visibility lag (freshness): how long after a successful insert a point can be read.
+ * <p/>
+ * This thread inserts a sentinel point every freshness.interval ms, a second thread reads every pending sentinel
+ * until it is visible. The lag from the end of the insert to the end of the first read that saw the sentinel is
+ * measured as operation FRESHNESS (in us, like latencies), sentinels that are not visible within freshness.timeout
+ * ms count as return code -1, failed sentinel inserts with their return code. Both threads use DB instances of
+ * their own, so the probe does not show up in the INSERT and READ measurements, but it does add its load to the
+ * database.
+ * <p/>
+ * A sentinel is first read right after its insert, then freshness.pollinterval ms after that, and the wait doubles
+ * with every further miss, up to freshness.maxpollinterval ms. So a sentinel costs about log2(maxpollinterval /
+ * pollinterval) reads before its waits reach the maximum and one read per maxpollinterval after that, and the
+ * resolution of its lag is its current wait plus the read latency: up to the lag itself, at most maxpollinterval.
+ * <p/>
+ * A sentinel is visible if the read succeeds and, if the binding reports result sizes ({@link DB#reportResult}),
+ * returned at least one point. Sentinels use the wall clock as timestamp (at least one ms apart), the workload's
+ * metric and its first tag with the value "freshness", so they fit the schema of the workload but not its
+ * (historic) time range. Bindings that buffer inserts delay their visibility until the buffer is flushed, which is
+ * part of the lag.
+ * <p/>
+ * Properties:
+ * <ul>
+ * <li>freshness.interval: ms between sentinel inserts, 0 disables the probe (default 0)</li>
+ * <li>freshness.pollinterval: ms between the first two reads of a pending sentinel (default 10)</li>
+ * <li>freshness.maxpollinterval: ms the wait between the reads of a sentinel grows to while it is not visible
+ * (default 1000)</li>
+ * <li>freshness.timeout: ms after which a sentinel counts as lost (default 60000)</li>
+ * <li>freshness.metric, freshness.tag, freshness.tagvalue: metric and tag of the sentinels (default: the workload's
+ * metric, its first tag and "freshness")</li>
+ * </ul>
+ */
+public class FreshnessProbe extends Thread {
+    public static final String INTERVAL_PROPERTY = "freshness.interval";
+    public static final String INTERVAL_PROPERTY_DEFAULT = "0";
+    public static final String POLL_INTERVAL_PROPERTY = "freshness.pollinterval";
+    public static final String POLL_INTERVAL_PROPERTY_DEFAULT = "10";
+    public static final String MAX_POLL_INTERVAL_PROPERTY = "freshness.maxpollinterval";
+    public static final String MAX_POLL_INTERVAL_PROPERTY_DEFAULT = "1000";
+    public static final String TIMEOUT_PROPERTY = "freshness.timeout";
+    public static final String TIMEOUT_PROPERTY_DEFAULT = "60000";
+    public static final String METRIC_PROPERTY = "freshness.metric";
+    public static final String TAG_PROPERTY = "freshness.tag";
+    public static final String TAG_VALUE_PROPERTY = "freshness.tagvalue";
+    public static final String TAG_VALUE_PROPERTY_DEFAULT = "freshness";
+
+    public static final String OPERATION = "FRESHNESS";
+
+    /**
+     * A sentinel that was inserted and is not visible yet.
+     */
+    private static final class Sentinel {
+        final long timestamp;
+        final long insertedNanos;
+        /** When the poller reads the sentinel next, and how long it waits after that read if it missed. */
+        long nextReadNanos;
+        long waitNanos;
+
+        Sentinel(long timestamp, long insertedNanos, long waitNanos) {
+            this.timestamp = timestamp;
+            this.insertedNanos = insertedNanos;
+            this.nextReadNanos = insertedNanos;
+            this.waitNanos = waitNanos;
+        }
+    }
+
+    private final DB insertDb;
+    private final DB readDb;
+    private final long intervalNanos;
+    private final long pollIntervalNanos;
+    private final long maxPollIntervalNanos;
+    private final long timeoutNanos;
+    private final String metric;
+    private final String tag;
+    private final String tagValue;
+    private final TagFilter filter;
+    private final Measurements measurements;
+    private final BlockingQueue<Sentinel> inserted = new LinkedBlockingQueue<Sentinel>();
+    private final Thread poller;
+    private volatile boolean stopped;
+
+    /**
+     * @param insertDb the DB instance that inserts the sentinels, used by this thread only
+     * @param readDb   the DB instance that polls them, used by the polling thread only
+     */
+    public FreshnessProbe(DB insertDb, DB readDb, Properties props) {
+        super("freshness-probe");
+        setDaemon(true);
+        // the probe is not measured as normal operations
+        this.insertDb = insertDb instanceof DBWrapper ? ((DBWrapper) insertDb)._db : insertDb;
+        this.readDb = readDb instanceof DBWrapper ? ((DBWrapper) readDb)._db : readDb;
+        intervalNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(
+                props.getProperty(INTERVAL_PROPERTY, INTERVAL_PROPERTY_DEFAULT)));
+        pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(
+                props.getProperty(POLL_INTERVAL_PROPERTY, POLL_INTERVAL_PROPERTY_DEFAULT)));
+        maxPollIntervalNanos = Math.max(pollIntervalNanos, TimeUnit.MILLISECONDS.toNanos(Long.parseLong(
+                props.getProperty(MAX_POLL_INTERVAL_PROPERTY, MAX_POLL_INTERVAL_PROPERTY_DEFAULT))));
+        timeoutNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(
+                props.getProperty(TIMEOUT_PROPERTY, TIMEOUT_PROPERTY_DEFAULT)));
+        metric = props.getProperty(METRIC_PROPERTY, props.getProperty(CoreWorkload.METRICNAME_PROPERTY,
+                CoreWorkload.METRICNAME_PROPERTY_DEFAULT));
+        tag = props.getProperty(TAG_PROPERTY, props.getProperty(CoreWorkload.TAG_PREFIX_PROPERTY,
+                CoreWorkload.TAG_PREFIX_PROPERTY_DEFAULT) + "0");
+        tagValue = props.getProperty(TAG_VALUE_PROPERTY, TAG_VALUE_PROPERTY_DEFAULT);
+        filter = TagFilter.of(new String[]{tag}, new String[][]{{tagValue}});
+        measurements = Measurements.getMeasurements();
+        poller = new Thread("freshness-poller") {
+            @Override
+            public void run() {
+                poll();
+            }
+        };
+        poller.setDaemon(true);
+    }
+
+    /**
+     * @return true if props enable the probe
+     */
+    public static boolean isEnabled(Properties props) {
+        return Long.parseLong(props.getProperty(INTERVAL_PROPERTY, INTERVAL_PROPERTY_DEFAULT)) > 0;
+    }
+
+    /**
+     * Stops inserting sentinels and waits until the pending ones are visible or timed out. An insert in progress is
+     * not interrupted, only the wait for the next one.
+     */
+    public void stopProbe() throws InterruptedException {
+        stopped = true;
+        LockSupport.unpark(this);
+        join();
+        poller.join();
+    }
+
+    @Override
+    public void run() {
+        try {
+            insertDb.init();
+        } catch (DBException e) {
+            System.err.println("ERROR: Could not initialize the DB of the freshness probe: " + e.getMessage());
+            return;
+        }
+        poller.start();
+        DataPoint point = new DataPoint(1);
+        long next = System.nanoTime();
+        long timestamp = 0;
+        for (long sequence = 0; !stopped; sequence++) {
+            // two sentinels in the same ms would be one point in the database
+            timestamp = Math.max(System.currentTimeMillis(), timestamp + 1);
+            point.reset(metric, timestamp, sequence);
+            point.addTag(tag, null, tagValue);
+            int res = insertDb.insert(point);
+            if (res == 0) {
+                inserted.add(new Sentinel(point.getTimestamp(), System.nanoTime(), pollIntervalNanos));
+            } else {
+                measurements.reportReturnCode(OPERATION, res);
+            }
+            next += intervalNanos;
+            long now = System.nanoTime();
+            if (next < now) {
+                next = now;
+            }
+            while (!stopped && (now = System.nanoTime()) < next) {
+                LockSupport.parkNanos(this, next - now);
+            }
+        }
+        try {
+            insertDb.cleanup();
+        } catch (DBException e) {
+            System.err.println("WARNING: Could not clean up the DB of the freshness probe: " + e.getMessage());
+        }
+    }
+
+    private void poll() {
+        try {
+            readDb.init();
+        } catch (DBException e) {
+            System.err.println("ERROR: Could not initialize the DB of the freshness poller: " + e.getMessage());
+            return;
+        }
+        List<Sentinel> pending = new ArrayList<Sentinel>();
+        while (isAlive() || !inserted.isEmpty() || !pending.isEmpty()) {
+            inserted.drainTo(pending);
+            // new sentinels are picked up within one poll interval
+            long wakeup = System.nanoTime() + pollIntervalNanos;
+            for (Iterator<Sentinel> it = pending.iterator(); it.hasNext(); ) {
+                Sentinel sentinel = it.next();
+                long now = System.nanoTime();
+                if (now - sentinel.insertedNanos > timeoutNanos) {
+                    measurements.reportReturnCode(OPERATION, -1);
+                    it.remove();
+                    continue;
+                }
+                if (now - sentinel.nextReadNanos >= 0) {
+                    boolean visible = isVisible(sentinel);
+                    // the end of the read, so a delayed poller can't make the lag look shorter than it is
+                    long st = System.nanoTime();
+                    if (visible) {
+                        measurements.measure(OPERATION, (st - sentinel.insertedNanos) / 1000);
+                        measurements.reportReturnCode(OPERATION, 0);
+                        it.remove();
+                        continue;
+                    }
+                    sentinel.nextReadNanos = st + sentinel.waitNanos;
+                    sentinel.waitNanos = Math.min(2 * sentinel.waitNanos, maxPollIntervalNanos);
+                }
+                if (sentinel.nextReadNanos - wakeup < 0) {
+                    wakeup = sentinel.nextReadNanos;
+                }
+            }
+            ClientThread.sleepUntil(wakeup);
+        }
+        try {
+            readDb.cleanup();
+        } catch (DBException e) {
+            System.err.println("WARNING: Could not clean up the DB of the freshness poller: " + e.getMessage());
+        }
+    }
+
+    private boolean isVisible(Sentinel sentinel) {
+        readDb._resultPoints = -1;
+        int res = readDb.read(metric, sentinel.timestamp, TimeUnit.MILLISECONDS, filter);
+        return res == 0 && readDb._resultPoints != 0;
+    }
+}
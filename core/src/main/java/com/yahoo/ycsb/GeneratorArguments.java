@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.Properties;
+
+/**
+ * Command line of the offline generators ({@link TraceGenerator}, {@link com.yahoo.ycsb.bulk.BulkLoadGenerator}):
+ * the subset of the Client options that defines the operations of a workload.
+ */
+public class GeneratorArguments {
+    private final Properties props;
+    private final boolean dotransactions;
+
+    private GeneratorArguments(Properties props, boolean dotransactions) {
+        this.props = props;
+        this.dotransactions = dotransactions;
+    }
+
+    public static void printOptions() {
+        System.out.println("Options:");
+        System.out.println("  -threads n: generate for n client threads, one partition or output file each (default: 1)");
+        System.out.println("  -load:  generate the loading phase of the workload");
+        System.out.println("  -t:  generate the transactions phase of the workload (default)");
+        System.out.println("  -P propertyfile: load properties from the given file. Multiple files can");
+        System.out.println("           be specified, and will be processed in the order specified");
+        System.out.println("  -p name=value:  specify a property to be passed to the workload;");
+        System.out.println("          multiple properties can be specified, and override any");
+        System.out.println("          values in the propertyfile");
+    }
+
+    /**
+     * Parse the command line; -db is accepted for compatibility with bin/ycsb and ignored.
+     *
+     * @return the arguments, or null if they are invalid (a message was printed)
+     */
+    @SuppressWarnings("unchecked")
+    public static GeneratorArguments parse(String[] args) {
+        Properties props = new Properties();
+        Properties fileprops = new Properties();
+        boolean dotransactions = true;
+
+        int argindex = 0;
+        while (argindex < args.length) {
+            String arg = args[argindex];
+            if (arg.equals("-threads") && argindex + 1 < args.length) {
+                props.setProperty(Client.THREAD_COUNT_PROPERTY, args[++argindex]);
+            }
+            else if (arg.equals("-load")) {
+                dotransactions = false;
+            }
+            else if (arg.equals("-t")) {
+                dotransactions = true;
+            }
+            else if (arg.equals("-db") && argindex + 1 < args.length) {
+                // The generated operations do not depend on the database
+                argindex++;
+            }
+            else if (arg.equals("-P") && argindex + 1 < args.length) {
+                String propfile = args[++argindex];
+                Properties myfileprops = new Properties();
+                try {
+                    myfileprops.load(new FileInputStream(propfile));
+                }
+                catch (IOException e) {
+                    System.out.println(e.getMessage());
+                    return null;
+                }
+                for (Enumeration e = myfileprops.propertyNames(); e.hasMoreElements(); ) {
+                    String prop = (String) e.nextElement();
+                    fileprops.setProperty(prop, myfileprops.getProperty(prop));
+                }
+            }
+            else if (arg.equals("-p") && argindex + 1 < args.length && args[argindex + 1].indexOf('=') >= 0) {
+                String property = args[++argindex];
+                int eq = property.indexOf('=');
+                props.setProperty(property.substring(0, eq), property.substring(eq + 1));
+            }
+            else {
+                System.out.println("Unknown or incomplete option " + arg);
+                return null;
+            }
+            argindex++;
+        }
+
+        //overwrite file properties with properties from the command line
+        for (Enumeration e = props.propertyNames(); e.hasMoreElements(); ) {
+            String prop = (String) e.nextElement();
+            fileprops.setProperty(prop, props.getProperty(prop));
+        }
+        if (!Client.checkRequiredProperties(fileprops)) {
+            return null;
+        }
+        return new GeneratorArguments(fileprops, dotransactions);
+    }
+
+    public Properties getProperties() {
+        return props;
+    }
+
+    public boolean isTransactions() {
+        return dotransactions;
+    }
+
+    public int getThreadCount() {
+        return Integer.parseInt(props.getProperty(Client.THREAD_COUNT_PROPERTY, "1"));
+    }
+
+    /**
+     * @return the number of operations of the phase, like Client computes it
+     */
+    public int getOperationCount() {
+        if (dotransactions) {
+            return Integer.parseInt(props.getProperty(Client.OPERATION_COUNT_PROPERTY, "0"));
+        }
+        else if (props.containsKey(Client.INSERT_COUNT_PROPERTY)) {
+            return Integer.parseInt(props.getProperty(Client.INSERT_COUNT_PROPERTY, "0"));
+        }
+        return Integer.parseInt(props.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT));
+    }
+
+    /**
+     * @return the number of operations of client thread threadid, like Client splits them
+     */
+    public int getOperationCount(int threadid) {
+        int opcount = getOperationCount();
+        int threadcount = getThreadCount();
+        int threadopcount = opcount / threadcount;
+        if (threadid < opcount % threadcount) {
+            ++threadopcount;
+        }
+        return threadopcount;
+    }
+
+    /**
+     * Instantiate and initialize the workload, exits on errors.
+     */
+    public Workload createWorkload() {
+        Measurements.setProperties(props);
+        Client.initRandom(props);
+        try {
+            Workload workload = (Workload) GeneratorArguments.class.getClassLoader()
+                    .loadClass(props.getProperty(Client.WORKLOAD_PROPERTY)).newInstance();
+            workload.init(props);
+            return workload;
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+            return null;
+        }
+    }
+}
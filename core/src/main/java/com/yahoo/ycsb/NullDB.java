@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A DB that only consumes its arguments, to measure the throughput the client itself can generate (see
+ * bin/ceiling.sh). Unlike {@link BasicDB} it never prints: every argument, including all tag values, is folded into
+ * a per-thread hash that is published when the thread is cleaned up, so the JIT can't drop the work of generating
+ * it. Every operation succeeds.
+ */
+public class NullDB extends DB {
+    /** The hashes of all cleaned up instances, only written to keep the JIT from removing the work. */
+    public static volatile long sink;
+
+    private long hash = 0;
+
+    private void consume(long value) {
+        hash = 31 * hash + value;
+    }
+
+    private void consume(String value) {
+        consume(value.hashCode());
+    }
+
+    private void consume(byte[] bytes, int length) {
+        long h = hash;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + bytes[i];
+        }
+        hash = h;
+    }
+
+    private void consume(TagFilter tags) {
+        for (int i = 0; i < tags.size(); i++) {
+            consume(tags.getTagName(i));
+            for (int j = 0; j < tags.getValueCount(i); j++) {
+                consume(tags.getValue(i, j));
+            }
+        }
+    }
+
+    private void consume(Map<String, ? extends List<String>> tags) {
+        for (Map.Entry<String, ? extends List<String>> tag : tags.entrySet()) {
+            consume(tag.getKey());
+            for (String value : tag.getValue()) {
+                consume(value);
+            }
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        sink += hash;
+    }
+
+    @Override
+    public int insert(DataPoint point) {
+        consume(point.getMetric());
+        consume(point.getTimestamp());
+        consume(Double.doubleToRawLongBits(point.getValue()));
+        for (int i = 0; i < point.getTagCount(); i++) {
+            consume(point.getTagName(i));
+            consume(point.getTagValueBytes(i), point.getTagValueLength(i));
+        }
+        return 0;
+    }
+
+    @Override
+    public int insert(String metric, Timestamp timestamp, double value, HashMap<String, ByteIterator> tags) {
+        consume(metric);
+        consume(timestamp.getTime());
+        consume(Double.doubleToRawLongBits(value));
+        for (Map.Entry<String, ByteIterator> tag : tags.entrySet()) {
+            consume(tag.getKey());
+            byte[] bytes = tag.getValue().toArray();
+            consume(bytes, bytes.length);
+        }
+        return 0;
+    }
+
+    @Override
+    public int read(String metric, long timestamp, TimeUnit precision, TagFilter tags) {
+        consume(metric);
+        consume(precision.toNanos(timestamp));
+        consume(tags);
+        return 0;
+    }
+
+    @Override
+    public int read(String metric, Timestamp timestamp, HashMap<String, ArrayList<String>> tags) {
+        consume(metric);
+        consume(timestamp.getTime());
+        consume(tags);
+        return 0;
+    }
+
+    @Override
+    public int scan(String metric, long startTs, long endTs, TimeUnit precision, TagFilter tags,
+                    boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+        consume(metric);
+        consume(precision.toNanos(startTs));
+        consume(precision.toNanos(endTs));
+        consume(tags);
+        consume((avg ? 4 : 0) + (count ? 2 : 0) + (sum ? 1 : 0) + 8L * timeValue);
+        return 0;
+    }
+
+    @Override
+    public int scan(String metric, Timestamp startTs, Timestamp endTs, HashMap<String, ArrayList<String>> tags,
+                    boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+        consume(metric);
+        consume(startTs.getTime());
+        consume(endTs.getTime());
+        consume(tags);
+        consume((avg ? 4 : 0) + (count ? 2 : 0) + (sum ? 1 : 0) + 8L * timeValue);
+        return 0;
+    }
+}
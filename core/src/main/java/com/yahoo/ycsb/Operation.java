@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+/**
+ * The operations a workload can issue against a {@link DB}.
+ * The constant names are also the names under which the operations are measured and reported.
+ */
+public enum Operation {
+    READ,
+    INSERT,
+    SCAN,
+    AVG,
+    COUNT,
+    SUM;
+
+    /**
+     * Map the aggregation flags of {@link DB#scan} to the operation they represent.
+     * Flags are evaluated in the order avg, count, sum, like the bindings do.
+     */
+    public static Operation forScan(boolean avg, boolean count, boolean sum) {
+        if (avg) {
+            return AVG;
+        }
+        else if (count) {
+            return COUNT;
+        }
+        else if (sum) {
+            return SUM;
+        }
+        return SCAN;
+    }
+}
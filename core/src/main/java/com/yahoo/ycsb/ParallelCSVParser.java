@@ -0,0 +1,295 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Parses a (possibly gzip compressed) CSV file with a header line in parallel, delivering the records in file order.
+ * <p/>
+ * The calling thread cuts the file into chunks of about 1MB at record boundaries: plain files are memory-mapped in
+ * large windows, gzip files are streamed. A pool of parser threads parses the chunks and maps the records, see
+ * {@link RecordMapper}; the results are handed to a {@link RecordSink} chunk by chunk, in order. The number of
+ * parsed but not yet delivered chunks is bounded, so a slow sink throttles parsing.
+ */
+public class ParallelCSVParser {
+    /** Minimum size of a chunk that is parsed by one parser thread. */
+    private static final int CHUNK_SIZE = 1 << 20;
+    /** Size of one mapped window of the file. */
+    private static final int WINDOW_SIZE = 64 << 20;
+    /** Size of the prefix of the file that is read to find the headers; grows for huge headers. */
+    private static final int HEADER_PROBE_SIZE = 64 << 10;
+
+    /**
+     * Converts a parsed record, called concurrently by the parser threads.
+     */
+    public interface RecordMapper<T> {
+        /**
+         * @return the converted record, or null to drop it
+         */
+        T map(String[] record);
+    }
+
+    /**
+     * Receives the converted records, in file order, on the thread that called {@link #parse}.
+     */
+    public interface RecordSink<T> {
+        void accept(List<T> records) throws InterruptedException;
+    }
+
+    private final File file;
+    private final boolean gzip;
+    private final int parserThreads;
+    private String[] headers;
+    /** Offset of the first record after the headers, in the uncompressed data. */
+    private long dataStart;
+
+    /**
+     * Files whose name ends with .gz are read as gzip compressed.
+     */
+    public ParallelCSVParser(File file, int parserThreads) throws IOException {
+        this(file, file.getName().endsWith(".gz"), parserThreads);
+    }
+
+    public ParallelCSVParser(File file, boolean gzip, int parserThreads) throws IOException {
+        this.file = file;
+        this.gzip = gzip;
+        this.parserThreads = Math.max(1, parserThreads);
+        readHeaders();
+    }
+
+    private InputStream openStream() throws IOException {
+        InputStream in = new FileInputStream(file);
+        return gzip ? new GZIPInputStream(in, 1 << 16) : in;
+    }
+
+    private void readHeaders() throws IOException {
+        InputStream in = openStream();
+        try {
+            byte[] buf = new byte[HEADER_PROBE_SIZE];
+            int filled = 0;
+            ArrayList<Integer> ends = new ArrayList<Integer>();
+            while (true) {
+                int n = in.read(buf, filled, buf.length - filled);
+                boolean eof = n < 0;
+                if (!eof) {
+                    filled += n;
+                }
+                ends.clear();
+                // minChunk 0 puts every record into its own chunk, the first one are the headers
+                CSVRecordParser.splitChunks(ByteBuffer.wrap(buf), 0, filled, 0, ends);
+                if (!ends.isEmpty() || eof) {
+                    int end = ends.isEmpty() ? filled : ends.get(0);
+                    ArrayList<String> fields = new ArrayList<String>();
+                    CSVRecordParser.parseRecord(buf, 0, end, fields, new ByteArrayOutputStream());
+                    this.headers = fields.toArray(new String[fields.size()]);
+                    this.dataStart = end;
+                    return;
+                }
+                if (filled == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                }
+            }
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    public String[] getHeaders() {
+        return headers.clone();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Parse all records after the headers. Blocks until the whole file was delivered to sink.
+     */
+    public <T> void parse(RecordMapper<T> mapper, RecordSink<T> sink) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(parserThreads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "csv-parser");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        ArrayDeque<Future<List<T>>> inFlight = new ArrayDeque<Future<List<T>>>();
+        try {
+            if (gzip) {
+                parseStream(pool, inFlight, mapper, sink);
+            }
+            else {
+                parseMapped(pool, inFlight, mapper, sink);
+            }
+            while (!inFlight.isEmpty()) {
+                sink.accept(inFlight.poll().get());
+            }
+        }
+        catch (ExecutionException e) {
+            throw new IOException("Can't parse " + file.getAbsolutePath() + ".", e.getCause());
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private <T> void submit(ExecutorService pool, ArrayDeque<Future<List<T>>> inFlight, ByteBuffer buf, int from, int to,
+                            RecordMapper<T> mapper, RecordSink<T> sink) throws InterruptedException, ExecutionException {
+        inFlight.add(pool.submit(parseTask(buf, from, to, mapper)));
+        // Bound the number of parsed but undelivered chunks
+        while (inFlight.size() >= parserThreads * 2) {
+            sink.accept(inFlight.poll().get());
+        }
+    }
+
+    private <T> void parseMapped(ExecutorService pool, ArrayDeque<Future<List<T>>> inFlight, RecordMapper<T> mapper,
+                                 RecordSink<T> sink) throws IOException, InterruptedException, ExecutionException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            long pos = dataStart;
+            int windowSize = WINDOW_SIZE;
+            ArrayList<Integer> ends = new ArrayList<Integer>();
+            while (pos < size) {
+                int length = (int) Math.min(windowSize, size - pos);
+                boolean last = pos + length == size;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, pos, length);
+                ends.clear();
+                int consumed = CSVRecordParser.splitChunks(window, 0, length, CHUNK_SIZE, ends);
+                if (last && consumed < length) {
+                    // The last record has no line break
+                    ends.add(length);
+                    consumed = length;
+                }
+                if (consumed == 0) {
+                    // A single record is larger than the window
+                    windowSize = windowSize * 2 > 0 ? windowSize * 2 : Integer.MAX_VALUE;
+                    continue;
+                }
+                int chunkStart = 0;
+                for (int chunkEnd : ends) {
+                    submit(pool, inFlight, window, chunkStart, chunkEnd, mapper, sink);
+                    chunkStart = chunkEnd;
+                }
+                pos += consumed;
+            }
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    private <T> void parseStream(ExecutorService pool, ArrayDeque<Future<List<T>>> inFlight, RecordMapper<T> mapper,
+                                 RecordSink<T> sink) throws IOException, InterruptedException, ExecutionException {
+        InputStream in = openStream();
+        try {
+            long skip = dataStart;
+            while (skip > 0) {
+                long n = in.skip(skip);
+                if (n <= 0) {
+                    throw new EOFException(file.getAbsolutePath() + " is shorter than its headers.");
+                }
+                skip -= n;
+            }
+            byte[] buf = new byte[CHUNK_SIZE];
+            int filled = 0;
+            boolean eof = false;
+            ArrayList<Integer> ends = new ArrayList<Integer>();
+            while (!eof) {
+                while (filled < buf.length) {
+                    int n = in.read(buf, filled, buf.length - filled);
+                    if (n < 0) {
+                        eof = true;
+                        break;
+                    }
+                    filled += n;
+                }
+                ends.clear();
+                int end = eof ? filled : CSVRecordParser.splitChunks(ByteBuffer.wrap(buf), 0, filled, Integer.MAX_VALUE, ends);
+                if (end == 0) {
+                    if (!eof) {
+                        // A single record is larger than the buffer
+                        buf = Arrays.copyOf(buf, buf.length * 2);
+                    }
+                    continue;
+                }
+                // The buffer now belongs to the parse task, continue with a new one
+                byte[] next = new byte[buf.length];
+                System.arraycopy(buf, end, next, 0, filled - end);
+                submit(pool, inFlight, ByteBuffer.wrap(buf), 0, end, mapper, sink);
+                filled -= end;
+                buf = next;
+            }
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    private static <T> Callable<List<T>> parseTask(final ByteBuffer buf, final int from, final int to,
+                                                   final RecordMapper<T> mapper) {
+        return new Callable<List<T>>() {
+            @Override
+            public List<T> call() {
+                String[][] records;
+                if (buf.hasArray()) {
+                    records = CSVRecordParser.parseRecords(buf.array(), buf.arrayOffset() + from, buf.arrayOffset() + to);
+                }
+                else {
+                    byte[] chunk = new byte[to - from];
+                    ByteBuffer view = buf.duplicate();
+                    view.position(from);
+                    view.get(chunk);
+                    records = CSVRecordParser.parseRecords(chunk, 0, chunk.length);
+                }
+                ArrayList<T> mapped = new ArrayList<T>(records.length);
+                for (String[] record : records) {
+                    T t = mapper.map(record);
+                    if (t != null) {
+                        mapped.add(t);
+                    }
+                }
+                return mapped;
+            }
+        };
+    }
+}
@@ -16,75 +16,76 @@
  */
 package com.yahoo.ycsb;
 
+import java.nio.charset.Charset;
+
 /**
  *  A ByteIterator that generates a random sequence of bytes.
+ *  <p/>
+ *  The bytes are alphanumeric ASCII characters, generated in bulk by {@link Utils#randomAlphanumeric}: nextBuf
+ *  writes straight into the caller's buffer and toArray/toString generate the whole value at once. The value they
+ *  return is kept, so calling both (or one of them again) returns the same value without generating or encoding it
+ *  again.
  */
 public class RandomByteIterator extends ByteIterator {
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final int CHUNK = 64;
+
     private long len;
     private long off;
     private int bufOff;
     private byte[] buf;
+    private byte[] bytes;
+    private String string;
 
     public RandomByteIterator(long len) {
         this.len = len;
-        this.buf = new byte[6];
-        this.bufOff = buf.length;
-        fillBytes();
         this.off = 0;
     }
 
     @Override
     public boolean hasNext() {
-        return (off + bufOff) < len;
+        return off < len;
     }
 
-    private void fillBytesImpl(byte[] buffer, int base) {
-        // we need A-Za-z0-9, which convertes to the range (Ascii/UTF-8):
-        // 0-9 48-57
-        // A-Z 65-90
-        // a-z 97-122
-        try {
-            buffer[base + 0] = (byte) this.getRandAN();
-            buffer[base + 1] = (byte) this.getRandAN();
-            buffer[base + 2] = (byte) this.getRandAN();
-            buffer[base + 3] = (byte) this.getRandAN();
-            buffer[base + 4] = (byte) this.getRandAN();
-            buffer[base + 5] = (byte) this.getRandAN();
-        } catch (ArrayIndexOutOfBoundsException e) { /* ignore it */ }
-    }
-
-    private void fillBytes() {
-        if (bufOff == buf.length) {
-            fillBytesImpl(buf, 0);
+    public byte nextByte() {
+        if (buf == null) {
+            buf = new byte[CHUNK];
+            bufOff = CHUNK;
+        }
+        if (bufOff == CHUNK) {
+            Utils.randomAlphanumeric(Utils.random(), buf, 0, CHUNK);
             bufOff = 0;
-            off += buf.length;
         }
-    }
-
-    public byte nextByte() {
-        fillBytes();
-        bufOff++;
-        return buf[bufOff - 1];
+        off++;
+        return buf[bufOff++];
     }
 
     @Override
     public int nextBuf(byte[] buffer, int bufferOffset) {
-        int ret;
-        if (len - off < buffer.length - bufferOffset) {
-            ret = (int) (len - off);
-        } else {
-            ret = buffer.length - bufferOffset;
-        }
-        int i;
-        for (i = 0; i < ret; i += 6) {
-            fillBytesImpl(buffer, i + bufferOffset);
-        }
+        int ret = (int) Math.min(len - off, buffer.length - bufferOffset);
+        Utils.randomAlphanumeric(Utils.random(), buffer, bufferOffset, ret);
         off += ret;
         return ret + bufferOffset;
     }
 
     @Override
     public long bytesLeft() {
-        return len - off - bufOff;
+        return len - off;
+    }
+
+    @Override
+    public byte[] toArray() {
+        if (bytes == null) {
+            bytes = super.toArray();
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        if (string == null) {
+            string = new String(toArray(), ASCII);
+        }
+        return string;
     }
 }
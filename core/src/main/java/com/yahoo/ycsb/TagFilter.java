@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, array-backed tag filter for read and scan queries: for every tag name a list of accepted tag values.
+ * Values of one tag are OR'ed, different tags are AND'ed.
+ * <p/>
+ * Filters can be built once and reused for many queries. Bindings may cache a serialized form of a filter
+ * (e.g. a query string fragment) in its attachment, see {@link #getAttachment()}.
+ */
+public final class TagFilter {
+    public static final TagFilter EMPTY = new TagFilter(new String[0], new String[0][]);
+
+    private final String[] tagNames;
+    private final String[][] tagValues;
+    private final int hash;
+    private volatile Object attachment;
+
+    private TagFilter(String[] tagNames, String[][] tagValues) {
+        this.tagNames = tagNames;
+        this.tagValues = tagValues;
+        this.hash = 31 * Arrays.hashCode(tagNames) + Arrays.deepHashCode(tagValues);
+    }
+
+    /**
+     * Build a filter from tag names and, by tag, their accepted values. Tag names must be distinct and every tag
+     * needs at least one value. The arrays are copied.
+     */
+    public static TagFilter of(String[] tagNames, String[][] tagValues) {
+        if (tagNames.length != tagValues.length) {
+            throw new IllegalArgumentException("Got " + tagNames.length + " tags but " + tagValues.length + " value lists.");
+        }
+        if (tagNames.length == 0) {
+            return EMPTY;
+        }
+        String[][] values = new String[tagValues.length][];
+        for (int i = 0; i < values.length; i++) {
+            if (tagValues[i].length == 0) {
+                throw new IllegalArgumentException("Tag " + tagNames[i] + " has no values.");
+            }
+            values[i] = tagValues[i].clone();
+        }
+        return new TagFilter(tagNames.clone(), values);
+    }
+
+    /**
+     * Build a filter from a legacy tag map. Tags without values are dropped.
+     */
+    public static TagFilter fromMap(Map<String, ? extends List<String>> tags) {
+        if (tags == null || tags.isEmpty()) {
+            return EMPTY;
+        }
+        Builder builder = new Builder();
+        for (Map.Entry<String, ? extends List<String>> entry : tags.entrySet()) {
+            for (String value : entry.getValue()) {
+                builder.add(entry.getKey(), value);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the number of tags in this filter
+     */
+    public int size() {
+        return tagNames.length;
+    }
+
+    public boolean isEmpty() {
+        return tagNames.length == 0;
+    }
+
+    public String getTagName(int i) {
+        return tagNames[i];
+    }
+
+    /**
+     * @return the number of accepted values of the i-th tag, always at least one
+     */
+    public int getValueCount(int i) {
+        return tagValues[i].length;
+    }
+
+    public String getValue(int i, int j) {
+        return tagValues[i][j];
+    }
+
+    /**
+     * Compatibility shim for bindings that only implement the map based read and scan.
+     *
+     * @return a new, mutable map of tag name to accepted tag values
+     */
+    public HashMap<String, ArrayList<String>> toMap() {
+        HashMap<String, ArrayList<String>> map = new HashMap<String, ArrayList<String>>();
+        for (int i = 0; i < tagNames.length; i++) {
+            map.put(tagNames[i], new ArrayList<String>(Arrays.asList(tagValues[i])));
+        }
+        return map;
+    }
+
+    /**
+     * @return the object a binding cached for this filter, or null
+     */
+    public Object getAttachment() {
+        return attachment;
+    }
+
+    /**
+     * Cache an object, typically a serialized query fragment, with this filter. Filters may be shared between
+     * client threads, so the attachment must be immutable and only depend on the filter (and the binding's
+     * configuration), never on the query it was first built for.
+     */
+    public void setAttachment(Object attachment) {
+        this.attachment = attachment;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TagFilter)) {
+            return false;
+        }
+        TagFilter other = (TagFilter) o;
+        return hash == other.hash && Arrays.equals(tagNames, other.tagNames)
+                && Arrays.deepEquals(tagValues, other.tagValues);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < tagNames.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(tagNames[i]).append('=').append(Arrays.toString(tagValues[i]));
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Collects tag name/value pairs; tags keep the order in which they were first added.
+     */
+    public static final class Builder {
+        private final ArrayList<String> names = new ArrayList<String>();
+        private final ArrayList<ArrayList<String>> values = new ArrayList<ArrayList<String>>();
+
+        /**
+         * Accept value for tag. Adding the same pair twice has no effect.
+         */
+        public Builder add(String tag, String value) {
+            int i = names.indexOf(tag);
+            if (i < 0) {
+                names.add(tag);
+                values.add(new ArrayList<String>());
+                i = names.size() - 1;
+            }
+            if (!values.get(i).contains(value)) {
+                values.get(i).add(value);
+            }
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return names.isEmpty();
+        }
+
+        public TagFilter build() {
+            if (names.isEmpty()) {
+                return EMPTY;
+            }
+            String[][] tagValues = new String[names.size()][];
+            for (int i = 0; i < tagValues.length; i++) {
+                tagValues[i] = values.get(i).toArray(new String[values.get(i).size()]);
+            }
+            return new TagFilter(names.toArray(new String[names.size()]), tagValues);
+        }
+    }
+}
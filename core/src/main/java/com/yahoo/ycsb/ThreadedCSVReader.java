@@ -1,10 +1,14 @@
 package com.yahoo.ycsb;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Iterator;
-import com.csvreader.CsvReader;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Created by Andreas Bader on 16.08.15.
@@ -16,28 +20,74 @@ import com.csvreader.CsvReader;
 *  but instead of reading data chunks-wise from file
 *  read it on-the-fly in a backgroudn thread
 *  and keep the buffer filled
+*
+*  The file is parsed in parallel by a ParallelCSVParser (plain files are memory-mapped, .gz files are streamed).
+*  Parsed rows are handed over in file order, in batches, through a bounded
+*  lock-free ring buffer (one producer, any number of consumers, a la Vyukov): every slot carries a sequence number
+*  that tells whether it is free or holds a published batch, so no locks or sleeps are needed and a consumer only
+*  does one CAS per batch, not per row.
 */
 
 public class ThreadedCSVReader extends Thread implements Iterator<String[]> {
 
-    private int bufferSize = 1000;
-    private String[][] al;
-    private CsvReader csvr;
+    /** Rows per ring buffer slot. */
+    private static final int BATCH_ROWS = 256;
+
+    private final ParallelCSVParser parser;
     private String[] headers;
-    private boolean csvend = false;
-    private int readPointer = -1;
-    private int writePointer = 0;
+
+    private final AtomicReferenceArray<Batch> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    /** Next slot to claim, shared by the consumers. */
+    private final AtomicLong head = new AtomicLong();
+    /** Next slot to publish, only written by this thread. */
+    private volatile long tail = 0;
+    private volatile boolean csvend = false;
+    private final ThreadLocal<Batch> current = new ThreadLocal<Batch>();
+
+    private static final class Batch {
+        private final List<String[]> rows;
+        private int pos;
+        private final int end;
+
+        private Batch(List<String[]> rows, int pos, int end) {
+            this.rows = rows;
+            this.pos = pos;
+            this.end = end;
+        }
+    }
 
     public ThreadedCSVReader(int bufferSize, String csvFile, Boolean start) {
-        this.bufferSize = bufferSize;
-        if (this.bufferSize <= 2) {
+        this(bufferSize, csvFile, Math.max(1, Runtime.getRuntime().availableProcessors() / 2), start);
+    }
+
+    /**
+     * @param bufferSize    number of parsed rows to keep ready (rounded to whole batches)
+     * @param csvFile       path of the csv file, the first record are the headers
+     * @param parserThreads number of threads that parse chunks of the file in parallel
+     * @param start         start reading immediately
+     */
+    public ThreadedCSVReader(int bufferSize, String csvFile, int parserThreads, Boolean start) {
+        if (bufferSize <= 2) {
             System.err.println("WARNING: bufferSize should be at least 3. Defaulting to 3.");
-            this.bufferSize=3;
+            bufferSize = 3;
+        }
+        if (parserThreads < 1) {
+            System.err.println("WARNING: parserThreads should be at least 1. Defaulting to 1.");
+            parserThreads = 1;
         }
+        int capacity = Integer.highestOneBit(Math.max(2, (bufferSize + BATCH_ROWS - 1) / BATCH_ROWS) * 2 - 1);
+        this.slots = new AtomicReferenceArray<Batch>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = capacity - 1;
+        ParallelCSVParser p = null;
         try {
-            this.csvr = new CsvReader(csvFile);
-            csvr.readHeaders();
-            this.headers = csvr.getHeaders();
+            p = new ParallelCSVParser(new File(csvFile), parserThreads);
+            this.headers = p.getHeaders();
         }
         catch (FileNotFoundException e) {
             System.err.println("ERROR: CSV file " + csvFile + " not found.");
@@ -49,8 +99,8 @@ public class ThreadedCSVReader extends Thread implements Iterator<String[]> {
             e.printStackTrace();
             System.exit(-1);
         }
-
-        this.al = new String[this.bufferSize][this.headers.length];
+        this.parser = p;
+        this.setDaemon(true);
         if (start) {
             this.start();
         }
@@ -62,21 +112,17 @@ public class ThreadedCSVReader extends Thread implements Iterator<String[]> {
 
     public void run() {
         try {
-            while (this.csvr.readRecord()){
-                while ((this.writePointer == this.bufferSize && (this.readPointer == 0 || this.readPointer == -1)) || (this.writePointer == this.readPointer)) {
-                    Thread.sleep(1);
+            parser.parse(new ParallelCSVParser.RecordMapper<String[]>() {
+                @Override
+                public String[] map(String[] record) {
+                    return record;
                 }
-                if (this.writePointer == this.bufferSize) {
-                    this.writePointer = 0;
+            }, new ParallelCSVParser.RecordSink<String[]>() {
+                @Override
+                public void accept(List<String[]> records) throws InterruptedException {
+                    publishRows(records);
                 }
-                al[this.writePointer] = csvr.getValues();
-                while (this.writePointer+1 == this.readPointer) {
-                    Thread.sleep(1);
-                }
-                this.writePointer++;
-            }
-            this.csvend = true;
-            csvr.close();
+            });
         }
         catch (IOException e) {
             System.err.println("ERROR: while reading CSV file.");
@@ -87,48 +133,99 @@ public class ThreadedCSVReader extends Thread implements Iterator<String[]> {
             System.err.println("ERROR: while reading CSV file #2.");
             e.printStackTrace();
         }
+        finally {
+            this.csvend = true;
+        }
     }
 
-    @Override
-    public boolean hasNext() {
-        if (this.csvend && this.readPointer == this.writePointer-1) {
-            return false;
+    private void publishRows(List<String[]> rows) throws InterruptedException {
+        for (int i = 0; i < rows.size(); i += BATCH_ROWS) {
+            publish(new Batch(rows, i, Math.min(rows.size(), i + BATCH_ROWS)));
         }
-        return true;
     }
 
-    @Override
-    public String[] next() {
-        if (! this.csvend) {
-            while (this.readPointer+1 == this.writePointer) {
-                try {
-                    Thread.sleep(1);
-                }
-                catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
+    private void publish(Batch batch) throws InterruptedException {
+        long pos = tail;
+        int index = (int) (pos & mask);
+        int idle = 0;
+        // The slot is free once the consumer of the previous round released it
+        while (sequences.get(index) != pos) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
             }
-            if (this.readPointer == this.bufferSize-1) {
-                if (this.writePointer > 0) {
-                    this.readPointer = -1;
+            idle = backoff(idle);
+        }
+        slots.set(index, batch);
+        sequences.set(index, pos + 1);
+        tail = pos + 1;
+    }
+
+    private Batch claim() {
+        int idle = 0;
+        while (true) {
+            long pos = head.get();
+            int index = (int) (pos & mask);
+            long seq = sequences.get(index);
+            if (seq == pos + 1) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    Batch batch = slots.get(index);
+                    slots.set(index, null);
+                    sequences.set(index, pos + mask + 1);
+                    return batch;
                 }
-                else {
-                    while (this.writePointer <= 0) {
-                        try {
-                            Thread.sleep(1);
-                        }
-                        catch (InterruptedException e) {
-                            e.printStackTrace();
-                        }
-                    }
-                    this.readPointer = -1;
+            }
+            else if (seq <= pos) {
+                // Nothing published yet; csvend must be read before tail
+                if (this.csvend && pos >= this.tail) {
+                    return null;
                 }
+                idle = backoff(idle);
             }
+            // else another consumer took this slot, retry with the new head
+        }
+    }
+
+    private static int backoff(int idle) {
+        if (idle < 64) {
+            // spin
+        }
+        else if (idle < 128) {
+            Thread.yield();
+        }
+        else {
+            LockSupport.parkNanos(50000L);
         }
-        if (this.readPointer < this.bufferSize-1) {
-            readPointer++;
+        return idle + 1;
+    }
+
+    /**
+     * Blocks until a row is available or the end of the file is reached. Can be called by any number of threads.
+     */
+    @Override
+    public boolean hasNext() {
+        Batch batch = current.get();
+        if (batch != null && batch.pos < batch.end) {
+            return true;
+        }
+        batch = claim();
+        current.set(batch);
+        return batch != null;
+    }
+
+    /**
+     * @return the next row, or null at the end of the file. Every row is returned to exactly one caller.
+     */
+    @Override
+    public String[] next() {
+        Batch batch = current.get();
+        if (batch == null || batch.pos >= batch.end) {
+            batch = claim();
+            current.set(batch);
+            if (batch == null) {
+                return null;
+            }
         }
-        return al[this.readPointer];
+        return batch.rows.get(batch.pos++);
     }
 
     @Override
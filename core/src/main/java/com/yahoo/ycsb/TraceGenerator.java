@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.workloads.TraceFile;
+import com.yahoo.ycsb.workloads.TraceWorkload;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the load or transaction phase of a workload against a recording DB and writes every operation to a trace
+ * file (tracefile property) that {@link TraceWorkload} replays.
+ * <p/>
+ * The trace gets one partition per thread (-threads), partition i holds the operations client thread i would do.
+ */
+public class TraceGenerator {
+
+    /**
+     * Records all operations into a trace file instead of executing them.
+     */
+    static class RecordingDB extends DB {
+        private final TraceFile.Writer writer;
+
+        RecordingDB(TraceFile.Writer writer) {
+            this.writer = writer;
+        }
+
+        private static int failed(IOException e) {
+            System.err.println("ERROR: Can't write trace file: " + e);
+            return -1;
+        }
+
+        @Override
+        public int insert(DataPoint point) {
+            try {
+                writer.writeInsert(point);
+                return 0;
+            }
+            catch (IOException e) {
+                return failed(e);
+            }
+        }
+
+        @Override
+        public int read(String metric, long timestamp, TimeUnit precision, TagFilter tags) {
+            try {
+                writer.writeRead(metric, timestamp, precision, tags);
+                return 0;
+            }
+            catch (IOException e) {
+                return failed(e);
+            }
+        }
+
+        @Override
+        public int scan(String metric, long startTs, long endTs, TimeUnit precision, TagFilter tags,
+                        boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+            try {
+                writer.writeScan(metric, startTs, endTs, precision, tags, avg, count, sum, timeValue, timeUnit);
+                return 0;
+            }
+            catch (IOException e) {
+                return failed(e);
+            }
+        }
+
+        @Override
+        public int read(String metric, Timestamp timestamp, HashMap<String, ArrayList<String>> tags) {
+            return read(metric, timestamp.getTime(), TimeUnit.MILLISECONDS, TagFilter.fromMap(tags));
+        }
+
+        @Override
+        public int scan(String metric, Timestamp startTs, Timestamp endTs, HashMap<String, ArrayList<String>> tags,
+                        boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+            return scan(metric, startTs.getTime(), endTs.getTime(), TimeUnit.MILLISECONDS, TagFilter.fromMap(tags),
+                    avg, count, sum, timeValue, timeUnit);
+        }
+
+        @Override
+        public int insert(String metric, Timestamp timestamp, double value, HashMap<String, ByteIterator> tags) {
+            DataPoint point = new DataPoint(tags.size());
+            point.reset(metric, timestamp.getTime(), value);
+            for (String tag : tags.keySet()) {
+                point.addTag(tag, null, tags.get(tag).toString());
+            }
+            return insert(point);
+        }
+    }
+
+    public static void usageMessage() {
+        System.out.println("Usage: java com.yahoo.ycsb.TraceGenerator [options]");
+        GeneratorArguments.printOptions();
+        System.out.println("");
+        System.out.println("Required properties:");
+        System.out.println("  " + Client.WORKLOAD_PROPERTY + ": the name of the workload class to use (e.g. com.yahoo.ycsb.workloads.CoreWorkload)");
+        System.out.println("  " + TraceWorkload.TRACE_FILE_PROPERTY + ": the trace file to write (default: "
+                + TraceWorkload.TRACE_FILE_PROPERTY_DEFAULT + ")");
+    }
+
+    public static void main(String[] args) {
+        GeneratorArguments arguments = GeneratorArguments.parse(args);
+        if (arguments == null) {
+            usageMessage();
+            System.exit(0);
+        }
+        Properties props = arguments.getProperties();
+        boolean dotransactions = arguments.isTransactions();
+        int threadcount = arguments.getThreadCount();
+        if (arguments.getOperationCount() <= 0) {
+            System.err.println("ERROR: A trace needs a positive " + (dotransactions ? Client.OPERATION_COUNT_PROPERTY
+                    : Client.RECORD_COUNT_PROPERTY) + ".");
+            System.exit(1);
+        }
+        File tracefile = new File(props.getProperty(TraceWorkload.TRACE_FILE_PROPERTY, TraceWorkload.TRACE_FILE_PROPERTY_DEFAULT));
+        Workload workload = arguments.createWorkload();
+
+        long st = System.currentTimeMillis();
+        try {
+            TraceFile.Writer writer = new TraceFile.Writer(tracefile, threadcount);
+            RecordingDB db = new RecordingDB(writer);
+            for (int threadid = 0; threadid < threadcount; threadid++) {
+                int threadopcount = arguments.getOperationCount(threadid);
+                writer.startPartition();
+                Utils.setRandom(Utils.newRandom(threadid));
+                Object state = workload.initThread(props, threadid, threadcount);
+                for (int i = 0; i < threadopcount; i++) {
+                    boolean more = dotransactions ? workload.doTransaction(db, state) : workload.doInsert(db, state);
+                    if (!more) {
+                        break;
+                    }
+                }
+            }
+            workload.cleanup();
+            writer.close();
+            System.err.println("Wrote " + writer.getOperationCount() + " operations in " + threadcount + " partitions ("
+                    + writer.getDictionarySize() + " distinct strings, " + tracefile.length() + " bytes) to "
+                    + tracefile.getAbsolutePath() + " in " + (System.currentTimeMillis() - st) + " ms.");
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+}
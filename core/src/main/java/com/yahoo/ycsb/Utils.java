@@ -18,6 +18,7 @@
 package com.yahoo.ycsb;
 
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Utility functions.
@@ -27,13 +28,43 @@ public class Utils {
     public static final int FNV_prime_32 = 16777619;
     public static final long FNV_offset_basis_64 = 0xCBF29CE484222325L;
     public static final long FNV_prime_64 = 1099511628211L;
-    private static final Random rand = new Random();
-    private static final ThreadLocal<Random> rng = new ThreadLocal<Random>();
+    private static final ThreadLocal<FastRandom> rng = new ThreadLocal<FastRandom>();
+    /** Streams of threads that did not get one with {@link #setRandom(FastRandom)}, after those of client threads. */
+    private static final AtomicLong unassignedStreams = new AtomicLong(1L << 32);
+    private static volatile long seed = new Random().nextLong();
 
-    public static Random random() {
-        Random ret = rng.get();
+    /**
+     * Set the seed all random streams are derived from. Runs with the same seed and number of threads draw the same
+     * random numbers in every thread, see {@link Client#SEED_PROPERTY} for what that makes reproducible.
+     */
+    public static void setSeed(long newSeed) {
+        seed = newSeed;
+        unassignedStreams.set(1L << 32);
+    }
+
+    /**
+     * @return a new generator for stream number stream of the current seed, e.g. the id of a client thread
+     */
+    public static FastRandom newRandom(long stream) {
+        return new FastRandom(seed ^ FastRandom.mix64(stream));
+    }
+
+    /**
+     * Use random for the current thread from now on.
+     */
+    public static void setRandom(FastRandom random) {
+        rng.set(random);
+    }
+
+    /**
+     * @return the generator of the current thread. Threads that were not given one with
+     * {@link #setRandom(FastRandom)} get the next unused stream, which is only reproducible if those threads start
+     * in the same order.
+     */
+    public static FastRandom random() {
+        FastRandom ret = rng.get();
         if (ret == null) {
-            ret = new Random(rand.nextLong());
+            ret = newRandom(unassignedStreams.getAndIncrement());
             rng.set(ret);
         }
         return ret;
@@ -58,6 +89,23 @@ public class Utils {
         return new String(buf);
     }
 
+    private static final byte[] ALPHANUMERIC =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".getBytes();
+
+    /**
+     * Fill len bytes of buf, starting at off, with random characters out of A-Z, a-z and 0-9
+     * (the same alphabet RandomByteIterator produces), without allocating.
+     * <p/>
+     * One nextInt(62) per character: with {@link FastRandom} that is a single multiply-shift, which measured faster
+     * than cutting several characters out of one random long and rejecting the out of range ones.
+     */
+    public static void randomAlphanumeric(Random random, byte[] buf, int off, int len) {
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            buf[i] = ALPHANUMERIC[random.nextInt(ALPHANUMERIC.length)];
+        }
+    }
+
     /**
      * Hash an integer value.
      */
@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.bulk;
+
+import com.yahoo.ycsb.DataPoint;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+
+/**
+ * Encodes data points in the native bulk import format of a database. Timestamps of the points are in milliseconds.
+ * <p/>
+ * Formats are stateless apart from the tag names given on creation, one instance can be shared by all threads.
+ */
+public abstract class BulkFormat {
+    public static final String[] NAMES = {"influx", "opentsdb", "graphite", "akumuli", "victoriametrics", "csv"};
+
+    /**
+     * @param name     one of {@link #NAMES}
+     * @param tagNames all tag names the workload uses, in column order (only needed by csv)
+     * @return the format, or null if name is unknown
+     */
+    public static BulkFormat create(String name, String[] tagNames) {
+        if (name.equals("influx")) {
+            return new Influx();
+        }
+        else if (name.equals("opentsdb")) {
+            return new OpenTSDB();
+        }
+        else if (name.equals("graphite")) {
+            return new Graphite();
+        }
+        else if (name.equals("akumuli")) {
+            return new Akumuli();
+        }
+        else if (name.equals("victoriametrics")) {
+            return new VictoriaMetrics();
+        }
+        else if (name.equals("csv")) {
+            return new Csv(tagNames);
+        }
+        return null;
+    }
+
+    /**
+     * @return the file name extension, without the dot
+     */
+    public abstract String extension();
+
+    /**
+     * Write whatever precedes the points in every file.
+     */
+    public void header(ShardWriter out) throws IOException {
+    }
+
+    public abstract void encode(DataPoint point, ShardWriter out) throws IOException;
+
+    /**
+     * Append len bytes of b, every byte in special is preceded by escape.
+     */
+    static void appendEscaped(ShardWriter out, byte[] b, int len, String special, byte escape) throws IOException {
+        int start = 0;
+        for (int i = 0; i < len; i++) {
+            if (special.indexOf(b[i]) >= 0) {
+                out.append(b, start, i - start);
+                out.append(escape);
+                start = i;
+            }
+        }
+        out.append(b, start, len - start);
+    }
+
+    /**
+     * Append len bytes of b as the content of a JSON string.
+     */
+    static void appendJson(ShardWriter out, byte[] b, int len) throws IOException {
+        int start = 0;
+        for (int i = 0; i < len; i++) {
+            int c = b[i];
+            if (c == '"' || c == '\\' || (c >= 0 && c < 0x20)) {
+                out.append(b, start, i - start);
+                if (c == '"' || c == '\\') {
+                    out.append((byte) '\\').append(b[i]);
+                }
+                else {
+                    out.appendAscii(String.format("\\u%04x", c));
+                }
+                start = i + 1;
+            }
+        }
+        out.append(b, start, len - start);
+    }
+
+    /**
+     * InfluxDB line protocol for influx -import or POST /write, nanosecond precision.
+     */
+    static class Influx extends BulkFormat {
+        @Override
+        public String extension() {
+            return "txt";
+        }
+
+        @Override
+        public void encode(DataPoint point, ShardWriter out) throws IOException {
+            byte[] metric = point.getMetric().getBytes(DataPoint.UTF8);
+            appendEscaped(out, metric, metric.length, ", ", (byte) '\\');
+            for (int i = 0; i < point.getTagCount(); i++) {
+                byte[] name = point.getTagNameBytes(i);
+                out.append((byte) ',');
+                appendEscaped(out, name, name.length, ",= ", (byte) '\\');
+                out.append((byte) '=');
+                appendEscaped(out, point.getTagValueBytes(i), point.getTagValueLength(i), ",= ", (byte) '\\');
+            }
+            out.appendAscii(" value=").append(point.getValue()).append((byte) ' ');
+            out.append(point.getTimestamp() * 1000000L).append((byte) '\n');
+        }
+    }
+
+    /**
+     * OpenTSDB put lines for tsdb import, millisecond timestamps. OpenTSDB does not allow spaces in names or values,
+     * they are written unchanged and rejected by the importer.
+     */
+    static class OpenTSDB extends BulkFormat {
+        @Override
+        public String extension() {
+            return "txt";
+        }
+
+        @Override
+        public void encode(DataPoint point, ShardWriter out) throws IOException {
+            out.appendAscii("put ");
+            out.append(point.getMetric().getBytes(DataPoint.UTF8)).append((byte) ' ');
+            out.append(point.getTimestamp()).append((byte) ' ').append(point.getValue());
+            for (int i = 0; i < point.getTagCount(); i++) {
+                out.append((byte) ' ').append(point.getTagNameBytes(i)).append((byte) '=');
+                out.append(point.getTagValueBytes(i), 0, point.getTagValueLength(i));
+            }
+            out.append((byte) '\n');
+        }
+    }
+
+    /**
+     * Graphite plaintext protocol, second timestamps. Graphite has no tags, like the binding they are dropped.
+     */
+    static class Graphite extends BulkFormat {
+        @Override
+        public String extension() {
+            return "txt";
+        }
+
+        @Override
+        public void encode(DataPoint point, ShardWriter out) throws IOException {
+            out.append(point.getMetric().getBytes(DataPoint.UTF8)).append((byte) ' ').append(point.getValue());
+            out.append((byte) ' ').append(point.getTimestamp() / 1000).append((byte) '\n');
+        }
+    }
+
+    /**
+     * Akumuli RESP series/timestamp/value triples as the binding sends them, nanosecond timestamps.
+     */
+    static class Akumuli extends BulkFormat {
+        private static final byte[] CRLF_COLON = "\r\n:".getBytes();
+        private static final byte[] CRLF_PLUS = "\r\n+".getBytes();
+        private static final byte[] CRLF = "\r\n".getBytes();
+
+        @Override
+        public String extension() {
+            return "resp";
+        }
+
+        @Override
+        public void encode(DataPoint point, ShardWriter out) throws IOException {
+            out.append((byte) '+').append(point.getMetric().getBytes(DataPoint.UTF8));
+            for (int i = 0; i < point.getTagCount(); i++) {
+                out.append((byte) ' ').append(point.getTagNameBytes(i)).append((byte) '=');
+                out.append(point.getTagValueBytes(i), 0, point.getTagValueLength(i));
+            }
+            out.append(CRLF_COLON).append(point.getTimestamp() * 1000000L);
+            out.append(CRLF_PLUS).append(point.getValue()).append(CRLF);
+        }
+    }
+
+    /**
+     * VictoriaMetrics JSON lines for /api/v1/import, one point per line, millisecond timestamps.
+     */
+    static class VictoriaMetrics extends BulkFormat {
+        @Override
+        public String extension() {
+            return "json";
+        }
+
+        @Override
+        public void encode(DataPoint point, ShardWriter out) throws IOException {
+            byte[] metric = point.getMetric().getBytes(DataPoint.UTF8);
+            out.appendAscii("{\"metric\":{\"__name__\":\"");
+            appendJson(out, metric, metric.length);
+            for (int i = 0; i < point.getTagCount(); i++) {
+                byte[] name = point.getTagNameBytes(i);
+                out.appendAscii("\",\"");
+                appendJson(out, name, name.length);
+                out.appendAscii("\":\"");
+                appendJson(out, point.getTagValueBytes(i), point.getTagValueLength(i));
+            }
+            out.appendAscii("\"},\"values\":[").append(point.getValue());
+            out.appendAscii("],\"timestamps\":[").append(point.getTimestamp()).appendAscii("]}\n");
+        }
+    }
+
+    /**
+     * CSV for COPY into the table of the JDBC binding: YCSB_KEY (timestamp), VALUE and one column per tag name.
+     * Tags a point does not have are empty, fields with separators or quotes are quoted.
+     */
+    static class Csv extends BulkFormat {
+        private final String[] tagNames;
+
+        Csv(String[] tagNames) {
+            this.tagNames = tagNames;
+        }
+
+        @Override
+        public String extension() {
+            return "csv";
+        }
+
+        @Override
+        public void header(ShardWriter out) throws IOException {
+            out.appendAscii("YCSB_KEY,VALUE");
+            for (String tagName : tagNames) {
+                out.append((byte) ',').append(tagName.getBytes(DataPoint.UTF8));
+            }
+            out.append((byte) '\n');
+        }
+
+        private static void appendField(ShardWriter out, byte[] b, int len) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < len && !quote; i++) {
+                quote = b[i] == ',' || b[i] == '"' || b[i] == '\n' || b[i] == '\r';
+            }
+            if (!quote) {
+                out.append(b, 0, len);
+                return;
+            }
+            out.append((byte) '"');
+            appendEscaped(out, b, len, "\"", (byte) '"');
+            out.append((byte) '"');
+        }
+
+        @Override
+        public void encode(DataPoint point, ShardWriter out) throws IOException {
+            out.appendAscii(new Timestamp(point.getTimestamp()).toString()).append((byte) ',').append(point.getValue());
+            int tags = point.getTagCount();
+            for (String tagName : tagNames) {
+                out.append((byte) ',');
+                // Few tags per point, a linear search is cheaper than a map per point
+                for (int i = 0; i < tags; i++) {
+                    if (point.getTagName(i).equals(tagName)) {
+                        appendField(out, point.getTagValueBytes(i), point.getTagValueLength(i));
+                        break;
+                    }
+                }
+            }
+            out.append((byte) '\n');
+        }
+    }
+}
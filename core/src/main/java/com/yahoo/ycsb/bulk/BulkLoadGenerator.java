@@ -0,0 +1,264 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.bulk;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DataPoint;
+import com.yahoo.ycsb.GeneratorArguments;
+import com.yahoo.ycsb.TagFilter;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.workloads.CoreWorkload;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the load phase of a workload without a database and writes the inserted points as files in the native bulk
+ * import format of a database (bulkformat property), so the same data set can be loaded with the database's own
+ * tools.
+ * <p/>
+ * Every thread (-threads) writes its own file bulkdir/bulkfileprefix-threadid.extension with the points client thread
+ * threadid would insert. Only inserts are written; reads and scans of a transaction phase (-t) are skipped.
+ */
+public class BulkLoadGenerator {
+    public static final String BULK_FORMAT_PROPERTY = "bulkformat";
+    public static final String BULK_DIR_PROPERTY = "bulkdir";
+    public static final String BULK_DIR_PROPERTY_DEFAULT = ".";
+    public static final String BULK_GZIP_PROPERTY = "bulkgzip";
+    public static final String BULK_GZIP_PROPERTY_DEFAULT = "false";
+    public static final String BULK_FILE_PREFIX_PROPERTY = "bulkfileprefix";
+    public static final String BULK_FILE_PREFIX_PROPERTY_DEFAULT = "bulk";
+
+    /**
+     * Encodes all inserted points into a shard file instead of executing them.
+     */
+    static class BulkDB extends DB {
+        private final BulkFormat format;
+        private final ShardWriter out;
+        private long points = 0;
+
+        BulkDB(BulkFormat format, ShardWriter out) {
+            this.format = format;
+            this.out = out;
+        }
+
+        long getPoints() {
+            return points;
+        }
+
+        @Override
+        public int insert(DataPoint point) {
+            try {
+                format.encode(point, out);
+                points++;
+                return 0;
+            }
+            catch (IOException e) {
+                System.err.println("ERROR: Can't write bulk file: " + e);
+                return -1;
+            }
+        }
+
+        @Override
+        public int read(String metric, long timestamp, TimeUnit precision, TagFilter tags) {
+            return 0;
+        }
+
+        @Override
+        public int scan(String metric, long startTs, long endTs, TimeUnit precision, TagFilter tags,
+                        boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+            return 0;
+        }
+
+        @Override
+        public int read(String metric, Timestamp timestamp, HashMap<String, ArrayList<String>> tags) {
+            return 0;
+        }
+
+        @Override
+        public int scan(String metric, Timestamp startTs, Timestamp endTs, HashMap<String, ArrayList<String>> tags,
+                        boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+            return 0;
+        }
+
+        @Override
+        public int insert(String metric, Timestamp timestamp, double value, HashMap<String, ByteIterator> tags) {
+            DataPoint point = new DataPoint(tags.size());
+            point.reset(metric, timestamp.getTime(), value);
+            for (String tag : tags.keySet()) {
+                point.addTag(tag, null, tags.get(tag).toString());
+            }
+            return insert(point);
+        }
+    }
+
+    /**
+     * Generates the points of one client thread into one file.
+     */
+    static class ShardThread extends Thread {
+        private final Workload workload;
+        private final Properties props;
+        private final boolean dotransactions;
+        private final int threadid;
+        private final int threadcount;
+        private final int opcount;
+        private final BulkDB db;
+        private final ShardWriter out;
+        private Exception error = null;
+
+        ShardThread(Workload workload, Properties props, boolean dotransactions, int threadid, int threadcount,
+                    int opcount, BulkFormat format, ShardWriter out) {
+            super("bulk-" + threadid);
+            this.workload = workload;
+            this.props = props;
+            this.dotransactions = dotransactions;
+            this.threadid = threadid;
+            this.threadcount = threadcount;
+            this.opcount = opcount;
+            this.db = new BulkDB(format, out);
+            this.out = out;
+        }
+
+        @Override
+        public void run() {
+            Utils.setRandom(Utils.newRandom(threadid));
+            try {
+                Object state = workload.initThread(props, threadid, threadcount);
+                for (int i = 0; i < opcount; i++) {
+                    boolean more = dotransactions ? workload.doTransaction(db, state) : workload.doInsert(db, state);
+                    if (!more) {
+                        break;
+                    }
+                }
+                out.close();
+            }
+            catch (Exception e) {
+                error = e;
+            }
+        }
+    }
+
+    /**
+     * @return the tag names of the workload, from the tag properties if it is not a CoreWorkload
+     */
+    static String[] tagNames(Workload workload, Properties props) {
+        if (workload instanceof CoreWorkload) {
+            return ((CoreWorkload) workload).getTagNames();
+        }
+        int tagcount = Integer.parseInt(props.getProperty(CoreWorkload.TAG_COUNT_PROPERTY,
+                CoreWorkload.TAG_COUNT_PROPERTY_DEFAULT));
+        String prefix = props.getProperty(CoreWorkload.TAG_PREFIX_PROPERTY, CoreWorkload.TAG_PREFIX_PROPERTY_DEFAULT);
+        String[] names = new String[tagcount];
+        for (int i = 0; i < tagcount; i++) {
+            names[i] = prefix + i;
+        }
+        return names;
+    }
+
+    public static void usageMessage() {
+        System.out.println("Usage: java com.yahoo.ycsb.bulk.BulkLoadGenerator [options]");
+        GeneratorArguments.printOptions();
+        System.out.println("");
+        System.out.println("Required properties:");
+        System.out.println("  " + Client.WORKLOAD_PROPERTY + ": the name of the workload class to use (e.g. com.yahoo.ycsb.workloads.CoreWorkload)");
+        System.out.println("  " + BULK_FORMAT_PROPERTY + ": the file format, one of " + Arrays.toString(BulkFormat.NAMES));
+        System.out.println("");
+        System.out.println("Optional properties:");
+        System.out.println("  " + BULK_DIR_PROPERTY + ": the directory to write the files to (default: "
+                + BULK_DIR_PROPERTY_DEFAULT + ")");
+        System.out.println("  " + BULK_FILE_PREFIX_PROPERTY + ": the file name prefix (default: "
+                + BULK_FILE_PREFIX_PROPERTY_DEFAULT + ")");
+        System.out.println("  " + BULK_GZIP_PROPERTY + ": gzip the files (default: " + BULK_GZIP_PROPERTY_DEFAULT + ")");
+    }
+
+    public static void main(String[] args) {
+        GeneratorArguments arguments = GeneratorArguments.parse(args);
+        if (arguments == null) {
+            usageMessage();
+            System.exit(0);
+        }
+        Properties props = arguments.getProperties();
+        boolean dotransactions = arguments.isTransactions();
+        int threadcount = arguments.getThreadCount();
+        String formatName = props.getProperty(BULK_FORMAT_PROPERTY, "");
+        if (BulkFormat.create(formatName, new String[0]) == null) {
+            System.err.println("ERROR: Unknown " + BULK_FORMAT_PROPERTY + " '" + formatName + "', use one of "
+                    + Arrays.toString(BulkFormat.NAMES) + ".");
+            System.exit(1);
+        }
+        if (dotransactions) {
+            System.err.println("WARNING: Generating the transactions phase, only its inserts are written.");
+        }
+        File dir = new File(props.getProperty(BULK_DIR_PROPERTY, BULK_DIR_PROPERTY_DEFAULT));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            System.err.println("ERROR: Can't create " + dir.getAbsolutePath() + ".");
+            System.exit(1);
+        }
+        boolean gzip = Boolean.parseBoolean(props.getProperty(BULK_GZIP_PROPERTY, BULK_GZIP_PROPERTY_DEFAULT));
+        String prefix = props.getProperty(BULK_FILE_PREFIX_PROPERTY, BULK_FILE_PREFIX_PROPERTY_DEFAULT);
+        Workload workload = arguments.createWorkload();
+        BulkFormat format = BulkFormat.create(formatName, tagNames(workload, props));
+
+        long st = System.currentTimeMillis();
+        try {
+            ShardThread[] threads = new ShardThread[threadcount];
+            File[] files = new File[threadcount];
+            for (int threadid = 0; threadid < threadcount; threadid++) {
+                files[threadid] = new File(dir, prefix + "-" + threadid + "." + format.extension() + (gzip ? ".gz" : ""));
+                ShardWriter out = ShardWriter.open(files[threadid], gzip);
+                format.header(out);
+                threads[threadid] = new ShardThread(workload, props, dotransactions, threadid, threadcount,
+                        arguments.getOperationCount(threadid), format, out);
+            }
+            for (ShardThread thread : threads) {
+                thread.start();
+            }
+            long points = 0;
+            long bytes = 0;
+            boolean failed = false;
+            for (int threadid = 0; threadid < threadcount; threadid++) {
+                threads[threadid].join();
+                if (threads[threadid].error != null) {
+                    System.err.println("ERROR: Generating " + files[threadid].getAbsolutePath() + " failed: "
+                            + threads[threadid].error);
+                    failed = true;
+                }
+                points += threads[threadid].db.getPoints();
+                bytes += files[threadid].length();
+            }
+            workload.cleanup();
+            System.err.println("Wrote " + points + " points in " + threadcount + " " + formatName + " files ("
+                    + bytes + " bytes) to " + dir.getAbsolutePath() + " in " + (System.currentTimeMillis() - st)
+                    + " ms.");
+            System.exit(failed ? 1 : 0);
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.bulk;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Buffered writer of one output file, used by one thread. Formats append bytes, numbers and strings directly into
+ * the buffer, which is written to the file channel (or a gzip stream) when it is full.
+ */
+public class ShardWriter {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final byte[] DIGITS = "0123456789".getBytes();
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final byte[] scratch = new byte[20];
+    private long written = 0;
+
+    public ShardWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    /**
+     * Open file for writing, gzip compressed if gzip is set.
+     */
+    public static ShardWriter open(File file, boolean gzip) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        if (gzip) {
+            return new ShardWriter(Channels.newChannel(new GZIPOutputStream(out, 1 << 16)));
+        }
+        return new ShardWriter(out.getChannel());
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    public ShardWriter append(byte b) throws IOException {
+        ensure(1);
+        buffer.put(b);
+        return this;
+    }
+
+    public ShardWriter append(byte[] bytes) throws IOException {
+        return append(bytes, 0, bytes.length);
+    }
+
+    public ShardWriter append(byte[] bytes, int off, int len) throws IOException {
+        if (len > buffer.capacity()) {
+            flush();
+            ByteBuffer wrapped = ByteBuffer.wrap(bytes, off, len);
+            while (wrapped.hasRemaining()) {
+                written += channel.write(wrapped);
+            }
+            return this;
+        }
+        ensure(len);
+        buffer.put(bytes, off, len);
+        return this;
+    }
+
+    /**
+     * Append the decimal representation of l without creating a String.
+     */
+    public ShardWriter append(long l) throws IOException {
+        if (l == Long.MIN_VALUE) {
+            return appendAscii(Long.toString(l));
+        }
+        ensure(20);
+        if (l < 0) {
+            buffer.put((byte) '-');
+            l = -l;
+        }
+        int pos = scratch.length;
+        do {
+            scratch[--pos] = DIGITS[(int) (l % 10)];
+            l /= 10;
+        }
+        while (l != 0);
+        buffer.put(scratch, pos, scratch.length - pos);
+        return this;
+    }
+
+    public ShardWriter append(double d) throws IOException {
+        if (d == (long) d && Math.abs(d) < 1e15) {
+            // Integral values without the ".0", every format here parses them as floats anyway
+            return append((long) d);
+        }
+        return appendAscii(Double.toString(d));
+    }
+
+    /**
+     * Append a string that only contains ASCII characters.
+     */
+    public ShardWriter appendAscii(String s) throws IOException {
+        int len = s.length();
+        ensure(Math.min(len, buffer.capacity()));
+        for (int i = 0; i < len; i++) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.put((byte) s.charAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * @return the number of bytes passed to the channel so far (before compression)
+     */
+    public long getBytesWritten() {
+        return written + buffer.position();
+    }
+
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
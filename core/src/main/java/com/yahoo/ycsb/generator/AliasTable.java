@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.util.Random;
+
+/**
+ * Immutable alias table for sampling an index from a discrete distribution in constant time.
+ * <p/>
+ * Built once with Vose's variant of Walker's alias method, so every draw costs one random
+ * double, one array lookup and one comparison, regardless of the number of weights.
+ */
+public final class AliasTable {
+    private final double[] prob;
+    private final int[] alias;
+
+    /**
+     * Build an alias table for the given (not necessarily normalized) weights.
+     *
+     * @param weights non-negative weights, at least one of them must be positive
+     */
+    public AliasTable(double[] weights) {
+        int n = weights.length;
+        if (n == 0) {
+            throw new IllegalArgumentException("AliasTable needs at least one weight.");
+        }
+        double sum = 0;
+        for (double w : weights) {
+            if (w < 0 || Double.isNaN(w) || Double.isInfinite(w)) {
+                throw new IllegalArgumentException("Invalid weight " + w + ".");
+            }
+            sum += w;
+        }
+        if (sum <= 0) {
+            throw new IllegalArgumentException("The sum of all weights must be positive.");
+        }
+
+        prob = new double[n];
+        alias = new int[n];
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallSize = 0;
+        int largeSize = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / sum;
+            if (scaled[i] < 1.0) {
+                small[smallSize++] = i;
+            }
+            else {
+                large[largeSize++] = i;
+            }
+        }
+        while (smallSize > 0 && largeSize > 0) {
+            int less = small[--smallSize];
+            int more = large[--largeSize];
+            prob[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallSize++] = more;
+            }
+            else {
+                large[largeSize++] = more;
+            }
+        }
+        // Whatever is left over is 1.0 up to rounding errors.
+        while (largeSize > 0) {
+            int i = large[--largeSize];
+            prob[i] = 1.0;
+            alias[i] = i;
+        }
+        while (smallSize > 0) {
+            int i = small[--smallSize];
+            prob[i] = 1.0;
+            alias[i] = i;
+        }
+    }
+
+    /**
+     * @return the number of entries in this table
+     */
+    public int size() {
+        return prob.length;
+    }
+
+    /**
+     * Draw the next index using the given random number generator.
+     */
+    public int next(Random rand) {
+        double u = rand.nextDouble() * prob.length;
+        int column = (int) u;
+        return (u - column) < prob[column] ? column : alias[column];
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import com.yahoo.ycsb.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates a distribution by choosing from a discrete set of enum constants.
+ * Like {@link DiscreteGenerator}, but returns the enum constant itself so callers can switch on it
+ * instead of comparing strings. Draws are constant time through an {@link AliasTable}.
+ *
+ * @param <E> the enum type to choose from
+ */
+public class DiscreteEnumGenerator<E extends Enum<E>> extends Generator {
+
+    /**
+     * Immutable snapshot of the choices and their alias table, replaced as a whole on addValue().
+     */
+    private static final class Choices<E> {
+        final List<E> values;
+        final List<Double> weights;
+        final Object[] array;
+        final AliasTable table;
+
+        Choices(List<E> values, List<Double> weights) {
+            this.values = values;
+            this.weights = weights;
+            this.array = values.toArray();
+            double[] w = new double[weights.size()];
+            for (int i = 0; i < w.length; i++) {
+                w[i] = weights.get(i);
+            }
+            this.table = w.length == 0 ? null : new AliasTable(w);
+        }
+    }
+
+    private volatile Choices<E> _choices;
+    private E _lastvalue;
+
+    public DiscreteEnumGenerator() {
+        _choices = new Choices<E>(new ArrayList<E>(), new ArrayList<Double>());
+        _lastvalue = null;
+    }
+
+    /**
+     * Add a value with the given weight. Weights do not need to be normalized.
+     */
+    public synchronized void addValue(double weight, E value) {
+        List<E> values = new ArrayList<E>(_choices.values);
+        List<Double> weights = new ArrayList<Double>(_choices.weights);
+        values.add(value);
+        weights.add(weight);
+        _choices = new Choices<E>(values, weights);
+    }
+
+    /**
+     * Generate the next enum constant in the distribution.
+     */
+    @SuppressWarnings("unchecked")
+    public E nextValue() {
+        Choices<E> choices = _choices;
+        if (choices.table == null) {
+            throw new IllegalStateException("DiscreteEnumGenerator has no values to choose from.");
+        }
+        E ret = (E) choices.array[choices.table.next(Utils.random())];
+        _lastvalue = ret;
+        return ret;
+    }
+
+    /**
+     * Return the previous enum constant generated by the distribution without advancing it.
+     */
+    public E lastValue() {
+        if (_lastvalue == null) {
+            _lastvalue = nextValue();
+        }
+        return _lastvalue;
+    }
+
+    /**
+     * Generate the next string in the distribution, the name of the chosen enum constant.
+     */
+    @Override
+    public String nextString() {
+        return nextValue().name();
+    }
+
+    /**
+     * Return the previous string generated by the distribution; e.g., returned from the last nextString() call.
+     */
+    @Override
+    public String lastString() {
+        return lastValue().name();
+    }
+}
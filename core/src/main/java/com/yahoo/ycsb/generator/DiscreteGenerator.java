@@ -20,17 +20,20 @@ package com.yahoo.ycsb.generator;
 import com.yahoo.ycsb.Utils;
 import com.yahoo.ycsb.WorkloadException;
 
-import java.util.Vector;
+import java.util.ArrayList;
 
 /**
  * Generates a distribution by choosing from a discrete set of values.
+ * Values are drawn in constant time through an {@link AliasTable} that is rebuilt whenever a value is added.
  */
 public class DiscreteGenerator extends Generator {
-    Vector<Pair> _values;
+    ArrayList<Pair> _values;
+    volatile String[] _choices;
+    volatile AliasTable _table;
     String _lastvalue;
 
     public DiscreteGenerator() {
-        _values = new Vector<Pair>();
+        _values = new ArrayList<Pair>();
         _lastvalue = null;
     }
 
@@ -38,28 +41,13 @@ public class DiscreteGenerator extends Generator {
      * Generate the next string in the distribution.
      */
     public String nextString() {
-        double sum = 0;
-
-        for (Pair p : _values) {
-            sum += p._weight;
-        }
-
-        double val = Utils.random().nextDouble();
-
-        for (Pair p : _values) {
-            if (val < p._weight / sum) {
-                return p._value;
-            }
-
-            val -= p._weight / sum;
+        AliasTable table = _table;
+        if (table == null) {
+            throw new IllegalStateException("DiscreteGenerator has no values to choose from.");
         }
-
-        //should never get here.
-        System.out.println("oops. should not get here.");
-
-        System.exit(0);
-
-        return null;
+        String ret = _choices[table.next(Utils.random())];
+        _lastvalue = ret;
+        return ret;
     }
 
     /**
@@ -84,8 +72,16 @@ public class DiscreteGenerator extends Generator {
         return _lastvalue;
     }
 
-    public void addValue(double weight, String value) {
+    public synchronized void addValue(double weight, String value) {
         _values.add(new Pair(weight, value));
+        double[] weights = new double[_values.size()];
+        String[] choices = new String[_values.size()];
+        for (int i = 0; i < _values.size(); i++) {
+            weights[i] = _values.get(i)._weight;
+            choices[i] = _values.get(i)._value;
+        }
+        _choices = choices;
+        _table = new AliasTable(weights);
     }
 
     class Pair {
@@ -72,8 +72,8 @@ public class ScrambledZipfianGenerator extends LongGenerator {
 */
 
     /**
-     * Create a zipfian generator for items between min and max (inclusive) for the specified zipfian constant. If you
-     * use a zipfian constant other than 0.99, this will take a long time to complete because we need to recompute zeta.
+     * Create a zipfian generator for items between min and max (inclusive) for the specified zipfian constant. For a
+     * zipfian constant other than 0.99 zeta is approximated instead of using the precomputed value.
      *
      * @param min              The smallest integer to generate in the sequence.
      * @param max              The largest integer to generate in the sequence.
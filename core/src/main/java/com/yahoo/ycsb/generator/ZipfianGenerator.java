@@ -19,6 +19,8 @@ package com.yahoo.ycsb.generator;
 
 import com.yahoo.ycsb.Utils;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * A generator of a zipfian distribution. It produces a sequence of items, such that some items are more popular than others, according
  * to a zipfian distribution. When you construct an instance of this class, you specify the number of items in the set to draw from, either
@@ -29,17 +31,42 @@ import com.yahoo.ycsb.Utils;
  * popular, min+1 the next most popular, etc.) If you don't want this clustering, and instead want the popular items scattered throughout the
  * item space, then use ScrambledZipfianGenerator instead.
  * <p/>
- * Be aware: initializing this generator may take a long time if there are lots of items to choose from (e.g. over a minute
- * for 100 million objects). This is because certain mathematical values need to be computed to properly generate a zipfian skew, and one of those
- * values (zeta) is a sum sequence from 1 to n, where n is the itemcount. Note that if you increase the number of items in the set, we can compute
- * a new zeta incrementally, so it should be fast unless you have added millions of items. However, if you decrease the number of items, we recompute
- * zeta from scratch, so this can take a long time.
+ * Generating a zipfian skew needs zeta, the sum of 1/i^theta for i from 1 to n, where n is the itemcount. Up to
+ * {@link #ZETA_EXACT_LIMIT} terms are summed directly; beyond that zeta is computed in constant time with the
+ * Euler-Maclaurin formula, which is accurate to about 1e-15 relative, so large item counts do not slow down the
+ * start of a benchmark. Changing the number of items through nextLong(itemcount) updates zeta without locking.
  * <p/>
  * The algorithm used here is from "Quickly Generating Billion-Record Synthetic Databases", Jim Gray et al, SIGMOD 1994.
  */
 public class ZipfianGenerator extends LongGenerator {
     public static final double ZIPFIAN_CONSTANT = 0.99;
 
+    /**
+     * Up to this many terms zeta is summed directly, above it is approximated.
+     */
+    public static final long ZETA_EXACT_LIMIT = 1 << 16;
+
+    /**
+     * The first term of the Euler-Maclaurin approximation, the terms before it are summed directly.
+     */
+    private static final int EULER_MACLAURIN_START = 32;
+
+    /**
+     * Zeta and the parameters derived from it for one item count. Replaced as a whole, so readers never see zeta of
+     * one item count with eta of another.
+     */
+    private static final class ZetaState {
+        final long countforzeta;
+        final double zetan;
+        final double eta;
+
+        ZetaState(long countforzeta, double zetan, double eta) {
+            this.countforzeta = countforzeta;
+            this.zetan = zetan;
+            this.eta = eta;
+        }
+    }
+
     /**
      * Number of items.
      */
@@ -58,20 +85,19 @@ public class ZipfianGenerator extends LongGenerator {
     /**
      * Computed parameters for generating the distribution.
      */
-    double alpha, zetan, eta, theta, zeta2theta;
+    double alpha, theta, zeta2theta;
 
     /**
-     * The number of items used to compute zetan the last time.
+     * Zeta for the number of items used the last time.
      */
-    long countforzeta;
+    private final AtomicReference<ZetaState> zeta;
 
     /**
      * Flag to prevent problems. If you increase the number of items the zipfian generator is allowed to choose from, this code will incrementally compute a new zeta
-     * value for the larger itemcount. However, if you decrease the number of items, the code computes zeta from scratch; this is expensive for large itemsets.
-     * Usually this is not intentional; e.g. one thread thinks the number of items is 1001 and calls "nextLong()" with that item count; then another thread who thinks the
-     * number of items is 1000 calls nextLong() with itemcount=1000 triggering the expensive recomputation. (It is expensive for 100 million items, not really for 1000 items.) Why
-     * did the second thread think there were only 1000 items? maybe it read the item count before the first thread incremented it. So this flag allows you to say if you really do
-     * want that recomputation. If true, then the code will recompute zeta if the itemcount goes down. If false, the code will assume itemcount only goes up, and never recompute.
+     * value for the larger itemcount. Decreasing the number of items is usually not intentional; e.g. one thread thinks the number of items is 1001 and calls "nextLong()" with that
+     * item count; then another thread who thinks the number of items is 1000 calls nextLong() with itemcount=1000. Why did the second thread think there were only 1000 items? maybe it
+     * read the item count before the first thread incremented it. So this flag allows you to say if you really do want that recomputation. If true, then the code will recompute zeta
+     * if the itemcount goes down. If false, the code will assume itemcount only goes up, and never recompute.
      */
     boolean allowitemcountdecrease = false;
 
@@ -133,14 +159,11 @@ public class ZipfianGenerator extends LongGenerator {
 
         theta = zipfianconstant;
 
-        zeta2theta = zeta(2, theta);
+        zeta2theta = zetastatic(2, theta);
 
 
         alpha = 1.0 / (1.0 - theta);
-        //zetan=zeta(items,theta);
-        zetan = _zetan;
-        countforzeta = items;
-        eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2theta / zetan);
+        zeta = new AtomicReference<ZetaState>(state(items, _zetan));
 
         //System.out.println("XXXX 3 XXXX");
         nextLong();
@@ -157,13 +180,15 @@ public class ZipfianGenerator extends LongGenerator {
      * @param theta The zipfian constant.
      */
     static double zetastatic(long n, double theta) {
-        return zetastatic(0, n, theta, 0);
+        if (n <= ZETA_EXACT_LIMIT) {
+            return zetaexact(0, n, theta, 0);
+        }
+        return zetaexact(0, EULER_MACLAURIN_START - 1, theta, 0) + eulermaclaurin(EULER_MACLAURIN_START, n, theta);
     }
 
     /**
      * Compute the zeta constant needed for the distribution. Do this incrementally for a distribution that
-     * has n items now but used to have st items. Use the zipfian constant theta. Remember the new value of
-     * n so that if we change the itemcount, we'll know to recompute zeta.
+     * has n items now but used to have st items. Use the zipfian constant theta.
      *
      * @param st         The number of items used to compute the last initialsum
      * @param n          The number of items to compute zeta over.
@@ -171,50 +196,59 @@ public class ZipfianGenerator extends LongGenerator {
      * @param initialsum The value of zeta we are computing incrementally from.
      */
     static double zetastatic(long st, long n, double theta, double initialsum) {
+        if (Math.abs(n - st) <= ZETA_EXACT_LIMIT) {
+            return n >= st ? zetaexact(st, n, theta, initialsum) : initialsum - zetaexact(n, st, theta, 0);
+        }
+        return initialsum + zetastatic(n, theta) - zetastatic(st, theta);
+    }
+
+    /**
+     * Sum the terms st+1 to n of zeta one by one.
+     */
+    static double zetaexact(long st, long n, double theta, double initialsum) {
         double sum = initialsum;
         for (long i = st; i < n; i++) {
-
             sum += 1 / (Math.pow(i + 1, theta));
         }
-
-        //System.out.println("countforzeta="+countforzeta);
-
         return sum;
     }
 
+    /**
+     * Approximate the sum of 1/i^theta for i from m to n with the Euler-Maclaurin formula: the integral, the mean of
+     * the end points and the corrections with the first, third and fifth derivative. The next correction is below
+     * 1e-16 for m &gt;= 32.
+     */
+    static double eulermaclaurin(long m, long n, double theta) {
+        double integral;
+        if (theta == 1.0) {
+            integral = Math.log((double) n / m);
+        }
+        else {
+            integral = (Math.pow(n, 1 - theta) - Math.pow(m, 1 - theta)) / (1 - theta);
+        }
+        double fm = Math.pow(m, -theta);
+        double fn = Math.pow(n, -theta);
+        // the k-th derivative of x^-theta is (-theta)(-theta-1)...(-theta-k+1) x^(-theta-k)
+        double c1 = -theta;
+        double c3 = c1 * (theta + 1) * (theta + 2);
+        double c5 = c3 * (theta + 3) * (theta + 4);
+        double d1 = c1 * (fn / n - fm / m);
+        double d3 = c3 * (fn / Math.pow(n, 3) - fm / Math.pow(m, 3));
+        double d5 = c5 * (fn / Math.pow(n, 5) - fm / Math.pow(m, 5));
+        return integral + (fm + fn) / 2 + d1 / 12 - d3 / 720 + d5 / 30240;
+    }
+
     public static void main(String[] args) {
         new ZipfianGenerator(ScrambledZipfianGenerator.ITEM_COUNT);
     }
 
-    /**
-     * Compute the zeta constant needed for the distribution. Do this from scratch for a distribution with n items, using the
-     * zipfian constant theta. Remember the value of n, so if we change the itemcount, we can recompute zeta.
-     *
-     * @param n     The number of items to compute zeta over.
-     * @param theta The zipfian constant.
-     */
-    double zeta(long n, double theta) {
-        countforzeta = n;
-        return zetastatic(n, theta);
+    private ZetaState state(long itemcount, double zetan) {
+        double eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2theta / zetan);
+        return new ZetaState(itemcount, zetan, eta);
     }
 
     /****************************************************************************************/
 
-    /**
-     * Compute the zeta constant needed for the distribution. Do this incrementally for a distribution that
-     * has n items now but used to have st items. Use the zipfian constant theta. Remember the new value of
-     * n so that if we change the itemcount, we'll know to recompute zeta.
-     *
-     * @param st         The number of items used to compute the last initialsum
-     * @param n          The number of items to compute zeta over.
-     * @param theta      The zipfian constant.
-     * @param initialsum The value of zeta we are computing incrementally from.
-     */
-    double zeta(long st, long n, double theta, double initialsum) {
-        countforzeta = n;
-        return zetastatic(st, n, theta, initialsum);
-    }
-
     /**
      * Generate the next item. this distribution will be skewed toward lower integers; e.g. 0 will
      * be the most popular, 1 the next most popular, etc.
@@ -235,32 +269,22 @@ public class ZipfianGenerator extends LongGenerator {
     public long nextLong(long itemcount) {
         //from "Quickly Generating Billion-Record Synthetic Databases", Jim Gray et al, SIGMOD 1994
 
-        if (itemcount != countforzeta) {
-
-            //have to recompute zetan and eta, since they depend on itemcount
-            synchronized (this) {
-                if (itemcount > countforzeta) {
-                    //System.err.println("WARNING: Incrementally recomputing Zipfian distribtion. (itemcount="+itemcount+" countforzeta="+countforzeta+")");
-
-                    //we have added more items. can compute zetan incrementally, which is cheaper
-                    zetan = zeta(countforzeta, itemcount, theta, zetan);
-                    eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2theta / zetan);
-                }
-                else if ((itemcount < countforzeta) && (allowitemcountdecrease)) {
-                    //have to start over with zetan
-                    //note : for large itemsets, this is very slow. so don't do it!
-
-                    //TODO: can also have a negative incremental computation, e.g. if you decrease the number of items, then just subtract
-                    //the zeta sequence terms for the items that went away. This would be faster than recomputing from scratch when the number of items
-                    //decreases
-
-                    System.err.println("WARNING: Recomputing Zipfian distribtion. This is slow and should be avoided. (itemcount=" + itemcount + " countforzeta=" + countforzeta + ")");
-
-                    zetan = zeta(itemcount, theta);
-                    eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2theta / zetan);
-                }
+        ZetaState state = zeta.get();
+        while (itemcount != state.countforzeta && (itemcount > state.countforzeta || allowitemcountdecrease)) {
+            //have to recompute zetan and eta, since they depend on itemcount. Incrementally from the last value; if
+            //another thread replaced it meanwhile, start over from its value.
+            if (itemcount < state.countforzeta) {
+                System.err.println("WARNING: Recomputing Zipfian distribtion. (itemcount=" + itemcount + " countforzeta=" + state.countforzeta + ")");
+            }
+            ZetaState next = state(itemcount, zetastatic(state.countforzeta, itemcount, theta, state.zetan));
+            if (zeta.compareAndSet(state, next)) {
+                state = next;
+                break;
             }
+            state = zeta.get();
         }
+        double zetan = state.zetan;
+        double eta = state.eta;
 
         double u = Utils.random().nextDouble();
         double uz = u * zetan;
@@ -0,0 +1,323 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.http;
+
+import com.yahoo.ycsb.measurements.WireCounter;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.CookieSpecs;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.GzipCompressingEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The HTTP transport of the HTTP bindings: one pooled client shared by all DB instances (client threads), configured
+ * by one set of properties.
+ * <p/>
+ * Bindings {@link #acquire} the transport in init and {@link #release} it in cleanup, the connection pool is closed
+ * when the last DB instance releases it. {@link #execute} retries requests that failed with an IOException or 503
+ * (Service Unavailable) with exponential backoff; the response it returns must be handed to
+ * {@link #release(CloseableHttpResponse)}, which consumes what is left of the body so the connection goes back to the
+ * pool. Bodies can be streamed ({@link #bodyReader}) or read at once ({@link #readBody}). The bytes of plain HTTP
+ * connections and the payloads of {@link #entity} are counted by {@link WireCounter}.
+ * <p/>
+ * Properties (the first DB instance's properties configure the shared transport):
+ * <ul>
+ * <li>http.maxconnections: connections in the pool, in total and per host (default: threadcount, at least 2)</li>
+ * <li>http.keepalive: ms an idle connection is kept if the server doesn't say, -1 for forever (default 30000)</li>
+ * <li>http.tcpnodelay: disable Nagle's algorithm (default true)</li>
+ * <li>http.gzip: gzip request bodies created by {@link #entity} (default false)</li>
+ * <li>http.connecttimeout, http.sockettimeout, http.connectionrequesttimeout: timeouts in ms, 0 for none
+ * (defaults 10000, 0 and 0)</li>
+ * <li>http.retries: how often a failed request is retried (default 3)</li>
+ * <li>http.retrybackoff: ms before the first retry, doubled for every further one (default 100)</li>
+ * </ul>
+ */
+public class HttpTransport implements Closeable {
+    public static final String MAX_CONNECTIONS_PROPERTY = "http.maxconnections";
+    public static final String KEEP_ALIVE_PROPERTY = "http.keepalive";
+    public static final String KEEP_ALIVE_PROPERTY_DEFAULT = "30000";
+    public static final String TCP_NODELAY_PROPERTY = "http.tcpnodelay";
+    public static final String TCP_NODELAY_PROPERTY_DEFAULT = "true";
+    public static final String GZIP_PROPERTY = "http.gzip";
+    public static final String GZIP_PROPERTY_DEFAULT = "false";
+    public static final String CONNECT_TIMEOUT_PROPERTY = "http.connecttimeout";
+    public static final String CONNECT_TIMEOUT_PROPERTY_DEFAULT = "10000";
+    public static final String SOCKET_TIMEOUT_PROPERTY = "http.sockettimeout";
+    public static final String SOCKET_TIMEOUT_PROPERTY_DEFAULT = "0";
+    public static final String CONNECTION_REQUEST_TIMEOUT_PROPERTY = "http.connectionrequesttimeout";
+    public static final String CONNECTION_REQUEST_TIMEOUT_PROPERTY_DEFAULT = "0";
+    public static final String RETRIES_PROPERTY = "http.retries";
+    public static final String RETRIES_PROPERTY_DEFAULT = "3";
+    public static final String RETRY_BACKOFF_PROPERTY = "http.retrybackoff";
+    public static final String RETRY_BACKOFF_PROPERTY_DEFAULT = "100";
+
+    public static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static HttpTransport shared = null;
+    private static int references = 0;
+
+    private final CloseableHttpClient client;
+    private final boolean gzip;
+    private final int retries;
+    private final long retryBackoff;
+
+    /**
+     * Creates a transport of its own; bindings should use {@link #acquire} to share one.
+     */
+    public HttpTransport(Properties props) {
+        int maxConnections = Integer.parseInt(props.getProperty(MAX_CONNECTIONS_PROPERTY,
+                Integer.toString(Math.max(2, Integer.parseInt(props.getProperty("threadcount", "1"))))));
+        final long keepAlive = Long.parseLong(props.getProperty(KEEP_ALIVE_PROPERTY, KEEP_ALIVE_PROPERTY_DEFAULT));
+        gzip = Boolean.parseBoolean(props.getProperty(GZIP_PROPERTY, GZIP_PROPERTY_DEFAULT));
+        retries = Integer.parseInt(props.getProperty(RETRIES_PROPERTY, RETRIES_PROPERTY_DEFAULT));
+        retryBackoff = Long.parseLong(props.getProperty(RETRY_BACKOFF_PROPERTY, RETRY_BACKOFF_PROPERTY_DEFAULT));
+
+        PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager(
+                RegistryBuilder.<ConnectionSocketFactory>create()
+                        .register("http", new PlainConnectionSocketFactory() {
+                            @Override
+                            public Socket createSocket(HttpContext context) {
+                                return new WireCounter.CountingSocket();
+                            }
+                        })
+                        .register("https", SSLConnectionSocketFactory.getSocketFactory())
+                        .build());
+        pool.setMaxTotal(maxConnections);
+        pool.setDefaultMaxPerRoute(maxConnections);
+        pool.setDefaultSocketConfig(SocketConfig.custom()
+                .setTcpNoDelay(Boolean.parseBoolean(props.getProperty(TCP_NODELAY_PROPERTY,
+                        TCP_NODELAY_PROPERTY_DEFAULT)))
+                .setSoKeepAlive(true)
+                .build());
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setCookieSpec(CookieSpecs.STANDARD)
+                .setConnectTimeout(Integer.parseInt(props.getProperty(CONNECT_TIMEOUT_PROPERTY,
+                        CONNECT_TIMEOUT_PROPERTY_DEFAULT)))
+                .setSocketTimeout(Integer.parseInt(props.getProperty(SOCKET_TIMEOUT_PROPERTY,
+                        SOCKET_TIMEOUT_PROPERTY_DEFAULT)))
+                .setConnectionRequestTimeout(Integer.parseInt(props.getProperty(CONNECTION_REQUEST_TIMEOUT_PROPERTY,
+                        CONNECTION_REQUEST_TIMEOUT_PROPERTY_DEFAULT)))
+                .build();
+        client = HttpClients.custom()
+                .setConnectionManager(pool)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
+                    @Override
+                    public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                        long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response,
+                                context);
+                        return duration > 0 ? duration : keepAlive;
+                    }
+                })
+                // retries are done by execute, with backoff
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    /**
+     * @return the shared transport, created with props by the first caller; every call needs a {@link #release()}
+     */
+    public static synchronized HttpTransport acquire(Properties props) {
+        if (shared == null) {
+            shared = new HttpTransport(props);
+        }
+        references++;
+        return shared;
+    }
+
+    /**
+     * Gives back a transport from {@link #acquire}, the last release closes it.
+     */
+    public void release() {
+        synchronized (HttpTransport.class) {
+            if (this != shared || --references > 0) {
+                return;
+            }
+            shared = null;
+        }
+        try {
+            close();
+        }
+        catch (IOException e) {
+            System.err.println("WARNING: Closing the HTTP connection pool failed: " + e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+
+    public CloseableHttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * @return body as request entity of the given type, gzip compressed if http.gzip is set
+     */
+    public HttpEntity entity(String body, ContentType type) {
+        HttpEntity entity = countPayload(new StringEntity(body, type));
+        return gzip ? new GzipCompressingEntity(entity) : entity;
+    }
+
+    /**
+     * @return the first length bytes of body (not copied) as request entity of the given type, gzip compressed if
+     * http.gzip is set
+     */
+    public HttpEntity entity(byte[] body, int length, ContentType type) {
+        HttpEntity entity = countPayload(new ByteArrayEntity(body, 0, length, type));
+        return gzip ? new GzipCompressingEntity(entity) : entity;
+    }
+
+    /**
+     * @return entity, counting its length as payload every time it is sent
+     */
+    private static HttpEntity countPayload(HttpEntity entity) {
+        return new HttpEntityWrapper(entity) {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                super.writeTo(out);
+                WireCounter.payload(getContentLength());
+            }
+        };
+    }
+
+    /**
+     * Executes request, retrying it http.retries times (after http.retrybackoff ms, doubled for every retry) if it
+     * fails with an IOException or 503. Requests that are retried need a repeatable entity, like the ones of
+     * {@link #entity}.
+     *
+     * @return the response, which must be given to {@link #release(CloseableHttpResponse)}
+     * @throws IOException if the last try failed
+     */
+    public CloseableHttpResponse execute(HttpUriRequest request) throws IOException {
+        return execute(request, null);
+    }
+
+    /**
+     * {@link #execute(HttpUriRequest)} in the given context, e.g. one with the credentials and auth cache of a
+     * binding. Contexts are not thread safe, use one per DB instance.
+     */
+    public CloseableHttpResponse execute(HttpUriRequest request, HttpContext context) throws IOException {
+        long backoff = retryBackoff;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                CloseableHttpResponse response = client.execute(request, context);
+                if (response.getStatusLine().getStatusCode() != HttpStatus.SC_SERVICE_UNAVAILABLE
+                        || attempt >= retries) {
+                    return response;
+                }
+                release(response);
+            }
+            catch (IOException e) {
+                if (attempt >= retries) {
+                    throw e;
+                }
+                HttpEntity entity = request instanceof HttpEntityEnclosingRequest ?
+                        ((HttpEntityEnclosingRequest) request).getEntity() : null;
+                if (entity != null && !entity.isRepeatable()) {
+                    throw e;
+                }
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(backoff);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting to retry " + request.getRequestLine() + ".");
+            }
+            backoff *= 2;
+        }
+    }
+
+    /**
+     * Consumes the rest of the body and closes the response, so its connection can be reused. Accepts null.
+     */
+    public static void release(CloseableHttpResponse response) {
+        if (response == null) {
+            return;
+        }
+        EntityUtils.consumeQuietly(response.getEntity());
+        try {
+            response.close();
+        }
+        catch (IOException e) {
+            // the connection is discarded, nothing else to do
+        }
+    }
+
+    /**
+     * @return whether the status of response is 2xx
+     */
+    public static boolean isSuccess(HttpResponse response) {
+        int status = response.getStatusLine().getStatusCode();
+        return status >= 200 && status < 300;
+    }
+
+    private static Charset charset(HttpEntity entity) {
+        ContentType type = ContentType.get(entity);
+        return type != null && type.getCharset() != null ? type.getCharset() : UTF8;
+    }
+
+    /**
+     * @return a reader that streams the body of response in its charset (default UTF-8), an empty reader if there is none
+     */
+    public static Reader bodyReader(HttpResponse response) throws IOException {
+        HttpEntity entity = response.getEntity();
+        return entity == null ? new StringReader("") : new InputStreamReader(entity.getContent(), charset(entity));
+    }
+
+    /**
+     * @return the whole body of response in its charset (default UTF-8), "" if there is none
+     */
+    public static String readBody(HttpResponse response) throws IOException {
+        HttpEntity entity = response.getEntity();
+        return entity == null ? "" : EntityUtils.toString(entity, charset(entity));
+    }
+}
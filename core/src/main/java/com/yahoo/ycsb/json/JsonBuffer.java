@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.json;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * A reusable buffer for JSON request bodies: {@link #start()} empties it and returns a streaming generator that
+ * writes UTF-8 straight into it, so a binding builds its requests without a JSONObject tree and without a new buffer
+ * per request. Not thread safe, use one per DB instance.
+ * <p/>
+ * The bytes ({@link #buffer()}, {@link #size()}) are valid until the next {@link #start()}, e.g. as body of
+ * {@link com.yahoo.ycsb.http.HttpTransport#entity(byte[], int, org.apache.http.entity.ContentType)}.
+ */
+public class JsonBuffer extends ByteArrayOutputStream {
+    /**
+     * The factory of all generators and parsers, thread safe.
+     */
+    public static final JsonFactory FACTORY = new JsonFactory();
+
+    private JsonGenerator generator;
+
+    public JsonBuffer() {
+        this(256);
+    }
+
+    public JsonBuffer(int size) {
+        super(size);
+    }
+
+    /**
+     * Empties the buffer, the generator of the previous body must be finished. Only one generator per thread
+     * reuses the recycled buffers of the factory, build nested parts (e.g. a cached fragment) before.
+     *
+     * @return a generator that writes a new body into this buffer
+     */
+    public JsonGenerator start() throws IOException {
+        reset();
+        // generators are cheap (their buffers are recycled), a new one starts without root value separator
+        generator = FACTORY.createJsonGenerator(this, JsonEncoding.UTF8);
+        return generator;
+    }
+
+    /**
+     * Flushes the generator of {@link #start()} into the buffer.
+     */
+    public JsonBuffer finish() throws IOException {
+        generator.close();
+        return this;
+    }
+
+    /**
+     * @return the backing array, the body is its first {@link #size()} bytes
+     */
+    public byte[] buffer() {
+        return buf;
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return toString("UTF-8");
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
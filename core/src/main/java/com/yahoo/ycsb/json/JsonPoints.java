@@ -0,0 +1,423 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.json;
+
+import org.codehaus.jackson.JsonLocation;
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * Counts and aggregates the points of a JSON query result while it is parsed, in constant memory: the result is
+ * never built as a tree and everything that is not needed is skipped.
+ * <p/>
+ * The points are the entries (members of an object or elements of an array) of the fields given to the
+ * constructor, wherever these are in the document, or of the document itself for {@link #ROOT}. A point is
+ * <ul>
+ * <li>a member "timestamp": value, like the "dps" of OpenTSDB</li>
+ * <li>an array [timestamp, ..., value], like the values of Prometheus or the rows of Gnocchi and H5Serv; the value
+ * is the last element that is a number</li>
+ * <li>an object with a timestamp and a value field ({@link #setFields}), like the values of Blueflood</li>
+ * <li>anything else, which is only counted</li>
+ * </ul>
+ * Timestamps and values are numbers or strings holding numbers, others are ignored. Values are aggregated
+ * ({@link #getValueCount()}, {@link #getSum()}, ...), points at one timestamp are counted if it is set with
+ * {@link #setMatch}. Fields can be captured with {@link #capture}, e.g. a status.
+ * <p/>
+ * Not thread safe, but one instance can parse many results one after another.
+ */
+public class JsonPoints {
+    /**
+     * Point field name of the document itself.
+     */
+    public static final String ROOT = "$";
+    /**
+     * No timestamp.
+     */
+    public static final long NONE = Long.MIN_VALUE;
+
+    private final HashSet<String> pointFields;
+    private final HashMap<String, String> captured = new HashMap<String, String>();
+    private String timestampField = "timestamp";
+    private String valueField = "value";
+    private long match = NONE;
+
+    private int series;
+    private int rootLength;
+    private long bytes;
+    private long count;
+    private long matches;
+    private long valueCount;
+    private double sum;
+    private double min;
+    private double max;
+
+    /**
+     * @param pointFields names of the fields whose entries are the points
+     */
+    public JsonPoints(String... pointFields) {
+        this.pointFields = new HashSet<String>(Arrays.asList(pointFields));
+    }
+
+    /**
+     * Sets the fields of points that are objects (default "timestamp" and "value").
+     */
+    public JsonPoints setFields(String timestampField, String valueField) {
+        this.timestampField = timestampField;
+        this.valueField = valueField;
+        return this;
+    }
+
+    /**
+     * Captures the given fields, wherever they are: {@link #getText} returns their text after a parse.
+     */
+    public JsonPoints capture(String... fields) {
+        for (String field : fields) {
+            captured.put(field, null);
+        }
+        return this;
+    }
+
+    /**
+     * Counts the points at timestamp in {@link #getMatches()}, {@link #NONE} for none (default).
+     */
+    public JsonPoints setMatch(long timestamp) {
+        this.match = timestamp;
+        return this;
+    }
+
+    /**
+     * Parses a result, forgetting the previous one. Closes content.
+     */
+    public JsonPoints parse(InputStream content) throws IOException {
+        return parse(JsonBuffer.FACTORY.createJsonParser(content));
+    }
+
+    /**
+     * Parses a result, forgetting the previous one. Closes content.
+     */
+    public JsonPoints parse(Reader content) throws IOException {
+        return parse(JsonBuffer.FACTORY.createJsonParser(content));
+    }
+
+    /**
+     * Forgets the last result, as if an empty one was parsed.
+     */
+    public JsonPoints clear() {
+        series = 0;
+        rootLength = 0;
+        bytes = 0;
+        count = 0;
+        matches = 0;
+        valueCount = 0;
+        sum = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+        for (Map.Entry<String, String> entry : captured.entrySet()) {
+            entry.setValue(null);
+        }
+        return this;
+    }
+
+    private JsonPoints parse(JsonParser parser) throws IOException {
+        clear();
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                // empty body
+                return this;
+            }
+            if (token == JsonToken.START_ARRAY || token == JsonToken.START_OBJECT) {
+                if (pointFields.contains(ROOT)) {
+                    points(parser, token);
+                    rootLength = (int) count;
+                }
+                else if (token == JsonToken.START_ARRAY) {
+                    while ((token = next(parser)) != JsonToken.END_ARRAY) {
+                        rootLength++;
+                        value(parser, token);
+                    }
+                }
+                else {
+                    value(parser, token);
+                }
+            }
+            // the location is the offset of the last processed byte (char)
+            JsonLocation end = parser.getCurrentLocation();
+            bytes = 1 + (end.getByteOffset() >= 0 ? end.getByteOffset() : end.getCharOffset());
+            return this;
+        }
+        finally {
+            parser.close();
+        }
+    }
+
+    private static JsonToken next(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            throw new JsonParseException("Unexpected end of input", parser.getCurrentLocation());
+        }
+        return token;
+    }
+
+    /**
+     * Looks for point and captured fields in the value that starts with token.
+     */
+    private void value(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.START_OBJECT) {
+            while (next(parser) == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                token = next(parser);
+                if (captured.containsKey(name)) {
+                    captured.put(name, token.isScalarValue() ? parser.getText() : "");
+                }
+                if (pointFields.contains(name) && (token == JsonToken.START_ARRAY || token == JsonToken.START_OBJECT)) {
+                    points(parser, token);
+                }
+                else {
+                    value(parser, token);
+                }
+            }
+        }
+        else if (token == JsonToken.START_ARRAY) {
+            while ((token = next(parser)) != JsonToken.END_ARRAY) {
+                value(parser, token);
+            }
+        }
+    }
+
+    /**
+     * Reads the points in the array or object that starts with token.
+     */
+    private void points(JsonParser parser, JsonToken token) throws IOException {
+        series++;
+        if (token == JsonToken.START_OBJECT) {
+            while (next(parser) == JsonToken.FIELD_NAME) {
+                long timestamp = parseTimestamp(parser.getCurrentName());
+                point(parser, next(parser), timestamp);
+            }
+        }
+        else {
+            while ((token = next(parser)) != JsonToken.END_ARRAY) {
+                point(parser, token, NONE);
+            }
+        }
+    }
+
+    private void point(JsonParser parser, JsonToken token, long timestamp) throws IOException {
+        count++;
+        double value = Double.NaN;
+        if (token == JsonToken.START_ARRAY) {
+            boolean first = true;
+            while ((token = next(parser)) != JsonToken.END_ARRAY) {
+                if (!token.isScalarValue()) {
+                    parser.skipChildren();
+                }
+                else if (first && timestamp == NONE) {
+                    timestamp = timestamp(parser, token);
+                }
+                else {
+                    double number = number(parser, token);
+                    if (!Double.isNaN(number)) {
+                        value = number;
+                    }
+                }
+                first = false;
+            }
+        }
+        else if (token == JsonToken.START_OBJECT) {
+            while (next(parser) == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                token = next(parser);
+                if (!token.isScalarValue()) {
+                    parser.skipChildren();
+                }
+                else if (name.equals(timestampField)) {
+                    timestamp = timestamp(parser, token);
+                }
+                else if (name.equals(valueField)) {
+                    value = number(parser, token);
+                }
+            }
+        }
+        else {
+            value = number(parser, token);
+        }
+        if (timestamp != NONE && timestamp == match) {
+            matches++;
+        }
+        if (!Double.isNaN(value)) {
+            valueCount++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+    }
+
+    private static long timestamp(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return (long) parser.getDoubleValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            return parseTimestamp(parser.getText());
+        }
+        return NONE;
+    }
+
+    /**
+     * @return the number or the number in a string, NaN for anything else
+     */
+    private static double number(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDoubleValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            String text = parser.getText();
+            // cheap check first, strings are usually tags
+            if (text.length() > 0 && (Character.isDigit(text.charAt(0)) || text.charAt(0) == '-'
+                    || text.charAt(0) == '+' || text.charAt(0) == '.')) {
+                try {
+                    return Double.parseDouble(text);
+                }
+                catch (NumberFormatException e) {
+                    return Double.NaN;
+                }
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * @return text as timestamp if it is an integer, else {@link #NONE}
+     */
+    static long parseTimestamp(String text) {
+        int length = text.length();
+        if (length == 0 || length > 19) {
+            return NONE;
+        }
+        for (int i = text.charAt(0) == '-' ? 1 : 0; i < length; i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return NONE;
+            }
+        }
+        try {
+            return Long.parseLong(text);
+        }
+        catch (NumberFormatException e) {
+            return NONE;
+        }
+    }
+
+    /**
+     * @return how many point fields were found, e.g. time series of a query result
+     */
+    public int getSeries() {
+        return series;
+    }
+
+    /**
+     * @return the length of the document if it is an array, e.g. results of a query; 0 for an object
+     */
+    public int getRootLength() {
+        return rootLength;
+    }
+
+    /**
+     * @return the bytes (chars if a Reader was parsed) of the result that were read, after decompression
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the number of points
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the number of points at the timestamp of {@link #setMatch}
+     */
+    public long getMatches() {
+        return matches;
+    }
+
+    /**
+     * @return the number of points with a value
+     */
+    public long getValueCount() {
+        return valueCount;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * @return the minimum of the values, NaN if there are none
+     */
+    public double getMin() {
+        return valueCount == 0 ? Double.NaN : min;
+    }
+
+    /**
+     * @return the maximum of the values, NaN if there are none
+     */
+    public double getMax() {
+        return valueCount == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * @return the average of the values, NaN if there are none
+     */
+    public double getAverage() {
+        return valueCount == 0 ? Double.NaN : sum / valueCount;
+    }
+
+    /**
+     * @return whether a captured field was found
+     */
+    public boolean has(String field) {
+        return captured.get(field) != null;
+    }
+
+    /**
+     * @return the text of a captured field, "" if it is an object or array, null if it was not found
+     */
+    public String getText(String field) {
+        return captured.get(field);
+    }
+
+    @Override
+    public String toString() {
+        return "JsonPoints{series=" + series + ", count=" + count + ", matches=" + matches + ", values=" + valueCount
+                + ", sum=" + sum + ", min=" + getMin() + ", max=" + getMax() + ", captured=" + captured + "}";
+    }
+}
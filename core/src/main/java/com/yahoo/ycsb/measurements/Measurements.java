@@ -18,6 +18,8 @@
 package com.yahoo.ycsb.measurements;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -41,9 +43,14 @@ public class Measurements
     static Measurements singleton=null;
     static Properties measurementproperties=null;
 
-    public static void setProperties(Properties props)
+    /**
+     * Set the properties of the measurements, the next {@link #getMeasurements()} starts new measurements with them
+     * (e.g. for every run of {@link com.yahoo.ycsb.ClientDaemon}).
+     */
+    public synchronized static void setProperties(Properties props)
     {
         measurementproperties=props;
+        singleton=null;
     }
 
     /**
@@ -60,9 +67,14 @@ public class Measurements
 
     final ConcurrentHashMap<String,OneMeasurement> _opToMesurementMap;
     final ConcurrentHashMap<String,OneMeasurement> _opToIntendedMesurementMap;
+    final ConcurrentHashMap<String,OneMeasurementResult> _opToResultMap;
+    final ConcurrentHashMap<String,OneMeasurementWire> _opToWireMap;
     final int _measurementType;
     final int _measurementInterval;
     private Properties _props;
+    /** metric -> measurement -> value, exported in the order they were first reported */
+    private final LinkedHashMap<String, LinkedHashMap<String, Number>> _statistics =
+            new LinkedHashMap<String, LinkedHashMap<String, Number>>();
 
     /**
      * Create a new object with the specified properties.
@@ -71,6 +83,8 @@ public class Measurements
     {
         _opToMesurementMap=new ConcurrentHashMap<String,OneMeasurement>();
         _opToIntendedMesurementMap=new ConcurrentHashMap<String,OneMeasurement>();
+        _opToResultMap=new ConcurrentHashMap<String,OneMeasurementResult>();
+        _opToWireMap=new ConcurrentHashMap<String,OneMeasurementWire>();
 
         _props=props;
 
@@ -234,6 +248,64 @@ public class Measurements
         return m;
     }
 
+    /**
+     * Report the size of the result of a single DB operation, see {@link com.yahoo.ycsb.DB#reportResult}. It is
+     * exported as "Result-" + operation, independent of the measurement type and interval.
+     *
+     * @param points  points of the result, -1 if unknown
+     * @param bytes   bytes of the result, -1 if unknown
+     * @param latency latency of the operation in us
+     */
+    public void measureResult(String operation, long points, long bytes, long latency)
+    {
+        OneMeasurementResult m = _opToResultMap.get(operation);
+        if (m == null)
+        {
+            m = new OneMeasurementResult("Result-" + operation);
+            OneMeasurementResult oldM = _opToResultMap.putIfAbsent(operation, m);
+            if (oldM != null)
+            {
+                m = oldM;
+            }
+        }
+        m.measure(points, bytes, latency);
+    }
+
+    /**
+     * Report the bytes a single DB operation sent and received on the wire, see {@link WireCounter}. It is exported
+     * as "Wire-" + operation, with the bytes per point if the points are known: one per INSERT, or the points of
+     * the reported results.
+     *
+     * @param payload bytes of request payloads before compression
+     */
+    public void measureWire(String operation, long sent, long received, long payload)
+    {
+        OneMeasurementWire m = _opToWireMap.get(operation);
+        if (m == null)
+        {
+            m = new OneMeasurementWire("Wire-" + operation);
+            OneMeasurementWire oldM = _opToWireMap.putIfAbsent(operation, m);
+            if (oldM != null)
+            {
+                m = oldM;
+            }
+        }
+        m.measure(sent, received, payload);
+    }
+
+    /**
+     * Return the number of points of all reported results, 0 if no binding reported any.
+     */
+    public long getTotalResultPoints()
+    {
+        long points = 0;
+        for (OneMeasurementResult m : _opToResultMap.values())
+        {
+            points += m.getTotalPoints();
+        }
+        return points;
+    }
+
     /**
      * Report a return code for a single DB operation.
      */
@@ -245,6 +317,25 @@ public class Measurements
         m.reportReturnCode(code);
     }
 
+    /**
+     * Report a value that is not a latency, e.g. a statistic of the database engine like bytes written or stall
+     * time. It is exported after the operation measurements; reporting the same metric and measurement again
+     * replaces the value.
+     */
+    public void reportStatistic(String metric, String measurement, Number value)
+    {
+        synchronized (_statistics)
+        {
+            LinkedHashMap<String, Number> measurements = _statistics.get(metric);
+            if (measurements == null)
+            {
+                measurements = new LinkedHashMap<String, Number>();
+                _statistics.put(metric, measurements);
+            }
+            measurements.put(measurement, value);
+        }
+    }
+
     /**
      * Export the current measurements to a suitable format.
      *
@@ -261,6 +352,42 @@ public class Measurements
         {
             measurement.exportMeasurements(exporter);
         }
+        for (OneMeasurementResult measurement : _opToResultMap.values())
+        {
+            measurement.exportMeasurements(exporter);
+        }
+        for (Map.Entry<String, OneMeasurementWire> measurement : _opToWireMap.entrySet())
+        {
+            long points = -1;
+            OneMeasurementResult result = _opToResultMap.get(measurement.getKey());
+            if (result != null)
+            {
+                points = result.getTotalPoints();
+            }
+            else if (measurement.getKey().equals("INSERT"))
+            {
+                points = measurement.getValue().getOperations();
+            }
+            measurement.getValue().exportMeasurements(exporter, points);
+        }
+        synchronized (_statistics)
+        {
+            for (Map.Entry<String, LinkedHashMap<String, Number>> metric : _statistics.entrySet())
+            {
+                for (Map.Entry<String, Number> statistic : metric.getValue().entrySet())
+                {
+                    Number value = statistic.getValue();
+                    if (value instanceof Double || value instanceof Float)
+                    {
+                        exporter.write(metric.getKey(), statistic.getKey(), value.doubleValue());
+                    }
+                    else
+                    {
+                        exporter.write(metric.getKey(), statistic.getKey(), value.longValue());
+                    }
+                }
+            }
+        }
     }
 
     /**
@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The sizes of the results of one operation, as reported by the bindings: points and bytes per operation and the
+ * latency normalized to 1000 points, so that scans of different sizes can be compared.
+ * <p/>
+ * Concurrent updates are recorded with {@link Recorder}s, like {@link OneMeasurementHdrHistogram}.
+ */
+public class OneMeasurementResult {
+    private final String name;
+    private final Recorder points = new Recorder(3);
+    private final Recorder bytes = new Recorder(3);
+    /** nanoseconds per 1000 points, exported in us */
+    private final Recorder latencyPer1k = new Recorder(3);
+    private final AtomicLong pointSum = new AtomicLong();
+    private final AtomicLong byteSum = new AtomicLong();
+    private Histogram totalPoints;
+    private Histogram totalBytes;
+    private Histogram totalLatencyPer1k;
+
+    public OneMeasurementResult(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param points        points of the result, -1 if unknown
+     * @param bytes         bytes of the result, -1 if unknown
+     * @param latencyMicros latency of the operation
+     */
+    public void measure(long points, long bytes, long latencyMicros) {
+        if (points >= 0) {
+            this.points.recordValue(points);
+            pointSum.addAndGet(points);
+            if (points > 0) {
+                latencyPer1k.recordValue(latencyMicros * 1000000L / points);
+            }
+        }
+        if (bytes >= 0) {
+            this.bytes.recordValue(bytes);
+            byteSum.addAndGet(bytes);
+        }
+    }
+
+    /**
+     * @return the total number of points of all results so far
+     */
+    public long getTotalPoints() {
+        return pointSum.get();
+    }
+
+    public synchronized void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+        accumulate();
+        exporter.write(name, "Operations", Math.max(totalPoints.getTotalCount(), totalBytes.getTotalCount()));
+        if (totalPoints.getTotalCount() > 0) {
+            exporter.write(name, "TotalPoints", pointSum.get());
+            exporter.write(name, "AveragePoints", totalPoints.getMean());
+            exporter.write(name, "MinPoints", totalPoints.getMinValue());
+            exporter.write(name, "MaxPoints", totalPoints.getMaxValue());
+            exporter.write(name, "95thPercentilePoints", totalPoints.getValueAtPercentile(95));
+            exporter.write(name, "99thPercentilePoints", totalPoints.getValueAtPercentile(99));
+        }
+        if (totalBytes.getTotalCount() > 0) {
+            exporter.write(name, "TotalBytes", byteSum.get());
+            exporter.write(name, "AverageBytes", totalBytes.getMean());
+            exporter.write(name, "MaxBytes", totalBytes.getMaxValue());
+            exporter.write(name, "95thPercentileBytes", totalBytes.getValueAtPercentile(95));
+        }
+        if (totalLatencyPer1k.getTotalCount() > 0) {
+            exporter.write(name, "AverageLatencyPer1kPoints(us)", totalLatencyPer1k.getMean() / 1000);
+            exporter.write(name, "95thPercentileLatencyPer1kPoints(us)",
+                    totalLatencyPer1k.getValueAtPercentile(95) / 1000.0);
+            exporter.write(name, "99thPercentileLatencyPer1kPoints(us)",
+                    totalLatencyPer1k.getValueAtPercentile(99) / 1000.0);
+        }
+    }
+
+    private void accumulate() {
+        totalPoints = accumulate(points, totalPoints);
+        totalBytes = accumulate(bytes, totalBytes);
+        totalLatencyPer1k = accumulate(latencyPer1k, totalLatencyPer1k);
+    }
+
+    private static Histogram accumulate(Recorder recorder, Histogram total) {
+        Histogram interval = recorder.getIntervalHistogram();
+        if (total == null) {
+            return interval;
+        }
+        total.add(interval);
+        return total;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The bytes one operation sent and received on the wire, see {@link WireCounter}.
+ */
+public class OneMeasurementWire {
+    private final String name;
+    private final AtomicLong operations = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong payload = new AtomicLong();
+
+    public OneMeasurementWire(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getOperations() {
+        return operations.get();
+    }
+
+    public void measure(long sent, long received, long payload) {
+        operations.incrementAndGet();
+        this.sent.addAndGet(sent);
+        this.received.addAndGet(received);
+        this.payload.addAndGet(payload);
+    }
+
+    /**
+     * @param points the points the operations wrote or read, -1 if unknown
+     */
+    public void exportMeasurements(MeasurementsExporter exporter, long points) throws IOException {
+        long operations = this.operations.get();
+        long sent = this.sent.get();
+        long received = this.received.get();
+        long payload = this.payload.get();
+        exporter.write(name, "Operations", operations);
+        exporter.write(name, "BytesSent", sent);
+        exporter.write(name, "AverageBytesSent", (double) sent / operations);
+        exporter.write(name, "BytesReceived", received);
+        exporter.write(name, "AverageBytesReceived", (double) received / operations);
+        if (points > 0) {
+            exporter.write(name, "BytesPerPoint", (double) (sent + received) / points);
+        }
+        if (payload > 0 && sent > 0) {
+            // request payload before compression per byte sent, headers included
+            exporter.write(name, "PayloadBytes", payload);
+            exporter.write(name, "CompressionRatio", (double) payload / sent);
+        }
+    }
+}
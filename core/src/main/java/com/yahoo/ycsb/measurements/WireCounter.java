@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+/**
+ * Counts the bytes a client thread sends and receives on the wire, so that {@link com.yahoo.ycsb.DBWrapper} can
+ * measure them per operation (exported as "Wire-" + operation) and protocols can be compared by bytes per point.
+ * <p/>
+ * The counts belong to the thread that does the I/O, which is the client thread for synchronous bindings. Bindings
+ * wrap the streams of their sockets ({@link #count(OutputStream)}, {@link #count(InputStream)}) or connect a
+ * {@link CountingSocket}; the HTTP bindings are counted by {@link com.yahoo.ycsb.http.HttpTransport}. Request
+ * payloads can be counted before compression ({@link #payload}) for the compression ratio.
+ */
+public final class WireCounter {
+    /**
+     * The bytes counted for one thread so far.
+     */
+    public static final class Counts {
+        private long sent;
+        private long received;
+        private long payload;
+
+        public long getSent() {
+            return sent;
+        }
+
+        public long getReceived() {
+            return received;
+        }
+
+        /**
+         * @return the bytes of request payloads before compression
+         */
+        public long getPayload() {
+            return payload;
+        }
+    }
+
+    private static final ThreadLocal<Counts> COUNTS = new ThreadLocal<Counts>() {
+        @Override
+        protected Counts initialValue() {
+            return new Counts();
+        }
+    };
+
+    private WireCounter() {
+    }
+
+    /**
+     * @return the counts of the current thread
+     */
+    public static Counts get() {
+        return COUNTS.get();
+    }
+
+    public static void sent(long bytes) {
+        COUNTS.get().sent += bytes;
+    }
+
+    public static void received(long bytes) {
+        COUNTS.get().received += bytes;
+    }
+
+    /**
+     * Counts a request payload of bytes before compression, the compressed bytes are counted when they are sent.
+     */
+    public static void payload(long bytes) {
+        COUNTS.get().payload += bytes;
+    }
+
+    /**
+     * @return out, counting what is written to it as sent
+     */
+    public static OutputStream count(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                sent(1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                // FilterOutputStream would write byte by byte
+                out.write(b, off, len);
+                sent(len);
+            }
+        };
+    }
+
+    /**
+     * @return in, counting what is read from it as received
+     */
+    public static InputStream count(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = in.read();
+                if (b >= 0) {
+                    received(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = in.read(b, off, len);
+                if (n > 0) {
+                    received(n);
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = in.skip(n);
+                received(skipped);
+                return skipped;
+            }
+        };
+    }
+
+    /**
+     * A plain socket whose streams are counted.
+     */
+    public static class CountingSocket extends Socket {
+        private OutputStream out;
+        private InputStream in;
+
+        /**
+         * Creates an unconnected socket.
+         */
+        public CountingSocket() {
+        }
+
+        /**
+         * Creates a socket connected to host:port.
+         */
+        public CountingSocket(String host, int port) throws IOException {
+            super(host, port);
+        }
+
+        @Override
+        public synchronized OutputStream getOutputStream() throws IOException {
+            if (out == null) {
+                out = count(super.getOutputStream());
+            }
+            return out;
+        }
+
+        @Override
+        public synchronized InputStream getInputStream() throws IOException {
+            if (in == null) {
+                in = count(super.getInputStream());
+            }
+            return in;
+        }
+    }
+}
@@ -5,7 +5,6 @@ import com.yahoo.ycsb.generator.*;
 import com.yahoo.ycsb.measurements.Measurements;
 
 import java.io.*;
-import java.sql.Timestamp;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
@@ -35,12 +34,13 @@ import java.util.regex.Matcher;
  * <LI><b>predefinedtagvalues</b>: if true then there are predefined (randomly generated) values for every tag for every record. Instead of generating a random value everytime there will be a randomly chosen value out of the predefined list for this tag. (Consider that if you set this to false, than read/sum/avg/scan/count will produce strange results, as you then only have 1 record per tag and ycsb-ts will do read/sum/scan/count only based on timespan which does not reflect the performance of a TSDB in a good way.) (default: true)
  * <LI><b>predefinedtagvalueamount</b>: how many values should be predefined (randomly generated) for every tag? (Don't set this to high, otherwise you get in the range of 1 Tag per Record, see comment on 'predefinedtagvalues' parameter) (default: 100)
  * <LI><b>predefinedtagstoragefile</b>: Between RUN and LOAD the tags/tagvalues will be temporarly stored in this file (default: predefinedtags.txt)
- * <LI><b>predefinedtagstoreused</b>: Only stores actually used combos, this means that there can't be any misses at all while RUN Phase (default: true)
+ * <LI><b>predefinedtagstoreused</b>: Only stores actually used combos, this means that there can't be any misses at all while RUN Phase. They are written to predefinedtagstoragefile in a compact binary format during LOAD and memory-mapped during RUN (default: true)
  * <LI><b>valuemax</b>: which should be the highest random value possible? (default: 10000)
  * <LI><b>valuemin</b>: which should be the lowest random value possible?  (default: 0)
  * <LI><b>taglengthhistogram</b>: filename containing the tag length histogram (only used if tagvaluelengthdistribution is "histogram"). (default: hist.txt)
  * <LI><b>readproportion</b>: what proportion of operations should be reads (default: 1)
  * <LI><b>insertproportion</b>: what proportion of operations should be inserts (default: 0)
+ * <LI><b>insertnewkeys</b>: inserts of the run phase add timestamps after the loaded ones instead of overwriting random loaded ones, the "latest" requestdistribution reads them once they are inserted (default: false)
  * <LI><b>scanproportion</b>: what proportion of operations should be scans (default: 0)
  * <LI><b>avgproportion</b>: what proportion of operations should be avg (default: 0)
  * <LI><b>countproportion</b>: what proportion of operations should be count (default: 0)
@@ -61,6 +61,7 @@ import java.util.regex.Matcher;
  * <LI><b>readfromcsv</b>: Read from values from csv file (default=false)
  * <LI><b>csvfile</b>: Path to csv file (default=values.csv)
  * <LI><b>csvbuffersize</b>: Buffer size for csv reader (default=100000)
+ * <LI><b>csvparserthreads</b>: Number of threads that parse the csv file in parallel, 0 = half of the available processors (default=0)
  * <LI><b>description</b>: Description for the workload (default=Workloaddescription)
  * <LI><b>timeresolution</b>: Size of one timestep in milliseconds (1 = 1 ms, 1000 = 1 s,..) (default=1000)
  * </ul>
@@ -199,6 +200,14 @@ public class CoreWorkload extends Workload {
      * The default proportion of transactions that are inserts.
      */
     public static final String INSERT_PROPORTION_PROPERTY_DEFAULT = "0.0";
+    /**
+     * The name of the property for adding the inserts of the run phase after the loaded timestamps.
+     */
+    public static final String INSERT_NEW_KEYS_PROPERTY = "insertnewkeys";
+    /**
+     * The default is to overwrite random loaded timestamps.
+     */
+    public static final String INSERT_NEW_KEYS_PROPERTY_DEFAULT = "false";
     /**
      * The name of the property for the proportion of transactions that are scans.
      */
@@ -353,6 +362,15 @@ public class CoreWorkload extends Workload {
      */
     public static final String CSV_BUFFER_SIZE_PROPERTY_DEFAULT = "10000";
 
+    /**
+     * The name of the property for the number of csv parser threads
+     */
+    public static final String CSV_PARSER_THREADS_PROPERTY = "csvparserthreads";
+    /**
+     * The default number of csv parser threads, 0 = half of the available processors
+     */
+    public static final String CSV_PARSER_THREADS_PROPERTY_DEFAULT = "0";
+
     /**
      * The name of the property for workload description
      */
@@ -378,7 +396,7 @@ public class CoreWorkload extends Workload {
      */
     LongGenerator taglengthgenerator;
     LongGenerator keysequence;
-    DiscreteGenerator operationchooser;
+    DiscreteEnumGenerator<Operation> operationchooser;
     LongGenerator keychooser;
     Generator fieldchooser;
     LongGenerator scanlength;
@@ -394,7 +412,6 @@ public class CoreWorkload extends Workload {
     private Measurements _measurements = Measurements.getMeasurements();
     private long insertstart;
     private long insertend;
-    private Random rand = null;
     private int maxrecordsperts;
     private int maxrecordspertcounter;
     private String randomamountperts;
@@ -405,19 +422,59 @@ public class CoreWorkload extends Workload {
     private int floorcounter = 0;
     private int querymaxtagvalues = 0;
     private boolean notagsforread = false;
+    private boolean insertnewkeys = false;
     private File predefinedtagstoragefile;
     private boolean predefinedtagstoreused = false;
-    private ArrayList<String[]> usedTags;
+    private TagCombinationIndex usedTags;
     private Boolean tagvaluesLoaded = false;
     private int timevalue;
     private TimeUnit timeunit;
     private boolean readfromcsv;
     private String csvfile;
     private int csvbuffersize;
+    private int csvparserthreads;
     private ThreadedCSVReader tscr;
     private String description;
     private int timeResolution;
     private AcknowledgedCounterGenerator transactioninsertkeysequence;
+    private String[] tagnameArray;
+    private byte[][] tagnameBytes;
+    private String[][] tagvalueStrings;
+    private byte[][][] tagvalueBytes;
+
+    /**
+     * State of the threads that call the entry points without a state of {@link #initThread}, created once per
+     * thread so they do not allocate per operation either.
+     */
+    private final ThreadLocal<ThreadState> defaultState = new ThreadLocal<ThreadState>() {
+        @Override
+        protected ThreadState initialValue() {
+            return newThreadState();
+        }
+    };
+
+    /**
+     * Per client thread state, created by {@link #initThread}. Holds the reusable point that inserts are
+     * built in, so the insert path does not allocate maps, iterators or timestamps per record.
+     */
+    protected static class ThreadState {
+        final DataPoint point;
+        /** Tag indices, the first n entries are the tags chosen for the current record. */
+        final int[] tagIndices;
+        /** Values of the current record by tag index, for predefinedtagstoreused. */
+        final String[] usedRow;
+        final TagQuerySampler sampler;
+
+        ThreadState(int tagcount, TagQuerySampler sampler) {
+            this.sampler = sampler;
+            point = new DataPoint(tagcount);
+            usedRow = new String[tagcount];
+            tagIndices = new int[tagcount];
+            for (int i = 0; i < tagcount; i++) {
+                tagIndices[i] = i;
+            }
+        }
+    }
 
     protected static LongGenerator getTagLengthGenerator(Properties p) throws WorkloadException {
         LongGenerator taglengthgenerator;
@@ -448,24 +505,17 @@ public class CoreWorkload extends Workload {
     }
 
 
-    /** Writing usedTags
+    /** Completing the usedTags file
      * if predefinedtagstoreused is set
      */
     public void cleanup() {
-        if (predefinedtagstoreused && ! this.tagvaluesLoaded) {
-            if (!predefinedtagstoragefile.exists() && !predefinedtagstoragefile.isDirectory() && !predefinedtagstoragefile.isFile()) {
-                try {
-                    FileOutputStream fileOut = new FileOutputStream(predefinedtagstoragefile);
-                    ObjectOutputStream oos = new ObjectOutputStream(fileOut);
-                    oos.writeObject(usedTags);
-                }
-                catch (Exception e) {
-                    System.err.println("ERROR: Can't write tagvalues to predefinedtagsotragefile " + predefinedtagstoragefile.getAbsolutePath() + ".");
-                    e.printStackTrace();
-                }
+        if (predefinedtagstoreused && usedTags != null && usedTags.isWriting()) {
+            try {
+                usedTags.finishWriting();
             }
-            else {
+            catch (Exception e) {
                 System.err.println("ERROR: Can't write tagvalues to predefinedtagsotragefile " + predefinedtagstoragefile.getAbsolutePath() + ".");
+                e.printStackTrace();
             }
         }
     }
@@ -479,8 +529,12 @@ public class CoreWorkload extends Workload {
         tagcount = Integer.parseInt(p.getProperty(TAG_COUNT_PROPERTY, TAG_COUNT_PROPERTY_DEFAULT));
         tagPrefix = p.getProperty(TAG_PREFIX_PROPERTY, TAG_PREFIX_PROPERTY_DEFAULT);
         tagnames = new ArrayList<String>();
+        tagnameArray = new String[tagcount];
+        tagnameBytes = new byte[tagcount][];
         for (int i = 0; i < tagcount; i++) {
             tagnames.add(tagPrefix + i);
+            tagnameArray[i] = tagPrefix + i;
+            tagnameBytes[i] = tagnameArray[i].getBytes(DataPoint.UTF8);
         }
         taglengthgenerator = CoreWorkload.getTagLengthGenerator(p);
         description = p.getProperty(DESCRIPTION_PROPERTY, DESCRIPTION_PROPERTY_DEFAULT);
@@ -503,6 +557,10 @@ public class CoreWorkload extends Workload {
             System.err.println("WARNING: csvbuffersize should be at least 3. Defaulting to 3.");
             csvbuffersize=3;
         }
+        csvparserthreads = Integer.parseInt(p.getProperty(CSV_PARSER_THREADS_PROPERTY, CSV_PARSER_THREADS_PROPERTY_DEFAULT));
+        if (csvparserthreads <= 0) {
+            csvparserthreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        }
         if (readfromcsv) {
             try {
                 File f = new File(csvfile);
@@ -517,7 +575,7 @@ public class CoreWorkload extends Workload {
             }
         }
         if (readfromcsv) {
-            tscr = new ThreadedCSVReader(csvbuffersize,csvfile,false);
+            tscr = new ThreadedCSVReader(csvbuffersize,csvfile,csvparserthreads,false);
             String[] tmpArr = tscr.getHeaders();
             for (int i = 0; i < tmpArr.length; i++){
                 if (! tagnames.contains(tmpArr[i])) {
@@ -581,6 +639,7 @@ public class CoreWorkload extends Workload {
         }
         randomfloorfilling = Boolean.parseBoolean(p.getProperty(RANDOM_FLOORFILLING_AMOUNT_PROPERTY, RANDOM_FLOORFILLING_AMOUNT_PROPERTY_DEFAULT));
         notagsforread = Boolean.parseBoolean(p.getProperty(NO_TAGS_FOR_READ_PROPERTY, NO_TAGS_FOR_READ_PROPERTY_DEFAULT));
+        insertnewkeys = Boolean.parseBoolean(p.getProperty(INSERT_NEW_KEYS_PROPERTY, INSERT_NEW_KEYS_PROPERTY_DEFAULT));
         randomamountperts = p.getProperty(RANDOM_AMOUNT_PER_TS_AMOUNT_PROPERTY, RANDOM_AMOUNT_PER_TS_AMOUNT_PROPERTY_DEFAULT);
         maxrecordcounter = maxrecordsperts+1;
         if ( this.randomamountperts.compareTo("constant") == 0 ) {
@@ -591,8 +650,7 @@ public class CoreWorkload extends Workload {
         insertend  = Long.parseLong(p.getProperty(INSERT_END_PROPERTY, INSERT_END_PROPERTY_DEFAULT));
         timeResolution  = Integer.parseInt(p.getProperty(TIME_RESOLUTION_PROPERTY, TIME_RESOLUTION_PROPERTY_DEFAULT));
         if (timeResolution >= Math.abs(insertend-insertstart)) {
-            System.err.println("ERROR: timeresolution (" + timeResolution + ") is bigger than insertend-insertstart (" + Math.abs(insertend-insertstart) + "), can't do one time step.");
-            System.exit(-1);
+            throw new WorkloadException("timeresolution (" + timeResolution + ") is bigger than insertend-insertstart (" + Math.abs(insertend-insertstart) + "), can't do one time step.");
         }
         insertend=insertend/timeResolution;
         insertstart=insertstart/timeResolution;
@@ -607,7 +665,6 @@ public class CoreWorkload extends Workload {
         valuemax = Integer.parseInt(p.getProperty(VALUE_MAX_PROPERTY, VALUE_MAX_PROPERTY_DEFAULT));
         valuemin = Integer.parseInt(p.getProperty(VALUE_MIN_PROPERTY, VALUE_MIN_PROPERTY_DEFAULT));
         randomtagamount = Boolean.parseBoolean(p.getProperty(RANDOM_TAG_AMOUNT_PROPERTY, RANDOM_TAG_AMOUNT_PROPERTY_DEFAULT));
-        rand = new Random();
         predefinedtagstoreused = Boolean.parseBoolean(p.getProperty(PREDEFINED_TAG_STORE_USED_PROPERTY, PREDEFINED_TAG_STORE_USED_PROPERTY_DEFAULT));
         predefinedtagvalues = Boolean.parseBoolean(p.getProperty(PREDEFINED_TAG_VALUES_PROPERTY, PREDEFINED_TAG_VALUES_PROPERTY_DEFAULT));
         predefinedtagvaluesamount = Integer.parseInt(p.getProperty(PREDEFINED_TAG_VALUE_AMOUNT_PROPERTY, PREDEFINED_TAG_VALUE_AMOUNT_PROPERTY_DEFAULT));
@@ -621,9 +678,9 @@ public class CoreWorkload extends Workload {
         try {
             predefinedtagstoragefile = new File(p.getProperty(PREDEFINED_TAG_STORAGE_FILE_PROPERTY, PREDEFINED_TAG_STORAGE_FILE_PROPERTY_DEFAULT));
             if (predefinedtagstoragefile.exists() && !predefinedtagstoragefile.isDirectory() && predefinedtagstoragefile.isFile() && predefinedtagstoragefile.canRead()) {
-                FileInputStream fileIn = new FileInputStream(predefinedtagstoragefile);
-                ObjectInputStream ois = new ObjectInputStream(fileIn);
                 if (! predefinedtagstoreused) {
+                    FileInputStream fileIn = new FileInputStream(predefinedtagstoragefile);
+                    ObjectInputStream ois = new ObjectInputStream(fileIn);
                     tagvalues = (HashMap<String, ArrayList<String>>) ois.readObject();
                     tagvaluesLoaded = true;
                     predefinedtagstoragefile.delete();
@@ -633,15 +690,15 @@ public class CoreWorkload extends Workload {
                             tagvaluesLoaded = false;
                         }
                     }
+                    ois.close();
+                    fileIn.close();
                 }
                 else {
-
-                    usedTags = (ArrayList<String[]>) ois.readObject();
+                    // Mapped, not read: startup does not depend on the number of stored combinations
+                    usedTags = TagCombinationIndex.open(predefinedtagstoragefile);
                     tagvaluesLoaded = true;
                     predefinedtagstoragefile.delete();
                 }
-                ois.close();
-                fileIn.close();
             }
             else {
                 tagvaluesLoaded = false;
@@ -652,6 +709,22 @@ public class CoreWorkload extends Workload {
             e.printStackTrace();
             tagvaluesLoaded = false;
         }
+        if (predefinedtagstoreused && usedTags == null) {
+            usedTags = new TagCombinationIndex(tagcount);
+            if (!predefinedtagstoragefile.exists() && !predefinedtagstoragefile.isDirectory() && !predefinedtagstoragefile.isFile()) {
+                // Written while inserting and completed in cleanup()
+                try {
+                    usedTags.startWriting(predefinedtagstoragefile);
+                }
+                catch (IOException e) {
+                    System.err.println("ERROR: Can't write tagvalues to predefinedtagsotragefile " + predefinedtagstoragefile.getAbsolutePath() + ".");
+                    e.printStackTrace();
+                }
+            }
+            else {
+                System.err.println("ERROR: Can't write tagvalues to predefinedtagsotragefile " + predefinedtagstoragefile.getAbsolutePath() + ".");
+            }
+        }
         if (readfromcsv && ! tagvaluesLoaded) {
             tscr.start();
         }
@@ -687,31 +760,44 @@ public class CoreWorkload extends Workload {
                 }
             }
         }
+        if (predefinedtagvalues && tagvalues != null) {
+            // Encode the predefined values once, inserts only pass references around
+            tagvalueStrings = new String[tagcount][];
+            tagvalueBytes = new byte[tagcount][][];
+            for (int i = 0; i < tagcount; i++) {
+                ArrayList<String> values = tagvalues.get(tagnameArray[i]);
+                tagvalueStrings[i] = values.toArray(new String[values.size()]);
+                tagvalueBytes[i] = new byte[values.size()][];
+                for (int j = 0; j < values.size(); j++) {
+                    tagvalueBytes[i][j] = tagvalueStrings[i][j].getBytes(DataPoint.UTF8);
+                }
+            }
+        }
 
         keysequence = new CounterGenerator(insertstart);
-        operationchooser = new DiscreteGenerator();
+        operationchooser = new DiscreteEnumGenerator<Operation>();
         if (readproportion > 0) {
-            operationchooser.addValue(readproportion, "READ");
+            operationchooser.addValue(readproportion, Operation.READ);
         }
 
         if (insertproportion > 0) {
-            operationchooser.addValue(insertproportion, "INSERT");
+            operationchooser.addValue(insertproportion, Operation.INSERT);
         }
 
         if (scanproportion > 0) {
-            operationchooser.addValue(scanproportion, "SCAN");
+            operationchooser.addValue(scanproportion, Operation.SCAN);
         }
 
         if (avgproportion > 0) {
-            operationchooser.addValue(avgproportion, "AVG");
+            operationchooser.addValue(avgproportion, Operation.AVG);
         }
 
         if (countproportion > 0) {
-            operationchooser.addValue(countproportion, "COUNT");
+            operationchooser.addValue(countproportion, Operation.COUNT);
         }
         transactioninsertkeysequence  = new AcknowledgedCounterGenerator((insertend-insertstart));
         if (sumproportion > 0) {
-            operationchooser.addValue(sumproportion, "SUM");
+            operationchooser.addValue(sumproportion, Operation.SUM);
         }
         if (requestdistrib.compareTo("uniform") == 0) {
             keychooser = new UniformLongGenerator(0, (insertend-insertstart)-1);
@@ -741,7 +827,7 @@ public class CoreWorkload extends Workload {
         return rand.nextInt((max - min) + 1) + min;
     }
     private long getRandomRangeLong(Random rand, long min, long max) {
-        return min+(long)(Utils.random().nextDouble()*((max - min) + 1));
+        return min+(long)(rand.nextDouble()*((max - min) + 1));
     }
 
     private double getRandomDouble(Random rand, int min, int max) {
@@ -749,144 +835,106 @@ public class CoreWorkload extends Workload {
     }
 
     /**
-     * Builds values for all tags.
+     * @return the names of all tags, in order
      */
-    private HashMap<String, ByteIterator> buildValues(String key) {
-        HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
-        ArrayList<String> indices = new ArrayList<String>();
-        if (randomtagamount) {
-            for (int i = 0; i < getRandomRangeInt(rand, 1, this.tagcount); i++) {
-                int index = getRandomRangeInt(rand, 0, this.tagcount - 1);
-                while (indices.contains(index)) {
-                    index = getRandomRangeInt(rand, 0, this.tagcount - 1);
-                }
-                indices.add(tagnames.get(index));
-            }
+    public String[] getTagNames() {
+        return tagnameArray.clone();
+    }
+
+    /**
+     * Initialize the state of one client thread: the reusable point that records are built in.
+     */
+    @Override
+    public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException {
+        return newThreadState();
+    }
+
+    private ThreadState newThreadState() {
+        return new ThreadState(tagcount, new TagQuerySampler(tagnameArray, tagvalueStrings, querymaxtagvalues));
+    }
+
+    private ThreadState threadState(Object threadstate) {
+        if (threadstate instanceof ThreadState) {
+            return (ThreadState) threadstate;
         }
-        else {
-            for (int i = 0; i < tagnames.size(); i++) {;
-                indices.add(tagnames.get(i));
+        return defaultState.get();
+    }
+
+    /**
+     * Builds a record with values for all (or a random amount of) tags into the reusable point of this thread.
+     */
+    private DataPoint buildValues(ThreadState state, long timestamp, double value) {
+        Random rand = Utils.random();
+        DataPoint point = state.point;
+        point.reset(metric, timestamp, value);
+        int[] indices = state.tagIndices;
+        int amount = this.tagcount;
+        if (randomtagamount && this.tagcount > 0) {
+            amount = getRandomRangeInt(rand, 1, this.tagcount);
+            // Partial Fisher-Yates shuffle, the first amount indices are distinct tags
+            for (int i = 0; i < amount; i++) {
+                int j = getRandomRangeInt(rand, i, this.tagcount - 1);
+                int tmp = indices[i];
+                indices[i] = indices[j];
+                indices[j] = tmp;
             }
         }
-        String[] tmpArr = new String[this.tagcount];
+        String[] row = null;
         if (readfromcsv) {
             if (this.tscr.hasNext()) {
-                tmpArr = this.tscr.next();
+                row = this.tscr.next();
             }
             else {
                 System.err.println("ERROR: CSV file has no more lines.");
              }
         }
-        for (String index : indices) {
-            ByteIterator data;
+        String[] tmpArr = null;
+        if (predefinedtagstoreused && (predefinedtagvalues || readfromcsv)) {
+            tmpArr = row;
+            if (tmpArr == null) {
+                tmpArr = state.usedRow;
+                Arrays.fill(tmpArr, null);
+            }
+        }
+        for (int i = 0; i < amount; i++) {
+            int tag = indices[i];
             if (predefinedtagvalues && ! readfromcsv) {
                 // chose random one predefined tag value
-                int randomValIndex = getRandomRangeInt(rand, 0, tagvalues.get(index).size() - 1);
-                data = new StringByteIterator(tagvalues.get(index).get(randomValIndex));
-                if (predefinedtagstoreused) {
-                    try {
-                        tmpArr[Integer.valueOf(index.replace(tagPrefix, ""))] = tagvalues.get(index).get(randomValIndex);
-                    }
-                    catch (NumberFormatException e){
-                        System.err.println("ERROR: Can't convert " + index + " to Integer. Only use a-z and A-Z in tag prefix!");
-                        e.printStackTrace();
-                    }
+                int randomValIndex = getRandomRangeInt(rand, 0, tagvalueStrings[tag].length - 1);
+                point.addTag(tagnameArray[tag], tagnameBytes[tag], tagvalueStrings[tag][randomValIndex], tagvalueBytes[tag][randomValIndex]);
+                if (tmpArr != null) {
+                    tmpArr[tag] = tagvalueStrings[tag][randomValIndex];
                 }
             }
             else if (readfromcsv) {
-                data = new StringByteIterator(tmpArr[Integer.valueOf(index.replace(tagPrefix, ""))]);
+                if (row != null && tag < row.length) {
+                    point.addTag(tagnameArray[tag], tagnameBytes[tag], row[tag]);
+                }
             }
             else {
                 //fill with random data
-                data = new RandomByteIterator(taglengthgenerator.nextLong());
+                int length = (int) taglengthgenerator.nextLong();
+                byte[] buf = point.addTag(tagnameArray[tag], tagnameBytes[tag], length);
+                Utils.randomAlphanumeric(rand, buf, 0, length);
             }
-            values.put(index, data);
         }
-        if (predefinedtagstoreused) {
-            if (usedTags == null) {
-                usedTags = new ArrayList<String[]>();
-            }
+        if (tmpArr != null) {
             usedTags.add(tmpArr);
         }
-        return values;
+        return point;
     }
 
-    private void generateSearchTagHashmap(HashMap<String, ArrayList<String>> tags) {
+    private TagFilter generateSearchTagFilter(ThreadState state) {
+        Random rand = Utils.random();
         if (this.predefinedtagvalues) {
             if (! predefinedtagstoreused) {
-                ArrayList<String> chosenTags = new ArrayList<String>();
-                for (int i = 0; i < this.getRandomRangeInt(rand, 1, this.tagcount); i++) {
-                    String tag = "";
-                    try {
-                        // Chose an not yet used tagname (like TAG0 for example)
-                        tag = this.tagnames.get(this.getRandomRangeInt(rand, 0, this.tagcount - 1));
-                        while (chosenTags.contains(tag)) {
-                            tag = this.tagnames.get(this.getRandomRangeInt(rand, 0, this.tagcount - 1));
-                        }
-                    }
-                    catch (Exception e) {
-                        System.err.println("ERROR: Error while searching for tagnames. i = " + i);
-                    }
-                    // Now choose an random (between 1 and querymaxtagvalues) amount of tagvalues
-                    ArrayList<String> chosenTagValues = new ArrayList<String>();
-                    for (int j = 0; j < this.getRandomRangeInt(rand, 1, this.querymaxtagvalues); j++) {
-                        try {
-                            String tagValue = this.tagvalues.get(tag).get(this.getRandomRangeInt(rand, 0, this.tagvalues.get(tag).size() - 1));
-                            while (chosenTagValues.contains(tagValue)) {
-                                tagValue = this.tagvalues.get(tag).get(this.getRandomRangeInt(rand, 0, this.tagvalues.get(tag).size() - 1));
-                            }
-                            chosenTagValues.add(tagValue);
-                        }
-                        catch (Exception e) {
-                            System.err.println("ERROR: Error while searching for tagvalues. tag = " + tag + " j = " + j);
-                        }
-                    }
-                    tags.put(tag, chosenTagValues);
-                }
+                return state.sampler.sampleFromValues(rand);
             }
             else {
-                HashMap<String, ArrayList<String>> chosenTags = new HashMap<String, ArrayList<String>>();
-                ArrayList<Integer> chosenIndices = new ArrayList<Integer>();
-                // Choose how many tagrows you want to use
-                for (int i = 0; i < this.getRandomRangeInt(rand, 1, this.querymaxtagvalues); i++) {
-                    // Choose Index
-                    int index = 0;
-                    try {
-                        // Chose an not yet used index
-                        index = this.getRandomRangeInt(rand, 0, usedTags.size() - 1);
-                        while (chosenIndices.contains(index)) {
-                            index = this.getRandomRangeInt(rand, 0, usedTags.size() - 1);
-                        }
-                    }
-                    catch (Exception e) {
-                        System.err.println("ERROR: Error while searching for index. i = " + i);
-                    }
-                    // Chose which tags are available
-                    ArrayList<Integer> availTags = new ArrayList<Integer>();
-                    for (int j = 0; j < usedTags.get(index).length -1; j++) {
-                        if (usedTags.get(index)[j] != null && ! usedTags.get(index)[j].equals("")) {
-                            availTags.add(j);
-                        }
-                    }
-                    if (availTags.size() > 0) {
-                        int amount = this.getRandomRangeInt(rand, 1, availTags.size());
-                        for (int j = 0; j < amount; j++) {
-                            // Take random tag and remove it
-                            int tagIndex = this.getRandomRangeInt(rand, 0, availTags.size() - 1);
-                            if (!chosenTags.containsKey(tagPrefix + availTags.get(tagIndex))) {
-                                chosenTags.put(tagPrefix + availTags.get(tagIndex), new ArrayList<String>());
-                            }
-                            chosenTags.get(tagPrefix + availTags.get(tagIndex)).add(usedTags.get(index)[availTags.get(tagIndex)]);
-                            availTags.remove(tagIndex);
-                        }
-                    }
-                }
-                // Finally put them into tags array
-                for (Map.Entry e : chosenTags.entrySet()) {
-                    tags.put((String) e.getKey(), (ArrayList<String>) e.getValue());
-                }
+                return state.sampler.sampleFromCombinations(rand, usedTags);
             }
         }
+        return TagFilter.EMPTY;
     }
 
     /**
@@ -896,6 +944,7 @@ public class CoreWorkload extends Workload {
      * effects other than DB operations.
      */
     public boolean doInsert(DB db, Object threadstate) {
+        Random rand = Utils.random();
         // Check if we alrefy floorfilled or not, if not: make sure theres at least one record per timestamp
         // only let go with possible zero records per timestamp if tsrandom and no floorfilling
         if ( floorcounter >= (insertend-insertstart) ||
@@ -931,8 +980,8 @@ public class CoreWorkload extends Workload {
         }
         // After flooring fill with records left
         //choose the next key
-        HashMap<String, ByteIterator> values = buildValues(String.valueOf(keynum));
-        return db.insert(metric, new Timestamp(keynum*timeResolution), getRandomDouble(rand, this.valuemin, this.valuemax), values) == 0;
+        DataPoint point = buildValues(threadState(threadstate), keynum*timeResolution, getRandomDouble(rand, this.valuemin, this.valuemax));
+        return db.insert(point) == 0;
     }
 
     /**
@@ -942,25 +991,25 @@ public class CoreWorkload extends Workload {
      * effects other than DB operations.
      */
     public boolean doTransaction(DB db, Object threadstate) {
-        String op = operationchooser.nextString();
-
-        if (op.compareTo("READ") == 0) {
-            doTransactionRead(db);
-        }
-        else if (op.compareTo("INSERT") == 0) {
-            doTransactionInsert(db);
-        }
-        else if (op.compareTo("SCAN") == 0) {
-            doTransactionScan(db, false, false, false);
-        }
-        else if (op.compareTo("AVG") == 0) {
-            doTransactionScan(db, true, false, false);
-        }
-        else if (op.compareTo("COUNT") == 0) {
-            doTransactionScan(db, false, true, false);
-        }
-        else if (op.compareTo("SUM") == 0) {
-            doTransactionScan(db, false, false, true);
+        switch (operationchooser.nextValue()) {
+            case READ:
+                doTransactionRead(db, threadState(threadstate));
+                break;
+            case INSERT:
+                doTransactionInsert(db, threadState(threadstate));
+                break;
+            case SCAN:
+                doTransactionScan(db, threadState(threadstate), false, false, false);
+                break;
+            case AVG:
+                doTransactionScan(db, threadState(threadstate), true, false, false);
+                break;
+            case COUNT:
+                doTransactionScan(db, threadState(threadstate), false, true, false);
+                break;
+            case SUM:
+                doTransactionScan(db, threadState(threadstate), false, false, true);
+                break;
         }
 
         return true;
@@ -983,16 +1032,24 @@ public class CoreWorkload extends Workload {
     }
 
     public void doTransactionRead(DB db) {
+        doTransactionRead(db, defaultState.get());
+    }
+
+    protected void doTransactionRead(DB db, ThreadState state) {
         //choose a random key
         long keynum = nextKeynum();
-        HashMap<String, ArrayList<String>> tags = new HashMap<String, ArrayList<String>>();
+        TagFilter tags = TagFilter.EMPTY;
         if (! notagsforread) {
-            generateSearchTagHashmap(tags);
+            tags = generateSearchTagFilter(state);
         }
-        db.read(metric, new Timestamp(keynum*timeResolution), tags);
+        db.read(metric, keynum*timeResolution, TimeUnit.MILLISECONDS, tags);
     }
 
     public void doTransactionScan(DB db, boolean avg, boolean count, boolean sum) {
+        doTransactionScan(db, defaultState.get(), avg, count, sum);
+    }
+
+    protected void doTransactionScan(DB db, ThreadState state, boolean avg, boolean count, boolean sum) {
         //choose random keys
         long keynum = 0;
         //choose a random scan length
@@ -1006,27 +1063,30 @@ public class CoreWorkload extends Workload {
                 keynum = nextKeynum();
             }
         }
-        HashMap<String, ArrayList<String>> tags = new HashMap<String, ArrayList<String>>();
-        generateSearchTagHashmap(tags);
+        TagFilter tags = generateSearchTagFilter(state);
 
-        db.scan(metric, new Timestamp(keynum*timeResolution), new Timestamp(((keynum+len)*timeResolution)), tags, avg, count , sum ,timevalue, timeunit);
+        db.scan(metric, keynum*timeResolution, (keynum+len)*timeResolution, TimeUnit.MILLISECONDS, tags, avg, count , sum ,timevalue, timeunit);
     }
 
     public void doTransactionInsert(DB db) {
+        doTransactionInsert(db, defaultState.get());
+    }
+
+    protected void doTransactionInsert(DB db, ThreadState state) {
+        if (!insertnewkeys) {
+            //choose a random key
+            long keynum = nextKeynum();
+            db.insert(buildValues(state, keynum*timeResolution, getRandomDouble(Utils.random(), this.valuemin, this.valuemax)));
+            return;
+        }
+        // a new key after the loaded ones, the "latest" request distribution reads it once it is acknowledged
+        long key = transactioninsertkeysequence.nextLong();
+        long keynum = insertstart + key;
         try {
-        //choose a random key
-        long keynum = nextKeynum();
-        //choose the next key
-        String dbkey = String.valueOf(keynum);
-        HashMap<String, ByteIterator> values = buildValues(dbkey);
-        db.insert(metric, new Timestamp(keynum*timeResolution), getRandomDouble(rand, this.valuemin, this.valuemax), values);
-        //System.err.println("WARNING: INSERT inside RUN phase is untested!.");
+            db.insert(buildValues(state, keynum*timeResolution, getRandomDouble(Utils.random(), this.valuemin, this.valuemax)));
         } finally {
-            // Don't know if this works (change introduced in 0.4.0
-            // if not, just drop "try {" and the finally block and change
-            // transactioninsertkeysequence back to CounterGenerator
-            // Could have a race condition when going back to 0.2.0 code, see git commits of YCSB
-            // transactioninsertkeysequence.acknowledge(keynum);
+            // deferred until the insert is executed if it was only prefetched
+            PrefetchingWorkload.acknowledge(db, transactioninsertkeysequence, key);
         }
     }
 }
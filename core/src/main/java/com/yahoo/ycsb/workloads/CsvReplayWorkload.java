@@ -0,0 +1,445 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DataPoint;
+import com.yahoo.ycsb.ParallelCSVParser;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays a recorded dataset: every row of a CSV file (plain or gzip compressed) is inserted as one point with
+ * the timestamp, metric, value and tags of that row.
+ * <p/>
+ * The first line of the file names the columns. The timestamp, metric and value columns are given by the properties
+ * below, every other column is a tag (empty cells are left out). Rows are partitioned across the client threads by
+ * series (metric and tag values), so the points of one series are inserted by one thread in file order. Load and
+ * run phase both replay the file; set recordcount (load) or operationcount (run) to 0 to replay all rows, otherwise
+ * every thread stops after its share of operations. The rows of a thread that stopped (or failed an insert) are
+ * skipped, so they never hold up the other threads.
+ * <p/>
+ * Properties to control the client:
+ * <UL>
+ * <LI><b>replayfile</b>: path of the CSV file, read gzip compressed if the name ends with .gz (default: replay.csv)
+ * <LI><b>replaygzip</b>: force reading the file gzip compressed or not (default: depends on the file name)
+ * <LI><b>replaytimestampcolumn</b>: name of the timestamp column (default: timestamp)
+ * <LI><b>replaytimestampunit</b>: unit of numeric timestamps: s, ms, us or ns; timestamps can also be given as
+ * yyyy-mm-dd hh:mm:ss[.f...] (default: ms)
+ * <LI><b>replaymetriccolumn</b>: name of the metric column, the metric property is used if there is none (default: metric)
+ * <LI><b>replayvaluecolumn</b>: name of the value column (default: value)
+ * <LI><b>replayrebase</b>: shift all timestamps so the first row of the file is at insertstart (default: false)
+ * <LI><b>replaybuffersize</b>: number of parsed rows to keep ready for the client threads (default: 100000)
+ * <LI><b>csvparserthreads</b>: number of threads that parse the file, 0 = half of the available processors (default: 0)
+ * </ul>
+ */
+public class CsvReplayWorkload extends Workload {
+    public static final String REPLAY_FILE_PROPERTY = "replayfile";
+    public static final String REPLAY_FILE_PROPERTY_DEFAULT = "replay.csv";
+    public static final String REPLAY_GZIP_PROPERTY = "replaygzip";
+    public static final String REPLAY_TIMESTAMP_COLUMN_PROPERTY = "replaytimestampcolumn";
+    public static final String REPLAY_TIMESTAMP_COLUMN_PROPERTY_DEFAULT = "timestamp";
+    public static final String REPLAY_TIMESTAMP_UNIT_PROPERTY = "replaytimestampunit";
+    public static final String REPLAY_TIMESTAMP_UNIT_PROPERTY_DEFAULT = "ms";
+    public static final String REPLAY_METRIC_COLUMN_PROPERTY = "replaymetriccolumn";
+    public static final String REPLAY_METRIC_COLUMN_PROPERTY_DEFAULT = "metric";
+    public static final String REPLAY_VALUE_COLUMN_PROPERTY = "replayvaluecolumn";
+    public static final String REPLAY_VALUE_COLUMN_PROPERTY_DEFAULT = "value";
+    public static final String REPLAY_REBASE_PROPERTY = "replayrebase";
+    public static final String REPLAY_REBASE_PROPERTY_DEFAULT = "false";
+    public static final String REPLAY_BUFFER_SIZE_PROPERTY = "replaybuffersize";
+    public static final String REPLAY_BUFFER_SIZE_PROPERTY_DEFAULT = "100000";
+
+    /** Rows per hand-over to a client thread. */
+    private static final int BATCH_ROWS = 256;
+    /** Marks the end of the rows of a client thread. */
+    private static final List<ReplayPoint> END = Collections.emptyList();
+    /** ms between the checks of the dispatcher and the client threads whether the other side is gone. */
+    private static final long HAND_OVER_TIMEOUT = 100;
+
+    private ParallelCSVParser parser;
+    private String defaultMetric;
+    private TimeUnit timestampUnit;
+    private boolean rebase;
+    private long insertstart;
+    private int buffersize;
+
+    private int timestampColumn;
+    private int metricColumn;
+    private int valueColumn;
+    private int[] tagColumns;
+    private String[] tagNames;
+    private byte[][] tagNameBytes;
+
+    private Partition[] partitions;
+    private Thread dispatcher;
+    private final AtomicLong invalidRows = new AtomicLong();
+
+    /**
+     * One parsed row. Tag values are by tag column, null if the cell was empty.
+     */
+    static final class ReplayPoint {
+        final String metric;
+        long timestamp;
+        final double value;
+        final String[] tagValues;
+        final int series;
+
+        ReplayPoint(String metric, long timestamp, double value, String[] tagValues) {
+            this.metric = metric;
+            this.timestamp = timestamp;
+            this.value = value;
+            this.tagValues = tagValues;
+            int h = metric.hashCode();
+            for (String v : tagValues) {
+                h = 31 * h + (v == null ? 0 : v.hashCode());
+            }
+            this.series = h;
+        }
+    }
+
+    /**
+     * The rows of one client thread.
+     */
+    private static final class Partition {
+        private final ArrayBlockingQueue<List<ReplayPoint>> queue;
+        private volatile Thread consumer;
+        private volatile boolean abandoned = false;
+
+        private Partition(int capacity) {
+            queue = new ArrayBlockingQueue<List<ReplayPoint>>(capacity);
+        }
+
+        /**
+         * @return true if the client thread takes no more rows: it failed, reached its share of operations or ended
+         */
+        private boolean isAbandoned() {
+            Thread thread = consumer;
+            return abandoned || (thread != null && !thread.isAlive());
+        }
+    }
+
+    private static final class ThreadState {
+        private final Partition partition;
+        private final DataPoint point = new DataPoint();
+        private List<ReplayPoint> batch = null;
+        private int pos = 0;
+
+        private ThreadState(Partition partition) {
+            this.partition = partition;
+        }
+    }
+
+    @Override
+    public void init(Properties p) throws WorkloadException {
+        File file = new File(p.getProperty(REPLAY_FILE_PROPERTY, REPLAY_FILE_PROPERTY_DEFAULT));
+        int parserThreads = Integer.parseInt(p.getProperty(CoreWorkload.CSV_PARSER_THREADS_PROPERTY,
+                CoreWorkload.CSV_PARSER_THREADS_PROPERTY_DEFAULT));
+        if (parserThreads <= 0) {
+            parserThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        }
+        try {
+            String gzip = p.getProperty(REPLAY_GZIP_PROPERTY);
+            parser = gzip == null ? new ParallelCSVParser(file, parserThreads)
+                    : new ParallelCSVParser(file, Boolean.parseBoolean(gzip), parserThreads);
+        }
+        catch (IOException e) {
+            throw new WorkloadException("Can't read " + file.getAbsolutePath() + ": " + e);
+        }
+        defaultMetric = p.getProperty(CoreWorkload.METRICNAME_PROPERTY, CoreWorkload.METRICNAME_PROPERTY_DEFAULT);
+        timestampUnit = parseUnit(p.getProperty(REPLAY_TIMESTAMP_UNIT_PROPERTY, REPLAY_TIMESTAMP_UNIT_PROPERTY_DEFAULT));
+        rebase = Boolean.parseBoolean(p.getProperty(REPLAY_REBASE_PROPERTY, REPLAY_REBASE_PROPERTY_DEFAULT));
+        insertstart = Long.parseLong(p.getProperty(INSERT_START_PROPERTY, INSERT_START_PROPERTY_DEFAULT));
+        buffersize = Integer.parseInt(p.getProperty(REPLAY_BUFFER_SIZE_PROPERTY, REPLAY_BUFFER_SIZE_PROPERTY_DEFAULT));
+
+        String[] headers = parser.getHeaders();
+        timestampColumn = indexOf(headers, p.getProperty(REPLAY_TIMESTAMP_COLUMN_PROPERTY, REPLAY_TIMESTAMP_COLUMN_PROPERTY_DEFAULT));
+        metricColumn = indexOf(headers, p.getProperty(REPLAY_METRIC_COLUMN_PROPERTY, REPLAY_METRIC_COLUMN_PROPERTY_DEFAULT));
+        valueColumn = indexOf(headers, p.getProperty(REPLAY_VALUE_COLUMN_PROPERTY, REPLAY_VALUE_COLUMN_PROPERTY_DEFAULT));
+        if (timestampColumn < 0 || valueColumn < 0) {
+            throw new WorkloadException("CSV file " + file.getAbsolutePath() + " needs a timestamp and a value column, got "
+                    + Arrays.toString(headers) + ".");
+        }
+        if (metricColumn < 0) {
+            System.err.println("WARNING: CSV file has no metric column, using metric " + defaultMetric + ".");
+        }
+        ArrayList<Integer> tags = new ArrayList<Integer>();
+        for (int i = 0; i < headers.length; i++) {
+            if (i != timestampColumn && i != metricColumn && i != valueColumn) {
+                tags.add(i);
+            }
+        }
+        tagColumns = new int[tags.size()];
+        tagNames = new String[tags.size()];
+        tagNameBytes = new byte[tags.size()][];
+        for (int i = 0; i < tagColumns.length; i++) {
+            tagColumns[i] = tags.get(i);
+            tagNames[i] = headers[tagColumns[i]];
+            tagNameBytes[i] = tagNames[i].getBytes(DataPoint.UTF8);
+        }
+    }
+
+    private static int indexOf(String[] headers, String name) {
+        for (int i = 0; i < headers.length; i++) {
+            if (headers[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static TimeUnit parseUnit(String unit) throws WorkloadException {
+        if (unit.equals("s")) {
+            return TimeUnit.SECONDS;
+        }
+        else if (unit.equals("ms")) {
+            return TimeUnit.MILLISECONDS;
+        }
+        else if (unit.equals("us")) {
+            return TimeUnit.MICROSECONDS;
+        }
+        else if (unit.equals("ns")) {
+            return TimeUnit.NANOSECONDS;
+        }
+        throw new WorkloadException("Unknown " + REPLAY_TIMESTAMP_UNIT_PROPERTY + " " + unit + ", use s, ms, us or ns.");
+    }
+
+    /**
+     * @return the timestamp in milliseconds since 1970
+     */
+    long parseTimestamp(String s) {
+        try {
+            return timestampUnit.toMillis(Long.parseLong(s));
+        }
+        catch (NumberFormatException e) {
+            // fall through
+        }
+        try {
+            return (long) (Double.parseDouble(s) * timestampUnit.toNanos(1) / 1000000.0);
+        }
+        catch (NumberFormatException e) {
+            // fall through
+        }
+        return Timestamp.valueOf(s).getTime();
+    }
+
+    /**
+     * Convert a CSV record, runs in the parser threads.
+     *
+     * @return the point, or null if the row is invalid
+     */
+    ReplayPoint toPoint(String[] record) {
+        try {
+            long timestamp = parseTimestamp(record[timestampColumn]);
+            double value = Double.parseDouble(record[valueColumn]);
+            String metric = metricColumn < 0 || record[metricColumn].equals("") ? defaultMetric : record[metricColumn];
+            String[] tagValues = new String[tagColumns.length];
+            for (int i = 0; i < tagColumns.length; i++) {
+                if (tagColumns[i] < record.length && !record[tagColumns[i]].equals("")) {
+                    tagValues[i] = record[tagColumns[i]];
+                }
+            }
+            return new ReplayPoint(metric, timestamp, value, tagValues);
+        }
+        catch (RuntimeException e) {
+            if (invalidRows.getAndIncrement() == 0) {
+                System.err.println("WARNING: Skipping invalid CSV row " + Arrays.toString(record) + ": " + e);
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException {
+        if (partitions == null) {
+            int capacity = Math.max(2, buffersize / Math.max(1, threadcount) / BATCH_ROWS);
+            partitions = new Partition[Math.max(1, threadcount)];
+            for (int i = 0; i < partitions.length; i++) {
+                partitions[i] = new Partition(capacity);
+            }
+            dispatcher = new Thread("csv-replay") {
+                @Override
+                public void run() {
+                    dispatch();
+                }
+            };
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+        }
+        Partition partition = partitions[mythreadid % partitions.length];
+        // initThread runs in the client thread
+        partition.consumer = Thread.currentThread();
+        return new ThreadState(partition);
+    }
+
+    /**
+     * Hand a batch to a client thread, drop it if the thread takes no more rows.
+     *
+     * @throws InterruptedException if the replay is stopped
+     */
+    private void deliver(Partition partition, List<ReplayPoint> batch) throws InterruptedException {
+        while (!partition.queue.offer(batch, HAND_OVER_TIMEOUT, TimeUnit.MILLISECONDS)) {
+            if (isStopRequested()) {
+                throw new InterruptedException("stop requested");
+            }
+            if (partition.isAbandoned()) {
+                partition.queue.clear();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Parse the file and route every point to the client thread of its series, in file order.
+     */
+    private void dispatch() {
+        final int threads = partitions.length;
+        final ArrayList<ArrayList<ReplayPoint>> pending = new ArrayList<ArrayList<ReplayPoint>>(threads);
+        for (int i = 0; i < threads; i++) {
+            pending.add(new ArrayList<ReplayPoint>(BATCH_ROWS));
+        }
+        try {
+            parser.parse(new ParallelCSVParser.RecordMapper<ReplayPoint>() {
+                @Override
+                public ReplayPoint map(String[] record) {
+                    return toPoint(record);
+                }
+            }, new ParallelCSVParser.RecordSink<ReplayPoint>() {
+                private boolean first = true;
+                private long offset = 0;
+
+                @Override
+                public void accept(List<ReplayPoint> points) throws InterruptedException {
+                    for (ReplayPoint point : points) {
+                        if (first) {
+                            offset = rebase ? insertstart - point.timestamp : 0;
+                            first = false;
+                        }
+                        point.timestamp += offset;
+                        int thread = (point.series & Integer.MAX_VALUE) % threads;
+                        ArrayList<ReplayPoint> batch = pending.get(thread);
+                        batch.add(point);
+                        if (batch.size() == BATCH_ROWS) {
+                            deliver(partitions[thread], batch);
+                            pending.set(thread, new ArrayList<ReplayPoint>(BATCH_ROWS));
+                        }
+                    }
+                }
+            });
+        }
+        catch (IOException e) {
+            System.err.println("ERROR: Can't read " + parser.getFile().getAbsolutePath() + ": " + e);
+        }
+        catch (InterruptedException e) {
+            return;
+        }
+        try {
+            for (int i = 0; i < threads; i++) {
+                if (!pending.get(i).isEmpty()) {
+                    deliver(partitions[i], pending.get(i));
+                }
+                deliver(partitions[i], END);
+            }
+        }
+        catch (InterruptedException e) {
+            // cleanup() or maxexecutiontime stopped the replay
+        }
+    }
+
+    private ReplayPoint next(ThreadState state) {
+        if (state.batch == null || state.pos == state.batch.size()) {
+            if (state.batch == END) {
+                return null;
+            }
+            try {
+                List<ReplayPoint> batch;
+                while ((batch = state.partition.queue.poll(HAND_OVER_TIMEOUT, TimeUnit.MILLISECONDS)) == null) {
+                    if (isStopRequested() || !dispatcher.isAlive() && state.partition.queue.isEmpty()) {
+                        return null;
+                    }
+                }
+                state.batch = batch;
+            }
+            catch (InterruptedException e) {
+                return null;
+            }
+            state.pos = 0;
+            if (state.batch == END) {
+                return null;
+            }
+        }
+        return state.batch.get(state.pos++);
+    }
+
+    /**
+     * Insert the next row of this thread's partition.
+     *
+     * @return false if there are no more rows or the insert failed
+     */
+    @Override
+    public boolean doInsert(DB db, Object threadstate) {
+        ThreadState state = (ThreadState) threadstate;
+        ReplayPoint row = next(state);
+        if (row == null) {
+            return false;
+        }
+        DataPoint point = state.point;
+        point.reset(row.metric, row.timestamp, row.value);
+        for (int i = 0; i < tagNames.length; i++) {
+            if (row.tagValues[i] != null) {
+                point.addTag(tagNames[i], tagNameBytes[i], row.tagValues[i]);
+            }
+        }
+        if (db.insert(point) != 0) {
+            // the client thread stops, the dispatcher drops its rows from now on
+            state.partition.abandoned = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * The run phase replays the file as well.
+     */
+    @Override
+    public boolean doTransaction(DB db, Object threadstate) {
+        return doInsert(db, threadstate);
+    }
+
+    @Override
+    public void cleanup() throws WorkloadException {
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        if (invalidRows.get() > 0) {
+            System.err.println("WARNING: Skipped " + invalidRows.get() + " invalid CSV rows.");
+        }
+    }
+}
@@ -0,0 +1,480 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DataPoint;
+import com.yahoo.ycsb.FastRandom;
+import com.yahoo.ycsb.TagFilter;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.AcknowledgedCounterGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generates the operations of another workload in dedicated generator threads, ahead of the client threads.
+ * <p/>
+ * A generator thread runs doInsert/doTransaction of the wrapped workload against a capturing DB and puts the captured
+ * operation into a queue of the client thread it generates for. Every client thread has its own single-producer
+ * single-consumer ring of reusable operation slots, so the client threads only take, execute and measure
+ * operations. Every time a client thread finds its queue empty, the time it waited is reported as PREFETCH-STARVATION;
+ * many of those mean the generator threads can't keep up and prefetchthreads should be increased.
+ * <p/>
+ * The wrapped workload must do at most one DB operation per call, as all workloads here do. Its doInsert and
+ * doTransaction are called from the generator threads with the thread state initThread returned for the client, and
+ * with a random stream split off the client's, so seeded runs draw the same random numbers in every generator
+ * thread (see {@link com.yahoo.ycsb.Client#SEED_PROPERTY}). Workloads that hand out the keys of their inserts to
+ * later operations acknowledge them with {@link #acknowledge}, which waits until the client thread executed the insert,
+ * so reads never target keys whose insert is still in a queue.
+ * <p/>
+ * Properties to control the client:
+ * <UL>
+ * <LI><b>prefetchthreads</b>: number of generator threads, 0 disables prefetching (default: 0)
+ * <LI><b>prefetchqueuesize</b>: operations generated ahead per client thread, rounded up to a power of two
+ * (default: 1024)
+ * </ul>
+ */
+public class PrefetchingWorkload extends Workload {
+    public static final String PREFETCH_THREADS_PROPERTY = "prefetchthreads";
+    public static final String PREFETCH_THREADS_PROPERTY_DEFAULT = "0";
+    public static final String PREFETCH_QUEUE_SIZE_PROPERTY = "prefetchqueuesize";
+    public static final String PREFETCH_QUEUE_SIZE_PROPERTY_DEFAULT = "1024";
+    public static final String STARVATION_MEASUREMENT = "PREFETCH-STARVATION";
+
+    private static final int NONE = 0;
+    private static final int INSERT = 1;
+    private static final int READ = 2;
+    private static final int SCAN = 3;
+
+    /**
+     * One captured operation, reused for every operation that passes its slot.
+     */
+    static final class Operation {
+        int type;
+        boolean more;
+        final DataPoint point = new DataPoint();
+        String metric;
+        long timestamp;
+        long endTimestamp;
+        TimeUnit precision;
+        TagFilter tags;
+        boolean avg;
+        boolean count;
+        boolean sum;
+        int timeValue;
+        TimeUnit timeUnit;
+        /** The key to acknowledge once the insert was executed, if ackSequence is not null. */
+        AcknowledgedCounterGenerator ackSequence;
+        long ackKey;
+
+        int execute(DB db) {
+            switch (type) {
+                case INSERT:
+                    return db.insert(point);
+                case READ:
+                    return db.read(metric, timestamp, precision, tags);
+                case SCAN:
+                    return db.scan(metric, timestamp, endTimestamp, precision, tags, avg, count, sum, timeValue,
+                            timeUnit);
+                default:
+                    return 0;
+            }
+        }
+
+        /**
+         * Execute the operation, then acknowledge its key.
+         *
+         * @return true if the operation succeeded
+         */
+        boolean executeAndAcknowledge(DB db) {
+            int res = execute(db);
+            if (ackSequence != null) {
+                // failed keys too, the acknowledged limit only passes contiguous keys
+                ackSequence.acknowledge(ackKey);
+            }
+            return res == 0;
+        }
+    }
+
+    /**
+     * Single-producer single-consumer ring of operation slots. The producer fills the slot of claim() and publishes
+     * it, the consumer executes the slot of peek() in place and releases it.
+     */
+    static final class OperationQueue {
+        private final Operation[] slots;
+        private final int mask;
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong tail = new AtomicLong();
+        /** Last head seen by the producer, only used by the producer. */
+        private long cachedHead = 0;
+        /** Last tail seen by the consumer, only used by the consumer. */
+        private long cachedTail = 0;
+
+        OperationQueue(int size) {
+            int capacity = Integer.highestOneBit(Math.max(2, size - 1)) << 1;
+            slots = new Operation[capacity];
+            for (int i = 0; i < capacity; i++) {
+                slots[i] = new Operation();
+            }
+            mask = capacity - 1;
+        }
+
+        /**
+         * @return the next free slot, or null if the queue is full
+         */
+        Operation claim() {
+            long t = tail.get();
+            if (t - cachedHead >= slots.length) {
+                cachedHead = head.get();
+                if (t - cachedHead >= slots.length) {
+                    return null;
+                }
+            }
+            return slots[(int) t & mask];
+        }
+
+        void publish() {
+            tail.lazySet(tail.get() + 1);
+        }
+
+        /**
+         * @return the oldest published slot, or null if the queue is empty
+         */
+        Operation peek() {
+            long h = head.get();
+            if (h >= cachedTail) {
+                cachedTail = tail.get();
+                if (h >= cachedTail) {
+                    return null;
+                }
+            }
+            return slots[(int) h & mask];
+        }
+
+        void release() {
+            head.lazySet(head.get() + 1);
+        }
+    }
+
+    /**
+     * Thread state of one client thread.
+     */
+    static final class ClientState {
+        final OperationQueue queue;
+        final Object innerState;
+        /** The random stream the generator thread uses for this client. */
+        final FastRandom random;
+        /** Operations left to generate, negative for no limit. Only used by the generator thread. */
+        long remaining;
+        /** Set by the generator thread when the wrapped workload is done for this client. */
+        boolean finished = false;
+
+        ClientState(OperationQueue queue, Object innerState, FastRandom random, long remaining) {
+            this.queue = queue;
+            this.innerState = innerState;
+            this.random = random;
+            this.remaining = remaining;
+        }
+    }
+
+    /**
+     * Captures the operation the wrapped workload does into the current slot.
+     */
+    static final class CaptureDB extends DB {
+        Operation target;
+
+        @Override
+        public int insert(DataPoint point) {
+            target.type = INSERT;
+            target.point.copyFrom(point);
+            return 0;
+        }
+
+        @Override
+        public int read(String metric, long timestamp, TimeUnit precision, TagFilter tags) {
+            target.type = READ;
+            target.metric = metric;
+            target.timestamp = timestamp;
+            target.precision = precision;
+            target.tags = tags;
+            return 0;
+        }
+
+        @Override
+        public int scan(String metric, long startTs, long endTs, TimeUnit precision, TagFilter tags,
+                        boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+            target.type = SCAN;
+            target.metric = metric;
+            target.timestamp = startTs;
+            target.endTimestamp = endTs;
+            target.precision = precision;
+            target.tags = tags;
+            target.avg = avg;
+            target.count = count;
+            target.sum = sum;
+            target.timeValue = timeValue;
+            target.timeUnit = timeUnit;
+            return 0;
+        }
+
+        @Override
+        public int read(String metric, Timestamp timestamp, HashMap<String, ArrayList<String>> tags) {
+            return read(metric, timestamp.getTime(), TimeUnit.MILLISECONDS, TagFilter.fromMap(tags));
+        }
+
+        @Override
+        public int scan(String metric, Timestamp startTs, Timestamp endTs, HashMap<String, ArrayList<String>> tags,
+                        boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+            return scan(metric, startTs.getTime(), endTs.getTime(), TimeUnit.MILLISECONDS, TagFilter.fromMap(tags),
+                    avg, count, sum, timeValue, timeUnit);
+        }
+
+        @Override
+        public int insert(String metric, Timestamp timestamp, double value, HashMap<String, ByteIterator> tags) {
+            DataPoint point = new DataPoint(tags.size());
+            point.reset(metric, timestamp.getTime(), value);
+            for (String tag : tags.keySet()) {
+                point.addTag(tag, null, tags.get(tag).toString());
+            }
+            return insert(point);
+        }
+    }
+
+    /**
+     * Fills the queues of the client threads with threadid % generators == its id.
+     */
+    private final class GeneratorThread extends Thread {
+        private final ConcurrentLinkedQueue<ClientState> added = new ConcurrentLinkedQueue<ClientState>();
+        private final ArrayList<ClientState> clients = new ArrayList<ClientState>();
+        private final CaptureDB db = new CaptureDB();
+        private final int expectedClients;
+
+        GeneratorThread(int id, int expectedClients) {
+            super("prefetch-" + id);
+            setDaemon(true);
+            this.expectedClients = expectedClients;
+        }
+
+        /**
+         * Generate up to batch operations for client.
+         *
+         * @return the number of operations generated
+         */
+        private int fill(ClientState client, int batch) {
+            int generated = 0;
+            Utils.setRandom(client.random);
+            while (generated < batch && !client.finished && client.remaining != 0) {
+                Operation op = client.queue.claim();
+                if (op == null) {
+                    break;
+                }
+                op.type = NONE;
+                op.ackSequence = null;
+                db.target = op;
+                op.more = dotransactions ? workload.doTransaction(db, client.innerState)
+                        : workload.doInsert(db, client.innerState);
+                client.finished = !op.more;
+                if (client.remaining > 0) {
+                    client.remaining--;
+                }
+                client.queue.publish();
+                generated++;
+            }
+            return generated;
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (!stopped) {
+                ClientState client;
+                while ((client = added.poll()) != null) {
+                    clients.add(client);
+                }
+                int generated = 0;
+                boolean done = clients.size() == expectedClients;
+                for (ClientState c : clients) {
+                    generated += fill(c, 64);
+                    done &= c.finished || c.remaining == 0;
+                }
+                if (done) {
+                    return;
+                }
+                if (generated > 0) {
+                    idle = 0;
+                }
+                else if (++idle < 100) {
+                    Thread.yield();
+                }
+                else {
+                    LockSupport.parkNanos(50000);
+                }
+            }
+        }
+    }
+
+    private final Workload workload;
+    private final boolean dotransactions;
+    private final long opcount;
+    private final int queuesize;
+    private final GeneratorThread[] generators;
+    private final Measurements measurements = Measurements.getMeasurements();
+    private volatile boolean stopped = false;
+
+    /**
+     * Wrap an initialized workload.
+     *
+     * @param workload       the workload that generates the operations
+     * @param props          the properties of the experiment
+     * @param dotransactions true to generate transactions, false to generate inserts
+     * @param threadcount    the number of client threads
+     * @param opcount        the number of operations of all client threads together, 0 for no limit
+     */
+    public PrefetchingWorkload(Workload workload, Properties props, boolean dotransactions, int threadcount,
+                               long opcount) {
+        this.workload = workload;
+        this.dotransactions = dotransactions;
+        this.opcount = opcount;
+        this.queuesize = Integer.parseInt(props.getProperty(PREFETCH_QUEUE_SIZE_PROPERTY,
+                PREFETCH_QUEUE_SIZE_PROPERTY_DEFAULT));
+        int threads = Integer.parseInt(props.getProperty(PREFETCH_THREADS_PROPERTY, PREFETCH_THREADS_PROPERTY_DEFAULT));
+        generators = new GeneratorThread[Math.max(1, Math.min(threads, threadcount))];
+        for (int i = 0; i < generators.length; i++) {
+            int expected = threadcount / generators.length + (i < threadcount % generators.length ? 1 : 0);
+            generators[i] = new GeneratorThread(i, expected);
+            generators[i].start();
+        }
+    }
+
+    /**
+     * Acknowledge key in sequence after the insert of it: right away, or if db only captured the insert for a client
+     * thread, when that thread has executed it.
+     */
+    public static void acknowledge(DB db, AcknowledgedCounterGenerator sequence, long key) {
+        if (db instanceof CaptureDB) {
+            Operation op = ((CaptureDB) db).target;
+            op.ackSequence = sequence;
+            op.ackKey = key;
+        }
+        else {
+            sequence.acknowledge(key);
+        }
+    }
+
+    /**
+     * @return true if props ask for prefetching
+     */
+    public static boolean isEnabled(Properties props) {
+        return Integer.parseInt(props.getProperty(PREFETCH_THREADS_PROPERTY, PREFETCH_THREADS_PROPERTY_DEFAULT)) > 0;
+    }
+
+    @Override
+    public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException {
+        long threadopcount = -1;
+        if (opcount > 0) {
+            threadopcount = opcount / threadcount + (mythreadid < opcount % threadcount ? 1 : 0);
+        }
+        ClientState state = new ClientState(new OperationQueue(queuesize),
+                workload.initThread(p, mythreadid, threadcount), Utils.random().split(), threadopcount);
+        generators[mythreadid % generators.length].added.add(state);
+        return state;
+    }
+
+    /**
+     * @return the next operation of the client, or null if there is none and will be none
+     */
+    private Operation take(ClientState state) {
+        Operation op = state.queue.peek();
+        if (op != null) {
+            return op;
+        }
+        long start = System.nanoTime();
+        int spins = 0;
+        while ((op = state.queue.peek()) == null) {
+            if (stopped || isStopRequested()) {
+                return null;
+            }
+            if (++spins < 100) {
+                Thread.yield();
+            }
+            else {
+                LockSupport.parkNanos(10000);
+            }
+        }
+        measurements.measure(STARVATION_MEASUREMENT, (System.nanoTime() - start) / 1000);
+        return op;
+    }
+
+    @Override
+    public boolean doInsert(DB db, Object threadstate) {
+        ClientState state = (ClientState) threadstate;
+        Operation op = take(state);
+        if (op == null) {
+            return false;
+        }
+        boolean ok = op.more && op.executeAndAcknowledge(db);
+        state.queue.release();
+        return ok;
+    }
+
+    @Override
+    public boolean doTransaction(DB db, Object threadstate) {
+        ClientState state = (ClientState) threadstate;
+        Operation op = take(state);
+        if (op == null) {
+            return false;
+        }
+        boolean more = op.more;
+        if (more) {
+            op.executeAndAcknowledge(db);
+        }
+        state.queue.release();
+        return more;
+    }
+
+    @Override
+    public void requestStop() {
+        super.requestStop();
+        workload.requestStop();
+    }
+
+    @Override
+    public void cleanup() throws WorkloadException {
+        stopped = true;
+        for (GeneratorThread generator : generators) {
+            try {
+                generator.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        workload.cleanup();
+    }
+}
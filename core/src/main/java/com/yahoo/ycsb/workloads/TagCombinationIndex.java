@@ -0,0 +1,314 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.DataPoint;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+
+/**
+ * Compact store of the tag value combinations that were actually inserted (predefinedtagstoreused).
+ * <p/>
+ * Tag values are dictionary encoded per tag and every combination is a row of tagcount fixed-width ids.
+ * Rows can live in three places:
+ * <ul>
+ * <li>in a file that is written incrementally while loading ({@link #startWriting(File)}), so the heap does not
+ * grow with the number of records. Written rows are not available for sampling.</li>
+ * <li>in a file that was written by a previous (load) phase and is memory-mapped by {@link #open(File)}, so
+ * startup does not depend on the number of records either.</li>
+ * <li>on the heap, in one flat int array, for rows added while not writing to a file (e.g. inserts of the run
+ * phase). They are numbered after the mapped rows.</li>
+ * </ul>
+ * Rows can be added concurrently by the insert threads while other threads sample from them; readers always see
+ * complete rows.
+ * <p/>
+ * File format (big endian): a header of magic, version, tagcount, id width in bytes, row count and offset of the
+ * dictionary; then the rows, each tagcount ids of the given width ({@link #ABSENT} for unused tags); then the
+ * dictionary: for every tag the number of values followed by the values (length and UTF-8 bytes), by id.
+ */
+public class TagCombinationIndex {
+    /** Id of an absent tag in a row. */
+    public static final int ABSENT = -1;
+
+    private static final long MAGIC = 0x5943534254414753L; // "YCSBTAGS"
+    private static final int VERSION = 1;
+    private static final int ID_WIDTH = 4;
+    private static final int HEADER_SIZE = 8 + 4 + 4 + 4 + 8 + 8;
+    private static final int ROWCOUNT_OFFSET = 8 + 4 + 4 + 4;
+    /** Maximum size of one mapped segment, a single mapping is limited to 2GB. */
+    private static final int MAX_SEGMENT_SIZE = 1 << 30;
+
+    private final int tagcount;
+    /** Per tag: id to value. Replaced (never modified in place) when it grows. */
+    private volatile String[][] dictionary;
+    private final int[] dictionarySizes;
+    private final HashMap<String, Integer>[] ids;
+
+    private final MappedByteBuffer[] segments;
+    private final int rowsPerSegment;
+    private final int mappedRows;
+
+    /** Heap rows of tagcount ids each. Replaced when it grows. */
+    private volatile int[] rows;
+    /** Number of heap rows, written last on add, so a reader that read it sees all rows below it. */
+    private volatile int rowcount;
+
+    private File writeTarget;
+    private File writeFile;
+    private DataOutputStream out;
+    private long writtenRows;
+
+    public TagCombinationIndex(int tagcount) {
+        this(tagcount, null, new MappedByteBuffer[0], 1, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private TagCombinationIndex(int tagcount, String[][] dict, MappedByteBuffer[] segments, int rowsPerSegment, int mappedRows) {
+        this.tagcount = tagcount;
+        this.dictionarySizes = new int[tagcount];
+        this.ids = new HashMap[tagcount];
+        String[][] d = new String[tagcount][];
+        for (int i = 0; i < tagcount; i++) {
+            ids[i] = new HashMap<String, Integer>();
+            int size = dict == null ? 0 : dict[i].length;
+            d[i] = new String[Math.max(16, size)];
+            for (int j = 0; j < size; j++) {
+                d[i][j] = dict[i][j];
+                ids[i].put(dict[i][j], j);
+            }
+            dictionarySizes[i] = size;
+        }
+        this.dictionary = d;
+        this.segments = segments;
+        this.rowsPerSegment = rowsPerSegment;
+        this.mappedRows = mappedRows;
+        this.rows = new int[Math.max(1, tagcount) * 1024];
+        this.rowcount = 0;
+    }
+
+    /**
+     * Memory-map a file that was written with {@link #startWriting(File)} and {@link #finishWriting()}.
+     * Only the dictionary is read onto the heap. The mapping stays valid if the file is deleted afterwards.
+     */
+    public static TagCombinationIndex open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new IOException(file.getAbsolutePath() + " is too short for a tag combination file.");
+                }
+            }
+            header.flip();
+            if (header.getLong() != MAGIC) {
+                throw new IOException(file.getAbsolutePath() + " is not a tag combination file.");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported tag combination file version " + version + ".");
+            }
+            int tagcount = header.getInt();
+            int idWidth = header.getInt();
+            if (idWidth != ID_WIDTH) {
+                throw new IOException("Unsupported id width " + idWidth + ".");
+            }
+            long rowcount = header.getLong();
+            long dictionaryOffset = header.getLong();
+            int rowBytes = tagcount * ID_WIDTH;
+            if (rowcount > Integer.MAX_VALUE || dictionaryOffset != HEADER_SIZE + rowcount * rowBytes) {
+                throw new IOException(file.getAbsolutePath() + " is incomplete or corrupt.");
+            }
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(channel.position(dictionaryOffset))));
+            String[][] dict = new String[tagcount][];
+            for (int i = 0; i < tagcount; i++) {
+                dict[i] = new String[in.readInt()];
+                for (int j = 0; j < dict[i].length; j++) {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    dict[i][j] = new String(bytes, DataPoint.UTF8);
+                }
+            }
+
+            int rowsPerSegment = rowBytes == 0 ? 1 : Math.max(1, MAX_SEGMENT_SIZE / rowBytes);
+            int segmentCount = rowBytes == 0 ? 0 : (int) ((rowcount + rowsPerSegment - 1) / rowsPerSegment);
+            MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+            for (int s = 0; s < segmentCount; s++) {
+                long first = (long) s * rowsPerSegment;
+                long count = Math.min(rowsPerSegment, rowcount - first);
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * rowBytes, count * rowBytes);
+            }
+            return new TagCombinationIndex(tagcount, dict, segments, rowsPerSegment, rowBytes == 0 ? 0 : (int) rowcount);
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * From now on, write added rows to a temporary file next to target instead of keeping them on the heap.
+     * {@link #finishWriting()} completes the file and moves it to target.
+     */
+    public synchronized void startWriting(File target) throws IOException {
+        writeTarget = target;
+        writeFile = new File(target.getAbsolutePath() + ".tmp");
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(writeFile), 1 << 16));
+        out.writeLong(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(tagcount);
+        out.writeInt(ID_WIDTH);
+        out.writeLong(0); // row count, set by finishWriting()
+        out.writeLong(0); // dictionary offset, set by finishWriting()
+        writtenRows = 0;
+    }
+
+    public synchronized boolean isWriting() {
+        return out != null;
+    }
+
+    /**
+     * Append the dictionary, complete the header and move the file to the target given to startWriting().
+     */
+    public synchronized void finishWriting() throws IOException {
+        if (out == null) {
+            return;
+        }
+        String[][] dict = dictionary;
+        for (int i = 0; i < tagcount; i++) {
+            out.writeInt(dictionarySizes[i]);
+            for (int j = 0; j < dictionarySizes[i]; j++) {
+                byte[] bytes = dict[i][j].getBytes(DataPoint.UTF8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+        out.close();
+        out = null;
+        RandomAccessFile raf = new RandomAccessFile(writeFile, "rw");
+        try {
+            raf.seek(ROWCOUNT_OFFSET);
+            raf.writeLong(writtenRows);
+            raf.writeLong(HEADER_SIZE + writtenRows * tagcount * ID_WIDTH);
+        }
+        finally {
+            raf.close();
+        }
+        if (!writeFile.renameTo(writeTarget)) {
+            throw new IOException("Can't move " + writeFile.getAbsolutePath() + " to " + writeTarget.getAbsolutePath() + ".");
+        }
+    }
+
+    private int id(int tag, String value) {
+        Integer id = ids[tag].get(value);
+        if (id == null) {
+            String[][] dict = dictionary;
+            if (dictionarySizes[tag] == dict[tag].length) {
+                String[][] grown = dict.clone();
+                grown[tag] = new String[dict[tag].length * 2];
+                System.arraycopy(dict[tag], 0, grown[tag], 0, dictionarySizes[tag]);
+                dict = grown;
+            }
+            id = dictionarySizes[tag];
+            dict[tag][id] = value;
+            dictionarySizes[tag]++;
+            dictionary = dict;
+            ids[tag].put(value, id);
+        }
+        return id;
+    }
+
+    private int encode(String[] row, int tag) {
+        String value = tag < row.length ? row[tag] : null;
+        return (value == null || value.equals("")) ? ABSENT : id(tag, value);
+    }
+
+    /**
+     * Add one combination. row[i] is the value of tag i, null or "" if the tag was not used.
+     */
+    public synchronized void add(String[] row) {
+        if (out != null) {
+            try {
+                for (int i = 0; i < tagcount; i++) {
+                    out.writeInt(encode(row, i));
+                }
+                writtenRows++;
+            }
+            catch (IOException e) {
+                System.err.println("ERROR: Can't write tag combination to " + writeFile.getAbsolutePath() + ": " + e);
+            }
+            return;
+        }
+        int count = rowcount;
+        int[] r = rows;
+        if ((count + 1) * tagcount > r.length) {
+            int[] grown = new int[Math.max(r.length * 2, (count + 1) * tagcount)];
+            System.arraycopy(r, 0, grown, 0, count * tagcount);
+            r = grown;
+        }
+        int base = count * tagcount;
+        for (int i = 0; i < tagcount; i++) {
+            r[base + i] = encode(row, i);
+        }
+        rows = r;
+        rowcount = count + 1;
+    }
+
+    public int getTagCount() {
+        return tagcount;
+    }
+
+    /**
+     * @return the number of combinations available for sampling (mapped and heap rows)
+     */
+    public int size() {
+        return mappedRows + rowcount;
+    }
+
+    /**
+     * @return the dictionary id of the value of tag in row, or {@link #ABSENT}
+     */
+    public int getValueId(int row, int tag) {
+        if (row < mappedRows) {
+            int segment = row / rowsPerSegment;
+            return segments[segment].getInt(((row - segment * rowsPerSegment) * tagcount + tag) * ID_WIDTH);
+        }
+        return rows[(row - mappedRows) * tagcount + tag];
+    }
+
+    /**
+     * @return the value of tag in row, or null if the tag is absent in that row
+     */
+    public String getValue(int row, int tag) {
+        int id = getValueId(row, tag);
+        return id == ABSENT ? null : dictionary[tag][id];
+    }
+}
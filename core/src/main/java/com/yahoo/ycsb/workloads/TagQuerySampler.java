@@ -0,0 +1,316 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.TagFilter;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Samples the tag filters of read/scan/avg/count/sum queries. One instance per client thread, not thread safe.
+ * <p/>
+ * All choices without replacement are done with a partial Fisher-Yates shuffle over index arrays that are kept
+ * between calls (any permutation is a valid starting point), or with Floyd's algorithm for rows of a
+ * {@link TagCombinationIndex}. The cost of a query therefore only depends on the number of chosen tags and values,
+ * not on the number of predefined values or stored combinations.
+ * <p/>
+ * The chosen tags are ordered by tag index and their values by value index, and the last {@value #FILTER_CACHE_SIZE}
+ * filters are kept by their choice, so a combination that is drawn again returns the same {@link TagFilter}
+ * instance and bindings can cache its serialized form in the attachment.
+ */
+public class TagQuerySampler {
+    static final int FILTER_CACHE_SIZE = 1024;
+
+    private final String[] tagnames;
+    private final String[][] tagvalues;
+    private final int querymaxtagvalues;
+
+    private final int[] tagPerm;
+    private final int[][] valuePerm;
+
+    // Scratch space for sampling from combinations
+    private final int[] availTags;
+    private final int[] counts;
+    private final String[][] grouped;
+    private final long[] setKeys;
+    private final int[] setStamps;
+    private int stamp = 0;
+    private final int[][] groupedIds;
+
+    // The choice of the current filter, [mode, (tag, value count, value indices...)...], and the cached filters
+    private final int[] choice;
+    private final int[][] cachedChoices = new int[FILTER_CACHE_SIZE][];
+    private final TagFilter[] cachedFilters = new TagFilter[FILTER_CACHE_SIZE];
+
+    /**
+     * @param tagnames          names of all tags, by tag index
+     * @param tagvalues         predefined values by tag index, may be null if there are none
+     * @param querymaxtagvalues maximum number of values per tag (or combinations) in one query
+     */
+    public TagQuerySampler(String[] tagnames, String[][] tagvalues, int querymaxtagvalues) {
+        this.tagnames = tagnames;
+        this.tagvalues = tagvalues;
+        this.querymaxtagvalues = Math.max(1, querymaxtagvalues);
+        int tagcount = tagnames.length;
+        tagPerm = identity(tagcount);
+        valuePerm = new int[tagcount][];
+        if (tagvalues != null) {
+            for (int i = 0; i < tagcount; i++) {
+                valuePerm[i] = identity(tagvalues[i].length);
+            }
+        }
+        availTags = new int[tagcount];
+        counts = new int[tagcount];
+        grouped = new String[tagcount][this.querymaxtagvalues];
+        groupedIds = new int[tagcount][this.querymaxtagvalues];
+        choice = new int[1 + tagcount * (2 + this.querymaxtagvalues)];
+        int capacity = Integer.highestOneBit(Math.max(2, this.querymaxtagvalues * (tagcount + 1)) * 4);
+        setKeys = new long[capacity];
+        setStamps = new int[capacity];
+    }
+
+    private static int[] identity(int n) {
+        int[] a = new int[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = i;
+        }
+        return a;
+    }
+
+    /**
+     * Move k uniformly chosen, distinct entries of perm to its front.
+     */
+    private static void partialShuffle(Random rand, int[] perm, int length, int k) {
+        for (int i = 0; i < k; i++) {
+            int j = i + rand.nextInt(length - i);
+            int tmp = perm[i];
+            perm[i] = perm[j];
+            perm[j] = tmp;
+        }
+    }
+
+    private static int between(Random rand, int min, int max) {
+        return rand.nextInt((max - min) + 1) + min;
+    }
+
+    /**
+     * Choose between 1 and tagcount distinct tags and for each of them between 1 and querymaxtagvalues distinct
+     * predefined values.
+     */
+    public TagFilter sampleFromValues(Random rand) {
+        int tagcount = tagnames.length;
+        if (tagcount == 0 || tagvalues == null) {
+            return TagFilter.EMPTY;
+        }
+        int amount = between(rand, 1, tagcount);
+        partialShuffle(rand, tagPerm, tagcount, amount);
+        Arrays.sort(tagPerm, 0, amount);
+        int n = 0;
+        choice[n++] = 0;
+        for (int i = 0; i < amount; i++) {
+            int tag = tagPerm[i];
+            int[] perm = valuePerm[tag];
+            int valueAmount = Math.min(between(rand, 1, querymaxtagvalues), perm.length);
+            partialShuffle(rand, perm, perm.length, valueAmount);
+            Arrays.sort(perm, 0, valueAmount);
+            choice[n++] = tag;
+            choice[n++] = valueAmount;
+            System.arraycopy(perm, 0, choice, n, valueAmount);
+            n += valueAmount;
+        }
+        int slot = slot(n);
+        if (isCached(slot, n)) {
+            return cachedFilters[slot];
+        }
+        String[] names = new String[amount];
+        String[][] values = new String[amount][];
+        for (int i = 0, k = 1; i < amount; i++) {
+            int tag = choice[k++];
+            names[i] = tagnames[tag];
+            values[i] = new String[choice[k++]];
+            for (int j = 0; j < values[i].length; j++) {
+                values[i][j] = tagvalues[tag][choice[k++]];
+            }
+        }
+        return cache(slot, n, TagFilter.of(names, values));
+    }
+
+    /**
+     * Choose between 1 and querymaxtagvalues distinct stored combinations and from each of them a random, non-empty
+     * subset of its tags. Values of the same tag are OR'ed, so every chosen combination matches the filter.
+     */
+    public TagFilter sampleFromCombinations(Random rand, TagCombinationIndex index) {
+        int rowcount = index.size();
+        int tagcount = tagnames.length;
+        if (rowcount == 0 || tagcount == 0) {
+            return TagFilter.EMPTY;
+        }
+        int rowAmount = Math.min(between(rand, 1, querymaxtagvalues), rowcount);
+        nextStamp();
+        for (int i = 0; i < tagcount; i++) {
+            counts[i] = 0;
+        }
+        // Floyd's algorithm, rowAmount distinct rows out of rowcount
+        for (int j = rowcount - rowAmount; j < rowcount; j++) {
+            int t = rand.nextInt(j + 1);
+            int row = addToSet(rowKey(t)) ? t : j;
+            if (row == j) {
+                addToSet(rowKey(j));
+            }
+            addRowTags(rand, index, row);
+        }
+        int used = 0;
+        int n = 0;
+        choice[n++] = 1;
+        for (int i = 0; i < tagcount; i++) {
+            if (counts[i] > 0) {
+                used++;
+                sortGrouped(i);
+                choice[n++] = i;
+                choice[n++] = counts[i];
+                System.arraycopy(groupedIds[i], 0, choice, n, counts[i]);
+                n += counts[i];
+            }
+        }
+        if (used == 0) {
+            return TagFilter.EMPTY;
+        }
+        int slot = slot(n);
+        if (isCached(slot, n)) {
+            return cachedFilters[slot];
+        }
+        String[] names = new String[used];
+        String[][] values = new String[used][];
+        int k = 0;
+        for (int i = 0; i < tagcount; i++) {
+            if (counts[i] > 0) {
+                names[k] = tagnames[i];
+                values[k] = new String[counts[i]];
+                System.arraycopy(grouped[i], 0, values[k], 0, counts[i]);
+                k++;
+            }
+        }
+        return cache(slot, n, TagFilter.of(names, values));
+    }
+
+    /**
+     * Insertion sort of the values chosen for tag by their ids, there are at most querymaxtagvalues.
+     */
+    private void sortGrouped(int tag) {
+        int[] ids = groupedIds[tag];
+        String[] values = grouped[tag];
+        for (int i = 1; i < counts[tag]; i++) {
+            int id = ids[i];
+            String value = values[i];
+            int j = i - 1;
+            for (; j >= 0 && ids[j] > id; j--) {
+                ids[j + 1] = ids[j];
+                values[j + 1] = values[j];
+            }
+            ids[j + 1] = id;
+            values[j + 1] = value;
+        }
+    }
+
+    private int slot(int length) {
+        int h = 1;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + choice[i];
+        }
+        return (h * 0x9E3779B9) >>> 16 & (FILTER_CACHE_SIZE - 1);
+    }
+
+    private boolean isCached(int slot, int length) {
+        int[] cached = cachedChoices[slot];
+        if (cached == null || cached.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (cached[i] != choice[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private TagFilter cache(int slot, int length, TagFilter filter) {
+        cachedChoices[slot] = Arrays.copyOf(choice, length);
+        cachedFilters[slot] = filter;
+        return filter;
+    }
+
+    private void addRowTags(Random rand, TagCombinationIndex index, int row) {
+        int avail = 0;
+        int tagcount = Math.min(tagnames.length, index.getTagCount());
+        for (int tag = 0; tag < tagcount; tag++) {
+            if (index.getValueId(row, tag) != TagCombinationIndex.ABSENT) {
+                availTags[avail++] = tag;
+            }
+        }
+        if (avail == 0) {
+            return;
+        }
+        int amount = between(rand, 1, avail);
+        partialShuffle(rand, availTags, avail, amount);
+        for (int i = 0; i < amount; i++) {
+            int tag = availTags[i];
+            // Several combinations can share a value, only add it once
+            int id = index.getValueId(row, tag);
+            if (addToSet(valueKey(tag, id))) {
+                groupedIds[tag][counts[tag]] = id;
+                grouped[tag][counts[tag]++] = index.getValue(row, tag);
+            }
+        }
+    }
+
+    private static long rowKey(int row) {
+        return row;
+    }
+
+    private static long valueKey(int tag, int id) {
+        return (((long) tag + 1) << 32) | (id & 0xffffffffL);
+    }
+
+    private void nextStamp() {
+        stamp++;
+        if (stamp == 0) {
+            Arrays.fill(setStamps, 0);
+            stamp = 1;
+        }
+    }
+
+    /**
+     * Open addressing set of longs that is cleared in constant time by nextStamp().
+     *
+     * @return true if key was not yet in the set
+     */
+    private boolean addToSet(long key) {
+        int mask = setKeys.length - 1;
+        int i = (int) (key ^ (key >>> 29)) * 0x9E3779B9 & mask;
+        while (setStamps[i] == stamp) {
+            if (setKeys[i] == key) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        setStamps[i] = stamp;
+        setKeys[i] = key;
+        return true;
+    }
+}
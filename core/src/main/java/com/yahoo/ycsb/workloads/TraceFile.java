@@ -0,0 +1,439 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DataPoint;
+import com.yahoo.ycsb.TagFilter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binary file of pre-generated operations, written by {@link com.yahoo.ycsb.TraceGenerator} and replayed by
+ * {@link TraceWorkload}.
+ * <p/>
+ * The operations are split into partitions, one per client thread. All strings (metrics, tag names and tag values)
+ * are stored once in a dictionary and referenced by id, so replaying an insert only needs the pre-encoded
+ * dictionary entries and does not allocate.
+ * <p/>
+ * File format (big endian): a header of magic, version, partition count and the offset of the dictionary; for
+ * every partition its offset, length in bytes and number of operations; the partitions; the dictionary (number of
+ * strings, then length and UTF-8 bytes of every string, by id). An operation is a type byte followed by
+ * <ul>
+ * <li>insert: metric id, timestamp (ms), value, tag count and per tag name id and value id</li>
+ * <li>read: metric id, timestamp, precision, tag filter</li>
+ * <li>scan: metric id, start and end timestamp, precision, flags (1 = avg, 2 = count, 4 = sum), time value,
+ * time unit, tag filter</li>
+ * </ul>
+ * Units are stored as {@link TimeUnit} ordinal, -1 for none. A tag filter is its tag count and per tag the name
+ * id, the value count and the value ids.
+ */
+public final class TraceFile {
+    static final byte INSERT = 1;
+    static final byte READ = 2;
+    static final byte SCAN = 3;
+
+    static final int FLAG_AVG = 1;
+    static final int FLAG_COUNT = 2;
+    static final int FLAG_SUM = 4;
+
+    /** Maximum encoded size of one operation, so a cursor can always decode an operation inside its window. */
+    static final int MAX_OP_SIZE = 1 << 16;
+
+    private static final long MAGIC = 0x5943534254524345L; // "YCSBTRCE"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8 + 4 + 4 + 8;
+    private static final int PARTITION_ENTRY_SIZE = 8 + 8 + 8;
+    private static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    private TraceFile() {
+    }
+
+    private static byte unitOrdinal(TimeUnit unit) {
+        return unit == null ? -1 : (byte) unit.ordinal();
+    }
+
+    private static TimeUnit unit(byte ordinal) {
+        return ordinal < 0 ? null : TimeUnit.values()[ordinal];
+    }
+
+    /**
+     * Writes a trace file. Partitions are written one after the other; not thread safe.
+     */
+    public static final class Writer {
+        private final RandomAccessFile file;
+        private final DataOutputStream out;
+        private final int partitionCount;
+        private final long[] offsets;
+        private final long[] lengths;
+        private final long[] opcounts;
+        private final HashMap<String, Integer> ids = new HashMap<String, Integer>();
+        private final ArrayList<String> strings = new ArrayList<String>();
+        private final ByteArrayOutputStream opBytes = new ByteArrayOutputStream(256);
+        private final DataOutputStream op = new DataOutputStream(opBytes);
+        private int partition = -1;
+        private long position;
+
+        public Writer(File target, int partitionCount) throws IOException {
+            this.partitionCount = partitionCount;
+            this.offsets = new long[partitionCount];
+            this.lengths = new long[partitionCount];
+            this.opcounts = new long[partitionCount];
+            this.file = new RandomAccessFile(target, "rw");
+            file.setLength(0);
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.getFD()), 1 << 16));
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(partitionCount);
+            out.writeLong(0); // dictionary offset, set by close()
+            for (int i = 0; i < partitionCount; i++) {
+                out.writeLong(0);
+                out.writeLong(0);
+                out.writeLong(0);
+            }
+            position = HEADER_SIZE + (long) partitionCount * PARTITION_ENTRY_SIZE;
+        }
+
+        /**
+         * Start the next partition; operations are written to it until the next call.
+         */
+        public void startPartition() {
+            partition++;
+            if (partition >= partitionCount) {
+                throw new IllegalStateException("The trace has only " + partitionCount + " partitions.");
+            }
+            offsets[partition] = position;
+        }
+
+        private int id(String s) {
+            Integer id = ids.get(s);
+            if (id == null) {
+                id = strings.size();
+                strings.add(s);
+                ids.put(s, id);
+            }
+            return id;
+        }
+
+        private void writeFilter(TagFilter filter) throws IOException {
+            TagFilter f = filter == null ? TagFilter.EMPTY : filter;
+            op.writeShort(f.size());
+            for (int i = 0; i < f.size(); i++) {
+                op.writeInt(id(f.getTagName(i)));
+                op.writeShort(f.getValueCount(i));
+                for (int j = 0; j < f.getValueCount(i); j++) {
+                    op.writeInt(id(f.getValue(i, j)));
+                }
+            }
+        }
+
+        private void finishOp() throws IOException {
+            if (opBytes.size() > MAX_OP_SIZE) {
+                int size = opBytes.size();
+                opBytes.reset();
+                throw new IOException("Operation of " + size + " bytes exceeds the maximum of " + MAX_OP_SIZE + ".");
+            }
+            opBytes.writeTo(out);
+            position += opBytes.size();
+            lengths[partition] += opBytes.size();
+            opcounts[partition]++;
+            opBytes.reset();
+        }
+
+        public void writeInsert(DataPoint point) throws IOException {
+            op.writeByte(INSERT);
+            op.writeInt(id(point.getMetric()));
+            op.writeLong(point.getTimestamp());
+            op.writeDouble(point.getValue());
+            op.writeShort(point.getTagCount());
+            for (int i = 0; i < point.getTagCount(); i++) {
+                op.writeInt(id(point.getTagName(i)));
+                op.writeInt(id(point.getTagValue(i)));
+            }
+            finishOp();
+        }
+
+        public void writeRead(String metric, long timestamp, TimeUnit precision, TagFilter tags) throws IOException {
+            op.writeByte(READ);
+            op.writeInt(id(metric));
+            op.writeLong(timestamp);
+            op.writeByte(unitOrdinal(precision));
+            writeFilter(tags);
+            finishOp();
+        }
+
+        public void writeScan(String metric, long startTs, long endTs, TimeUnit precision, TagFilter tags,
+                              boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) throws IOException {
+            op.writeByte(SCAN);
+            op.writeInt(id(metric));
+            op.writeLong(startTs);
+            op.writeLong(endTs);
+            op.writeByte(unitOrdinal(precision));
+            op.writeByte((avg ? FLAG_AVG : 0) | (count ? FLAG_COUNT : 0) | (sum ? FLAG_SUM : 0));
+            op.writeInt(timeValue);
+            op.writeByte(unitOrdinal(timeUnit));
+            writeFilter(tags);
+            finishOp();
+        }
+
+        /**
+         * @return the number of operations written so far
+         */
+        public long getOperationCount() {
+            long sum = 0;
+            for (long c : opcounts) {
+                sum += c;
+            }
+            return sum;
+        }
+
+        public int getDictionarySize() {
+            return strings.size();
+        }
+
+        /**
+         * Write the dictionary and complete the header.
+         */
+        public void close() throws IOException {
+            long dictionaryOffset = position;
+            out.writeInt(strings.size());
+            for (String s : strings) {
+                byte[] bytes = s.getBytes(DataPoint.UTF8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.flush();
+            file.seek(8 + 4 + 4);
+            file.writeLong(dictionaryOffset);
+            for (int i = 0; i < partitionCount; i++) {
+                file.writeLong(offsets[i]);
+                file.writeLong(lengths[i]);
+                file.writeLong(opcounts[i]);
+            }
+            // out shares the file descriptor, closing the file closes both
+            file.close();
+        }
+    }
+
+    /**
+     * An opened trace file. Cursors of different partitions can be used by different threads.
+     */
+    public static final class Reader {
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final long[] offsets;
+        private final long[] lengths;
+        private final long[] opcounts;
+        private final String[] strings;
+        private final byte[][] bytes;
+        private final int windowSize;
+
+        private Reader(RandomAccessFile file, long[] offsets, long[] lengths, long[] opcounts, String[] strings,
+                       byte[][] bytes, int windowSize) {
+            this.file = file;
+            this.channel = file.getChannel();
+            this.offsets = offsets;
+            this.lengths = lengths;
+            this.opcounts = opcounts;
+            this.strings = strings;
+            this.bytes = bytes;
+            this.windowSize = windowSize;
+        }
+
+        public static Reader open(File trace) throws IOException {
+            return open(trace, DEFAULT_WINDOW_SIZE);
+        }
+
+        /**
+         * @param windowSize maximum size of one mapping of a partition, at least twice {@link #MAX_OP_SIZE}
+         */
+        static Reader open(File trace, int windowSize) throws IOException {
+            RandomAccessFile raf = new RandomAccessFile(trace, "r");
+            try {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(raf.getChannel())));
+                if (in.readLong() != MAGIC) {
+                    throw new IOException(trace.getAbsolutePath() + " is not a trace file.");
+                }
+                int version = in.readInt();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported trace file version " + version + ".");
+                }
+                int partitions = in.readInt();
+                long dictionaryOffset = in.readLong();
+                if (dictionaryOffset == 0) {
+                    throw new IOException(trace.getAbsolutePath() + " is incomplete.");
+                }
+                long[] offsets = new long[partitions];
+                long[] lengths = new long[partitions];
+                long[] opcounts = new long[partitions];
+                for (int i = 0; i < partitions; i++) {
+                    offsets[i] = in.readLong();
+                    lengths[i] = in.readLong();
+                    opcounts[i] = in.readLong();
+                }
+                in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(raf.getChannel().position(dictionaryOffset))));
+                String[] strings = new String[in.readInt()];
+                byte[][] bytes = new byte[strings.length][];
+                for (int i = 0; i < strings.length; i++) {
+                    bytes[i] = new byte[in.readInt()];
+                    in.readFully(bytes[i]);
+                    strings[i] = new String(bytes[i], DataPoint.UTF8);
+                }
+                return new Reader(raf, offsets, lengths, opcounts, strings, bytes, Math.max(2 * MAX_OP_SIZE, windowSize));
+            }
+            catch (IOException e) {
+                raf.close();
+                throw e;
+            }
+        }
+
+        public int getPartitionCount() {
+            return offsets.length;
+        }
+
+        public long getOperationCount(int partition) {
+            return opcounts[partition];
+        }
+
+        /**
+         * @return a new cursor at the first operation of the partition
+         */
+        public Cursor cursor(int partition) {
+            return new Cursor(this, partition);
+        }
+
+        public void close() throws IOException {
+            file.close();
+        }
+    }
+
+    /**
+     * Replays the operations of one partition. Not thread safe, use one cursor per thread.
+     */
+    public static final class Cursor {
+        private final Reader reader;
+        private final long end;
+        private long remaining;
+        private long windowStart;
+        private long windowEnd;
+        private MappedByteBuffer window;
+        private final DataPoint point = new DataPoint();
+
+        private Cursor(Reader reader, int partition) {
+            this.reader = reader;
+            this.windowStart = reader.offsets[partition];
+            this.windowEnd = windowStart;
+            this.end = windowStart + reader.lengths[partition];
+            this.remaining = reader.opcounts[partition];
+        }
+
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        /**
+         * Map the next window if the current one might end inside the next operation.
+         */
+        private ByteBuffer buffer() throws IOException {
+            long pos = window == null ? windowStart : windowStart + window.position();
+            if (window == null || (windowEnd - pos < MAX_OP_SIZE && windowEnd < end)) {
+                long size = Math.min(reader.windowSize, end - pos);
+                window = reader.channel.map(FileChannel.MapMode.READ_ONLY, pos, size);
+                windowStart = pos;
+                windowEnd = pos + size;
+            }
+            return window;
+        }
+
+        private TagFilter readFilter(ByteBuffer buf) {
+            int tagCount = buf.getShort() & 0xffff;
+            if (tagCount == 0) {
+                return TagFilter.EMPTY;
+            }
+            String[] names = new String[tagCount];
+            String[][] values = new String[tagCount][];
+            for (int i = 0; i < tagCount; i++) {
+                names[i] = reader.strings[buf.getInt()];
+                values[i] = new String[buf.getShort() & 0xffff];
+                for (int j = 0; j < values[i].length; j++) {
+                    values[i][j] = reader.strings[buf.getInt()];
+                }
+            }
+            return TagFilter.of(names, values);
+        }
+
+        /**
+         * Execute the next operation against db.
+         *
+         * @return the return code of the operation
+         */
+        public int execute(DB db) throws IOException {
+            if (remaining <= 0) {
+                throw new IllegalStateException("No more operations in this partition.");
+            }
+            remaining--;
+            ByteBuffer buf = buffer();
+            byte type = buf.get();
+            String metric = reader.strings[buf.getInt()];
+            switch (type) {
+                case INSERT: {
+                    point.reset(metric, buf.getLong(), buf.getDouble());
+                    int tagCount = buf.getShort() & 0xffff;
+                    for (int i = 0; i < tagCount; i++) {
+                        int name = buf.getInt();
+                        int value = buf.getInt();
+                        point.addTag(reader.strings[name], reader.bytes[name], reader.strings[value], reader.bytes[value]);
+                    }
+                    return db.insert(point);
+                }
+                case READ: {
+                    long timestamp = buf.getLong();
+                    TimeUnit precision = unit(buf.get());
+                    return db.read(metric, timestamp, precision, readFilter(buf));
+                }
+                case SCAN: {
+                    long startTs = buf.getLong();
+                    long endTs = buf.getLong();
+                    TimeUnit precision = unit(buf.get());
+                    int flags = buf.get();
+                    int timeValue = buf.getInt();
+                    TimeUnit timeUnit = unit(buf.get());
+                    return db.scan(metric, startTs, endTs, precision, readFilter(buf), (flags & FLAG_AVG) != 0,
+                            (flags & FLAG_COUNT) != 0, (flags & FLAG_SUM) != 0, timeValue, timeUnit);
+                }
+                default:
+                    throw new IOException("Unknown operation type " + type + " in trace.");
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Replays a trace file written by {@link com.yahoo.ycsb.TraceGenerator}, so every database sees exactly the same
+ * operations and the client does not spend time generating them.
+ * <p/>
+ * Client thread i replays partition i of the trace, so the trace should be generated with the same number of
+ * threads. The load and the run phase both replay the trace; set recordcount (load) or operationcount (run) to 0
+ * to replay everything, otherwise every thread stops after its share of operations.
+ * <p/>
+ * Properties to control the client:
+ * <UL>
+ * <LI><b>tracefile</b>: path of the trace file (default: trace.bin)
+ * </ul>
+ */
+public class TraceWorkload extends Workload {
+    public static final String TRACE_FILE_PROPERTY = "tracefile";
+    public static final String TRACE_FILE_PROPERTY_DEFAULT = "trace.bin";
+
+    private TraceFile.Reader reader;
+    private boolean warned = false;
+
+    @Override
+    public void init(Properties p) throws WorkloadException {
+        File file = new File(p.getProperty(TRACE_FILE_PROPERTY, TRACE_FILE_PROPERTY_DEFAULT));
+        try {
+            reader = TraceFile.Reader.open(file);
+        }
+        catch (IOException e) {
+            throw new WorkloadException("Can't open trace file " + file.getAbsolutePath() + ": " + e);
+        }
+    }
+
+    @Override
+    public synchronized Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException {
+        int partitions = reader.getPartitionCount();
+        if (threadcount != partitions && !warned) {
+            warned = true;
+            System.err.println("WARNING: The trace has " + partitions + " partitions but there are " + threadcount
+                    + " client threads, " + (threadcount < partitions ? "some partitions are not replayed."
+                    : "some threads have nothing to do."));
+        }
+        return mythreadid < partitions ? reader.cursor(mythreadid) : null;
+    }
+
+    private static int next(DB db, Object threadstate) {
+        TraceFile.Cursor cursor = (TraceFile.Cursor) threadstate;
+        if (cursor == null || !cursor.hasNext()) {
+            return -1;
+        }
+        try {
+            return cursor.execute(db);
+        }
+        catch (IOException e) {
+            System.err.println("ERROR: Can't read trace file: " + e);
+            return -1;
+        }
+    }
+
+    /**
+     * Replay the next operation of this thread's partition.
+     *
+     * @return false if the partition is done or the operation failed
+     */
+    @Override
+    public boolean doInsert(DB db, Object threadstate) {
+        return next(db, threadstate) == 0;
+    }
+
+    /**
+     * Replay the next operation of this thread's partition.
+     *
+     * @return false if the partition is done
+     */
+    @Override
+    public boolean doTransaction(DB db, Object threadstate) {
+        TraceFile.Cursor cursor = (TraceFile.Cursor) threadstate;
+        if (cursor == null || !cursor.hasNext()) {
+            return false;
+        }
+        next(db, cursor);
+        return true;
+    }
+
+    @Override
+    public void cleanup() throws WorkloadException {
+        try {
+            reader.close();
+        }
+        catch (IOException e) {
+            throw new WorkloadException(e);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DataPoint;
+import com.yahoo.ycsb.TagFilter;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Verifies that the points the load phase reported as inserted were persisted, e.g. with batching or asynchronous
+ * write paths that acknowledge points before they are sent.
+ * <p/>
+ * The load phase inserts recordcount points into verifyseries series: point n goes to series n % verifyseries
+ * (tag {@code <tagprefix>0=series<i>}) at timestamp insertstart + (n / verifyseries) * timeresolution. Its value is
+ * derived from series, timestamp and seed, so no expected data has to be stored. Every series is split into
+ * consecutive ranges of verifyscanlength timestamps, and every operation of the run phase takes the next range
+ * (the ranges of all series in turn, shared by all threads), scans it and compares the number of points (reported
+ * by the binding, see {@link DB#reportResult}) and, with verifysum, the sum of one-bucket sum scans (see
+ * {@link DB#reportAggregate}) with the expected ones. An operationcount of {@link #rangeCount()} (about
+ * recordcount / verifyscanlength) verifies every point exactly once; more operations start over. Both phases need
+ * the same recordcount, verifyseries, insertstart, timeresolution, valuemin, valuemax and seed.
+ * <p/>
+ * The time of a verification is measured as operation VERIFY with the return codes 0 (matches), -1 (the binding
+ * does not report result sizes), -2 (points lost), -3 (duplicate points), -4 (wrong sum) and -5 (a scan failed; a
+ * binding that fails the scans of empty ranges shows entirely lost ranges this way). The totals (ExpectedPoints,
+ * ActualPoints, LostPoints, DuplicatePoints, VerifiedSums, WrongSums and SkippedSums, the ranges with the right
+ * number of points whose sum the binding did not report) are exported as VERIFY statistics, without the ranges
+ * whose scans failed; lost and duplicate points of one range offset each other.
+ * <p/>
+ * Properties to control the client:
+ * <UL>
+ * <LI><b>verifyseries</b>: number of series the points are spread over (default: 10)
+ * <LI><b>verifyscanlength</b>: timestamps per verified range (default: 100)
+ * <LI><b>verifysum</b>: also compare the sums of the ranges, if the binding reports them (default: true)
+ * <LI><b>metric</b>, <b>tagprefix</b>, <b>insertstart</b>, <b>timeresolution</b>, <b>valuemin</b>, <b>valuemax</b>,
+ * <b>seed</b>: as for {@link CoreWorkload}
+ * </ul>
+ */
+public class VerificationWorkload extends Workload {
+    public static final String SERIES_PROPERTY = "verifyseries";
+    public static final String SERIES_PROPERTY_DEFAULT = "10";
+    public static final String SCAN_LENGTH_PROPERTY = "verifyscanlength";
+    public static final String SCAN_LENGTH_PROPERTY_DEFAULT = "100";
+    public static final String SUM_PROPERTY = "verifysum";
+    public static final String SUM_PROPERTY_DEFAULT = "true";
+
+    public static final String OPERATION = "VERIFY";
+
+    public static final int MATCH = 0;
+    public static final int UNVERIFIABLE = -1;
+    public static final int LOST = -2;
+    public static final int DUPLICATE = -3;
+    public static final int WRONG_SUM = -4;
+    public static final int SCAN_FAILED = -5;
+
+    private String metric;
+    private String tagName;
+    private byte[] tagNameBytes;
+    private String[] seriesValues;
+    private byte[][] seriesValueBytes;
+    private TagFilter[] seriesFilters;
+    private long recordcount;
+    private long start;
+    private long resolution;
+    private long valuemin;
+    private long valuerange;
+    private long seed;
+    private int scanlength;
+    private boolean verifySum;
+    private Measurements measurements;
+
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicLong nextRange = new AtomicLong();
+    private final AtomicLong expectedPoints = new AtomicLong();
+    private final AtomicLong actualPoints = new AtomicLong();
+    private final AtomicLong lostPoints = new AtomicLong();
+    private final AtomicLong duplicatePoints = new AtomicLong();
+    private final AtomicLong verifiedSums = new AtomicLong();
+    private final AtomicLong wrongSums = new AtomicLong();
+    private final AtomicLong skippedSums = new AtomicLong();
+
+    @Override
+    public void init(Properties p) throws WorkloadException {
+        metric = p.getProperty(CoreWorkload.METRICNAME_PROPERTY, CoreWorkload.METRICNAME_PROPERTY_DEFAULT);
+        tagName = p.getProperty(CoreWorkload.TAG_PREFIX_PROPERTY, CoreWorkload.TAG_PREFIX_PROPERTY_DEFAULT) + "0";
+        tagNameBytes = tagName.getBytes(DataPoint.UTF8);
+        int series = Integer.parseInt(p.getProperty(SERIES_PROPERTY, SERIES_PROPERTY_DEFAULT));
+        if (series <= 0) {
+            throw new WorkloadException(SERIES_PROPERTY + " must be at least 1.");
+        }
+        seriesValues = new String[series];
+        seriesValueBytes = new byte[series][];
+        seriesFilters = new TagFilter[series];
+        for (int i = 0; i < series; i++) {
+            seriesValues[i] = "series" + i;
+            seriesValueBytes[i] = seriesValues[i].getBytes(DataPoint.UTF8);
+            seriesFilters[i] = TagFilter.of(new String[]{tagName}, new String[][]{{seriesValues[i]}});
+        }
+        recordcount = Long.parseLong(p.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT));
+        if (recordcount <= 0) {
+            throw new WorkloadException(Client.RECORD_COUNT_PROPERTY + " must be set, the expected data depends on it.");
+        }
+        resolution = Long.parseLong(p.getProperty(CoreWorkload.TIME_RESOLUTION_PROPERTY,
+                CoreWorkload.TIME_RESOLUTION_PROPERTY_DEFAULT));
+        if (resolution <= 0) {
+            throw new WorkloadException(CoreWorkload.TIME_RESOLUTION_PROPERTY + " must be at least 1.");
+        }
+        start = Long.parseLong(p.getProperty(INSERT_START_PROPERTY, INSERT_START_PROPERTY_DEFAULT)) / resolution
+                * resolution;
+        valuemin = Long.parseLong(p.getProperty(CoreWorkload.VALUE_MIN_PROPERTY, CoreWorkload.VALUE_MIN_PROPERTY_DEFAULT));
+        long valuemax = Long.parseLong(p.getProperty(CoreWorkload.VALUE_MAX_PROPERTY,
+                CoreWorkload.VALUE_MAX_PROPERTY_DEFAULT));
+        if (valuemax < valuemin) {
+            throw new WorkloadException(CoreWorkload.VALUE_MAX_PROPERTY + " is smaller than "
+                    + CoreWorkload.VALUE_MIN_PROPERTY + ".");
+        }
+        valuerange = valuemax - valuemin + 1;
+        seed = Long.parseLong(p.getProperty(Client.SEED_PROPERTY, "0"));
+        scanlength = Integer.parseInt(p.getProperty(SCAN_LENGTH_PROPERTY, SCAN_LENGTH_PROPERTY_DEFAULT));
+        if (scanlength <= 0) {
+            throw new WorkloadException(SCAN_LENGTH_PROPERTY + " must be at least 1.");
+        }
+        verifySum = Boolean.parseBoolean(p.getProperty(SUM_PROPERTY, SUM_PROPERTY_DEFAULT));
+        measurements = Measurements.getMeasurements();
+    }
+
+    @Override
+    public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException {
+        return new DataPoint(1);
+    }
+
+    /**
+     * Reports the totals of the verification as VERIFY statistics.
+     */
+    @Override
+    public void cleanup() throws WorkloadException {
+        if (expectedPoints.get() > 0) {
+            measurements.reportStatistic(OPERATION, "ExpectedPoints", expectedPoints.get());
+            measurements.reportStatistic(OPERATION, "ActualPoints", actualPoints.get());
+            measurements.reportStatistic(OPERATION, "LostPoints", lostPoints.get());
+            measurements.reportStatistic(OPERATION, "DuplicatePoints", duplicatePoints.get());
+        }
+        if (verifiedSums.get() + skippedSums.get() > 0) {
+            measurements.reportStatistic(OPERATION, "VerifiedSums", verifiedSums.get());
+            measurements.reportStatistic(OPERATION, "WrongSums", wrongSums.get());
+            measurements.reportStatistic(OPERATION, "SkippedSums", skippedSums.get());
+        }
+    }
+
+    /**
+     * @return the value of the point of series at timestamp, between valuemin and valuemax
+     */
+    long value(int series, long timestamp) {
+        long h = mix(seed + mix(series * 0x9E3779B97F4A7C15L + timestamp));
+        return valuemin + (h >>> 1) % valuerange;
+    }
+
+    /**
+     * The finalizer of SplitMix64: a bijection that spreads every input bit over the whole output.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return the number of points the load phase inserts into series
+     */
+    long seriesLength(int series) {
+        return series < recordcount ? (recordcount - series + seriesValues.length - 1) / seriesValues.length : 0;
+    }
+
+    /**
+     * @return the number of series with points
+     */
+    private int activeSeries() {
+        return (int) Math.min(seriesValues.length, recordcount);
+    }
+
+    /**
+     * @return the number of ranges of the longest series, series 0
+     */
+    private long rangesPerSeries() {
+        return (seriesLength(0) + scanlength - 1) / scanlength;
+    }
+
+    /**
+     * @return the number of ranges of all series, the number of operations that verify every point once
+     */
+    long rangeCount() {
+        long ret = 0;
+        for (int series = 0; series < activeSeries(); series++) {
+            ret += (seriesLength(series) + scanlength - 1) / scanlength;
+        }
+        return ret;
+    }
+
+    @Override
+    public boolean doInsert(DB db, Object threadstate) {
+        long n = next.getAndIncrement();
+        if (n >= recordcount) {
+            return false;
+        }
+        int series = (int) (n % seriesValues.length);
+        long timestamp = start + n / seriesValues.length * resolution;
+        DataPoint point = (DataPoint) threadstate;
+        point.reset(metric, timestamp, value(series, timestamp));
+        point.addTag(tagName, tagNameBytes, seriesValues[series], seriesValueBytes[series]);
+        return db.insert(point) == 0;
+    }
+
+    @Override
+    public boolean doTransaction(DB db, Object threadstate) {
+        // range k of every series in turn; the shorter series lack the last range of the longest one
+        int activeSeries = activeSeries();
+        long slots = activeSeries * rangesPerSeries();
+        int series;
+        long first;
+        do {
+            long slot = nextRange.getAndIncrement() % slots;
+            series = (int) (slot % activeSeries);
+            first = slot / activeSeries * scanlength;
+        } while (first >= seriesLength(series));
+        long len = Math.min(scanlength, seriesLength(series) - first);
+        long startTs = start + first * resolution;
+        // up to the next timestamp, so databases with second precision or exclusive ends see the last point too
+        long endTs = startTs + (len - 1) * resolution + resolution - 1;
+
+        long st = System.nanoTime();
+        int res = db.scan(metric, startTs, endTs, TimeUnit.MILLISECONDS, seriesFilters[series], false, false, false,
+                0, TimeUnit.MILLISECONDS);
+        long points = db.getResultPoints();
+        double sum = Double.NaN;
+        if (res == 0 && verifySum && points == len) {
+            res = db.scan(metric, startTs, endTs, TimeUnit.MILLISECONDS, seriesFilters[series], false, false, true, 0,
+                    TimeUnit.MILLISECONDS);
+            sum = db.getResultAggregate();
+        }
+        long en = System.nanoTime();
+
+        int code = MATCH;
+        if (res != 0) {
+            code = SCAN_FAILED;
+        }
+        else if (points < 0) {
+            code = UNVERIFIABLE;
+        }
+        else {
+            expectedPoints.addAndGet(len);
+            actualPoints.addAndGet(points);
+            if (points < len) {
+                lostPoints.addAndGet(len - points);
+                code = LOST;
+            }
+            else if (points > len) {
+                duplicatePoints.addAndGet(points - len);
+                code = DUPLICATE;
+            }
+            else if (verifySum && Double.isNaN(sum)) {
+                skippedSums.incrementAndGet();
+            }
+            else if (verifySum) {
+                long expected = 0;
+                for (long i = 0; i < len; i++) {
+                    expected += value(series, startTs + i * resolution);
+                }
+                verifiedSums.incrementAndGet();
+                if (Math.abs(sum - expected) > 1e-6 * Math.max(1, Math.abs(expected))) {
+                    wrongSums.incrementAndGet();
+                    code = WRONG_SUM;
+                }
+            }
+        }
+        measurements.measure(OPERATION, (en - st) / 1000);
+        measurements.reportReturnCode(OPERATION, code);
+        return true;
+    }
+}
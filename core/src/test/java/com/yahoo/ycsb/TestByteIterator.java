@@ -37,4 +37,45 @@ public class TestByteIterator {
         assertFalse(itor.hasNext());
         assertEquals(0, itor.bytesLeft());
     }
+
+    @Test
+    public void testRandomByteIteratorValueIsCached() throws Exception {
+        RandomByteIterator itor = new RandomByteIterator(37);
+        String value = itor.toString();
+        assertSame(value, itor.toString());
+        assertEquals(value, new String(itor.toArray(), "US-ASCII"));
+        assertSame(itor.toArray(), itor.toArray());
+    }
+
+    @Test
+    public void testRandomByteIteratorNextBuf() {
+        ByteIterator itor = new RandomByteIterator(100);
+        byte[] buf = new byte[30];
+        assertEquals(30, itor.nextBuf(buf, 0));
+        assertEquals(70, itor.bytesLeft());
+        assertEquals(30, itor.nextBuf(buf, 20));
+        assertEquals(60, itor.bytesLeft());
+        assertEquals(60, itor.toArray().length);
+        assertFalse(itor.hasNext());
+    }
+
+    @Test
+    public void testRandomAlphanumeric() {
+        String alphabet = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+        byte[] buf = new byte[62 * 2000 + 2];
+        buf[0] = '#';
+        buf[buf.length - 1] = '#';
+        Utils.randomAlphanumeric(new FastRandom(3), buf, 1, buf.length - 2);
+        assertEquals('#', buf[0]);
+        assertEquals('#', buf[buf.length - 1]);
+        int[] counts = new int[62];
+        for (int i = 1; i < buf.length - 1; i++) {
+            int index = alphabet.indexOf(buf[i]);
+            assertTrue(index >= 0);
+            counts[index]++;
+        }
+        for (int count : counts) {
+            assertTrue("count " + count, count > 1700 && count < 2300);
+        }
+    }
 }
@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestClientDaemon {
+    /**
+     * Fails the first insert of every client thread.
+     */
+    public static class FailingWorkload extends Workload {
+        @Override
+        public boolean doInsert(DB db, Object threadstate) {
+            throw new IllegalStateException("insert failed");
+        }
+
+        @Override
+        public boolean doTransaction(DB db, Object threadstate) {
+            return false;
+        }
+    }
+
+    /**
+     * Keeps the first random number the client thread drew in its last insert.
+     */
+    public static class SeedWorkload extends Workload {
+        static volatile long firstRandom;
+
+        @Override
+        public boolean doInsert(DB db, Object threadstate) {
+            firstRandom = Utils.random().nextLong();
+            return true;
+        }
+
+        @Override
+        public boolean doTransaction(DB db, Object threadstate) {
+            return true;
+        }
+    }
+
+    private ClientDaemon daemon;
+
+    @BeforeClass
+    public void start() throws IOException {
+        daemon = new ClientDaemon(new String[]{"-db", "com.yahoo.ycsb.NullDB",
+                "-p", "workload=com.yahoo.ycsb.workloads.VerificationWorkload", "-p", "recordcount=100"}, 0);
+        daemon.start();
+    }
+
+    @AfterClass
+    public void stop() {
+        daemon.stop();
+    }
+
+    private String request(String method, String path, String body, int expectedCode) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection)
+                new URL("http://localhost:" + daemon.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            OutputStream out = connection.getOutputStream();
+            out.write(body.getBytes("UTF-8"));
+            out.close();
+        }
+        assertEquals(expectedCode, connection.getResponseCode());
+        InputStream in = expectedCode < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int n; in != null && (n = in.read(buffer)) > 0; ) {
+            response.write(buffer, 0, n);
+        }
+        return response.toString("UTF-8");
+    }
+
+    @Test
+    public void testRuns() throws IOException {
+        assertTrue(request("POST", "/run?phase=load", "", 200).contains("[INSERT], Operations, 100\n"));
+        // the properties of the request overwrite the ones of the daemon, every run starts new measurements
+        assertTrue(request("POST", "/run?phase=load", "recordcount=40\n", 200).contains("[INSERT], Operations, 40\n"));
+        assertTrue(request("POST", "/run?phase=run", "operationcount=7\n", 200).contains("[VERIFY], Operations, 7\n"));
+    }
+
+    private long seededRun(String seed) throws IOException {
+        request("POST", "/run?phase=load", "workload=" + SeedWorkload.class.getName() + "\nrecordcount=1\n" + seed, 200);
+        return SeedWorkload.firstRandom;
+    }
+
+    @Test
+    public void testSeeds() throws IOException {
+        long seeded = seededRun("seed=5\n");
+        // a run without a seed does not keep the one of the run before
+        assertFalse(seeded == seededRun(""));
+        assertEquals(seeded, seededRun("seed=5\n"));
+    }
+
+    @Test
+    public void testErrors() throws IOException {
+        request("GET", "/run", null, 405);
+        request("POST", "/run?phase=unload", "", 400);
+        request("POST", "/run", "threadcount=many\n", 500);
+        request("POST", "/run?phase=load", "db=com.yahoo.ycsb.NoSuchDB\n", 500);
+        request("POST", "/run?phase=load", "workload=" + FailingWorkload.class.getName() + "\nthreadcount=2\n", 500);
+        // the daemon still runs
+        assertTrue(request("POST", "/run?phase=load", "", 200).contains("[INSERT], Operations, 100\n"));
+    }
+}
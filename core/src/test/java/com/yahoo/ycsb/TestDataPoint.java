@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2012 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestDataPoint {
+    @Test
+    public void testReuse() {
+        DataPoint point = new DataPoint(1);
+        point.reset("metric", 1000L, 1.5);
+        point.addTag("TAG0", "TAG0".getBytes(), "a", "a".getBytes());
+        byte[] buf = point.addTag("TAG1", "TAG1".getBytes(), 3);
+        buf[0] = 'x';
+        buf[1] = 'y';
+        buf[2] = 'z';
+        point.addTag("TAG2", null, "c");
+        assertEquals(3, point.getTagCount());
+        assertEquals("xyz", point.getTagValue(1));
+        assertEquals(1, point.getTagValueLength(2));
+        assertEquals("TAG2", new String(point.getTagNameBytes(2)));
+
+        point.reset("metric", 2000L, 2.5);
+        assertEquals(0, point.getTagCount());
+        point.addTag("TAG0", "TAG0".getBytes(), "a", "a".getBytes());
+        assertSame(buf, point.addTag("TAG1", "TAG1".getBytes(), 2));
+        assertEquals(2, point.getTagValueLength(1));
+        assertEquals(2000L, point.getTimestamp());
+    }
+
+    @Test
+    public void testLegacyAdapter() {
+        DataPoint point = new DataPoint();
+        point.reset("metric", 1000L, 1.5);
+        point.addTag("TAG0", "TAG0".getBytes(), "a", "a".getBytes());
+        point.addTag("TAG1", "TAG1".getBytes(), "b");
+        HashMap<String, ByteIterator> tags = point.toTagMap();
+        assertEquals(2, tags.size());
+        assertEquals("a", tags.get("TAG0").toString());
+        assertEquals("b", tags.get("TAG1").toString());
+        assertEquals(1000L, point.toTimestamp().getTime());
+    }
+
+    @Test
+    public void testCopy() {
+        DataPoint point = new DataPoint();
+        point.reset("metric", 1000L, 1.5);
+        byte[] buf = point.addTag("TAG0", "TAG0".getBytes(), 1);
+        buf[0] = 'a';
+        DataPoint copy = point.copy();
+        buf[0] = 'b';
+        point.reset("other", 2000L, 2.5);
+        assertEquals("metric", copy.getMetric());
+        assertEquals(1000L, copy.getTimestamp());
+        assertEquals("a", copy.getTagValue(0));
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2012 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
+import com.yahoo.ycsb.generator.UniformLongGenerator;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestFastRandom {
+    @Test
+    public void testSameSeedSameSequence() {
+        FastRandom a = new FastRandom(42);
+        FastRandom b = new FastRandom(42);
+        FastRandom c = new FastRandom(43);
+        boolean differs = false;
+        for (int i = 0; i < 1000; i++) {
+            long next = a.nextLong();
+            assertEquals(next, b.nextLong());
+            differs |= next != c.nextLong();
+        }
+        assertTrue(differs);
+        a.setSeed(42);
+        assertEquals(new FastRandom(42).nextLong(), a.nextLong());
+    }
+
+    @Test
+    public void testRanges() {
+        FastRandom random = new FastRandom(1);
+        int[] buckets = new int[10];
+        for (int i = 0; i < 100000; i++) {
+            int n = random.nextInt(10);
+            assertTrue(n >= 0 && n < 10);
+            buckets[n]++;
+            double d = random.nextDouble();
+            assertTrue(d >= 0 && d < 1);
+        }
+        for (int bucket : buckets) {
+            assertTrue("bucket " + bucket, bucket > 9000 && bucket < 11000);
+        }
+    }
+
+    @Test
+    public void testStreams() {
+        Utils.setSeed(7);
+        FastRandom stream0 = Utils.newRandom(0);
+        FastRandom stream1 = Utils.newRandom(1);
+        assertFalse(stream0.nextLong() == stream1.nextLong());
+        FastRandom split = Utils.newRandom(0).split();
+        assertFalse(Utils.newRandom(0).nextLong() == split.nextLong());
+    }
+
+    private static ArrayList<Long> draw() {
+        Utils.setRandom(Utils.newRandom(3));
+        UniformLongGenerator uniform = new UniformLongGenerator(0, 1000000);
+        ScrambledZipfianGenerator zipfian = new ScrambledZipfianGenerator(1000000);
+        ArrayList<Long> values = new ArrayList<Long>();
+        for (int i = 0; i < 1000; i++) {
+            values.add(uniform.nextLong());
+            values.add(zipfian.nextLong());
+            values.add((long) new RandomByteIterator(8).toString().hashCode());
+        }
+        return values;
+    }
+
+    @Test
+    public void testGeneratorsReproducible() {
+        Utils.setSeed(12345);
+        ArrayList<Long> first = draw();
+        Utils.setSeed(12345);
+        assertEquals(first, draw());
+        Utils.setSeed(54321);
+        assertFalse(first.equals(draw()));
+    }
+}
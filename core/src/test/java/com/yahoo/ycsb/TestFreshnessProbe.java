@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.TestMeasurementsExporter;
+import org.codehaus.jackson.JsonNode;
+import org.testng.annotations.Test;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestFreshnessProbe {
+    private static final int SENTINELS = 10;
+
+    /**
+     * Shared by the inserting and the reading DB: sentinels 0 to SENTINELS - 1 are inserted, the even ones become
+     * visible when the test opens the gate, the odd ones never. Later inserts wait until the test lets them fail.
+     */
+    static class Gate {
+        final Set<Long> even = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+        final CountDownLatch inserted = new CountDownLatch(1);
+        final CountDownLatch failInserts = new CountDownLatch(1);
+        volatile boolean open;
+    }
+
+    static class GatedDB extends DB {
+        private final Gate gate;
+
+        GatedDB(Gate gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        public int insert(DataPoint point) {
+            assertEquals("m", point.getMetric());
+            assertEquals("TAG0", point.getTagName(0));
+            assertEquals("freshness", point.getTagValue(0));
+            long sequence = (long) point.getValue();
+            if (sequence >= SENTINELS) {
+                gate.inserted.countDown();
+                try {
+                    gate.failInserts.await();
+                } catch (InterruptedException e) {
+                    fail("the probe was interrupted in an insert");
+                }
+                return -2;
+            }
+            if (sequence % 2 == 0) {
+                gate.even.add(point.getTimestamp());
+            }
+            return 0;
+        }
+
+        @Override
+        public int read(String metric, long timestamp, TimeUnit precision, TagFilter tags) {
+            assertEquals("freshness", tags.getValue(0, 0));
+            reportResult(gate.open && gate.even.contains(precision.toMillis(timestamp)) ? 1 : 0, -1);
+            return 0;
+        }
+
+        @Override
+        public int read(String metric, Timestamp timestamp, HashMap<String, ArrayList<String>> tags) {
+            return -1;
+        }
+
+        @Override
+        public int scan(String metric, Timestamp startTs, Timestamp endTs, HashMap<String, ArrayList<String>> tags,
+                        boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+            return -1;
+        }
+
+        @Override
+        public int insert(String metric, Timestamp timestamp, double value, HashMap<String, ByteIterator> tags) {
+            return -1;
+        }
+    }
+
+    @Test
+    public void testLag() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("metric", "m");
+        props.setProperty(FreshnessProbe.INTERVAL_PROPERTY, "1");
+        props.setProperty(FreshnessProbe.POLL_INTERVAL_PROPERTY, "1");
+        props.setProperty(FreshnessProbe.MAX_POLL_INTERVAL_PROPERTY, "4");
+        props.setProperty(FreshnessProbe.TIMEOUT_PROPERTY, "1000");
+        assertTrue(FreshnessProbe.isEnabled(props));
+        assertFalse(FreshnessProbe.isEnabled(new Properties()));
+        Measurements.setProperties(props);
+        Gate gate = new Gate();
+        FreshnessProbe probe = new FreshnessProbe(new DBWrapper(new GatedDB(gate)), new GatedDB(gate), props);
+        probe.start();
+        assertTrue(gate.inserted.await(10, TimeUnit.SECONDS));
+        // every sentinel was inserted before this, so none can be seen sooner than 20 ms after its insert
+        Thread.sleep(20);
+        gate.open = true;
+        gate.failInserts.countDown();
+        probe.stopProbe();
+
+        HashMap<String, JsonNode> values = TestMeasurementsExporter.exportValues(Measurements.getMeasurements());
+        // the lost odd sentinels hold back none of the even ones behind them
+        assertEquals(SENTINELS / 2, values.get("FRESHNESS Operations").asLong());
+        assertEquals(SENTINELS / 2, values.get("FRESHNESS Return=0").asLong());
+        assertEquals(SENTINELS / 2, values.get("FRESHNESS Return=-1").asLong());
+        // failed inserts count with their return code
+        assertTrue(values.get("FRESHNESS Return=-2").asLong() >= 1);
+        assertTrue(values.get("FRESHNESS MinLatency(us)").asLong() >= 20000);
+        // the probe is not measured as normal operations
+        assertFalse(values.containsKey("INSERT Operations"));
+    }
+}
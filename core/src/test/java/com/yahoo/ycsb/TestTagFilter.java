@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2012 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import org.testng.annotations.Test;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestTagFilter {
+    @Test
+    public void testBuilder() {
+        TagFilter filter = new TagFilter.Builder().add("TAG0", "a").add("TAG1", "b").add("TAG0", "c").add("TAG0", "a").build();
+        assertEquals(2, filter.size());
+        assertEquals("TAG0", filter.getTagName(0));
+        assertEquals(2, filter.getValueCount(0));
+        assertEquals("c", filter.getValue(0, 1));
+        assertEquals("b", filter.getValue(1, 0));
+        assertSame(TagFilter.EMPTY, new TagFilter.Builder().build());
+    }
+
+    @Test
+    public void testMapRoundTrip() {
+        HashMap<String, ArrayList<String>> map = new HashMap<String, ArrayList<String>>();
+        map.put("TAG0", new ArrayList<String>(Arrays.asList("a", "b")));
+        map.put("TAG1", new ArrayList<String>(Arrays.asList("c")));
+        TagFilter filter = TagFilter.fromMap(map);
+        assertEquals(map, filter.toMap());
+        assertEquals(filter, TagFilter.fromMap(map));
+        assertEquals(filter.hashCode(), TagFilter.fromMap(map).hashCode());
+        assertTrue(TagFilter.fromMap(new HashMap<String, ArrayList<String>>()).isEmpty());
+    }
+
+    @Test
+    public void testTimestampShim() {
+        Timestamp ts = DB.toTimestamp(1439241005123456L, TimeUnit.MICROSECONDS);
+        assertEquals(1439241005123L, ts.getTime());
+        assertEquals(123456000, ts.getNanos());
+        assertEquals(1439241005000L, DB.toTimestamp(1439241005L, TimeUnit.SECONDS).getTime());
+    }
+}
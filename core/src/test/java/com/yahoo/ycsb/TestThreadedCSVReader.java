@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2012 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestThreadedCSVReader {
+    private static File writeCsv(String content) throws IOException {
+        File file = File.createTempFile("ycsb-csv", ".csv");
+        file.deleteOnExit();
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), DataPoint.UTF8);
+        try {
+            out.write(content);
+        }
+        finally {
+            out.close();
+        }
+        return file;
+    }
+
+    @Test
+    public void testParseRecords() {
+        byte[] csv = "a, b ,\"c,d\"\r\n\n\"e \"\"f\"\"\",\"g\nh\",\nlast".getBytes(DataPoint.UTF8);
+        String[][] rows = CSVRecordParser.parseRecords(csv, 0, csv.length);
+        assertEquals(3, rows.length);
+        assertTrue(Arrays.equals(new String[]{"a", "b", "c,d"}, rows[0]));
+        assertTrue(Arrays.equals(new String[]{"e \"f\"", "g\nh", ""}, rows[1]));
+        assertTrue(Arrays.equals(new String[]{"last"}, rows[2]));
+    }
+
+    @Test
+    public void testHeadersAndRows() throws IOException {
+        File file = writeCsv("TAG0,TAG1\nx,\"y,z\"\n\nu,v");
+        ThreadedCSVReader reader = new ThreadedCSVReader(10, file.getAbsolutePath(), 2, true);
+        assertTrue(Arrays.equals(new String[]{"TAG0", "TAG1"}, reader.getHeaders()));
+        assertTrue(reader.hasNext());
+        assertTrue(Arrays.equals(new String[]{"x", "y,z"}, reader.next()));
+        assertTrue(Arrays.equals(new String[]{"u", "v"}, reader.next()));
+        assertFalse(reader.hasNext());
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void testConcurrentConsumersGetEveryRowOnce() throws Exception {
+        final int rowcount = 200000;
+        StringBuilder sb = new StringBuilder("TAG0,TAG1\n");
+        for (int i = 0; i < rowcount; i++) {
+            sb.append(i).append(",\"value ").append(i).append("\"\n");
+        }
+        File file = writeCsv(sb.toString());
+        // Small buffer, so producer and consumers have to wait for each other
+        final ThreadedCSVReader reader = new ThreadedCSVReader(1000, file.getAbsolutePath(), 3, true);
+        final AtomicIntegerArray seen = new AtomicIntegerArray(rowcount);
+        Thread[] consumers = new Thread[4];
+        for (int t = 0; t < consumers.length; t++) {
+            consumers[t] = new Thread() {
+                @Override
+                public void run() {
+                    while (reader.hasNext()) {
+                        String[] row = reader.next();
+                        int i = Integer.parseInt(row[0]);
+                        assertEquals("value " + i, row[1]);
+                        seen.incrementAndGet(i);
+                    }
+                }
+            };
+            consumers[t].start();
+        }
+        for (Thread consumer : consumers) {
+            consumer.join();
+        }
+        for (int i = 0; i < rowcount; i++) {
+            assertEquals("row " + i, 1, seen.get(i));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2012 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.bulk;
+
+import com.yahoo.ycsb.DataPoint;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.sql.Timestamp;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestBulkFormats {
+    private static final String[] TAGS = {"TAG0", "TAG1", "TAG2"};
+
+    private static String encode(String format, DataPoint point) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ShardWriter out = new ShardWriter(Channels.newChannel(bytes));
+        BulkFormat.create(format, TAGS).encode(point, out);
+        out.close();
+        return new String(bytes.toByteArray(), DataPoint.UTF8);
+    }
+
+    private static DataPoint point() {
+        DataPoint point = new DataPoint();
+        point.reset("usermetric", 1439241005000L, 2.5);
+        point.addTag("TAG0", null, "a");
+        point.addTag("TAG2", null, "b c");
+        return point;
+    }
+
+    @Test
+    public void testLineFormats() throws IOException {
+        DataPoint point = point();
+        assertEquals("usermetric,TAG0=a,TAG2=b\\ c value=2.5 1439241005000000000\n", encode("influx", point));
+        assertEquals("put usermetric 1439241005000 2.5 TAG0=a TAG2=b c\n", encode("opentsdb", point));
+        assertEquals("usermetric 2.5 1439241005\n", encode("graphite", point));
+        assertEquals("+usermetric TAG0=a TAG2=b c\r\n:1439241005000000000\r\n+2.5\r\n", encode("akumuli", point));
+        assertEquals("{\"metric\":{\"__name__\":\"usermetric\",\"TAG0\":\"a\",\"TAG2\":\"b c\"},\"values\":[2.5],"
+                + "\"timestamps\":[1439241005000]}\n", encode("victoriametrics", point));
+    }
+
+    @Test
+    public void testCsv() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ShardWriter out = new ShardWriter(Channels.newChannel(bytes));
+        BulkFormat format = BulkFormat.create("csv", TAGS);
+        format.header(out);
+        DataPoint point = point();
+        format.encode(point, out);
+        point.reset("usermetric", 1439241005000L, 7);
+        point.addTag("TAG1", null, "x,\"y\"");
+        format.encode(point, out);
+        out.close();
+        String ts = new Timestamp(1439241005000L).toString();
+        assertEquals("YCSB_KEY,VALUE,TAG0,TAG1,TAG2\n" + ts + ",2.5,a,,b c\n" + ts + ",7,,\"x,\"\"y\"\"\",\n",
+                new String(bytes.toByteArray(), DataPoint.UTF8));
+    }
+
+    @Test
+    public void testNumbers() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ShardWriter out = new ShardWriter(Channels.newChannel(bytes));
+        out.append(0L).append((byte) ' ').append(-123L).append((byte) ' ').append(Long.MIN_VALUE);
+        out.append((byte) ' ').append(-0.125).append((byte) ' ').append(1e20);
+        out.close();
+        assertEquals("0 -123 " + Long.MIN_VALUE + " -0.125 1.0E20", new String(bytes.toByteArray(), DataPoint.UTF8));
+    }
+
+    @Test
+    public void testUnknownFormat() {
+        assertNull(BulkFormat.create("nosuchdb", TAGS));
+    }
+}
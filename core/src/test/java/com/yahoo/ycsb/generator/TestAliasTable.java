@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class TestAliasTable {
+    @Test
+    public void testDistributionMatchesWeights() {
+        double[] weights = {2123, 34, 34, 0, 8};
+        AliasTable table = new AliasTable(weights);
+        double sum = 0;
+        for (double w : weights) {
+            sum += w;
+        }
+        int draws = 1000000;
+        int[] counts = new int[weights.length];
+        Random rand = new Random(42);
+        for (int i = 0; i < draws; i++) {
+            counts[table.next(rand)]++;
+        }
+        assertEquals(0, counts[3]);
+        for (int i = 0; i < weights.length; i++) {
+            double expected = weights[i] / sum;
+            double actual = (double) counts[i] / draws;
+            assertTrue("index " + i + " expected " + expected + " got " + actual, Math.abs(expected - actual) < 0.002);
+        }
+    }
+
+    @Test
+    public void testSingleValue() {
+        AliasTable table = new AliasTable(new double[]{0.5});
+        Random rand = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, table.next(rand));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testAllZeroWeights() {
+        new AliasTable(new double[]{0, 0});
+    }
+}
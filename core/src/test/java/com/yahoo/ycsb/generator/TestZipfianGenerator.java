@@ -19,6 +19,9 @@ package com.yahoo.ycsb.generator;
 
 import org.testng.annotations.Test;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
 
 
@@ -36,4 +39,56 @@ public class TestZipfianGenerator {
         }
 
     }
+
+    @Test
+    public void testZetaApproximation() {
+        double[] thetas = {0.5, 0.9, 0.99, 1.0, 1.2};
+        long[] counts = {ZipfianGenerator.ZETA_EXACT_LIMIT + 1, 1000000, 12345678};
+        for (double theta : thetas) {
+            for (long n : counts) {
+                double exact = ZipfianGenerator.zetaexact(0, n, theta, 0);
+                double approx = ZipfianGenerator.zetastatic(n, theta);
+                assertEquals("theta=" + theta + " n=" + n, exact, approx, exact * 1e-12);
+            }
+        }
+        // Precomputed by summing all terms
+        assertEquals(ScrambledZipfianGenerator.ZETAN,
+                ZipfianGenerator.zetastatic(ScrambledZipfianGenerator.ITEM_COUNT, ZipfianGenerator.ZIPFIAN_CONSTANT),
+                ScrambledZipfianGenerator.ZETAN * 1e-9);
+    }
+
+    @Test
+    public void testIncrementalZeta() {
+        double theta = ZipfianGenerator.ZIPFIAN_CONSTANT;
+        double zeta1000 = ZipfianGenerator.zetastatic(1000, theta);
+        double zeta5m = ZipfianGenerator.zetastatic(5000000, theta);
+        assertEquals(zeta5m, ZipfianGenerator.zetastatic(1000, 5000000, theta, zeta1000), zeta5m * 1e-12);
+        assertEquals(zeta1000, ZipfianGenerator.zetastatic(5000000, 1000, theta, zeta5m), zeta1000 * 1e-12);
+        assertEquals(ZipfianGenerator.zetastatic(1200, theta), ZipfianGenerator.zetastatic(1000, 1200, theta, zeta1000), 1e-12);
+    }
+
+    @Test
+    public void testConcurrentItemCountIncrease() throws InterruptedException {
+        final ZipfianGenerator zipfian = new ZipfianGenerator(100);
+        final AtomicBoolean outOfRange = new AtomicBoolean(false);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (long itemcount = 100; itemcount < 200000; itemcount += 7) {
+                        long rnd = zipfian.nextLong(itemcount);
+                        if (rnd < 0 || rnd >= itemcount) {
+                            outOfRange.set(true);
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(outOfRange.get());
+    }
 }
@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2012 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestHttpTransport {
+    private HttpServer server;
+    private String url;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int unavailable;
+    private volatile String receivedEncoding;
+    private volatile String receivedBody;
+
+    @BeforeMethod
+    public void startServer() throws IOException {
+        requests.set(0);
+        unavailable = 0;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                receivedEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+                InputStream in = exchange.getRequestBody();
+                if ("gzip".equals(receivedEncoding)) {
+                    in = new GZIPInputStream(in);
+                }
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                byte[] buf = new byte[1024];
+                for (int n; (n = in.read(buf)) > 0; ) {
+                    body.write(buf, 0, n);
+                }
+                receivedBody = body.toString("UTF-8");
+                byte[] answer = "[1,2,3]\n[4]".getBytes("UTF-8");
+                int status = unavailable-- > 0 ? 503 : 200;
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                exchange.sendResponseHeaders(status, answer.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(answer);
+                out.close();
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    @AfterMethod
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private static Properties props(String... keyValues) {
+        Properties props = new Properties();
+        props.setProperty(HttpTransport.RETRY_BACKOFF_PROPERTY, "1");
+        for (int i = 0; i < keyValues.length; i += 2) {
+            props.setProperty(keyValues[i], keyValues[i + 1]);
+        }
+        return props;
+    }
+
+    @Test
+    public void testReadBody() throws IOException {
+        HttpTransport transport = new HttpTransport(props());
+        for (int i = 0; i < 3; i++) {
+            CloseableHttpResponse response = transport.execute(new HttpGet(url));
+            try {
+                assertTrue(HttpTransport.isSuccess(response));
+                assertEquals("[1,2,3]\n[4]", HttpTransport.readBody(response));
+            }
+            finally {
+                HttpTransport.release(response);
+            }
+        }
+        transport.close();
+    }
+
+    @Test
+    public void testNoBody() throws IOException {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_NO_CONTENT, "No Content");
+        assertEquals("", HttpTransport.readBody(response));
+        assertEquals(-1, HttpTransport.bodyReader(response).read());
+    }
+
+    @Test
+    public void testRetryUnavailable() throws IOException {
+        HttpTransport transport = new HttpTransport(props(HttpTransport.RETRIES_PROPERTY, "3"));
+        unavailable = 2;
+        HttpPost post = new HttpPost(url);
+        post.setEntity(transport.entity("body", ContentType.APPLICATION_JSON));
+        CloseableHttpResponse response = transport.execute(post);
+        assertEquals(200, response.getStatusLine().getStatusCode());
+        HttpTransport.release(response);
+        assertEquals(3, requests.get());
+        assertEquals("body", receivedBody);
+
+        unavailable = 5;
+        response = transport.execute(new HttpGet(url));
+        assertEquals(503, response.getStatusLine().getStatusCode());
+        HttpTransport.release(response);
+        assertEquals(3 + 4, requests.get());
+        transport.close();
+    }
+
+    @Test
+    public void testRetryConnectionFailure() throws IOException {
+        ServerSocket socket = new ServerSocket(0);
+        int port = socket.getLocalPort();
+        socket.close();
+        HttpTransport transport = new HttpTransport(props(HttpTransport.RETRIES_PROPERTY, "2"));
+        try {
+            transport.execute(new HttpGet("http://127.0.0.1:" + port + "/"));
+            fail("connection to a closed port");
+        }
+        catch (IOException e) {
+            // expected after 3 tries
+        }
+        transport.close();
+    }
+
+    @Test
+    public void testGzipRequest() throws IOException {
+        HttpTransport transport = new HttpTransport(props(HttpTransport.GZIP_PROPERTY, "true"));
+        HttpPost post = new HttpPost(url);
+        post.setEntity(transport.entity("{\"metric\":\"m\"}", ContentType.APPLICATION_JSON));
+        HttpTransport.release(transport.execute(post));
+        assertEquals("gzip", receivedEncoding);
+        assertEquals("{\"metric\":\"m\"}", receivedBody);
+        transport.close();
+    }
+
+    @Test
+    public void testShared() {
+        Properties props = props();
+        HttpTransport first = HttpTransport.acquire(props);
+        HttpTransport second = HttpTransport.acquire(props);
+        assertSame(first, second);
+        first.release();
+        second.release();
+        HttpTransport third = HttpTransport.acquire(props);
+        assertNotSame(first, third);
+        third.release();
+    }
+}
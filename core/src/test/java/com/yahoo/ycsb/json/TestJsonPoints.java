@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2012 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.json;
+
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParseException;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class TestJsonPoints {
+    private static JsonPoints parse(JsonPoints points, String json) throws IOException {
+        return points.parse(new StringReader(json));
+    }
+
+    @Test
+    public void testMemberPoints() throws IOException {
+        // OpenTSDB /api/query
+        JsonPoints points = new JsonPoints("dps").setMatch(2000);
+        String json = "[{\"metric\":\"m\",\"tags\":{\"a\":\"1\"},\"aggregateTags\":[],"
+                + "\"dps\":{\"1000\":1.5,\"2000\":2.5,\"3000\":-1}},"
+                + "{\"metric\":\"m\",\"tags\":{},\"dps\":{\"2000\":4}},{\"metric\":\"m\"}]";
+        parse(points, json);
+        assertEquals(json.length(), points.getBytes());
+        assertEquals(3, points.getRootLength());
+        assertEquals(2, points.getSeries());
+        assertEquals(4, points.getCount());
+        assertEquals(2, points.getMatches());
+        assertEquals(4, points.getValueCount());
+        assertEquals(7.0, points.getSum(), 1e-9);
+        assertEquals(-1.0, points.getMin(), 1e-9);
+        assertEquals(4.0, points.getMax(), 1e-9);
+    }
+
+    @Test
+    public void testArrayPoints() throws IOException {
+        // Prometheus range query, values are strings
+        JsonPoints points = new JsonPoints("values").capture("status", "data");
+        parse(points, "{\"status\":\"success\",\"data\":{\"resultType\":\"matrix\",\"result\":["
+                + "{\"metric\":{\"values\":\"no points\"},\"values\":[[1435781430.781,\"1\"],[1435781445.781,\"3\"]]}]}}");
+        assertEquals("success", points.getText("status"));
+        assertEquals("", points.getText("data"));
+        assertEquals(1, points.getSeries());
+        assertEquals(2, points.getCount());
+        assertEquals(2.0, points.getAverage(), 1e-9);
+
+        // H5Serv rows with tags, Gnocchi rows as document with string timestamps
+        parse(points, "{\"value\":[[1000,5.0,\"TAG0\",\"1x\"]]}");
+        assertNull(points.getText("status"));
+        assertEquals(0, points.getCount());
+        points = new JsonPoints("value").setMatch(1000);
+        parse(points, "{\"value\":[[1000,5.0,\"TAG0\",\"1x\"]]}");
+        assertEquals(1, points.getMatches());
+        assertEquals(5.0, points.getSum(), 1e-9);
+        points = new JsonPoints(JsonPoints.ROOT);
+        parse(points, "[[\"2014-10-06T14:34:00\",1800.0,19.5],[\"2014-10-06T14:35:00\",1800.0,20.5]]");
+        assertEquals(2, points.getRootLength());
+        assertEquals(2, points.getCount());
+        assertEquals(20.0, points.getAverage(), 1e-9);
+    }
+
+    @Test
+    public void testObjectPoints() throws IOException {
+        // Blueflood
+        JsonPoints points = new JsonPoints("values").setFields("timestamp", "average").capture("metadata")
+                .setMatch(1000);
+        parse(points, "{\"unit\":\"unknown\",\"values\":[{\"numPoints\":1,\"timestamp\":1000,\"average\":3},"
+                + "{\"numPoints\":1,\"timestamp\":2000,\"average\":{\"x\":1}}],\"metadata\":{\"limit\":null}}");
+        assertTrue(points.has("metadata"));
+        assertEquals(2, points.getCount());
+        assertEquals(1, points.getMatches());
+        assertEquals(1, points.getValueCount());
+        parse(points, "");
+        assertFalse(points.has("metadata"));
+        assertEquals(0, points.getCount());
+        assertTrue(Double.isNaN(points.getMin()));
+    }
+
+    @Test(expectedExceptions = JsonParseException.class)
+    public void testTruncated() throws IOException {
+        parse(new JsonPoints("dps"), "[{\"dps\":{\"1000\":1");
+    }
+
+    @Test
+    public void testBufferReuse() throws IOException {
+        JsonBuffer buffer = new JsonBuffer(4);
+        JsonPoints points = new JsonPoints("dps");
+        byte[] first = null;
+        for (int i = 0; i < 3; i++) {
+            JsonGenerator generator = buffer.start();
+            generator.writeStartArray();
+            generator.writeStartObject();
+            generator.writeStringField("metric", "mä");
+            generator.writeObjectFieldStart("dps");
+            generator.writeNumberField("1000", i);
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.writeEndArray();
+            buffer.finish();
+            assertEquals("[{\"metric\":\"mä\",\"dps\":{\"1000\":" + i + "}}]", buffer.toString());
+            points.parse(new ByteArrayInputStream(buffer.buffer(), 0, buffer.size()));
+            assertEquals(1, points.getCount());
+            assertEquals((double) i, points.getSum(), 1e-9);
+            assertEquals(buffer.size(), points.getBytes());
+            if (first == null) {
+                first = buffer.buffer();
+            }
+        }
+        assertSame(first, buffer.buffer());
+    }
+}
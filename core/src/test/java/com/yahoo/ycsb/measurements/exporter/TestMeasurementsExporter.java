@@ -18,18 +18,40 @@ package com.yahoo.ycsb.measurements.exporter;
 
 import com.yahoo.ycsb.generator.ZipfianGenerator;
 import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.WireCounter;
 import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
 import java.util.Properties;
 
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertTrue;
 
 public class TestMeasurementsExporter {
+    /**
+     * Exports mm as a JSON array, for the tests of the measurements reported by workloads and bindings.
+     *
+     * @return the exported values by "metric measurement", e.g. "READ Operations"
+     */
+    public static HashMap<String, JsonNode> exportValues(Measurements mm) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JSONArrayMeasurementsExporter export = new JSONArrayMeasurementsExporter(out);
+        mm.exportMeasurements(export);
+        export.close();
+        HashMap<String, JsonNode> values = new HashMap<String, JsonNode>();
+        for (JsonNode node : new ObjectMapper().readTree(out.toString("UTF-8"))) {
+            values.put(node.get("metric").asText() + " " + node.get("measurement").asText(), node.get("value"));
+        }
+        return values;
+    }
+
     @Test
     public void testJSONArrayMeasurementsExporter() throws IOException {
         Properties props = new Properties();
@@ -55,4 +77,83 @@ public class TestMeasurementsExporter {
         assertEquals(json.get(3).get("measurement").asText(), "MaxLatency(us)");
         assertEquals(json.get(11).get("measurement").asText(), "5");
     }
+
+    @Test
+    public void testStatisticsExportedAfterOperations() throws IOException {
+        Properties props = new Properties();
+        props.put(Measurements.MEASUREMENT_TYPE_PROPERTY, "histogram");
+        Measurements mm = new Measurements(props);
+        mm.reportStatistic("ENGINE", "BytesWritten", 1000L);
+        mm.reportStatistic("ENGINE", "WriteAmplification", 2.5);
+        mm.reportStatistic("ENGINE", "BytesWritten", 2000L);
+        mm.measure("READ", 10);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JSONArrayMeasurementsExporter export = new JSONArrayMeasurementsExporter(out);
+        mm.exportMeasurements(export);
+        export.close();
+
+        JsonNode json = new ObjectMapper().readTree(out.toString("UTF-8"));
+        int n = json.size();
+        assertEquals("READ", json.get(0).get("metric").asText());
+        assertEquals("ENGINE", json.get(n - 2).get("metric").asText());
+        assertEquals("BytesWritten", json.get(n - 2).get("measurement").asText());
+        assertEquals(2000, json.get(n - 2).get("value").asLong());
+        assertEquals(2.5, json.get(n - 1).get("value").asDouble(), 0.0);
+    }
+
+    @Test
+    public void testResultSizes() throws IOException {
+        Properties props = new Properties();
+        Measurements mm = new Measurements(props);
+        mm.measureResult("SCAN", 0, 100, 1000);
+        mm.measureResult("SCAN", 2000, 64000, 4000);
+        mm.measureResult("SCAN", 3000, -1, 3000);
+        mm.measureResult("AVG", -1, 50, 10);
+        assertEquals(5000, mm.getTotalResultPoints());
+        HashMap<String, JsonNode> values = exportValues(mm);
+        assertEquals(3, values.get("Result-SCAN Operations").asLong());
+        assertEquals(5000, values.get("Result-SCAN TotalPoints").asLong());
+        assertEquals(0, values.get("Result-SCAN MinPoints").asLong());
+        assertEquals(64100, values.get("Result-SCAN TotalBytes").asLong());
+        // 4 ms for 2000 and 3 ms for 3000 points, the empty result is not normalized
+        assertEquals(1500, values.get("Result-SCAN AverageLatencyPer1kPoints(us)").asDouble(), 5);
+        assertEquals(1, values.get("Result-AVG Operations").asLong());
+        assertTrue(!values.containsKey("Result-AVG TotalPoints"));
+    }
+
+    @Test
+    public void testWireBytes() throws IOException {
+        WireCounter.Counts counts = WireCounter.get();
+        long sent = counts.getSent();
+        long received = counts.getReceived();
+        OutputStream wire = WireCounter.count(new ByteArrayOutputStream());
+        wire.write(new byte[100], 10, 50);
+        wire.write(1);
+        InputStream in = WireCounter.count(new ByteArrayInputStream(new byte[30]));
+        assertEquals(20, in.read(new byte[20]));
+        assertEquals(5, in.skip(5));
+        assertEquals(0, in.read());
+        assertEquals(51, counts.getSent() - sent);
+        assertEquals(26, counts.getReceived() - received);
+
+        Properties props = new Properties();
+        Measurements mm = new Measurements(props);
+        mm.measureWire("INSERT", 100, 20, 300);
+        mm.measureWire("INSERT", 60, 20, 0);
+        mm.measureWire("SCAN", 40, 8000, 0);
+        mm.measureResult("SCAN", 1000, 7800, 1000);
+        mm.measureWire("READ", 40, 200, 0);
+        HashMap<String, JsonNode> values = exportValues(mm);
+        assertEquals(2, values.get("Wire-INSERT Operations").asLong());
+        assertEquals(160, values.get("Wire-INSERT BytesSent").asLong());
+        assertEquals(80, values.get("Wire-INSERT AverageBytesSent").asDouble(), 0.001);
+        assertEquals(20, values.get("Wire-INSERT AverageBytesReceived").asDouble(), 0.001);
+        // every insert is one point
+        assertEquals(100, values.get("Wire-INSERT BytesPerPoint").asDouble(), 0.001);
+        assertEquals(300.0 / 160, values.get("Wire-INSERT CompressionRatio").asDouble(), 0.001);
+        assertEquals(8.04, values.get("Wire-SCAN BytesPerPoint").asDouble(), 0.001);
+        assertTrue(!values.containsKey("Wire-SCAN CompressionRatio"));
+        assertEquals(200, values.get("Wire-READ BytesReceived").asLong());
+        assertTrue(!values.containsKey("Wire-READ BytesPerPoint"));
+    }
 }
@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DataPoint;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.measurements.Measurements;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestCoreWorkload {
+    /** Keeps the timestamps of the inserted points. */
+    private static class TimestampDB extends DB {
+        final ArrayList<Long> timestamps = new ArrayList<Long>();
+
+        @Override
+        public int insert(DataPoint point) {
+            timestamps.add(point.getTimestamp());
+            return 0;
+        }
+
+        @Override
+        public int read(String metric, Timestamp timestamp, HashMap<String, ArrayList<String>> tags) {
+            return 0;
+        }
+
+        @Override
+        public int scan(String metric, Timestamp startTs, Timestamp endTs, HashMap<String, ArrayList<String>> tags,
+                        boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+            return 0;
+        }
+
+        @Override
+        public int insert(String metric, Timestamp timestamp, double value, HashMap<String, ByteIterator> tags) {
+            return 0;
+        }
+    }
+
+    /** Keeps a description of every operation. */
+    private static class RecordingDB extends DB {
+        final ArrayList<String> operations = new ArrayList<String>();
+
+        @Override
+        public int insert(DataPoint point) {
+            operations.add("insert " + point);
+            return 0;
+        }
+
+        @Override
+        public int read(String metric, Timestamp timestamp, HashMap<String, ArrayList<String>> tags) {
+            operations.add("read " + metric + " " + timestamp.getTime() + " " + tags);
+            return 0;
+        }
+
+        @Override
+        public int scan(String metric, Timestamp startTs, Timestamp endTs, HashMap<String, ArrayList<String>> tags,
+                        boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+            operations.add("scan " + metric + " " + startTs.getTime() + " " + endTs.getTime() + " " + tags + " "
+                    + Arrays.asList(avg, count, sum) + " " + timeValue + " " + timeUnit);
+            return 0;
+        }
+
+        @Override
+        public int insert(String metric, Timestamp timestamp, double value, HashMap<String, ByteIterator> tags) {
+            return 0;
+        }
+    }
+
+    /**
+     * Loads 100 points and runs 200 mixed transactions in one thread seeded with seed.
+     *
+     * @return the operations of the run
+     */
+    private static ArrayList<String> seededRun(long seed) throws Exception {
+        File tagFile = File.createTempFile("predefinedtags", ".txt");
+        tagFile.delete();
+        try {
+            Properties props = new Properties();
+            props.setProperty(CoreWorkload.INSERT_START_PROPERTY, "0");
+            props.setProperty(CoreWorkload.INSERT_END_PROPERTY, "100000");
+            props.setProperty(CoreWorkload.TIME_RESOLUTION_PROPERTY, "1000");
+            props.setProperty("recordcount", "100");
+            props.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "0.4");
+            props.setProperty(CoreWorkload.INSERT_PROPORTION_PROPERTY, "0.2");
+            props.setProperty(CoreWorkload.SCAN_PROPORTION_PROPERTY, "0.1");
+            props.setProperty(CoreWorkload.AVG_PROPORTION_PROPERTY, "0.1");
+            props.setProperty(CoreWorkload.SUM_PROPORTION_PROPERTY, "0.1");
+            props.setProperty(CoreWorkload.COUNT_PROPORTION_PROPERTY, "0.1");
+            props.setProperty(CoreWorkload.MIN_SCAN_LENGTH_PROPERTY, "5");
+            props.setProperty(CoreWorkload.MAX_SCAN_LENGTH_PROPERTY, "20");
+            props.setProperty(CoreWorkload.PREDEFINED_TAG_STORE_USED_PROPERTY, "false");
+            props.setProperty(CoreWorkload.PREDEFINED_TAG_STORAGE_FILE_PROPERTY, tagFile.getAbsolutePath());
+            Measurements.setProperties(props);
+            Utils.setSeed(seed);
+            Utils.setRandom(Utils.newRandom(0));
+            CoreWorkload workload = new CoreWorkload();
+            workload.init(props);
+            Object state = workload.initThread(props, 0, 1);
+            RecordingDB db = new RecordingDB();
+            for (int i = 0; i < 100; i++) {
+                workload.doInsert(db, state);
+            }
+            for (int i = 0; i < 200; i++) {
+                workload.doTransaction(db, state);
+            }
+            workload.cleanup();
+            return db.operations;
+        }
+        finally {
+            Utils.setRandom(null);
+            tagFile.delete();
+        }
+    }
+
+    /** With one client thread, runs with the same seed issue the same operations. */
+    @Test
+    public void testSeededRunsRepeat() throws Exception {
+        ArrayList<String> first = seededRun(42);
+        assertEquals(300, first.size());
+        assertEquals(first, seededRun(42));
+        assertFalse(first.equals(seededRun(43)));
+    }
+
+    /**
+     * Runs 50 inserts of the run phase over the 100 timestamps from 0 to 99 s.
+     *
+     * @return the inserted timestamps
+     */
+    private static ArrayList<Long> runInserts(Properties props) throws Exception {
+        File tagFile = File.createTempFile("predefinedtags", ".txt");
+        tagFile.delete();
+        try {
+            props.setProperty(CoreWorkload.INSERT_START_PROPERTY, "0");
+            props.setProperty(CoreWorkload.INSERT_END_PROPERTY, "100000");
+            props.setProperty(CoreWorkload.TIME_RESOLUTION_PROPERTY, "1000");
+            props.setProperty("recordcount", "100");
+            props.setProperty(CoreWorkload.PREDEFINED_TAG_STORE_USED_PROPERTY, "false");
+            props.setProperty(CoreWorkload.PREDEFINED_TAG_STORAGE_FILE_PROPERTY, tagFile.getAbsolutePath());
+            Measurements.setProperties(props);
+            CoreWorkload workload = new CoreWorkload();
+            workload.init(props);
+            TimestampDB db = new TimestampDB();
+            for (int i = 0; i < 50; i++) {
+                workload.doTransactionInsert(db);
+            }
+            workload.cleanup();
+            return db.timestamps;
+        }
+        finally {
+            tagFile.delete();
+        }
+    }
+
+    @Test
+    public void testInsertsOverwrite() throws Exception {
+        ArrayList<Long> timestamps = runInserts(new Properties());
+        assertEquals(50, timestamps.size());
+        for (long timestamp : timestamps) {
+            assertTrue(timestamp >= 0 && timestamp < 100000 && timestamp % 1000 == 0);
+        }
+    }
+
+    @Test
+    public void testInsertNewKeys() throws Exception {
+        Properties props = new Properties();
+        props.setProperty(CoreWorkload.INSERT_NEW_KEYS_PROPERTY, "true");
+        ArrayList<Long> timestamps = runInserts(props);
+        assertEquals(50, timestamps.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(100000 + 1000L * i, (long) timestamps.get(i));
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) 2012 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DataPoint;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestCsvReplayWorkload {
+    /** Remembers the inserted points. */
+    private static class RecordingDB extends DB {
+        final ArrayList<DataPoint> points = new ArrayList<DataPoint>();
+
+        @Override
+        public int insert(DataPoint point) {
+            points.add(point.copy());
+            return 0;
+        }
+
+        @Override
+        public int read(String metric, Timestamp timestamp, HashMap<String, ArrayList<String>> tags) {
+            return 0;
+        }
+
+        @Override
+        public int scan(String metric, Timestamp startTs, Timestamp endTs, HashMap<String, ArrayList<String>> tags,
+                        boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+            return 0;
+        }
+
+        @Override
+        public int insert(String metric, Timestamp timestamp, double value, HashMap<String, ByteIterator> tags) {
+            return 0;
+        }
+    }
+
+    private static File writeCsv(String content, boolean gzip) throws IOException {
+        File file = File.createTempFile("ycsb-replay", gzip ? ".csv.gz" : ".csv");
+        file.deleteOnExit();
+        OutputStream out = new FileOutputStream(file);
+        if (gzip) {
+            out = new GZIPOutputStream(out);
+        }
+        Writer writer = new OutputStreamWriter(out, DataPoint.UTF8);
+        try {
+            writer.write(content);
+        }
+        finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    private static String dataset(int rows) {
+        StringBuilder sb = new StringBuilder("timestamp,host,metric,value,region\n");
+        for (int i = 0; i < rows; i++) {
+            sb.append(1000 + i).append(",host").append(i % 10).append(",cpu,").append(i).append(".5,");
+            if (i % 3 != 0) {
+                sb.append("eu");
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static ArrayList<RecordingDB> replay(Properties p, int threads) throws Exception {
+        CsvReplayWorkload workload = new CsvReplayWorkload();
+        workload.init(p);
+        ArrayList<RecordingDB> dbs = new ArrayList<RecordingDB>();
+        ArrayList<Object> states = new ArrayList<Object>();
+        for (int t = 0; t < threads; t++) {
+            dbs.add(new RecordingDB());
+            states.add(workload.initThread(p, t, threads));
+        }
+        for (int t = 0; t < threads; t++) {
+            while (workload.doInsert(dbs.get(t), states.get(t))) {
+                // replay everything
+            }
+        }
+        workload.cleanup();
+        return dbs;
+    }
+
+    @Test
+    public void testReplayPartitionsBySeries() throws Exception {
+        int rows = 5000;
+        Properties p = new Properties();
+        p.setProperty(CsvReplayWorkload.REPLAY_FILE_PROPERTY, writeCsv(dataset(rows), false).getAbsolutePath());
+        ArrayList<RecordingDB> dbs = replay(p, 3);
+        HashSet<String> seriesSeen = new HashSet<String>();
+        int total = 0;
+        for (RecordingDB db : dbs) {
+            HashMap<String, Long> lastTimestamp = new HashMap<String, Long>();
+            for (DataPoint point : db.points) {
+                assertEquals("cpu", point.getMetric());
+                assertEquals(point.getTimestamp() - 1000 + 0.5, point.getValue(), 0.0);
+                String series = point.toString().replaceAll("^\\S+ \\S+ \\S+", "");
+                // Every series is inserted by one thread only, in file order
+                Long last = lastTimestamp.put(series, point.getTimestamp());
+                assertTrue(last == null || last < point.getTimestamp());
+                if (last == null) {
+                    assertTrue(seriesSeen.add(series));
+                }
+                int expectedTags = (point.getTimestamp() - 1000) % 3 == 0 ? 1 : 2;
+                assertEquals(expectedTags, point.getTagCount());
+                assertEquals("host", point.getTagName(0));
+            }
+            total += db.points.size();
+        }
+        assertEquals(rows, total);
+        assertEquals(20, seriesSeen.size());
+    }
+
+    /**
+     * A client thread that fails or stops early must not block the others.
+     */
+    @Test(timeOut = 20000)
+    public void testAbandonedPartitions() throws Exception {
+        Properties p = new Properties();
+        p.setProperty(CsvReplayWorkload.REPLAY_FILE_PROPERTY, writeCsv(dataset(50000), false).getAbsolutePath());
+        // replay() consumes the partitions one after another, so its buffer must hold all rows
+        int expected = replay(p, 3).get(2).points.size();
+        p.setProperty(CsvReplayWorkload.REPLAY_BUFFER_SIZE_PROPERTY, "1000");
+
+        final CsvReplayWorkload workload = new CsvReplayWorkload();
+        workload.init(p);
+        final Properties props = p;
+        // thread 0 stops after its share of 10 operations, thread 1 fails on its first insert
+        Thread stopping = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Object state = workload.initThread(props, 0, 3);
+                    for (int i = 0; i < 10; i++) {
+                        assertTrue(workload.doInsert(new RecordingDB(), state));
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        stopping.start();
+        stopping.join();
+        RecordingDB failing = new RecordingDB() {
+            @Override
+            public int insert(DataPoint point) {
+                return -1;
+            }
+        };
+        assertFalse(workload.doInsert(failing, workload.initThread(p, 1, 3)));
+        RecordingDB db = new RecordingDB();
+        Object state = workload.initThread(p, 2, 3);
+        while (workload.doInsert(db, state)) {
+            // replay everything
+        }
+        workload.cleanup();
+        assertEquals(expected, db.points.size());
+    }
+
+    @Test
+    public void testGzipRebaseAndUnits() throws Exception {
+        String csv = "timestamp,value,tag\n10,1,a\n\"12\",2,b\nbad,3,c\n15.5,4,\n";
+        Properties p = new Properties();
+        p.setProperty(CsvReplayWorkload.REPLAY_FILE_PROPERTY, writeCsv(csv, true).getAbsolutePath());
+        p.setProperty(CsvReplayWorkload.REPLAY_TIMESTAMP_UNIT_PROPERTY, "s");
+        p.setProperty(CsvReplayWorkload.REPLAY_REBASE_PROPERTY, "true");
+        p.setProperty(CoreWorkload.METRICNAME_PROPERTY, "m");
+        p.setProperty("insertstart", "1000000");
+        ArrayList<DataPoint> points = replay(p, 1).get(0).points;
+        assertEquals(3, points.size());
+        assertEquals(1000000, points.get(0).getTimestamp());
+        assertEquals(1002000, points.get(1).getTimestamp());
+        assertEquals(1005500, points.get(2).getTimestamp());
+        assertEquals("m", points.get(0).getMetric());
+        assertEquals("b", points.get(1).getTagValue(0));
+        assertEquals(0, points.get(2).getTagCount());
+    }
+}
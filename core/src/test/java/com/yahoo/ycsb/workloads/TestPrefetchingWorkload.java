@@ -0,0 +1,209 @@
+/**
+ * Copyright (c) 2012 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DataPoint;
+import com.yahoo.ycsb.TagFilter;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.AcknowledgedCounterGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
+import org.testng.annotations.Test;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestPrefetchingWorkload {
+    /** Remembers every operation as a string. */
+    private static class RecordingDB extends DB {
+        final ArrayList<String> ops = new ArrayList<String>();
+
+        @Override
+        public int insert(DataPoint point) {
+            ops.add("insert " + point);
+            return 0;
+        }
+
+        @Override
+        public int read(String metric, long timestamp, TimeUnit precision, TagFilter tags) {
+            ops.add("read " + metric + " " + timestamp + " " + tags);
+            return 0;
+        }
+
+        @Override
+        public int read(String metric, Timestamp timestamp, HashMap<String, ArrayList<String>> tags) {
+            return 0;
+        }
+
+        @Override
+        public int scan(String metric, Timestamp startTs, Timestamp endTs, HashMap<String, ArrayList<String>> tags,
+                        boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+            return 0;
+        }
+
+        @Override
+        public int insert(String metric, Timestamp timestamp, double value, HashMap<String, ByteIterator> tags) {
+            return 0;
+        }
+    }
+
+    private static final TagFilter FILTER = new TagFilter.Builder().add("TAG0", "x").build();
+
+    /** Inserts (load) or reads (run) 0, 1, 2, ... per thread, until limit if it is positive. */
+    private static class CountingWorkload extends Workload {
+        private final int limit;
+
+        CountingWorkload(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public Object initThread(Properties p, int mythreadid, int threadcount) {
+            return new long[]{mythreadid * 1000000L};
+        }
+
+        @Override
+        public boolean doInsert(DB db, Object threadstate) {
+            long[] next = (long[]) threadstate;
+            DataPoint point = new DataPoint();
+            point.reset("m", next[0]++, 1.5);
+            point.addTag("TAG0", null, "v" + next[0]);
+            return db.insert(point) == 0;
+        }
+
+        @Override
+        public boolean doTransaction(DB db, Object threadstate) {
+            long[] next = (long[]) threadstate;
+            if (limit > 0 && next[0] % 1000000L == limit) {
+                return false;
+            }
+            db.read("m", next[0]++, TimeUnit.MILLISECONDS, FILTER);
+            return true;
+        }
+    }
+
+    /** Inserts new keys of an acknowledged sequence, like the transaction inserts of CoreWorkload. */
+    private static class AcknowledgingWorkload extends Workload {
+        final AcknowledgedCounterGenerator sequence = new AcknowledgedCounterGenerator(100);
+        volatile int generated = 0;
+
+        @Override
+        public boolean doInsert(DB db, Object threadstate) {
+            return false;
+        }
+
+        @Override
+        public boolean doTransaction(DB db, Object threadstate) {
+            long key = sequence.nextLong();
+            DataPoint point = new DataPoint();
+            point.reset("m", key, 1.0);
+            db.insert(point);
+            PrefetchingWorkload.acknowledge(db, sequence, key);
+            generated++;
+            return true;
+        }
+    }
+
+    private static Properties props(int threads, int queuesize) {
+        Properties props = new Properties();
+        props.setProperty(PrefetchingWorkload.PREFETCH_THREADS_PROPERTY, Integer.toString(threads));
+        props.setProperty(PrefetchingWorkload.PREFETCH_QUEUE_SIZE_PROPERTY, Integer.toString(queuesize));
+        Measurements.setProperties(props);
+        return props;
+    }
+
+    @Test
+    public void testSameOperationsAsWrappedWorkload() throws WorkloadException {
+        Properties props = props(2, 16);
+        int threads = 3;
+        int opcount = 3000;
+        Workload prefetching = new PrefetchingWorkload(new CountingWorkload(0), props, false, threads, opcount);
+        Workload direct = new CountingWorkload(0);
+        for (int thread = 0; thread < threads; thread++) {
+            Object prefetchState = prefetching.initThread(props, thread, threads);
+            Object directState = direct.initThread(props, thread, threads);
+            RecordingDB expected = new RecordingDB();
+            RecordingDB actual = new RecordingDB();
+            for (int i = 0; i < opcount / threads; i++) {
+                assertTrue(prefetching.doInsert(actual, prefetchState));
+                direct.doInsert(expected, directState);
+            }
+            assertEquals(expected.ops, actual.ops);
+        }
+        prefetching.cleanup();
+    }
+
+    @Test
+    public void testWorkloadEnd() throws WorkloadException {
+        Properties props = props(1, 4);
+        Workload prefetching = new PrefetchingWorkload(new CountingWorkload(10), props, true, 1, 0);
+        Object state = prefetching.initThread(props, 0, 1);
+        RecordingDB db = new RecordingDB();
+        int done = 0;
+        while (prefetching.doTransaction(db, state)) {
+            done++;
+        }
+        assertEquals(10, done);
+        assertEquals(10, db.ops.size());
+        assertEquals("read m 9 " + FILTER, db.ops.get(9));
+        prefetching.cleanup();
+    }
+
+    @Test
+    public void testAcknowledgeWhenExecuted() throws Exception {
+        Properties props = props(1, 8);
+        AcknowledgingWorkload workload = new AcknowledgingWorkload();
+        Workload prefetching = new PrefetchingWorkload(workload, props, true, 1, 0);
+        Object state = prefetching.initThread(props, 0, 1);
+        while (workload.generated < 8) {
+            // wait until the generator filled the queue
+            Thread.sleep(1);
+        }
+        // generated inserts are not acknowledged before the client thread executed them
+        assertEquals(99, workload.sequence.lastLong());
+        RecordingDB db = new RecordingDB();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(prefetching.doTransaction(db, state));
+        }
+        assertEquals(102, workload.sequence.lastLong());
+        prefetching.requestStop();
+        prefetching.cleanup();
+    }
+
+    @Test
+    public void testStopWhileStarving() throws WorkloadException {
+        Properties props = props(1, 4);
+        // Two client threads but only one ever registers, the generator keeps waiting
+        Workload prefetching = new PrefetchingWorkload(new CountingWorkload(2), props, true, 2, 0);
+        Object state = prefetching.initThread(props, 0, 2);
+        RecordingDB db = new RecordingDB();
+        assertTrue(prefetching.doTransaction(db, state));
+        assertTrue(prefetching.doTransaction(db, state));
+        assertFalse(prefetching.doTransaction(db, state));
+        prefetching.requestStop();
+        assertFalse(prefetching.doTransaction(db, state));
+        prefetching.cleanup();
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2012 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.TagFilter;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestTagQuerySampler {
+    private static final String[] TAGS = {"TAG0", "TAG1", "TAG2"};
+
+    @Test
+    public void testSampleFromValues() {
+        String[][] values = new String[TAGS.length][];
+        for (int i = 0; i < TAGS.length; i++) {
+            values[i] = new String[5];
+            for (int j = 0; j < 5; j++) {
+                values[i][j] = "v" + i + "_" + j;
+            }
+        }
+        // querymaxtagvalues above the number of predefined values must not loop forever
+        TagQuerySampler sampler = new TagQuerySampler(TAGS, values, 10);
+        Random rand = new Random(42);
+        for (int n = 0; n < 10000; n++) {
+            TagFilter filter = sampler.sampleFromValues(rand);
+            assertTrue(filter.size() >= 1 && filter.size() <= TAGS.length);
+            HashSet<String> names = new HashSet<String>();
+            for (int i = 0; i < filter.size(); i++) {
+                assertTrue(names.add(filter.getTagName(i)));
+                int tag = Integer.parseInt(filter.getTagName(i).substring(3));
+                HashSet<String> seen = new HashSet<String>();
+                assertTrue(filter.getValueCount(i) >= 1 && filter.getValueCount(i) <= 5);
+                for (int j = 0; j < filter.getValueCount(i); j++) {
+                    assertTrue(filter.getValue(i, j).startsWith("v" + tag + "_"));
+                    assertTrue(seen.add(filter.getValue(i, j)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSampleFromCombinations() {
+        TagCombinationIndex index = new TagCombinationIndex(TAGS.length);
+        for (int r = 0; r < 1000; r++) {
+            index.add(new String[]{"a" + (r % 7), r % 3 == 0 ? null : "b" + (r % 5), "c" + r});
+        }
+        assertEquals(1000, index.size());
+        assertNull(index.getValue(3, 1));
+        assertEquals("c999", index.getValue(999, 2));
+
+        TagQuerySampler sampler = new TagQuerySampler(TAGS, null, 4);
+        Random rand = new Random(42);
+        for (int n = 0; n < 10000; n++) {
+            TagFilter filter = sampler.sampleFromCombinations(rand, index);
+            assertTrue(filter.size() >= 1);
+            for (int i = 0; i < filter.size(); i++) {
+                HashSet<String> seen = new HashSet<String>();
+                assertTrue(filter.getValueCount(i) <= 4);
+                for (int j = 0; j < filter.getValueCount(i); j++) {
+                    assertTrue(seen.add(filter.getValue(i, j)));
+                }
+            }
+        }
+        assertSame(TagFilter.EMPTY, sampler.sampleFromCombinations(rand, new TagCombinationIndex(TAGS.length)));
+    }
+
+    @Test
+    public void testReusedFilters() {
+        TagQuerySampler sampler = new TagQuerySampler(new String[]{"TAG0", "TAG1"},
+                new String[][]{{"a", "b"}, {"c", "d"}}, 2);
+        TagCombinationIndex index = new TagCombinationIndex(2);
+        index.add(new String[]{"a", "c"});
+        index.add(new String[]{"b", null});
+        index.add(new String[]{"a", "d"});
+        Set<TagFilter> fromValues = Collections.newSetFromMap(new IdentityHashMap<TagFilter, Boolean>());
+        Set<TagFilter> fromCombinations = Collections.newSetFromMap(new IdentityHashMap<TagFilter, Boolean>());
+        HashSet<String> combinations = new HashSet<String>();
+        Random rand = new Random(42);
+        for (int n = 0; n < 10000; n++) {
+            fromValues.add(sampler.sampleFromValues(rand));
+            TagFilter filter = sampler.sampleFromCombinations(rand, index);
+            fromCombinations.add(filter);
+            combinations.add(describe(filter));
+        }
+        // 1 or 2 tags, each with a, b or both of their values
+        assertEquals(3 + 3 + 3 * 3, fromValues.size());
+        HashSet<String> values = new HashSet<String>();
+        for (TagFilter filter : fromValues) {
+            assertTrue(values.add(describe(filter)));
+        }
+        // one instance per combination
+        assertEquals(combinations.size(), fromCombinations.size());
+    }
+
+    /**
+     * @return the tags and values of filter, checking that they are ordered
+     */
+    private static String describe(TagFilter filter) {
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < filter.size(); i++) {
+            assertTrue(i == 0 || filter.getTagName(i - 1).compareTo(filter.getTagName(i)) < 0);
+            description.append(filter.getTagName(i)).append('=');
+            for (int j = 0; j < filter.getValueCount(i); j++) {
+                assertTrue(j == 0 || filter.getValue(i, j - 1).compareTo(filter.getValue(i, j)) < 0);
+                description.append(filter.getValue(i, j)).append(',');
+            }
+            description.append(';');
+        }
+        return description.toString();
+    }
+
+    @Test
+    public void testFileRoundTrip() throws Exception {
+        File file = File.createTempFile("tagcombinations", ".bin");
+        assertTrue(file.delete());
+        try {
+            TagCombinationIndex index = new TagCombinationIndex(2);
+            index.startWriting(file);
+            index.add(new String[]{"x", "y"});
+            index.add(new String[]{"x", ""});
+            assertEquals(0, index.size());
+            assertFalse(file.exists());
+            index.finishWriting();
+            assertFalse(index.isWriting());
+
+            TagCombinationIndex copy = TagCombinationIndex.open(file);
+            assertTrue(file.delete());
+            assertEquals(2, copy.size());
+            assertEquals("y", copy.getValue(0, 1));
+            assertNull(copy.getValue(1, 1));
+            // Added rows go to the heap, after the mapped ones, and share the dictionary
+            copy.add(new String[]{"x", "z"});
+            assertEquals(3, copy.size());
+            assertEquals(copy.getValueId(0, 0), copy.getValueId(2, 0));
+            assertEquals("z", copy.getValue(2, 1));
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testIncompleteFile() throws Exception {
+        File file = File.createTempFile("tagcombinations", ".bin");
+        try {
+            TagCombinationIndex index = new TagCombinationIndex(2);
+            index.startWriting(file);
+            index.add(new String[]{"x", "y"});
+            File tmp = new File(file.getAbsolutePath() + ".tmp");
+            tmp.deleteOnExit();
+            // Never finished, e.g. because the load phase was killed
+            TagCombinationIndex.open(tmp);
+        }
+        finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2012 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DataPoint;
+import com.yahoo.ycsb.TagFilter;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestTraceFile {
+    /** Remembers every operation as a string. */
+    private static class RecordingDB extends DB {
+        final ArrayList<String> ops = new ArrayList<String>();
+
+        @Override
+        public int insert(DataPoint point) {
+            ops.add("insert " + point);
+            return 0;
+        }
+
+        @Override
+        public int read(String metric, long timestamp, TimeUnit precision, TagFilter tags) {
+            ops.add("read " + metric + " " + timestamp + " " + precision + " " + tags);
+            return 0;
+        }
+
+        @Override
+        public int scan(String metric, long startTs, long endTs, TimeUnit precision, TagFilter tags,
+                        boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+            ops.add("scan " + metric + " " + startTs + " " + endTs + " " + precision + " " + tags + " " + avg + " "
+                    + count + " " + sum + " " + timeValue + " " + timeUnit);
+            return 0;
+        }
+
+        @Override
+        public int read(String metric, Timestamp timestamp, HashMap<String, ArrayList<String>> tags) {
+            return 0;
+        }
+
+        @Override
+        public int scan(String metric, Timestamp startTs, Timestamp endTs, HashMap<String, ArrayList<String>> tags,
+                        boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+            return 0;
+        }
+
+        @Override
+        public int insert(String metric, Timestamp timestamp, double value, HashMap<String, ByteIterator> tags) {
+            return 0;
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        File file = File.createTempFile("ycsb-trace", ".bin");
+        file.deleteOnExit();
+        TraceFile.Writer writer = new TraceFile.Writer(file, 2);
+        RecordingDB expected0 = new RecordingDB();
+        RecordingDB expected1 = new RecordingDB();
+        DataPoint point = new DataPoint();
+        TagFilter filter = new TagFilter.Builder().add("TAG0", "a").add("TAG0", "b").add("TAG1", "c").build();
+
+        writer.startPartition();
+        // Enough operations for several mapping windows
+        for (int i = 0; i < 20000; i++) {
+            point.reset("usermetric", 1000L + i, i * 0.5);
+            point.addTag("TAG0", null, "v" + (i % 7));
+            point.addTag("TAG1", null, "w" + i);
+            writer.writeInsert(point);
+            expected0.insert(point);
+        }
+        writer.startPartition();
+        writer.writeRead("m", 42, TimeUnit.MILLISECONDS, filter);
+        expected1.read("m", 42, TimeUnit.MILLISECONDS, filter);
+        writer.writeScan("m", 1, 2, TimeUnit.MICROSECONDS, TagFilter.EMPTY, false, true, false, 5, TimeUnit.SECONDS);
+        expected1.scan("m", 1, 2, TimeUnit.MICROSECONDS, TagFilter.EMPTY, false, true, false, 5, TimeUnit.SECONDS);
+        writer.writeScan("m", 3, 4, TimeUnit.MILLISECONDS, filter, true, false, true, 0, null);
+        expected1.scan("m", 3, 4, TimeUnit.MILLISECONDS, filter, true, false, true, 0, null);
+        writer.close();
+
+        TraceFile.Reader reader = TraceFile.Reader.open(file, 2 * TraceFile.MAX_OP_SIZE);
+        assertEquals(2, reader.getPartitionCount());
+        assertEquals(20000, reader.getOperationCount(0));
+        RecordingDB actual1 = new RecordingDB();
+        TraceFile.Cursor cursor1 = reader.cursor(1);
+        while (cursor1.hasNext()) {
+            assertEquals(0, cursor1.execute(actual1));
+        }
+        RecordingDB actual0 = new RecordingDB();
+        TraceFile.Cursor cursor0 = reader.cursor(0);
+        while (cursor0.hasNext()) {
+            cursor0.execute(actual0);
+        }
+        reader.close();
+        assertEquals(expected0.ops, actual0.ops);
+        assertEquals(expected1.ops, actual1.ops);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testIncompleteFile() throws IOException {
+        File file = File.createTempFile("ycsb-trace", ".bin");
+        file.deleteOnExit();
+        TraceFile.Writer writer = new TraceFile.Writer(file, 1);
+        writer.startPartition();
+        writer.writeRead("m", 1, TimeUnit.MILLISECONDS, TagFilter.EMPTY);
+        // not closed, the header is missing the dictionary offset
+        TraceFile.Reader.open(file);
+    }
+}
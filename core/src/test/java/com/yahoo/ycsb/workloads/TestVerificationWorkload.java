@@ -0,0 +1,239 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DataPoint;
+import com.yahoo.ycsb.TagFilter;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.TestMeasurementsExporter;
+import org.codehaus.jackson.JsonNode;
+import org.testng.annotations.Test;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestVerificationWorkload {
+    /**
+     * Keeps the inserted points of one tag in a list, drops every dropEvery-th point.
+     */
+    static class ListDB extends DB {
+        final ArrayList<long[]> points = new ArrayList<long[]>();
+        final ArrayList<String> series = new ArrayList<String>();
+        final int dropEvery;
+        int inserts;
+
+        ListDB(int dropEvery) {
+            this.dropEvery = dropEvery;
+        }
+
+        @Override
+        public int insert(DataPoint point) {
+            if (dropEvery > 0 && ++inserts % dropEvery == 0) {
+                return 0;
+            }
+            points.add(new long[]{point.getTimestamp(), (long) point.getValue()});
+            series.add(point.getTagValue(0));
+            return 0;
+        }
+
+        @Override
+        public int scan(String metric, long startTs, long endTs, TimeUnit precision, TagFilter tags,
+                        boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+            long found = 0;
+            double total = 0;
+            for (int i = 0; i < points.size(); i++) {
+                long[] point = points.get(i);
+                if (series.get(i).equals(tags.getValue(0, 0)) && point[0] >= startTs && point[0] <= endTs) {
+                    found++;
+                    total += point[1];
+                }
+            }
+            reportResult(sum ? 1 : found, -1);
+            if (sum) {
+                reportAggregate(total);
+            }
+            return 0;
+        }
+
+        @Override
+        public int read(String metric, Timestamp timestamp, HashMap<String, ArrayList<String>> tags) {
+            return -1;
+        }
+
+        @Override
+        public int scan(String metric, Timestamp startTs, Timestamp endTs, HashMap<String, ArrayList<String>> tags,
+                        boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+            return -1;
+        }
+
+        @Override
+        public int insert(String metric, Timestamp timestamp, double value, HashMap<String, ByteIterator> tags) {
+            return -1;
+        }
+    }
+
+    /**
+     * Loads 1000 points into a ListDB and verifies all of them passes times.
+     *
+     * @return the exported VERIFY statistics
+     */
+    private static HashMap<String, JsonNode> verify(ListDB db, int passes) throws Exception {
+        Properties props = new Properties();
+        props.setProperty("recordcount", "1000");
+        props.setProperty(VerificationWorkload.SERIES_PROPERTY, "7");
+        props.setProperty(VerificationWorkload.SCAN_LENGTH_PROPERTY, "20");
+        Measurements.setProperties(props);
+        VerificationWorkload workload = new VerificationWorkload();
+        workload.init(props);
+        Object state = workload.initThread(props, 0, 1);
+        int inserted = 0;
+        while (workload.doInsert(db, state)) {
+            inserted++;
+        }
+        assertEquals(1000, inserted);
+        assertEquals(143, workload.seriesLength(0));
+        assertEquals(142, workload.seriesLength(6));
+        // 8 ranges per series, the last one of 3 or 2 points
+        assertEquals(56, workload.rangeCount());
+        for (int i = 0; i < 56 * passes; i++) {
+            assertTrue(workload.doTransaction(db, state));
+        }
+        workload.cleanup();
+
+        HashMap<String, JsonNode> values = TestMeasurementsExporter.exportValues(Measurements.getMeasurements());
+        return values;
+    }
+
+    @Test
+    public void testValues() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("recordcount", "10");
+        props.setProperty("valuemin", "5");
+        props.setProperty("valuemax", "7");
+        VerificationWorkload workload = new VerificationWorkload();
+        workload.init(props);
+        VerificationWorkload other = new VerificationWorkload();
+        other.init(props);
+        boolean differs = false;
+        for (int series = 0; series < 10; series++) {
+            long value = workload.value(series, 1000L * series);
+            assertTrue(value >= 5 && value <= 7);
+            // derived from series, timestamp and seed only
+            assertEquals(value, other.value(series, 1000L * series));
+            differs |= value != workload.value(series, 1000L * series + 1000);
+        }
+        assertTrue(differs);
+        props.setProperty("seed", "42");
+        other.init(props);
+        differs = false;
+        for (int series = 0; series < 10; series++) {
+            differs |= workload.value(series, 0) != other.value(series, 0);
+        }
+        assertTrue(differs);
+    }
+
+    @Test
+    public void testComplete() throws Exception {
+        HashMap<String, JsonNode> values = verify(new ListDB(0), 1);
+        // every point once
+        assertEquals(1000, values.get("VERIFY ExpectedPoints").asLong());
+        assertEquals(1000, values.get("VERIFY ActualPoints").asLong());
+        assertEquals(0, values.get("VERIFY LostPoints").asLong());
+        assertEquals(0, values.get("VERIFY DuplicatePoints").asLong());
+        assertEquals(56, values.get("VERIFY VerifiedSums").asLong());
+        assertEquals(0, values.get("VERIFY WrongSums").asLong());
+        assertEquals(0, values.get("VERIFY SkippedSums").asLong());
+    }
+
+    @Test
+    public void testPasses() throws Exception {
+        HashMap<String, JsonNode> values = verify(new ListDB(0), 2);
+        assertEquals(2000, values.get("VERIFY ExpectedPoints").asLong());
+        assertEquals(112, values.get("VERIFY Return=0").asLong());
+    }
+
+    @Test
+    public void testSkippedSums() throws Exception {
+        ListDB db = new ListDB(0) {
+            @Override
+            public int scan(String metric, long startTs, long endTs, TimeUnit precision, TagFilter tags,
+                            boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+                // counts only, as most bindings
+                return super.scan(metric, startTs, endTs, precision, tags, avg, count, false, timeValue, timeUnit);
+            }
+        };
+        HashMap<String, JsonNode> values = verify(db, 1);
+        assertEquals(0, values.get("VERIFY VerifiedSums").asLong());
+        assertEquals(56, values.get("VERIFY SkippedSums").asLong());
+        assertEquals(56, values.get("VERIFY Return=0").asLong());
+    }
+
+    @Test
+    public void testLost() throws Exception {
+        HashMap<String, JsonNode> values = verify(new ListDB(10), 1);
+        // every 10th point is dropped and counted once
+        assertEquals(100, values.get("VERIFY LostPoints").asLong());
+        assertEquals(900, values.get("VERIFY ActualPoints").asLong());
+        assertEquals(0, values.get("VERIFY DuplicatePoints").asLong());
+    }
+
+    @Test
+    public void testWrongSums() throws Exception {
+        ListDB db = new ListDB(0) {
+            @Override
+            public int insert(DataPoint point) {
+                point.setValue(point.getValue() + 1);
+                return super.insert(point);
+            }
+        };
+        HashMap<String, JsonNode> values = verify(db, 1);
+        assertEquals(0, values.get("VERIFY LostPoints").asLong());
+        assertEquals(56, values.get("VERIFY WrongSums").asLong());
+    }
+
+    @Test
+    public void testScanFailures() throws Exception {
+        ListDB db = new ListDB(0) {
+            int scans;
+
+            @Override
+            public int scan(String metric, long startTs, long endTs, TimeUnit precision, TagFilter tags,
+                            boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+                int res = super.scan(metric, startTs, endTs, precision, tags, avg, count, sum, timeValue, timeUnit);
+                return ++scans % 3 == 0 ? -1 : res;
+            }
+        };
+        HashMap<String, JsonNode> values = verify(db, 1);
+        long failed = values.get("VERIFY Return=-5").asLong();
+        assertTrue(failed > 0);
+        assertFalse(values.containsKey("VERIFY Return=-1"));
+        assertEquals(56, failed + values.get("VERIFY Return=0").asLong());
+        // the failed ranges are not counted as lost
+        assertEquals(0, values.get("VERIFY LostPoints").asLong());
+        long expected = values.get("VERIFY ExpectedPoints").asLong();
+        assertTrue(expected > 0 && expected < 1000);
+        assertEquals(expected, values.get("VERIFY ActualPoints").asLong());
+    }
+}
@@ -10,32 +10,29 @@ import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
-import org.apache.http.HttpResponse;
 import org.apache.http.ParseException;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.AuthCache;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.CredentialsProvider;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.config.CookieSpecs;
-import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.protocol.HttpClientContext;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.impl.auth.BasicScheme;
 import org.apache.http.impl.client.BasicAuthCache;
 import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.http.HttpTransport;
+import com.yahoo.ycsb.json.JsonPoints;
 
 /**
  * Databus client for YCSB-TS framework.<br>
@@ -55,7 +52,9 @@ public class DatabusClient extends DB {
 
 	private final int SUCCESS = 0;
 
-	private HttpClient httpClient;
+	private HttpTransport transport;
+	// rows of scan results, counted while streaming
+	private final JsonPoints points = new JsonPoints("data").setFields("time", "value");
 
 	/** HTTP API for creating DB with table(s) */
 	private URI createDbAndTablesApiUri;
@@ -138,17 +137,15 @@ public class DatabusClient extends DB {
 				createDbAndTablesApiUri = new URI("http", null, ip, port, "/api/registerV1", null, null);
 				insertDataApiUri = new URI("http", null, ip, port, "/api/postdataV1", null, null);
 
-				RequestConfig globalConfig = RequestConfig.custom().setCookieSpec(CookieSpecs.STANDARD).build();
-
 				HttpHost httpHost = new HttpHost(ip, port);
 
 				CredentialsProvider credsProvider = new BasicCredentialsProvider();
 				credsProvider.setCredentials(new AuthScope(httpHost), new UsernamePasswordCredentials(user, apiKey));
 
-				httpClient = HttpClients.custom().setDefaultRequestConfig(globalConfig)
-						.setDefaultCredentialsProvider(credsProvider).build();
+				transport = HttpTransport.acquire(getProperties());
 
 				httpContext = HttpClientContext.create();
+				httpContext.setCredentialsProvider(credsProvider);
 				AuthCache authCache = new BasicAuthCache();
 				BasicScheme basicAuth = new BasicScheme();
 				authCache.put(httpHost, basicAuth);
@@ -166,6 +163,10 @@ public class DatabusClient extends DB {
 
 	@Override
 	public void cleanup() throws DBException {
+		if (transport != null) {
+			transport.release();
+			transport = null;
+		}
 	}
 
 	/**
@@ -238,7 +239,7 @@ public class DatabusClient extends DB {
 	 * @throws IOException
 	 */
 	private String doPost(URI targetURI, String str) throws ClientProtocolException, IOException {
-		return doPost(targetURI, new StringEntity(str, StandardCharsets.UTF_8));
+		return doPost(targetURI, transport.entity(str, ContentType.create("text/plain", StandardCharsets.UTF_8)));
 	}
 
 	/**
@@ -254,6 +255,29 @@ public class DatabusClient extends DB {
 		return execRequest(getRequest);
 	}
 
+	/**
+	 * 
+	 * @param targetURI
+	 *            where GET request should be sent to
+	 * @param points
+	 *            counts the rows of the response
+	 * @return points, without any row if there is no response body.
+	 * @throws IOException
+	 */
+	private JsonPoints doGet(URI targetURI, JsonPoints points) throws IOException {
+		CloseableHttpResponse response = transport.execute(new HttpGet(targetURI), httpContext);
+		try {
+			points.clear();
+			HttpEntity entity = response.getEntity();
+			if (entity != null) {
+				points.parse(entity.getContent());
+			}
+			return points;
+		} finally {
+			HttpTransport.release(response);
+		}
+	}
+
 	/**
 	 * 
 	 * @param request
@@ -262,9 +286,12 @@ public class DatabusClient extends DB {
 	 * @throws IOException
 	 */
 	private String execRequest(HttpUriRequest request) throws ParseException, IOException {
-		HttpResponse response = httpClient.execute(request, httpContext);
-		String responseStr = EntityUtils.toString(response.getEntity());
-		return responseStr;
+		CloseableHttpResponse response = transport.execute(request, httpContext);
+		try {
+			return HttpTransport.readBody(response);
+		} finally {
+			HttpTransport.release(response);
+		}
 	}
 
 	@Override
@@ -448,13 +475,14 @@ public class DatabusClient extends DB {
 
 		try {
 
-			String responseStr = doGet(readURI);
+			JsonPoints result = doGet(readURI, points);
+			reportResult(result.getCount(), result.getBytes());
 
 			if (_DEBUG) {
-				System.out.println("Scan URL:\n" + readURI + "\nScan Response:\n" + responseStr);
+				System.out.println("Scan URL:\n" + readURI + "\nScan Response:\n" + result);
 			}
 
-			if (responseStr.isEmpty() || ((JSONArray) (new JSONObject(responseStr)).get("data")).length() == 0) {
+			if (result.getCount() == 0) {
 				// No values is possible (not an error)
 				if (_DEBUG) {
 					System.out.println("No value(s) found for metric " + metric + ", start timestamp "
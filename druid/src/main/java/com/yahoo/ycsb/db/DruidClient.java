@@ -17,26 +17,23 @@ import com.twitter.util.Future;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.http.HttpTransport;
 import io.druid.data.input.impl.TimestampSpec;
 import io.druid.granularity.QueryGranularity;
 import io.druid.query.aggregation.AggregatorFactory;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
 import org.apache.curator.retry.ExponentialBackoffRetry;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.util.EntityUtils;
 //import org.apache.log4j.Level;
 //import org.apache.log4j.LogManager;
 import org.joda.time.DateTime;
 import org.joda.time.Period;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 //import org.slf4j.Logger;
 //import org.slf4j.LoggerFactory;
 //import org.slf4j.impl.SimpleLogger;
@@ -85,12 +82,11 @@ public class DruidClient extends DB {
 //    private List<AggregatorFactory> aggregators;
     private Timestamper<Map<String, Object>> timestamper;
     private CuratorFramework curator;
-    private CloseableHttpClient client;
+    private HttpTransport transport;
     private final TimestampSpec timestampSpec = new TimestampSpec("timestamp", "auto");
     private Service<List<Map<String, Object>>, Integer> druidService;
     private boolean _debug = false;
     private boolean test = false;
-    private int retries = 3;
     private String phase;
     private int tagCount;
     private String tagPrefix;
@@ -217,9 +213,8 @@ public class DruidClient extends DB {
                                         .build()
                         )
                         .buildJavaService();
-                RequestConfig requestConfig = RequestConfig.custom().build();
                 if (!test) {
-                    client = HttpClientBuilder.create().setDefaultRequestConfig(requestConfig).build();
+                    transport = HttpTransport.acquire(getProperties());
                 }
             }
             urlQuery = new URL("http", queryIP, Integer.valueOf(queryPort), queryURL );
@@ -297,33 +292,20 @@ public class DruidClient extends DB {
 
     private JSONArray runQuery(URL url, String queryStr) {
         JSONArray jsonArr = new JSONArray();
-        HttpResponse response = null;
+        CloseableHttpResponse response = null;
         try {
             HttpPost postMethod = new HttpPost(url.toString());
-            StringEntity requestEntity = new StringEntity(queryStr, ContentType.APPLICATION_JSON);
-            postMethod.setEntity(requestEntity);
+            postMethod.setEntity(transport.entity(queryStr, ContentType.APPLICATION_JSON));
             postMethod.addHeader("accept", "application/json");
-            int tries = retries + 1;
-            while (true)
+            try
             {
-                tries--;
-                try
-                {
-                    response = client.execute(postMethod);
-                    break;
-                }
-                catch (IOException e)
-                {
-                    if (tries < 1) {
-                        System.err.print("ERROR: Connection to " + url.toString() + " failed " + retries + "times.");
-                        e.printStackTrace();
-                        if (response != null) {
-                            EntityUtils.consumeQuietly(response.getEntity());
-                        }
-                        postMethod.releaseConnection();
-                        return null;
-                    }
-                }
+                response = transport.execute(postMethod);
+            }
+            catch (IOException e)
+            {
+                System.err.print("ERROR: Connection to " + url.toString() + " failed.");
+                e.printStackTrace();
+                return null;
             }
             if(response.getStatusLine().getStatusCode() == HttpURLConnection.HTTP_OK ||
                     response.getStatusLine().getStatusCode() == HttpURLConnection.HTTP_NO_CONTENT  ||
@@ -333,24 +315,15 @@ public class DruidClient extends DB {
                 }
                 if (response.getStatusLine().getStatusCode() != HttpURLConnection.HTTP_NO_CONTENT){
                     // Maybe also not HTTP_MOVED_PERM? Can't Test it right now
-                    BufferedReader bis = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-                    StringBuilder builder = new StringBuilder();
-                    String line;
-                    while ((line = bis.readLine()) != null) {
-                        builder.append(line);
-                    }
-                    jsonArr = new JSONArray(builder.toString());
+                    jsonArr = new JSONArray(new JSONTokener(HttpTransport.bodyReader(response)));
                 }
-                EntityUtils.consumeQuietly(response.getEntity());
-                postMethod.releaseConnection();
             }
         } catch (Exception e) {
             System.err.println("ERROR: Errror while trying to query " + url.toString() + " for '" + queryStr + "'.");
             e.printStackTrace();
-            if (response != null) {
-                EntityUtils.consumeQuietly(response.getEntity());
-            }
             return null;
+        } finally {
+            HttpTransport.release(response);
         }
         return jsonArr;
     }
@@ -366,7 +339,7 @@ public class DruidClient extends DB {
             if (!test) {
                 Await.result(druidService.close());
                 curator.close();
-                client.close();
+                transport.release();
             }
         }
         catch (Exception e) {
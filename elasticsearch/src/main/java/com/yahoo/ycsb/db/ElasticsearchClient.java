@@ -185,6 +185,7 @@ public class ElasticsearchClient extends DB {
 
 			SearchHits hits = searchResponse.getHits();
 			long totalHits = hits.getTotalHits();
+			reportResult(hits.getHits().length, -1);
 
 			if (totalHits == 0) {
 
@@ -313,6 +314,8 @@ public class ElasticsearchClient extends DB {
 			Histogram histogram = searchResponse.getAggregations().get(DATE_HISTOGRAM_NAME);
 
 			List<? extends Histogram.Bucket> buckets = histogram.getBuckets();
+			// the buckets are the points of the result
+			reportResult(buckets.size(), -1);
 
 			if (buckets.isEmpty()) {
 				// allowed to happen!
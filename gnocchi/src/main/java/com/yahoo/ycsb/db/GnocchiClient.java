@@ -1,8 +1,6 @@
 package com.yahoo.ycsb.db;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -12,21 +10,19 @@ import java.util.HashMap;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
-import org.apache.http.HttpResponse;
-import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.util.EntityUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.http.HttpTransport;
+import com.yahoo.ycsb.json.JsonPoints;
 
 /**
  * Gnocchi client for YCSB framework. Gnocchi doesn't support tags.
@@ -51,8 +47,9 @@ public class GnocchiClient extends DB {
 
 	private String ip = "localhost";
 	private int port = 8041;
-	private int retries = 3;
-	private CloseableHttpClient client;
+	private HttpTransport transport;
+	// rows of scan results, counted while streaming
+	private final JsonPoints points = new JsonPoints(JsonPoints.ROOT);
 
 	/**
 	 * Initialize any state for this DB. Called once per DB instance; there is
@@ -78,9 +75,8 @@ public class GnocchiClient extends DB {
 					System.out.println(element + ": " + getProperties().getProperty(element));
 				}
 			}
-			RequestConfig requestConfig = RequestConfig.custom().build();
 			if (!test) {
-				client = HttpClientBuilder.create().setDefaultRequestConfig(requestConfig).build();
+				transport = HttpTransport.acquire(getProperties());
 			}
 
 		} catch (Exception e) {
@@ -137,7 +133,7 @@ public class GnocchiClient extends DB {
 	public void cleanup() throws DBException {
 		try {
 			if (!test) {
-				client.close();
+				transport.release();
 			}
 		} catch (Exception e) {
 			throw new DBException(e);
@@ -230,43 +226,28 @@ public class GnocchiClient extends DB {
 	private Integer doPost(URL url, String queryStr) {
 
 		Integer statusCode;
-		HttpResponse response = null;
+		CloseableHttpResponse response = null;
 		try {
 			HttpPost postMethod = new HttpPost(url.toString());
-			StringEntity requestEntity = new StringEntity(queryStr, ContentType.APPLICATION_JSON);
-			postMethod.setEntity(requestEntity);
+			postMethod.setEntity(transport.entity(queryStr, ContentType.APPLICATION_JSON));
 			postMethod.addHeader("X-Roles", "admin");
 
-			int tries = retries + 1;
-			while (true) {
-				tries--;
-				try {
-					response = client.execute(postMethod);
-					break;
-				} catch (IOException e) {
-					if (tries < 1) {
-						System.err.print("ERROR: Connection to " + url.toString() + " failed " + retries + "times.");
-						e.printStackTrace();
-						if (response != null) {
-							EntityUtils.consumeQuietly(response.getEntity());
-						}
-						postMethod.releaseConnection();
-						return null;
-					}
-				}
+			try {
+				response = transport.execute(postMethod);
+			} catch (IOException e) {
+				System.err.print("ERROR: Connection to " + url.toString() + " failed.");
+				e.printStackTrace();
+				return null;
 			}
 
 			statusCode = response.getStatusLine().getStatusCode();
-			EntityUtils.consumeQuietly(response.getEntity());
-			postMethod.releaseConnection();
 
 		} catch (Exception e) {
 			System.err.println("ERROR: Errror while trying to query " + url.toString() + " for '" + queryStr + "'.");
 			e.printStackTrace();
-			if (response != null) {
-				EntityUtils.consumeQuietly(response.getEntity());
-			}
 			return null;
+		} finally {
+			HttpTransport.release(response);
 		}
 
 		return statusCode;
@@ -275,54 +256,33 @@ public class GnocchiClient extends DB {
 	private UUID doPost_CreateMetric(URL url, String queryStr) {
 
 		UUID uuid = null;
-		HttpResponse response = null;
+		CloseableHttpResponse response = null;
 		try {
 			HttpPost postMethod = new HttpPost(url.toString());
-			StringEntity requestEntity = new StringEntity(queryStr, ContentType.APPLICATION_JSON);
-			postMethod.setEntity(requestEntity);
+			postMethod.setEntity(transport.entity(queryStr, ContentType.APPLICATION_JSON));
 			postMethod.addHeader("X-Roles", "admin");
 
-			int tries = retries + 1;
-			while (true) {
-				tries--;
-				try {
-					response = client.execute(postMethod);
-					break;
-				} catch (IOException e) {
-					if (tries < 1) {
-						System.err.print("ERROR: Connection to " + url.toString() + " failed " + retries + "times.");
-						e.printStackTrace();
-						if (response != null) {
-							EntityUtils.consumeQuietly(response.getEntity());
-						}
-						postMethod.releaseConnection();
-						return null;
-					}
-				}
+			try {
+				response = transport.execute(postMethod);
+			} catch (IOException e) {
+				System.err.print("ERROR: Connection to " + url.toString() + " failed.");
+				e.printStackTrace();
+				return null;
 			}
 
 			if (response.getStatusLine().getStatusCode() == HttpURLConnection.HTTP_CREATED
 					&& response.getEntity().getContentLength() > 0) {
 
-				BufferedReader bis = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-				StringBuilder builder = new StringBuilder();
-				String line;
-				while ((line = bis.readLine()) != null) {
-					builder.append(line);
-				}
-				JSONObject jsonObject = new JSONObject(builder.toString());
+				JSONObject jsonObject = new JSONObject(new JSONTokener(HttpTransport.bodyReader(response)));
 				uuid = UUID.fromString((String) jsonObject.get("id"));
 			}
-			EntityUtils.consumeQuietly(response.getEntity());
-			postMethod.releaseConnection();
 
 		} catch (Exception e) {
 			System.err.println("ERROR: Errror while trying to query " + url.toString() + " for '" + queryStr + "'.");
 			e.printStackTrace();
-			if (response != null) {
-				EntityUtils.consumeQuietly(response.getEntity());
-			}
 			return null;
+		} finally {
+			HttpTransport.release(response);
 		}
 
 		return uuid;
@@ -345,29 +305,18 @@ public class GnocchiClient extends DB {
 	private JSONArray doGet(URL url) {
 
 		JSONArray jsonArray = new JSONArray();
-		HttpResponse response = null;
+		CloseableHttpResponse response = null;
 		try {
 			HttpGet getMethod = new HttpGet(url.toString());
 			getMethod.addHeader("accept", "application/json");
 			getMethod.addHeader("X-Roles", "admin");
 
-			int tries = retries + 1;
-			while (true) {
-				tries--;
-				try {
-					response = client.execute(getMethod);
-					break;
-				} catch (IOException e) {
-					if (tries < 1) {
-						System.err.print("ERROR: Connection to " + url.toString() + " failed " + retries + "times.");
-						e.printStackTrace();
-						if (response != null) {
-							EntityUtils.consumeQuietly(response.getEntity());
-						}
-						getMethod.releaseConnection();
-						return null;
-					}
-				}
+			try {
+				response = transport.execute(getMethod);
+			} catch (IOException e) {
+				System.err.print("ERROR: Connection to " + url.toString() + " failed.");
+				e.printStackTrace();
+				return null;
 			}
 
 			int statusCode = response.getStatusLine().getStatusCode();
@@ -378,29 +327,63 @@ public class GnocchiClient extends DB {
 
 			if (statusCode == HttpURLConnection.HTTP_OK && response.getEntity().getContentLength() > 0) {
 
-				BufferedReader bis = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-				StringBuilder builder = new StringBuilder();
-				String line;
-				while ((line = bis.readLine()) != null) {
-					builder.append(line);
-				}
-				jsonArray = new JSONArray(builder.toString());
+				jsonArray = new JSONArray(new JSONTokener(HttpTransport.bodyReader(response)));
 			}
-			EntityUtils.consumeQuietly(response.getEntity());
-			getMethod.releaseConnection();
 
 		} catch (Exception e) {
 			System.err.println("ERROR: Errror while trying to query " + url.toString() + ".");
 			e.printStackTrace();
-			if (response != null) {
-				EntityUtils.consumeQuietly(response.getEntity());
-			}
 			return null;
+		} finally {
+			HttpTransport.release(response);
 		}
 
 		return jsonArray;
 	}
 
+	/**
+	 * Like {@link #doGet(URL)} but counts the rows of the result in points
+	 * instead of building it.
+	 */
+	private JsonPoints doGet(URL url, JsonPoints points) {
+
+		CloseableHttpResponse response = null;
+		try {
+			HttpGet getMethod = new HttpGet(url.toString());
+			getMethod.addHeader("accept", "application/json");
+			getMethod.addHeader("X-Roles", "admin");
+
+			try {
+				response = transport.execute(getMethod);
+			} catch (IOException e) {
+				System.err.print("ERROR: Connection to " + url.toString() + " failed.");
+				e.printStackTrace();
+				return null;
+			}
+
+			int statusCode = response.getStatusLine().getStatusCode();
+
+			if (_debug) {
+				System.out.println("Query StatusCode: " + statusCode);
+			}
+
+			points.clear();
+			if (statusCode == HttpURLConnection.HTTP_OK && response.getEntity().getContentLength() != 0) {
+
+				points.parse(response.getEntity().getContent());
+			}
+
+		} catch (Exception e) {
+			System.err.println("ERROR: Errror while trying to query " + url.toString() + ".");
+			e.printStackTrace();
+			return null;
+		} finally {
+			HttpTransport.release(response);
+		}
+
+		return points;
+	}
+
 	// GET
 	// /v1/metric/76f02203-81ce-4dae-bbaa-10de7b9b5701/measures?start=2014-10-06T14:34&stop=2014-10-06T14:34
 	// HTTP/1.1
@@ -544,13 +527,16 @@ public class GnocchiClient extends DB {
 				System.out.println("QueryURL: " + newQueryURL.toString());
 			}
 
-			JSONArray jsonArray = doGet(newQueryURL);
+			JsonPoints result = doGet(newQueryURL, points);
+			if (result != null) {
+				reportResult(result.getCount(), result.getBytes());
+			}
 
 			if (_debug) {
-				System.out.println("Answer: " + jsonArray.toString());
+				System.out.println("Answer: " + result);
 			}
 
-			if (jsonArray == null || jsonArray.length() < 1) {
+			if (result == null || result.getCount() < 1) {
 
 				System.err.println("ERROR: Found no values for metric: " + metric + ".");
 				return -1;
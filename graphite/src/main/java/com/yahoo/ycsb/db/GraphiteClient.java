@@ -6,14 +6,13 @@ import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.concurrent.TimeUnit;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.http.HttpTransport;
+import com.yahoo.ycsb.measurements.WireCounter;
 
 /**
  * Graphite client for YCSB framework. Inserts records with the plaintext
@@ -47,7 +46,7 @@ public class GraphiteClient extends DB {
 	private PrintWriter plainTextWriter;
 
 	/** Retrieving with Render API of Graphite-API */
-	private HttpClient renderApiClient;
+	private HttpTransport transport;
 
 	/** URL to Render API of Graphite-API */
 	private String renderApiUrl;
@@ -85,11 +84,11 @@ public class GraphiteClient extends DB {
 		if (!test) {
 
 			try {
-				plainTextSocket = new Socket(ip, plaintextPort);
+				plainTextSocket = new WireCounter.CountingSocket(ip, plaintextPort);
 				plainTextWriter = new PrintWriter(plainTextSocket.getOutputStream(), true);
 
 				renderApiUrl = "http://" + ip + ':' + graphiteApiPort + RENDER_API_PATH;
-				renderApiClient = HttpClients.createDefault();
+				transport = HttpTransport.acquire(getProperties());
 
 			} catch (Exception e) {
 				throw new DBException(e);
@@ -104,6 +103,7 @@ public class GraphiteClient extends DB {
 		try {
 			plainTextWriter.close();
 			plainTextSocket.close();
+			transport.release();
 		} catch (Exception e) {
 			throw new DBException(e);
 		}
@@ -140,11 +140,12 @@ public class GraphiteClient extends DB {
 			return SUCCESS;
 		}
 
+		CloseableHttpResponse response = null;
 		try {
 
-			HttpResponse response = renderApiClient.execute(request);
+			response = transport.execute(request);
 
-			String responseStr = EntityUtils.toString(response.getEntity());
+			String responseStr = HttpTransport.readBody(response);
 
 			if (_DEBUG) {
 				System.out.println("Read Request: " + readURL + '\n' + "Read Response: " + responseStr);
@@ -166,6 +167,8 @@ public class GraphiteClient extends DB {
 		} catch (Exception exc) {
 			exc.printStackTrace();
 			return -1;
+		} finally {
+			HttpTransport.release(response);
 		}
 
 		return SUCCESS;
@@ -238,10 +241,11 @@ public class GraphiteClient extends DB {
 			return SUCCESS;
 		}
 
+		CloseableHttpResponse response = null;
 		try {
 
-			HttpResponse response = renderApiClient.execute(request);
-			String responseStr = EntityUtils.toString(response.getEntity());
+			response = transport.execute(request);
+			String responseStr = HttpTransport.readBody(response);
 
 			if (_DEBUG) {
 				System.out.println("Scan Request: " + scanURL + '\n' + "Scan Response: " + responseStr);
@@ -280,6 +284,8 @@ public class GraphiteClient extends DB {
 		} catch (Exception exc) {
 			exc.printStackTrace();
 			return -1;
+		} finally {
+			HttpTransport.release(response);
 		}
 
 		return SUCCESS;
@@ -8,19 +8,16 @@ import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.Client;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.config.RequestConfig;
+import com.yahoo.ycsb.http.HttpTransport;
+import com.yahoo.ycsb.json.JsonPoints;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-
-import org.apache.http.util.EntityUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 import java.io.*;
 import java.net.*;
@@ -76,8 +73,9 @@ public class H5ServClient extends DB {
     private boolean _debug = false;
     private String basedomain = "hdfgroup.org";
     private String domain = METRICNAME_PROPERTY_DEFAULT + "." + basedomain;
-    private CloseableHttpClient client;
-    private int retries = 3;
+    private HttpTransport transport;
+    // rows of read and scan results, counted while streaming
+    private final JsonPoints points = new JsonPoints("value");
     private boolean test = false;
     private int stringlength = 10; // 0 = unlimited. unlimited does not work, see .https://github.com/HDFGroup/h5serv/issues/77
     private String datatypeId = "";
@@ -122,9 +120,8 @@ public class H5ServClient extends DB {
                     System.out.println(element + ": " + getProperties().getProperty(element));
                 }
             }
-            RequestConfig requestConfig = RequestConfig.custom().build();
             if (!test) {
-                client = HttpClientBuilder.create().setDefaultRequestConfig(requestConfig).build();
+                transport = HttpTransport.acquire(getProperties());
             }
         }
         catch (Exception e) {
@@ -307,7 +304,7 @@ public class H5ServClient extends DB {
 
     private JSONObject runQuery(URL url, String queryStr, List<String[]> headers, String queryMethod) {
         JSONObject jsonObj = new JSONObject();
-        HttpResponse response = null;
+        CloseableHttpResponse response = null;
         try {
             HttpEntityEnclosingRequestBase method = null;
             if (queryMethod.equals("") || queryMethod.toLowerCase().equals("post")) {
@@ -319,8 +316,7 @@ public class H5ServClient extends DB {
             else if (queryMethod.toLowerCase().equals("get")) {
                 method = new HttpGetWithEntity(url.toString());
             }
-            StringEntity requestEntity = new StringEntity(queryStr, ContentType.APPLICATION_JSON);
-            method.setEntity(requestEntity);
+            method.setEntity(transport.entity(queryStr, ContentType.APPLICATION_JSON));
             if (!headers.isEmpty()) {
                 for (String[] strArr : headers) {
                     if (strArr.length == 2) {
@@ -332,27 +328,15 @@ public class H5ServClient extends DB {
                 }
             }
             method.addHeader("accept", "application/json");
-            int tries = retries + 1;
-            while (true)
+            try
             {
-                tries--;
-                try
-                {
-                    response = client.execute(method);
-                    break;
-                }
-                catch (IOException e)
-                {
-                    if (tries < 1) {
-                        System.err.print("ERROR: Connection to " + url.toString() + " failed " + retries + "times.");
-                        e.printStackTrace();
-                        if (response != null) {
-                            EntityUtils.consumeQuietly(response.getEntity());
-                        }
-                        method.releaseConnection();
-                        return null;
-                    }
-                }
+                response = transport.execute(method);
+            }
+            catch (IOException e)
+            {
+                System.err.print("ERROR: Connection to " + url.toString() + " failed.");
+                e.printStackTrace();
+                return null;
             }
             if(response.getStatusLine().getStatusCode() == HttpURLConnection.HTTP_OK ||
                     response.getStatusLine().getStatusCode() == HttpURLConnection.HTTP_CREATED ||
@@ -365,18 +349,10 @@ public class H5ServClient extends DB {
                     // Maybe also not HTTP_MOVED_PERM? Can't Test it right now
                     if (response.getEntity().getContentLength() != 0) {
                         // This if is required, as POST Value does not has an response, only 200 as HTTP Code
-                        BufferedReader bis = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-                        StringBuilder builder = new StringBuilder();
-                        String line;
-                        while ((line = bis.readLine()) != null) {
-                            builder.append(line);
-                        }
-                        jsonObj = new JSONObject(builder.toString());
+                        jsonObj = new JSONObject(new JSONTokener(HttpTransport.bodyReader(response)));
                     }
 
                 }
-                EntityUtils.consumeQuietly(response.getEntity());
-                method.releaseConnection();
            }
             else {
                 System.err.println("WARNING: Query returned status code "+response.getStatusLine().getStatusCode()+ " with Error: '" + response.getStatusLine().getReasonPhrase() + "'.");
@@ -385,14 +361,65 @@ public class H5ServClient extends DB {
         } catch (Exception e) {
             System.err.println("ERROR: Errror while trying to query " + url.toString() + " for '" + queryStr + "'.");
             e.printStackTrace();
-            if (response != null) {
-                EntityUtils.consumeQuietly(response.getEntity());
-            }
             return null;
+        } finally {
+            HttpTransport.release(response);
         }
         return jsonObj;
     }
 
+    /**
+     * Like a "get" {@link #runQuery(URL, String, List, String)}, but counts the rows of the "value" of the result in
+     * points instead of building it.
+     */
+    private JsonPoints runQuery(URL url, List<String[]> headers, JsonPoints points) {
+        CloseableHttpResponse response = null;
+        try {
+            HttpGetWithEntity method = new HttpGetWithEntity(url.toString());
+            method.setEntity(transport.entity("", ContentType.APPLICATION_JSON));
+            for (String[] strArr : headers) {
+                if (strArr.length == 2) {
+                    method.addHeader(strArr[0], strArr[1]);
+                }
+                else {
+                    System.err.print("ERROR: Array in header list does not have length 2. Header not set.");
+                }
+            }
+            method.addHeader("accept", "application/json");
+            try
+            {
+                response = transport.execute(method);
+            }
+            catch (IOException e)
+            {
+                System.err.print("ERROR: Connection to " + url.toString() + " failed.");
+                e.printStackTrace();
+                return null;
+            }
+            points.clear();
+            if (response.getStatusLine().getStatusCode() == HttpURLConnection.HTTP_OK ||
+                    response.getStatusLine().getStatusCode() == HttpURLConnection.HTTP_MOVED_PERM) {
+                if (response.getStatusLine().getStatusCode() == HttpURLConnection.HTTP_MOVED_PERM) {
+                    System.err.println("WARNING: Query returned 301, that means 'API call has migrated or should be forwarded to another server'");
+                }
+                if (response.getEntity().getContentLength() != 0) {
+                    points.parse(response.getEntity().getContent());
+                }
+            }
+            else if (response.getStatusLine().getStatusCode() != HttpURLConnection.HTTP_NO_CONTENT) {
+                System.err.println("WARNING: Query returned status code "+response.getStatusLine().getStatusCode()+ " with Error: '" + response.getStatusLine().getReasonPhrase() + "'.");
+                return null;
+            }
+        } catch (Exception e) {
+            System.err.println("ERROR: Errror while trying to query " + url.toString() + ".");
+            e.printStackTrace();
+            return null;
+        } finally {
+            HttpTransport.release(response);
+        }
+        return points;
+    }
+
     /**
      * Cleanup any state for this DB.
      * Called once per DB instance; there is one DB instance per client thread.
@@ -401,7 +428,7 @@ public class H5ServClient extends DB {
     public void cleanup() throws DBException {
         try {
             if (! test) {
-                client.close();
+                transport.release();
             }
         }
         catch (Exception e) {
@@ -481,36 +508,23 @@ public class H5ServClient extends DB {
         if (test) {
             return SUCCESS;
         }
-        JSONObject response = null;
-        response = runQuery(queryURL, "", headers, "get");
+        JsonPoints response = runQuery(queryURL, headers, points.setMatch(timestampLong));
         if (_debug) {
             System.err.println("Respone: " + response);
         }
-        if (response.has("value")) {
-            JSONArray jsonArr = response.getJSONArray("value");
-            if (jsonArr.length() == 0) {
+        if (response == null) {
+            return -1;
+        }
+        reportResult(response.getCount(), response.getBytes());
+        if (response.getSeries() > 0) {
+            if (response.getCount() == 0) {
                 // is allowed!
                 return -1;
             }
-            for (int i = 0; i < jsonArr.length(); i++) {
-                if (jsonArr.isNull(i)) {
-                    System.err.println("ERROR: jsonArr Index " + i + " is null.");
-                }
-                else {
-                    JSONArray jsonArr2 = jsonArr.getJSONArray(0);
-                    if (jsonArr2.length() == 0) {
-                        // is allowed!
-                        System.err.println("ERROR: jsonArr2 has length 0.");
-                    }
-                    if (jsonArr2.isNull(0)) {
-                        System.err.println("ERROR: jsonArr2 Index 0 is null.");
-                    }
-                    if (jsonArr2.getLong(0) == timestampLong) {
-                        counter++;
-                    }
-
-                }
+            if (response.getValueCount() < response.getCount()) {
+                System.err.println("ERROR: " + (response.getCount() - response.getValueCount()) + " rows of 'value' are null or have no value.");
             }
+            counter = (int) response.getMatches();
         }
         else {
             System.err.println("ERROR: Received response without 'value' for '" + queryURL.toString() + "' with headers '" + headers + "'.");
@@ -609,21 +623,21 @@ public class H5ServClient extends DB {
         if (test) {
             return SUCCESS;
         }
-        JSONObject response = null;
-        response = runQuery(queryURL, "", headers, "get");
+        JsonPoints response = runQuery(queryURL, headers, points.setMatch(JsonPoints.NONE));
         if (_debug) {
             System.err.println("Respone: " + response);
         }
-        if (response.has("value")) {
-            JSONArray jsonArr = response.getJSONArray("value");
-            if (jsonArr.length() == 0) {
+        if (response == null) {
+            return -1;
+        }
+        reportResult(response.getCount(), response.getBytes());
+        if (response.getSeries() > 0) {
+            if (response.getCount() == 0) {
                 // is allowed!
                 return -1;
             }
-            for (int i = 0; i < jsonArr.length(); i++) {
-                if (jsonArr.isNull(i) || jsonArr.getJSONArray(0).length() == 0) {
-                    System.err.println("ERROR: jsonArr at Index " + i + " is null or has length null.");
-                }
+            if (response.getValueCount() < response.getCount()) {
+                System.err.println("ERROR: " + (response.getCount() - response.getValueCount()) + " rows of 'value' are null or have no value.");
             }
         }
         else {
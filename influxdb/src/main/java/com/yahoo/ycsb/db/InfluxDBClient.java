@@ -8,6 +8,7 @@ import com.sun.org.apache.xpath.internal.operations.Bool;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.TagFilter;
 
 import org.influxdb.InfluxDB;
 import org.influxdb.InfluxDBFactory;
@@ -101,26 +102,105 @@ public class InfluxDBClient extends DB {
      */
     @Override
     public int read(String metric, Timestamp timestamp, HashMap<String, ArrayList<String>> tags) {
-        if (metric == null || metric == "") {
-            return -1;
-        }
         if (timestamp == null) {
             return -1;
         }
-        String tagFilter = "";
+        return read(metric, timestamp.getTime(), TimeUnit.MILLISECONDS, TagFilter.fromMap(tags));
+    }
+
+    /**
+     * Builds the WHERE clause fragment for the given tags, cached in the filter for later queries.
+     */
+    private String tagFilter(TagFilter tags) {
+        Object cached = tags.getAttachment();
+        if (cached instanceof String) {
+            return (String) cached;
+        }
+        StringBuilder tagFilter = new StringBuilder();
+        for (int i = 0; i < tags.size(); i++) {
+            tagFilter.append(" AND ( ");
+            for (int j = 0; j < tags.getValueCount(i); j++) {
+                if (j > 0) {
+                    tagFilter.append(" OR ");
+                }
+                tagFilter.append(tags.getTagName(i)).append(" = '").append(tags.getValue(i, j)).append('\'');
+            }
+            tagFilter.append(" )");
+        }
+        String result = tagFilter.toString();
+        tags.setAttachment(result);
+        return result;
+    }
+
+    /**
+     * Counts the values at timestampMs in all series of a query result.
+     */
+    static int countValues(QueryResult qr, long timestampMs) {
         int counter = 0;
-        for (String tag : tags.keySet()) {
-            tagFilter += " AND ( ";
-            for (String tagname : tags.get(tag)) {
-                tagFilter += String.format(" OR %s = '%s'",tag,tagname);
+        for (QueryResult.Result result : qr.getResults()) {
+            for (QueryResult.Series series : result.getSeries()) {
+                for (List<Object> obj : series.getValues()){
+                    if (Timestamp.valueOf(((String) obj.get(0)).replace("T", " ").replace("Z","")).getTime() ==
+                            timestampMs) {
+                        counter++;
+                    }
+                }
             }
-            tagFilter = tagFilter.replaceFirst(" OR ","");
-            tagFilter += " )";
         }
+        return counter;
+    }
+
+    /**
+     * Counts the values in all series of a query result.
+     */
+    static long countPoints(QueryResult qr) {
+        long points = 0;
+        for (QueryResult.Result result : qr.getResults()) {
+            if (result.getSeries() == null) {
+                continue;
+            }
+            for (QueryResult.Series series : result.getSeries()) {
+                if (series.getValues() != null) {
+                    points += series.getValues().size();
+                }
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Builds the point that inserts value at timestampMs, the tags are written as fields.
+     */
+    Point point(String metric, long timestampMs, double value, Map<String, ByteIterator> tags) {
+        Point.Builder pb = Point.measurement(metric)
+                .time(timestampMs, TimeUnit.MILLISECONDS);
+        for (Map.Entry<String, ByteIterator> entry : tags.entrySet()) {
+            pb = pb.field(entry.getKey(), entry.getValue().toString());
+        }
+        pb = pb.field(this.valueFieldName, value);
+        return pb.build();
+    }
+
+    /**
+     * Read a record from the database, with the timestamp given in the given precision.
+     *
+     * @param metric    The name of the metric
+     * @param timestamp The timestamp of the record to read.
+     * @param precision The unit of timestamp
+     * @param tags     actual tags that were want to receive (can be empty)
+     * @return Zero on success, a non-zero error code on error or "not found".
+     */
+    @Override
+    public int read(String metric, long timestamp, TimeUnit precision, TagFilter tags) {
+        if (metric == null || metric == "") {
+            return -1;
+        }
+        long timestampMs = precision.toMillis(timestamp);
         // InfluxDB can not use milliseconds or nanoseconds, it uses microseconds or seconds (or greater).
         // See https://docs.influxdata.com/influxdb/v0.8/api/query_language/.
-        // u stands for microseconds. Since getNanos() seems unfair because no other TSDB uses it, we just add three zeros
-        Query query = new Query(String.format("SELECT * FROM %s WHERE time = %s000u%s",metric,timestamp.getTime(),tagFilter), dbName);
+        // u stands for microseconds.
+        Query query = new Query("SELECT * FROM " + metric + " WHERE time = " + precision.toMicros(timestamp) + "u"
+                + tagFilter(tags), dbName);
         if (_debug) {
             System.out.println("Query: " + query.getCommand());
         }
@@ -136,24 +216,14 @@ public class InfluxDBClient extends DB {
             // allowed to happen!
             return -1;
         }
-        for (QueryResult.Result result : qr.getResults()) {
-            for (QueryResult.Series series : result.getSeries()) {
-                for (List<Object> obj : series.getValues()){
-                    if (Timestamp.valueOf(((String) obj.get(0)).replace("T", " ").replace("Z","")).getTime() ==
-                            timestamp.getTime()) {
-                        counter++;
-                    }
-                }
-            }
-
-        }
-
+        reportResult(countPoints(qr), -1);
+        int counter = countValues(qr, timestampMs);
         if (counter == 0){
-            System.err.println("ERROR: Found no values for metric: " + metric + " for timestamp: " + timestamp + ".");
+            System.err.println("ERROR: Found no values for metric: " + metric + " for timestamp: " + new Timestamp(timestampMs) + ".");
             return -1;
         }
         else if (counter > 1){
-            System.err.println("ERROR: Found more than one value for metric: " + metric + " for timestamp: " + timestamp + ".");
+            System.err.println("ERROR: Found more than one value for metric: " + metric + " for timestamp: " + new Timestamp(timestampMs) + ".");
         }
         return SUCCESS;
     }
@@ -175,22 +245,33 @@ public class InfluxDBClient extends DB {
     @Override
     public int scan(String metric, Timestamp startTs, Timestamp endTs, HashMap<String,
             ArrayList<String>> tags, boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit ) {
-
-        if (metric == null || metric == "") {
-            return -1;
-        }
         if (startTs == null || endTs == null) {
             return -1;
         }
-        String tagFilter = "";
-        for (String tag : tags.keySet()) {
-            tagFilter += " AND ( ";
-            String tempTagFilter = ""; // for OR Clauses
-            for (String tagname : tags.get(tag)) {
-                tempTagFilter += String.format(" OR %s = '%s'",tag,tagname);
-            }
-            tagFilter += tempTagFilter.replaceFirst(" OR ","");
-            tagFilter += " )";
+        return scan(metric, startTs.getTime(), endTs.getTime(), TimeUnit.MILLISECONDS, TagFilter.fromMap(tags),
+                avg, count, sum, timeValue, timeUnit);
+    }
+
+    /**
+     * Perform a range scan, with start and end given in the given precision.
+     *
+     * @param metric  The name of the metric
+     * @param startTs The timestamp of the first record to read.
+     * @param endTs   The timestamp of the last record to read.
+     * @param precision The unit of startTs and endTs
+     * @param tags     actual tags that were want to receive (can be empty)
+     * @param avg    do averageing
+     * @param sum    do summarize
+     * @param count  do count
+     * @param timeValue  value for timeUnit for sum/count/avg
+     * @param timeUnit  timeUnit for sum/count/avg
+     * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
+     */
+    @Override
+    public int scan(String metric, long startTs, long endTs, TimeUnit precision, TagFilter tags,
+                    boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+        if (metric == null || metric == "") {
+            return -1;
         }
         String fieldStr = "*";
         if (avg) {
@@ -231,9 +312,9 @@ public class InfluxDBClient extends DB {
         }
         // InfluxDB can not use milliseconds or nanoseconds, it uses microseconds or seconds (or greater).
         // See https://docs.influxdata.com/influxdb/v0.8/api/query_language/.
-        // u stands for microseconds. Since getNanos() seems unfair because no other TSDB uses it, we just add three zeros
-        Query query = new Query(String.format("SELECT %s FROM %s WHERE time >= %s000u AND time <= %s000u%s%s",fieldStr,
-                metric,startTs.getTime(),endTs.getTime(),tagFilter,groupByStr), dbName);
+        // u stands for microseconds.
+        Query query = new Query("SELECT " + fieldStr + " FROM " + metric + " WHERE time >= " + precision.toMicros(startTs)
+                + "u AND time <= " + precision.toMicros(endTs) + "u" + tagFilter(tags) + groupByStr, dbName);
         if (_debug) {
             System.out.println("Query: " + query.getCommand());
         }
@@ -249,6 +330,7 @@ public class InfluxDBClient extends DB {
             // allowed to happen!
             return -1;
         }
+        reportResult(countPoints(qr), -1);
         Boolean found = false;
         for (QueryResult.Result result : qr.getResults()) {
             if ( result.getSeries() == null) {
@@ -296,17 +378,12 @@ public class InfluxDBClient extends DB {
         }
 
         try {
-            Point.Builder pb = Point.measurement(metric)
-                    .time(timestamp.getTime(), TimeUnit.MILLISECONDS);
-            for ( Map.Entry entry : tags.entrySet()) {
-                pb = pb.field(entry.getKey().toString(), entry.getValue().toString());
-            }
-            pb = pb.field(this.valueFieldName, value);
+            Point point = point(metric, timestamp.getTime(), value, tags);
             if (test) {
                 return SUCCESS;
             }
             // "default" = retentionPolicy
-            this.client.write(this.dbName, "default", pb.build());
+            this.client.write(this.dbName, "default", point);
             return SUCCESS;
 
         } catch (Exception e) {
@@ -342,8 +342,10 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
             ResultSet resultSet = readStatement.executeQuery();
             if (!resultSet.next()) {
                 resultSet.close();
+                reportResult(0, -1);
                 return -1;
             }
+            reportResult(countRows(resultSet), -1);
 //            if (values != null) {
 //                double value = resultSet.getDouble("VALUE");
 //                values.put(timestamp, value);
@@ -357,6 +359,19 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
         }
     }
 
+    /**
+     * Reads the rest of a result set that is on its first row.
+     *
+     * @return the number of rows
+     */
+    private static long countRows(ResultSet resultSet) throws SQLException {
+        long rows = 1;
+        while (resultSet.next()) {
+            rows++;
+        }
+        return rows;
+    }
+
     /**
      * Perform a range scan for a set of records in the database. Each value from the result will be stored in a HashMap.
      *
@@ -401,8 +416,10 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
             ResultSet resultSet = scanStatement.executeQuery();
             if (!resultSet.next()) {
                 resultSet.close();
+                reportResult(0, -1);
                 return -1;
             }
+            reportResult(countRows(resultSet), -1);
 //            while (resultSet.next()) {
 //                if (values != null) {
 //                    try {
@@ -129,6 +129,7 @@ public class KairosDBClient extends DB {
             if (response.getStatusCode() != 200) {
                 return -1;
             }
+            reportResult(countPoints(response), -1);
             if (response.getQueries().size() == 0) {
                 System.err.println("ERROR: Found no querie for metric: " + metric + " for timestamp: " + timestamp + " to read.");
                 return -1;
@@ -271,6 +272,7 @@ public class KairosDBClient extends DB {
             if (response.getStatusCode() != 200) {
                 return -1;
             }
+            reportResult(countPoints(response), -1);
             if (response.getQueries().size() == 0) {
 //                System.err.println("ERROR: Found no querie for metric: " + metric + " for timestamprange: " + startTs + "->" + endTs + " to scan.");
                 return -1;
@@ -320,6 +322,19 @@ public class KairosDBClient extends DB {
         return SUCCESS;
     }
 
+    /**
+     * @return the number of data points in all results of response
+     */
+    private static long countPoints(QueryResponse response) {
+        long points = 0;
+        for (Queries query : response.getQueries()) {
+            for (Results result : query.getResults()) {
+                points += result.getDataPoints().size();
+            }
+        }
+        return points;
+    }
+
     /**
      * Insert a record in the database. Any tags/tagvalue pairs in the specified tags HashMap and the given value
      * will be written into the record with the specified timestamp
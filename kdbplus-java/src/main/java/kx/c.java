@@ -29,8 +29,8 @@ public class c {
 	}
 
 	public Socket s;
-	DataInputStream i;
-	OutputStream o;
+	protected DataInputStream i;
+	protected OutputStream o;
 	byte[] b, B;
 	int j, J, vt;
 	boolean a, l, zip;
@@ -39,7 +39,7 @@ public class c {
 		zip = b;
 	}
 
-	void io(Socket x) throws IOException {
+	protected void io(Socket x) throws IOException {
 		s = x;
 		{
 			InetAddress a = s.getInetAddress();
@@ -1,6 +1,8 @@
 package com.yahoo.ycsb.db;
 
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.net.Socket;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -10,6 +12,7 @@ import java.util.concurrent.TimeUnit;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.measurements.WireCounter;
 import kx.c;
 import kx.c.KException;
 
@@ -32,6 +35,24 @@ public class KdbPlusClient extends DB {
 
 	private c kdbPlus;
 
+	/**
+	 * Connection whose bytes are counted by {@link WireCounter}.
+	 */
+	private static class CountingConnection extends c {
+
+		CountingConnection(String host, int port) throws KException, IOException {
+			super(host, port);
+		}
+
+		@Override
+		protected void io(Socket x) throws IOException {
+			super.io(x);
+			i = new DataInputStream(WireCounter.count(x.getInputStream()));
+			o = WireCounter.count(x.getOutputStream());
+		}
+
+	}
+
 	@Override
 	public void init() throws DBException {
 
@@ -57,7 +78,7 @@ public class KdbPlusClient extends DB {
 		if (!test) {
 			try {
 				// establishes connection to kdb+
-				this.kdbPlus = new c(ip, port);
+				this.kdbPlus = new CountingConnection(ip, port);
 			} catch (KException | IOException e) {
 				throw new DBException(e);
 
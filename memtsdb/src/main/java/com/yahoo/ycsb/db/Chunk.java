@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+/**
+ * An immutable block of compressed points of one series, written by {@link ChunkWriter}.
+ * <p/>
+ * The encoding is the one of Facebook's Gorilla: the first point is stored raw, after that timestamps as
+ * delta-of-delta with a variable length prefix and values XOR'ed with the previous value, storing only the
+ * meaningful bits. Points are in insertion order, which need not be time order; minTs and maxTs bound them.
+ */
+final class Chunk {
+    final long[] words;
+    final int bits;
+    final int count;
+    final long minTs;
+    final long maxTs;
+
+    Chunk(long[] words, int bits, int count, long minTs, long maxTs) {
+        this.words = words;
+        this.bits = bits;
+        this.count = count;
+        this.minTs = minTs;
+        this.maxTs = maxTs;
+    }
+
+    /**
+     * @return whether some point of this chunk may lie between startTs and endTs (inclusive)
+     */
+    boolean overlaps(long startTs, long endTs) {
+        return count > 0 && minTs <= endTs && maxTs >= startTs;
+    }
+
+    long sizeInBytes() {
+        return (bits + 7) / 8;
+    }
+
+    Cursor cursor() {
+        return new Cursor(this);
+    }
+
+    /**
+     * Decodes the points of a chunk one by one: while next() returns true, ts and value are the current point.
+     */
+    static final class Cursor {
+        private final long[] words;
+        private final int count;
+        private int pos = 0;
+        private int i = 0;
+        private long prevDelta = 0;
+        private long prevValue = 0;
+        private int leading = 0;
+        private int trailing = 0;
+
+        long ts;
+        double value;
+
+        Cursor(Chunk chunk) {
+            this.words = chunk.words;
+            this.count = chunk.count;
+        }
+
+        boolean next() {
+            if (i == count) {
+                return false;
+            }
+            if (i == 0) {
+                ts = read(64);
+                prevValue = read(64);
+            }
+            else {
+                long dod;
+                if (read(1) == 0) {
+                    dod = 0;
+                }
+                else if (read(1) == 0) {
+                    dod = signExtend(read(7), 7);
+                }
+                else if (read(1) == 0) {
+                    dod = signExtend(read(9), 9);
+                }
+                else if (read(1) == 0) {
+                    dod = signExtend(read(12), 12);
+                }
+                else {
+                    dod = read(64);
+                }
+                prevDelta += dod;
+                ts += prevDelta;
+                if (read(1) == 1) {
+                    if (read(1) == 1) {
+                        leading = (int) read(5);
+                        trailing = 64 - leading - ((int) read(6) + 1);
+                    }
+                    prevValue ^= read(64 - leading - trailing) << trailing;
+                }
+            }
+            value = Double.longBitsToDouble(prevValue);
+            i++;
+            return true;
+        }
+
+        private long read(int n) {
+            int idx = pos >>> 6;
+            int free = 64 - (pos & 63);
+            long result;
+            if (n <= free) {
+                result = words[idx] >>> (free - n);
+            }
+            else {
+                result = (words[idx] << (n - free)) | (words[idx + 1] >>> (64 - (n - free)));
+            }
+            pos += n;
+            return n == 64 ? result : result & ((1L << n) - 1);
+        }
+
+        private static long signExtend(long value, int n) {
+            return (value << (64 - n)) >> (64 - n);
+        }
+    }
+}
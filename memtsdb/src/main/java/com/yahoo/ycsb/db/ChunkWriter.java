@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import java.util.Arrays;
+
+/**
+ * Appends points to a growing bit stream in the encoding described at {@link Chunk}.
+ * <p/>
+ * Appending only sets bits behind the current end, so a {@link #snapshot()} stays valid (and can be decoded
+ * without the lock of the writer) while more points are appended.
+ */
+final class ChunkWriter {
+    private long[] words = new long[16];
+    private int bits = 0;
+    private int count = 0;
+    private long prevTs;
+    private long prevDelta = 0;
+    private long prevValue;
+    private int prevLeading = -1;
+    private int prevTrailing = 0;
+    private long minTs = Long.MAX_VALUE;
+    private long maxTs = Long.MIN_VALUE;
+
+    int count() {
+        return count;
+    }
+
+    void append(long ts, double value) {
+        long valueBits = Double.doubleToRawLongBits(value);
+        if (count == 0) {
+            write(ts, 64);
+            write(valueBits, 64);
+        }
+        else {
+            long delta = ts - prevTs;
+            writeDeltaOfDelta(delta - prevDelta);
+            prevDelta = delta;
+            writeValue(valueBits ^ prevValue);
+        }
+        prevTs = ts;
+        prevValue = valueBits;
+        minTs = Math.min(minTs, ts);
+        maxTs = Math.max(maxTs, ts);
+        count++;
+    }
+
+    private void writeDeltaOfDelta(long dod) {
+        if (dod == 0) {
+            write(0, 1);
+        }
+        else if (dod >= -64 && dod <= 63) {
+            write(0x2, 2);
+            write(dod, 7);
+        }
+        else if (dod >= -256 && dod <= 255) {
+            write(0x6, 3);
+            write(dod, 9);
+        }
+        else if (dod >= -2048 && dod <= 2047) {
+            write(0xE, 4);
+            write(dod, 12);
+        }
+        else {
+            write(0xF, 4);
+            write(dod, 64);
+        }
+    }
+
+    private void writeValue(long xor) {
+        if (xor == 0) {
+            write(0, 1);
+            return;
+        }
+        int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (prevLeading >= 0 && leading >= prevLeading && trailing >= prevTrailing) {
+            // the meaningful bits fit into the window of the previous value
+            write(0x2, 2);
+            write(xor >>> prevTrailing, 64 - prevLeading - prevTrailing);
+        }
+        else {
+            int significant = 64 - leading - trailing;
+            write(0x3, 2);
+            write(leading, 5);
+            write(significant - 1, 6);
+            write(xor >>> trailing, significant);
+            prevLeading = leading;
+            prevTrailing = trailing;
+        }
+    }
+
+    private void write(long value, int n) {
+        if (n < 64) {
+            value &= (1L << n) - 1;
+        }
+        int idx = bits >>> 6;
+        if (idx + 1 >= words.length) {
+            words = Arrays.copyOf(words, words.length * 2);
+        }
+        int free = 64 - (bits & 63);
+        if (n <= free) {
+            words[idx] |= value << (free - n);
+        }
+        else {
+            words[idx] |= value >>> (n - free);
+            words[idx + 1] |= value << (64 - (n - free));
+        }
+        bits += n;
+    }
+
+    /**
+     * @return the points appended so far; must be called with the same lock that guards append
+     */
+    Chunk snapshot() {
+        return new Chunk(words, bits, count, minTs, maxTs);
+    }
+
+    /**
+     * @return the finished chunk, trimmed to its size; the writer must not be used afterwards
+     */
+    Chunk seal() {
+        return new Chunk(Arrays.copyOf(words, (bits + 63) >>> 6), bits, count, minTs, maxTs);
+    }
+}
@@ -0,0 +1,436 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import com.yahoo.ycsb.TagFilter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The store of {@link MemTSDBClient}: compressed series of points with millisecond timestamps, found by an
+ * inverted index from metric and tag value to series.
+ * <p/>
+ * A series is identified by its key, the metric followed by the tag names and values sorted by name (see
+ * {@link #seriesKey}). Looking up an existing series is a single ConcurrentHashMap lookup, new series are added to
+ * the index of their metric under the lock of that index; the posting lists are copied on write, so queries never
+ * lock the index.
+ */
+final class MemTSDB {
+    private static final int SNAPSHOT_MAGIC = 0x4D545344;
+    private static final Series[] NO_SERIES = new Series[0];
+
+    /**
+     * Aggregations with more buckets than this keep them in a sorted map instead of arrays.
+     */
+    static final int MAX_DENSE_BUCKETS = 1 << 16;
+
+    /**
+     * All series of one metric and its posting lists, tag name to tag value to series.
+     */
+    private static final class MetricIndex {
+        private volatile Series[] all = NO_SERIES;
+        private final ConcurrentHashMap<String, ConcurrentHashMap<String, Series[]>> postings =
+                new ConcurrentHashMap<String, ConcurrentHashMap<String, Series[]>>();
+
+        synchronized void add(Series series) {
+            all = append(all, series);
+            for (int i = 0; i < series.tagNames.length; i++) {
+                ConcurrentHashMap<String, Series[]> byValue = postings.get(series.tagNames[i]);
+                if (byValue == null) {
+                    byValue = new ConcurrentHashMap<String, Series[]>();
+                    postings.put(series.tagNames[i], byValue);
+                }
+                Series[] list = byValue.get(series.tagValues[i]);
+                byValue.put(series.tagValues[i], list == null ? new Series[]{series} : append(list, series));
+            }
+        }
+
+        private static Series[] append(Series[] list, Series series) {
+            Series[] result = Arrays.copyOf(list, list.length + 1);
+            result[list.length] = series;
+            return result;
+        }
+    }
+
+    /**
+     * Count and sum of the points of a scan, per bucket of bucketWidth milliseconds from start; a bucketWidth of 0
+     * puts all points into one bucket.
+     */
+    static final class Aggregation {
+        private final long start;
+        private final long bucketWidth;
+        private long points = 0;
+        private long[] counts;
+        private double[] sums;
+        private TreeMap<Long, double[]> sparse;
+
+        Aggregation(long start, long end, long bucketWidth) {
+            this.start = start;
+            this.bucketWidth = bucketWidth;
+            // an empty range (end before start) has no buckets
+            long buckets = end < start ? 0 : bucketWidth > 0 ? (end - start) / bucketWidth + 1 : 1;
+            if (buckets <= MAX_DENSE_BUCKETS) {
+                counts = new long[(int) buckets];
+                sums = new double[(int) buckets];
+            }
+            else {
+                sparse = new TreeMap<Long, double[]>();
+            }
+        }
+
+        void add(long ts, double value) {
+            points++;
+            long bucket = bucketWidth > 0 ? (ts - start) / bucketWidth : 0;
+            if (sparse == null) {
+                counts[(int) bucket]++;
+                sums[(int) bucket] += value;
+            }
+            else {
+                double[] countAndSum = sparse.get(bucket);
+                if (countAndSum == null) {
+                    countAndSum = new double[2];
+                    sparse.put(bucket, countAndSum);
+                }
+                countAndSum[0]++;
+                countAndSum[1] += value;
+            }
+        }
+
+        long getPoints() {
+            return points;
+        }
+
+        /**
+         * @return the start of every non-empty bucket followed by its average, count or sum (the first one that is
+         * requested, in this order) or its sum if none is requested
+         */
+        double[] result(boolean avg, boolean count) {
+            ArrayList<double[]> buckets = new ArrayList<double[]>();
+            if (sparse == null) {
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] > 0) {
+                        buckets.add(new double[]{i, counts[i], sums[i]});
+                    }
+                }
+            }
+            else {
+                for (Map.Entry<Long, double[]> bucket : sparse.entrySet()) {
+                    buckets.add(new double[]{bucket.getKey(), bucket.getValue()[0], bucket.getValue()[1]});
+                }
+            }
+            double[] result = new double[buckets.size() * 2];
+            for (int i = 0; i < buckets.size(); i++) {
+                double[] bucket = buckets.get(i);
+                result[2 * i] = start + bucket[0] * bucketWidth;
+                result[2 * i + 1] = avg ? bucket[2] / bucket[1] : count ? bucket[1] : bucket[2];
+            }
+            return result;
+        }
+    }
+
+    private final int chunkSize;
+    private final ConcurrentHashMap<String, Series> series = new ConcurrentHashMap<String, Series>();
+    private final ConcurrentHashMap<String, MetricIndex> metrics = new ConcurrentHashMap<String, MetricIndex>();
+
+    MemTSDB(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Builds the key of a series into key.
+     *
+     * @param names  the tag names, sorted
+     * @param values the tag values in the order of names
+     * @param n      the number of tags
+     */
+    static void seriesKey(StringBuilder key, String metric, String[] names, String[] values, int n) {
+        key.setLength(0);
+        key.append(metric);
+        for (int i = 0; i < n; i++) {
+            key.append('\0').append(names[i]).append('=').append(values[i]);
+        }
+    }
+
+    /**
+     * Sorts the first n names and their values by name. Insertion sort, as there are only a few tags per point.
+     */
+    static void sortTags(String[] names, String[] values, int n) {
+        for (int i = 1; i < n; i++) {
+            String name = names[i];
+            String value = values[i];
+            int j = i - 1;
+            while (j >= 0 && names[j].compareTo(name) > 0) {
+                names[j + 1] = names[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            names[j + 1] = name;
+            values[j + 1] = value;
+        }
+    }
+
+    /**
+     * @return the series with the given key, created from metric and the first n (sorted) tags if there is none
+     */
+    Series getOrCreateSeries(String key, String metric, String[] names, String[] values, int n) {
+        Series existing = series.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        Series created = new Series(metric, Arrays.copyOf(names, n), Arrays.copyOf(values, n), chunkSize);
+        existing = series.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+        MetricIndex index = metrics.get(metric);
+        if (index == null) {
+            MetricIndex newIndex = new MetricIndex();
+            index = metrics.putIfAbsent(metric, newIndex);
+            if (index == null) {
+                index = newIndex;
+            }
+        }
+        index.add(created);
+        return created;
+    }
+
+    /**
+     * @return all series of metric that have, for every tag of the filter, one of its values
+     */
+    Series[] find(String metric, TagFilter filter) {
+        MetricIndex index = metrics.get(metric);
+        if (index == null) {
+            return NO_SERIES;
+        }
+        if (filter.isEmpty()) {
+            return index.all;
+        }
+        // start with the tag that matches the fewest series and check the other tags on the series themselves
+        int best = -1;
+        int bestSize = Integer.MAX_VALUE;
+        for (int i = 0; i < filter.size(); i++) {
+            ConcurrentHashMap<String, Series[]> byValue = index.postings.get(filter.getTagName(i));
+            if (byValue == null) {
+                return NO_SERIES;
+            }
+            int size = 0;
+            for (int j = 0; j < filter.getValueCount(i); j++) {
+                Series[] list = byValue.get(filter.getValue(i, j));
+                size += list == null ? 0 : list.length;
+            }
+            if (size < bestSize) {
+                best = i;
+                bestSize = size;
+            }
+        }
+        if (bestSize == 0) {
+            return NO_SERIES;
+        }
+        ConcurrentHashMap<String, Series[]> byValue = index.postings.get(filter.getTagName(best));
+        ArrayList<Series> found = new ArrayList<Series>(bestSize);
+        for (int j = 0; j < filter.getValueCount(best); j++) {
+            if (contains(filter, best, j, filter.getValue(best, j))) {
+                continue; // duplicate value in the filter
+            }
+            Series[] list = byValue.get(filter.getValue(best, j));
+            if (list != null) {
+                for (Series candidate : list) {
+                    if (matches(candidate, filter, best)) {
+                        found.add(candidate);
+                    }
+                }
+            }
+        }
+        return found.toArray(new Series[found.size()]);
+    }
+
+    /**
+     * @return whether one of the first n values of tag i of the filter equals value
+     */
+    private static boolean contains(TagFilter filter, int i, int n, String value) {
+        for (int j = 0; j < n; j++) {
+            if (filter.getValue(i, j).equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(Series candidate, TagFilter filter, int skip) {
+        for (int i = 0; i < filter.size(); i++) {
+            if (i == skip) {
+                continue;
+            }
+            String value = candidate.getTagValue(filter.getTagName(i));
+            if (value == null || !contains(filter, i, filter.getValueCount(i), value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of points of the matching series at timestamp ts
+     */
+    int read(String metric, long ts, TagFilter filter) {
+        int found = 0;
+        for (Series s : find(metric, filter)) {
+            if (!s.overlaps(ts, ts)) {
+                continue;
+            }
+            for (Chunk chunk : s.chunks()) {
+                if (chunk.overlaps(ts, ts)) {
+                    Chunk.Cursor cursor = chunk.cursor();
+                    while (cursor.next()) {
+                        if (cursor.ts == ts) {
+                            found++;
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Aggregates the points of the matching series between start and end (inclusive).
+     */
+    Aggregation scan(String metric, long start, long end, TagFilter filter, long bucketWidth) {
+        Aggregation aggregation = new Aggregation(start, end, bucketWidth);
+        for (Series s : find(metric, filter)) {
+            if (!s.overlaps(start, end)) {
+                continue;
+            }
+            for (Chunk chunk : s.chunks()) {
+                if (chunk.overlaps(start, end)) {
+                    Chunk.Cursor cursor = chunk.cursor();
+                    while (cursor.next()) {
+                        if (cursor.ts >= start && cursor.ts <= end) {
+                            aggregation.add(cursor.ts, cursor.value);
+                        }
+                    }
+                }
+            }
+        }
+        return aggregation;
+    }
+
+    /**
+     * @return the number of series, points, chunks and compressed bytes
+     */
+    long[] stats() {
+        long[] stats = new long[4];
+        for (Series s : series.values()) {
+            stats[0]++;
+            for (Chunk chunk : s.chunks()) {
+                stats[1] += chunk.count;
+                stats[2]++;
+                stats[3] += chunk.sizeInBytes();
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Seals all open chunks and writes all series to file. Must not run concurrently to inserts.
+     */
+    void save(File file) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(series.size());
+            for (Series s : series.values()) {
+                s.seal();
+                out.writeUTF(s.metric);
+                out.writeInt(s.tagNames.length);
+                for (int i = 0; i < s.tagNames.length; i++) {
+                    out.writeUTF(s.tagNames[i]);
+                    out.writeUTF(s.tagValues[i]);
+                }
+                Chunk[] chunks = s.chunks();
+                out.writeInt(chunks.length);
+                for (Chunk chunk : chunks) {
+                    out.writeInt(chunk.count);
+                    out.writeLong(chunk.minTs);
+                    out.writeLong(chunk.maxTs);
+                    out.writeInt(chunk.bits);
+                    out.writeInt(chunk.words.length);
+                    for (long word : chunk.words) {
+                        out.writeLong(word);
+                    }
+                }
+            }
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Adds all series of a file written by {@link #save}.
+     */
+    void load(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException(file + " is not a snapshot of " + MemTSDBClient.class.getSimpleName() + ".");
+            }
+            int seriesCount = in.readInt();
+            StringBuilder key = new StringBuilder();
+            for (int s = 0; s < seriesCount; s++) {
+                String metric = in.readUTF();
+                int n = in.readInt();
+                String[] names = new String[n];
+                String[] values = new String[n];
+                for (int i = 0; i < n; i++) {
+                    names[i] = in.readUTF();
+                    values[i] = in.readUTF();
+                }
+                seriesKey(key, metric, names, values, n);
+                Series loaded = getOrCreateSeries(key.toString(), metric, names, values, n);
+                int chunks = in.readInt();
+                for (int c = 0; c < chunks; c++) {
+                    int count = in.readInt();
+                    long minTs = in.readLong();
+                    long maxTs = in.readLong();
+                    int bits = in.readInt();
+                    long[] words = new long[in.readInt()];
+                    for (int w = 0; w < words.length; w++) {
+                        words[w] = in.readLong();
+                    }
+                    loaded.addSealed(new Chunk(words, bits, count, minTs, maxTs));
+                }
+            }
+        }
+        finally {
+            in.close();
+        }
+    }
+}
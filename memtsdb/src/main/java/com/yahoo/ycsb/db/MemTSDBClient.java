@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.DataPoint;
+import com.yahoo.ycsb.TagFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-process time series database, to run and validate workloads end-to-end without a database server and to
+ * get a reference throughput of the client itself.
+ * <p/>
+ * All client threads share one store: every series (metric and combination of tag values) keeps its points in
+ * chunks compressed like Facebook's Gorilla (delta-of-delta timestamps, XOR'ed values), series are found by an
+ * inverted tag index. Timestamps are stored in millisecond precision. Scans with avg, count or sum aggregate into
+ * buckets of timeValue timeUnit from startTs (all points into one bucket if timeValue is 0, its value is reported
+ * as aggregate), reads and scans that find no points return -1.
+ * <p/>
+ * The data only lives as long as the process, unless memtsdb.file is set: then the store is loaded from this file
+ * when the first client is initialized and written to it when the last one is cleaned up, so a load and a
+ * transaction phase can run in separate processes.
+ * <p/>
+ * Properties:
+ * <ul>
+ * <li>memtsdb.chunksize: points per compressed chunk (default 120)</li>
+ * <li>memtsdb.file: snapshot file to load and save the store (default none)</li>
+ * </ul>
+ */
+public class MemTSDBClient extends DB {
+    public static final String CHUNK_SIZE_PROPERTY = "memtsdb.chunksize";
+    public static final String CHUNK_SIZE_PROPERTY_DEFAULT = "120";
+    public static final String FILE_PROPERTY = "memtsdb.file";
+
+    private static final int SUCCESS = 0;
+    private static final int NOT_FOUND = -1;
+
+    private static MemTSDB store = null;
+    private static File file = null;
+    private static int clients = 0;
+
+    private MemTSDB db;
+    private final StringBuilder key = new StringBuilder();
+    private String[] names = new String[8];
+    private String[] values = new String[8];
+
+    @Override
+    public void init() throws DBException {
+        synchronized (MemTSDBClient.class) {
+            if (store == null) {
+                int chunkSize = Integer.parseInt(getProperties().getProperty(CHUNK_SIZE_PROPERTY,
+                        CHUNK_SIZE_PROPERTY_DEFAULT));
+                if (chunkSize < 1) {
+                    throw new DBException(CHUNK_SIZE_PROPERTY + " must be positive.");
+                }
+                store = new MemTSDB(chunkSize);
+                String fileName = getProperties().getProperty(FILE_PROPERTY);
+                file = fileName == null ? null : new File(fileName);
+                if (file != null && file.exists()) {
+                    try {
+                        store.load(file);
+                    }
+                    catch (IOException e) {
+                        store = null;
+                        throw new DBException("Can't load " + file.getAbsolutePath() + ": " + e);
+                    }
+                }
+            }
+            db = store;
+            clients++;
+        }
+    }
+
+    @Override
+    public void cleanup() throws DBException {
+        synchronized (MemTSDBClient.class) {
+            if (db == null) {
+                return;
+            }
+            db = null;
+            if (--clients > 0) {
+                return;
+            }
+            try {
+                if (file != null) {
+                    store.save(file);
+                }
+                long[] stats = store.stats();
+                System.err.println("MemTSDB: " + stats[0] + " series, " + stats[1] + " points in " + stats[2]
+                        + " chunks, " + stats[3] + " bytes" + (stats[1] > 0 ? String.format(" (%.2f bytes per point)",
+                        (double) stats[3] / stats[1]) : "") + ".");
+            }
+            catch (IOException e) {
+                throw new DBException("Can't save " + file.getAbsolutePath() + ": " + e);
+            }
+            finally {
+                store = null;
+            }
+        }
+    }
+
+    private void ensureTagCapacity(int n) {
+        if (names.length < n) {
+            names = new String[n];
+            values = new String[n];
+        }
+    }
+
+    private int insert(String metric, long timestamp, double value, int tagCount) {
+        MemTSDB.sortTags(names, values, tagCount);
+        MemTSDB.seriesKey(key, metric, names, values, tagCount);
+        db.getOrCreateSeries(key.toString(), metric, names, values, tagCount).append(timestamp, value);
+        return SUCCESS;
+    }
+
+    @Override
+    public int insert(DataPoint point) {
+        int n = point.getTagCount();
+        ensureTagCapacity(n);
+        for (int i = 0; i < n; i++) {
+            names[i] = point.getTagName(i);
+            values[i] = point.getTagValue(i);
+        }
+        return insert(point.getMetric(), point.getTimestamp(), point.getValue(), n);
+    }
+
+    @Override
+    public int insert(String metric, Timestamp timestamp, double value, HashMap<String, ByteIterator> tags) {
+        ensureTagCapacity(tags.size());
+        int n = 0;
+        for (Map.Entry<String, ByteIterator> tag : tags.entrySet()) {
+            names[n] = tag.getKey();
+            values[n] = tag.getValue().toString();
+            n++;
+        }
+        return insert(metric, timestamp.getTime(), value, n);
+    }
+
+    @Override
+    public int read(String metric, long timestamp, TimeUnit precision, TagFilter tags) {
+        int found = db.read(metric, precision.toMillis(timestamp), tags);
+        reportResult(found, -1);
+        return found > 0 ? SUCCESS : NOT_FOUND;
+    }
+
+    @Override
+    public int read(String metric, Timestamp timestamp, HashMap<String, ArrayList<String>> tags) {
+        return read(metric, timestamp.getTime(), TimeUnit.MILLISECONDS, TagFilter.fromMap(tags));
+    }
+
+    @Override
+    public int scan(String metric, long startTs, long endTs, TimeUnit precision, TagFilter tags,
+                    boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+        boolean aggregate = avg || count || sum;
+        long bucketWidth = aggregate && timeValue > 0 ? timeUnit.toMillis(timeValue) : 0;
+        MemTSDB.Aggregation aggregation = db.scan(metric, precision.toMillis(startTs), precision.toMillis(endTs),
+                tags, bucketWidth);
+        if (aggregation.getPoints() == 0) {
+            reportResult(0, -1);
+            return NOT_FOUND;
+        }
+        if (aggregate) {
+            // one point per non-empty bucket
+            double[] result = aggregation.result(avg, count);
+            reportResult(result.length / 2, -1);
+            if (result.length == 2) {
+                reportAggregate(result[1]);
+            }
+        }
+        else {
+            reportResult(aggregation.getPoints(), -1);
+        }
+        return SUCCESS;
+    }
+
+    @Override
+    public int scan(String metric, Timestamp startTs, Timestamp endTs, HashMap<String, ArrayList<String>> tags,
+                    boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+        return scan(metric, startTs.getTime(), endTs.getTime(), TimeUnit.MILLISECONDS, TagFilter.fromMap(tags),
+                avg, count, sum, timeValue, timeUnit);
+    }
+}
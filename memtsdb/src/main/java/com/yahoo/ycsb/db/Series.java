@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import java.util.Arrays;
+
+/**
+ * The points of one metric with one combination of tag values, as a list of sealed chunks and one open chunk.
+ * <p/>
+ * Appends are serialized per series. Readers take a snapshot of the chunk list under the same lock and decode it
+ * without holding the lock, see {@link ChunkWriter}. The time range of all points is kept in volatile fields, so
+ * queries can skip series outside of their range without taking the lock.
+ */
+final class Series {
+    final String metric;
+    /** Sorted by name. */
+    final String[] tagNames;
+    final String[] tagValues;
+
+    private final int chunkSize;
+    private Chunk[] sealed = new Chunk[0];
+    private ChunkWriter open = null;
+    private volatile long minTs = Long.MAX_VALUE;
+    private volatile long maxTs = Long.MIN_VALUE;
+
+    Series(String metric, String[] tagNames, String[] tagValues, int chunkSize) {
+        this.metric = metric;
+        this.tagNames = tagNames;
+        this.tagValues = tagValues;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @return the value of tag name or null if this series doesn't have it
+     */
+    String getTagValue(String name) {
+        for (int i = 0; i < tagNames.length; i++) {
+            if (tagNames[i].equals(name)) {
+                return tagValues[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return whether some point of this series may lie between startTs and endTs (inclusive)
+     */
+    boolean overlaps(long startTs, long endTs) {
+        return minTs <= endTs && maxTs >= startTs;
+    }
+
+    private void extend(long chunkMinTs, long chunkMaxTs) {
+        if (chunkMinTs < minTs) {
+            minTs = chunkMinTs;
+        }
+        if (chunkMaxTs > maxTs) {
+            maxTs = chunkMaxTs;
+        }
+    }
+
+    synchronized void append(long ts, double value) {
+        if (open == null) {
+            open = new ChunkWriter();
+        }
+        open.append(ts, value);
+        extend(ts, ts);
+        if (open.count() >= chunkSize) {
+            seal();
+        }
+    }
+
+    /**
+     * Seals the open chunk, if it contains any points.
+     */
+    synchronized void seal() {
+        if (open != null && open.count() > 0) {
+            sealed = Arrays.copyOf(sealed, sealed.length + 1);
+            sealed[sealed.length - 1] = open.seal();
+        }
+        open = null;
+    }
+
+    /**
+     * Adds a chunk read from a snapshot file.
+     */
+    synchronized void addSealed(Chunk chunk) {
+        sealed = Arrays.copyOf(sealed, sealed.length + 1);
+        sealed[sealed.length - 1] = chunk;
+        extend(chunk.minTs, chunk.maxTs);
+    }
+
+    /**
+     * @return all chunks including the current state of the open chunk; the result never changes
+     */
+    synchronized Chunk[] chunks() {
+        if (open == null) {
+            return sealed;
+        }
+        Chunk[] chunks = Arrays.copyOf(sealed, sealed.length + 1);
+        chunks[sealed.length] = open.snapshot();
+        return chunks;
+    }
+}
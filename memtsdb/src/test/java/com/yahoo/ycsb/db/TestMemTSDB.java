@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import com.yahoo.ycsb.DataPoint;
+import com.yahoo.ycsb.TagFilter;
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestMemTSDB {
+    @Test
+    public void testEmptyRanges() {
+        MemTSDB.Aggregation aggregation = new MemTSDB.Aggregation(10000, 1000, 1000);
+        assertEquals(0, aggregation.getPoints());
+        assertEquals(0, aggregation.result(true, false).length);
+        assertEquals(0, new MemTSDB.Aggregation(10000, 1000, 0).result(false, false).length);
+    }
+
+    @Test
+    public void testScanBackwards() throws Exception {
+        MemTSDBClient client = new MemTSDBClient();
+        client.setProperties(new Properties());
+        client.init();
+        try {
+            TagFilter filter = new TagFilter.Builder().add("TAG0", "backwards").build();
+            for (long ts = 1000; ts <= 10000; ts += 1000) {
+                DataPoint point = new DataPoint(1);
+                point.reset("m", ts, 1.0);
+                point.addTag("TAG0", null, "backwards");
+                assertEquals(0, client.insert(point));
+            }
+            assertEquals(0, client.scan("m", 1000, 10000, TimeUnit.MILLISECONDS, filter, false, false, true,
+                    1, TimeUnit.SECONDS));
+            // start after end by more than one bucket is not found, for every aggregation
+            assertEquals(-1, client.scan("m", 10000, 1000, TimeUnit.MILLISECONDS, filter, false, false, true,
+                    1, TimeUnit.SECONDS));
+            assertEquals(-1, client.scan("m", 10000, 1000, TimeUnit.MILLISECONDS, filter, true, false, false,
+                    0, TimeUnit.SECONDS));
+            assertEquals(-1, client.scan("m", 10000, 1000, TimeUnit.MILLISECONDS, filter, false, false, false,
+                    0, TimeUnit.SECONDS));
+        }
+        finally {
+            client.cleanup();
+        }
+    }
+}
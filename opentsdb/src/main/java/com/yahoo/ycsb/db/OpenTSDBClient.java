@@ -7,20 +7,14 @@ package com.yahoo.ycsb.db;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
-import org.apache.http.Header;
-import org.apache.http.HeaderElement;
-import org.apache.http.HttpResponse;
-import org.apache.http.NameValuePair;
-import org.apache.http.client.config.RequestConfig;
+import com.yahoo.ycsb.TagFilter;
+import com.yahoo.ycsb.http.HttpTransport;
+import com.yahoo.ycsb.json.JsonBuffer;
+import com.yahoo.ycsb.json.JsonPoints;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-
-import org.apache.http.util.EntityUtils;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import org.codehaus.jackson.JsonGenerator;
 
 import java.io.*;
 import java.net.*;
@@ -30,11 +24,12 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
-// Need to use Json 20140107, newer versions drop an error "Unsupported major.minor version 52.0"
-
 /**
  * OpenTSDB client for YCSB framework.
  * OpenTSDB does not support one Bucket for avg/sum/count -> using interval size as Bucket
+ * <p/>
+ * Requests are written into a reused buffer and results are counted while they are read (see
+ * {@link JsonPoints}), so even scans over large ranges need constant memory.
  */
 public class OpenTSDBClient extends DB {
     private final int SUCCESS = 0;
@@ -48,9 +43,11 @@ public class OpenTSDBClient extends DB {
     private boolean filterForTags = true; // Versions above OpenTSDB 2.2 (included) can use this; Untested!
     private boolean useCount = true; // Versions above OpenTSDB 2.2 (included) have Count(), otherwise min is used
     private boolean useMs = true; // Millisecond or Second resolution
-    private CloseableHttpClient client;
-    private int retries = 3;
+    private HttpTransport transport;
     private boolean test = false;
+    private final JsonBuffer body = new JsonBuffer();
+    private final JsonBuffer tagBody = new JsonBuffer();
+    private final JsonPoints points = new JsonPoints("dps");
 
     /**
      * Initialize any state for this DB.
@@ -77,9 +74,8 @@ public class OpenTSDBClient extends DB {
             filterForTags = Boolean.parseBoolean(getProperties().getProperty("filterForTags", "true"));
             useCount = Boolean.parseBoolean(getProperties().getProperty("useCount", "true"));
             useMs = Boolean.parseBoolean(getProperties().getProperty("useMs", "true"));
-            RequestConfig requestConfig = RequestConfig.custom().build();
             if (!test) {
-                client = HttpClientBuilder.create().setDefaultRequestConfig(requestConfig).build();
+                transport = HttpTransport.acquire(getProperties());
             }
         }
         catch (Exception e) {
@@ -101,35 +97,25 @@ public class OpenTSDBClient extends DB {
         }
     }
 
-    private JSONArray runQuery(URL url, String queryStr) {
-        JSONArray jsonArr = new JSONArray();
-        HttpResponse response = null;
+    /**
+     * Posts the query in body.
+     *
+     * @return the counted points of the answer (no points for answers without body), null on errors
+     */
+    private JsonPoints runQuery(URL url, JsonBuffer body) {
+        CloseableHttpResponse response = null;
+        points.clear();
         try {
             HttpPost postMethod = new HttpPost(url.toString());
-            StringEntity requestEntity = new StringEntity(queryStr, ContentType.APPLICATION_JSON);
-            postMethod.setEntity(requestEntity);
+            postMethod.setEntity(transport.entity(body.buffer(), body.size(), ContentType.APPLICATION_JSON));
             postMethod.addHeader("accept", "application/json");
-            int tries = retries + 1;
-            while (true)
-            {
-                tries--;
-                try
-                {
-                    response = client.execute(postMethod);
-                    break;
-                }
-                catch (IOException e)
-                {
-                    if (tries < 1) {
-                        System.err.print("ERROR: Connection to " + url.toString() + " failed " + retries + "times.");
-                        e.printStackTrace();
-                        if (response != null) {
-                            EntityUtils.consumeQuietly(response.getEntity());
-                        }
-                        postMethod.releaseConnection();
-                        return null;
-                    }
-                }
+            try {
+                response = transport.execute(postMethod);
+            }
+            catch (IOException e) {
+                System.err.print("ERROR: Connection to " + url.toString() + " failed.");
+                e.printStackTrace();
+                return null;
             }
             if(response.getStatusLine().getStatusCode() == HttpURLConnection.HTTP_OK ||
                     response.getStatusLine().getStatusCode() == HttpURLConnection.HTTP_NO_CONTENT  ||
@@ -137,28 +123,35 @@ public class OpenTSDBClient extends DB {
                 if (response.getStatusLine().getStatusCode() == HttpURLConnection.HTTP_MOVED_PERM) {
                     System.err.println("WARNING: Query returned 301, that means 'API call has migrated or should be forwarded to another server'");
                 }
-                if (response.getStatusLine().getStatusCode() != HttpURLConnection.HTTP_NO_CONTENT){
+                if (response.getStatusLine().getStatusCode() != HttpURLConnection.HTTP_NO_CONTENT
+                        && response.getEntity() != null){
                     // Maybe also not HTTP_MOVED_PERM? Can't Test it right now
-                    BufferedReader bis = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-                    StringBuilder builder = new StringBuilder();
-                    String line;
-                    while ((line = bis.readLine()) != null) {
-                        builder.append(line);
-                    }
-                    jsonArr = new JSONArray(builder.toString());
+                    points.parse(response.getEntity().getContent());
                 }
-                EntityUtils.consumeQuietly(response.getEntity());
-                postMethod.releaseConnection();
            }
         } catch (Exception e) {
-            System.err.println("ERROR: Errror while trying to query " + url.toString() + " for '" + queryStr + "'.");
+            System.err.println("ERROR: Errror while trying to query " + url.toString() + " for '" + body + "'.");
             e.printStackTrace();
-            if (response != null) {
-                EntityUtils.consumeQuietly(response.getEntity());
-            }
             return null;
         }
-        return jsonArr;
+        finally {
+            HttpTransport.release(response);
+        }
+        return points;
+    }
+
+    /**
+     * Reports the results of a query without "dps".
+     *
+     * @return false if there are "dps" but without any values
+     */
+    static boolean checkResults(JsonPoints result) {
+        if (result.getSeries() < result.getRootLength()) {
+            System.err.println("ERROR: " + (result.getRootLength() - result.getSeries()) + " of "
+                    + result.getRootLength() + " results have no 'dps' key.");
+        }
+        // Allowed to happen, no error message!
+        return result.getSeries() == 0 || result.getCount() > 0;
     }
 
     /**
@@ -169,7 +162,7 @@ public class OpenTSDBClient extends DB {
     public void cleanup() throws DBException {
         try {
             if (! test) {
-                client.close();
+                transport.release();
             }
         }
         catch (Exception e) {
@@ -187,108 +180,135 @@ public class OpenTSDBClient extends DB {
      */
     @Override
     public int read(String metric, Timestamp timestamp, HashMap<String, ArrayList<String>> tags) {
-        if (metric == null || metric == "") {
-            return -1;
-        }
         if (timestamp == null) {
             return -1;
         }
-        // Problem: You cant ask for a timestamp at TS=x, you need to give a range. So: Begin: timestamp, End: timestamp + 1 ms
-        // We may get more than that, but we just take the right one
-        // There could also be more of them, so count
-        int counter = 0;
-        long timestampLong = timestamp.getTime();
-        JSONObject query = new JSONObject();
-        query.put("start", timestampLong);
-        query.put("end", timestampLong+1);
-        query.put("msResolution", this.useMs);
+        return read(metric, timestamp.getTime(), TimeUnit.MILLISECONDS, TagFilter.fromMap(tags));
+    }
 
-        JSONArray queryArray = new JSONArray();
-        JSONObject queryParams = new JSONObject();
-        queryParams.put("metric", metric);
-        queryArray.put(queryParams);
-        JSONArray queryFilters = null;
-        if (filterForTags) {
-            queryFilters = new JSONArray();
-        }
-        JSONObject queryTags = null;
-        if (!filterForTags) {
-            queryTags = new JSONObject();
-        }
-        queryParams.put("aggregator", "min");
-        for ( Map.Entry entry : tags.entrySet()) {
-            String tagValues = "";
-            for (String tagValue : (ArrayList<String>) entry.getValue()) {
-                tagValues += tagValue + "|";
+    /**
+     * Returns the JSON of the "filters" array (or "tags" object if filterForTags is false) for the given tags.
+     * It is cached in the filter and must be built before the query generator is started, a second open
+     * generator would not get the recycled buffers of this thread.
+     */
+    private String tagQuery(TagFilter tags) throws IOException {
+        Object cached = tags.getAttachment();
+        if (!(cached instanceof String)) {
+            JsonGenerator tagQuery = tagBody.start();
+            if (filterForTags) {
+                tagQuery.writeStartArray();
+            }
+            else {
+                tagQuery.writeStartObject();
+            }
+            for (int i = 0; i < tags.size(); i++) {
+                StringBuilder tagValues = new StringBuilder();
+                for (int j = 0; j < tags.getValueCount(i); j++) {
+                    if (j > 0) {
+                        tagValues.append('|');
+                    }
+                    tagValues.append(tags.getValue(i, j));
+                }
+                if (filterForTags) {
+                    tagQuery.writeStartObject();
+                    tagQuery.writeStringField("type", "literal_or");
+                    tagQuery.writeStringField("tagk", tags.getTagName(i));
+                    tagQuery.writeBooleanField("groupBy", false);
+                    tagQuery.writeStringField("filter", tagValues.toString());
+                    tagQuery.writeEndObject();
+                }
+                else {
+                    tagQuery.writeStringField(tags.getTagName(i), tagValues.toString());
+                }
             }
-            tagValues = tagValues.substring(0, tagValues.length() - 1);
             if (filterForTags) {
-                JSONObject tagFilter = new JSONObject();
-                tagFilter.put("type", "literal_or");
-                tagFilter.put("tagk", entry.getKey().toString());
-                tagFilter.put("groupBy", false);
-                tagFilter.put("filter", tagValues);
-                queryFilters.put(tagFilter);
+                tagQuery.writeEndArray();
             }
             else {
-                queryTags.put(entry.getKey().toString(), tagValues);
+                tagQuery.writeEndObject();
             }
+            cached = tagBody.finish().toString();
+            tags.setAttachment(cached);
         }
-        if (filterForTags) {
-            queryParams.put("filters", queryFilters);
+        return (String) cached;
+    }
+
+    /**
+     * Writes the query for the value at timestampMs into buffer.
+     */
+    JsonBuffer readQuery(JsonBuffer buffer, String metric, long timestampMs, TagFilter tags) throws IOException {
+        // Problem: You cant ask for a timestamp at TS=x, you need to give a range. So: Begin: timestamp, End: timestamp + 1 ms
+        // We may get more than that, but we just take the right one
+        // There could also be more of them, so count
+        String tagQuery = tagQuery(tags);
+        JsonGenerator query = buffer.start();
+        query.writeStartObject();
+        query.writeNumberField("start", timestampMs);
+        query.writeNumberField("end", timestampMs + 1);
+        query.writeBooleanField("msResolution", this.useMs);
+        query.writeArrayFieldStart("queries");
+        query.writeStartObject();
+        query.writeStringField("metric", metric);
+        query.writeStringField("aggregator", "min");
+        query.writeFieldName(filterForTags ? "filters" : "tags");
+        query.writeRawValue(tagQuery);
+        query.writeEndObject();
+        query.writeEndArray();
+        query.writeEndObject();
+        return buffer.finish();
+    }
+
+    /**
+     * Read a record from the database, with the timestamp given in the given precision.
+     *
+     * @param metric    The name of the metric
+     * @param timestamp The timestamp of the record to read.
+     * @param precision The unit of timestamp
+     * @param tags     actual tags that were want to receive (can be empty)
+     * @return Zero on success, a non-zero error code on error or "not found".
+     */
+    @Override
+    public int read(String metric, long timestamp, TimeUnit precision, TagFilter tags) {
+        if (metric == null || metric == "") {
+            return -1;
         }
-        else {
-            queryParams.put("tags", queryTags);
+        long timestampLong = precision.toMillis(timestamp);
+        try {
+            readQuery(body, metric, timestampLong, tags);
+        }
+        catch (IOException e) {
+            System.err.println("ERROR: Can not build read query for metric: " + metric + ": " + e);
+            return -1;
         }
-        query.put("queries", queryArray);
         if (_debug) {
-            System.out.println("Query String: " + query.toString());
+            System.out.println("Query String: " + body);
         }
         if (test) {
             return SUCCESS;
         }
-        JSONArray jsonArr = runQuery(urlQuery, query.toString());
-        if (jsonArr == null || jsonArr.length() == 0 ) {
-//            System.err.println("ERROR: Received empty answer for '" + query.toString() + "'.");
+        points.setMatch(timestampLong);
+        JsonPoints result = runQuery(urlQuery, body);
+        if (result != null) {
+            reportResult(result.getCount(), result.getBytes());
+        }
+        if (result == null || result.getRootLength() == 0 ) {
+//            System.err.println("ERROR: Received empty answer for '" + body + "'.");
             // is allowed!
             return -1;
         }
-        if (jsonArr.isNull(0)) {
-            System.err.println("ERROR: Received empty Object for index 0 for '" + query.toString() + "'.");
+        if (!checkResults(result)) {
             return -1;
         }
-        for (int i = 0; i < jsonArr.length(); i++) {
-            if (!jsonArr.getJSONObject(i).has("dps")) {
-                System.err.println("ERROR: jsonArr Index " + i + " has no 'dps' key.");
-            }
-            else {
-                JSONObject jsonObj = (JSONObject) jsonArr.getJSONObject(i).get("dps");
-                if (jsonObj.keySet().size() == 0) {
-                    // Allowed to happen, no error message!
-                    return -1;
-                }
-                for (Object obj : jsonObj.keySet()) {
-                    long objTS = Long.valueOf(obj.toString());
-                    if (objTS == timestampLong) {
-//                        if (values.containsKey(objTS)) {
-//                            System.err.println("ERROR: Dict already contains value for " + objTS + ".");
-//                            return -1;
-//                        }
-                        //                values.put(timestamp, jsonObj.getDouble(obj.toString()));
-                        counter++;
-                    }
-                }
-            }
-        }
+        long counter = result.getMatches();
         if (_debug) {
-            System.err.println("jsonArr: " + jsonArr);
+            System.err.println("points: " + result);
         }
         if (counter == 0){
-            System.err.println("ERROR: Found no values for metric: " + metric + " for timestamp: " + timestamp + ".");
+            System.err.println("ERROR: Found no values for metric: " + metric + " for timestamp: " + new Timestamp(timestampLong) + ".");
             return -1;
         }
         else if (counter > 1){
-            System.err.println("ERROR: Found more than one value for metric: " + metric + " for timestamp: " + timestamp + ".");
+            System.err.println("ERROR: Found more than one value for metric: " + metric + " for timestamp: " + new Timestamp(timestampLong) + ".");
         }
         return SUCCESS;
     }
@@ -310,17 +330,19 @@ public class OpenTSDBClient extends DB {
     @Override
     public int scan(String metric, Timestamp startTs, Timestamp endTs, HashMap<String,
             ArrayList<String>> tags, boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit ) {
-
-        if (metric == null || metric == "") {
-            return -1;
-        }
         if (startTs == null || endTs == null) {
             return -1;
         }
-        JSONObject query = new JSONObject();
-        query.put("start", startTs.getTime());
-        query.put("end", endTs.getTime());
-        query.put("msResolution", this.useMs);
+        return scan(metric, startTs.getTime(), endTs.getTime(), TimeUnit.MILLISECONDS, TagFilter.fromMap(tags),
+                avg, count, sum, timeValue, timeUnit);
+    }
+
+    /**
+     * Writes the query for a range scan from startMs to endMs, downsampled to one bucket of timeValue timeUnit
+     * (or the whole range) for avg, count and sum into buffer.
+     */
+    JsonBuffer scanQuery(JsonBuffer buffer, String metric, long startMs, long endMs, TagFilter tags,
+                         boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) throws IOException {
         String tu = "";
         if (avg || sum || count) {
             if (timeValue != 0) {
@@ -344,104 +366,112 @@ public class OpenTSDBClient extends DB {
                 }
             }
             else {
-                long timeValueInMs = endTs.getTime() - startTs.getTime();
+                long timeValueInMs = endMs - startMs;
                 if (timeValueInMs > TimeUnit.MILLISECONDS.convert(1, TimeUnit.DAYS)) {
-                    tu = TimeUnit.DAYS.convert(endTs.getTime() - startTs.getTime(), TimeUnit.MILLISECONDS) + "d";
+                    tu = TimeUnit.DAYS.convert(endMs - startMs, TimeUnit.MILLISECONDS) + "d";
                 }
                 else if (timeValueInMs > TimeUnit.MILLISECONDS.convert(1, TimeUnit.HOURS)) {
-                    tu = TimeUnit.HOURS.convert(endTs.getTime() - startTs.getTime(), TimeUnit.MILLISECONDS) + "h";
+                    tu = TimeUnit.HOURS.convert(endMs - startMs, TimeUnit.MILLISECONDS) + "h";
                 }
                 else if (timeValueInMs > TimeUnit.MILLISECONDS.convert(1, TimeUnit.MINUTES)) {
-                    tu = TimeUnit.MINUTES.convert(endTs.getTime() - startTs.getTime(), TimeUnit.MILLISECONDS) + "m";
+                    tu = TimeUnit.MINUTES.convert(endMs - startMs, TimeUnit.MILLISECONDS) + "m";
                 }
                 else if (timeValueInMs > TimeUnit.MILLISECONDS.convert(1, TimeUnit.SECONDS)) {
-                    tu = TimeUnit.SECONDS.convert(endTs.getTime() - startTs.getTime(), TimeUnit.MILLISECONDS) + "s";
+                    tu = TimeUnit.SECONDS.convert(endMs - startMs, TimeUnit.MILLISECONDS) + "s";
                 }
                 else {
-                    tu = TimeUnit.MILLISECONDS.convert(endTs.getTime() - startTs.getTime(), TimeUnit.MILLISECONDS) + "ms";
+                    tu = TimeUnit.MILLISECONDS.convert(endMs - startMs, TimeUnit.MILLISECONDS) + "ms";
                 }
             }
         }
-        JSONArray queryArray = new JSONArray();
-        JSONObject queryParams = new JSONObject();
-        queryParams.put("metric", metric);
-        JSONArray queryFilters = null;
-        if (filterForTags) {
-            queryFilters = new JSONArray();
-        }
-        JSONObject queryTags = null;
-        if (!filterForTags) {
-            queryTags = new JSONObject();
-        }
+        String tagQuery = tagQuery(tags);
+        JsonGenerator query = buffer.start();
+        query.writeStartObject();
+        query.writeNumberField("start", startMs);
+        query.writeNumberField("end", endMs);
+        query.writeBooleanField("msResolution", this.useMs);
+        query.writeArrayFieldStart("queries");
+        query.writeStartObject();
+        query.writeStringField("metric", metric);
         if (avg) {
-            queryParams.put("aggregator", "avg");
-            queryParams.put("downsample", tu+"-avg");
+            query.writeStringField("aggregator", "avg");
+            query.writeStringField("downsample", tu+"-avg");
         }
         else if (count) {
             if (useCount) {
-                queryParams.put("aggregator", "count");
-                queryParams.put("downsample", tu+"-count");
+                query.writeStringField("aggregator", "count");
+                query.writeStringField("downsample", tu+"-count");
             }
             else {
-                queryParams.put("aggregator", "min");
-                queryParams.put("downsample", tu+"-min");
+                query.writeStringField("aggregator", "min");
+                query.writeStringField("downsample", tu+"-min");
             }
         }
         else if (sum) {
-            queryParams.put("aggregator", "sum");
-            queryParams.put("downsample", tu+"-sum");
+            query.writeStringField("aggregator", "sum");
+            query.writeStringField("downsample", tu+"-sum");
         }
         else {
             // When scan do 1ms resolution, use min aggr.
-            queryParams.put("aggregator", "min");
-            queryParams.put("downsample", "1ms-min");
-        }
-        for ( Map.Entry entry : tags.entrySet()) {
-            String tagValues = "";
-            for (String tagValue : (ArrayList<String>) entry.getValue()) {
-                tagValues += tagValue + "|";
-            }
-            tagValues = tagValues.substring(0, tagValues.length() - 1);
-            if (filterForTags) {
-                JSONObject tagFilter = new JSONObject();
-                tagFilter.put("type", "literal_or");
-                tagFilter.put("tagk", entry.getKey().toString());
-                tagFilter.put("groupBy", false);
-                tagFilter.put("filter", tagValues);
-                queryFilters.put(tagFilter);
-            }
-            else {
-                queryTags.put(entry.getKey().toString(), tagValues);
-            }
+            query.writeStringField("aggregator", "min");
+            query.writeStringField("downsample", "1ms-min");
+        }
+        query.writeFieldName(filterForTags ? "filters" : "tags");
+        query.writeRawValue(tagQuery);
+        query.writeEndObject();
+        query.writeEndArray();
+        query.writeEndObject();
+        return buffer.finish();
+    }
+
+    /**
+     * Perform a range scan, with start and end given in the given precision.
+     *
+     * @param metric  The name of the metric
+     * @param startTs The timestamp of the first record to read.
+     * @param endTs   The timestamp of the last record to read.
+     * @param precision The unit of startTs and endTs
+     * @param tags     actual tags that were want to receive (can be empty)
+     * @param avg    do averageing
+     * @param sum    do summarize
+     * @param count  do count
+     * @param timeValue  value for timeUnit for sum/count/avg
+     * @param timeUnit  timeUnit for sum/count/avg
+     * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
+     */
+    @Override
+    public int scan(String metric, long startTs, long endTs, TimeUnit precision, TagFilter tags,
+                    boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+        if (metric == null || metric == "") {
+            return -1;
         }
-        if (filterForTags) {
-            queryParams.put("filters", queryFilters);
+        try {
+            scanQuery(body, metric, precision.toMillis(startTs), precision.toMillis(endTs), tags,
+                    avg, count, sum, timeValue, timeUnit);
         }
-        else {
-            queryParams.put("tags", queryTags);
+        catch (IOException e) {
+            System.err.println("ERROR: Can not build scan query for metric: " + metric + ": " + e);
+            return -1;
         }
-        queryArray.put(queryParams);
-        query.put("queries", queryArray);
         if (_debug) {
-            System.out.println("Query String: " + query.toString());
+            System.out.println("Query String: " + body);
         }
         if (test) {
             return SUCCESS;
         }
-        JSONArray jsonArr = runQuery(urlQuery, query.toString());
-        if (jsonArr == null || jsonArr.length() == 0 ) {
-//            System.err.println("ERROR: Received empty answer for '" + query.toString() + "'.");
-            // is allowed
-            return -1;
+        points.setMatch(JsonPoints.NONE);
+        JsonPoints result = runQuery(urlQuery, body);
+        if (result != null) {
+            reportResult(result.getCount(), result.getBytes());
         }
-        if (jsonArr.isNull(0)) {
-            System.err.println("ERROR: Received empty Object for index 0 for '" + query.toString() + "'.");
+        if (result == null || result.getRootLength() == 0 ) {
+//            System.err.println("ERROR: Received empty answer for '" + body + "'.");
+            // is allowed
             return -1;
         }
-        for (int i = 0; i < jsonArr.length(); i++) {
-            if (!jsonArr.getJSONObject(i).has("dps")) {
-                System.err.println("ERROR: jsonArr Index " + i + " has no 'dps' key.");
-            }
+        checkResults(result);
+        if (_debug) {
+            System.err.println("points: " + result);
         }
 //                JSONObject jsonObj = (JSONObject) jsonArr.getJSONObject(0).get("dps");
 //                if (jsonObj.keySet().size() == 0) {
@@ -465,6 +495,25 @@ public class OpenTSDBClient extends DB {
         return SUCCESS;
     }
 
+    /**
+     * Writes the put request for one point into buffer.
+     */
+    static JsonBuffer insertQuery(JsonBuffer buffer, String metric, long timestampMs, double value,
+                                  Map<String, ByteIterator> tags) throws IOException {
+        JsonGenerator query = buffer.start();
+        query.writeStartObject();
+        query.writeNumberField("timestamp", timestampMs);
+        query.writeStringField("metric", metric);
+        query.writeNumberField("value", value);
+        query.writeObjectFieldStart("tags");
+        for (Map.Entry<String, ByteIterator> entry : tags.entrySet()) {
+            query.writeStringField(entry.getKey(), entry.getValue().toString());
+        }
+        query.writeEndObject();
+        query.writeEndObject();
+        return buffer.finish();
+    }
+
     /**
      * Insert a record in the database. Any tags/tagvalue pairs in the specified tags HashMap and the given value
      * will be written into the record with the specified timestamp
@@ -485,26 +534,18 @@ public class OpenTSDBClient extends DB {
         }
 
         try {
-            JSONObject query = new JSONObject();
-            query.put("timestamp", timestamp.getTime());
-            query.put("metric", metric);
-            query.put("value", value);
-            JSONObject queryTags = new JSONObject();
-            for ( Map.Entry entry : tags.entrySet()) {
-                queryTags.put(entry.getKey().toString(),entry.getValue().toString());
-            }
-            query.put("tags", queryTags);
+            insertQuery(body, metric, timestamp.getTime(), value, tags);
             if (_debug) {
-                System.out.println("Input Query String: " + query.toString());
+                System.out.println("Input Query String: " + body);
             }
             if (test) {
                 return SUCCESS;
             }
-            JSONArray jsonArr = runQuery(urlPut, query.toString());
+            JsonPoints result = runQuery(urlPut, body);
             if (_debug) {
-                System.err.println("jsonArr: " + jsonArr);
+                System.err.println("points: " + result);
             }
-            if (jsonArr == null) {
+            if (result == null) {
                 System.err.println("ERROR: Error in processing insert to metric: " + metric);
                 return -1;
             }
@@ -1,24 +1,21 @@
 package com.yahoo.ycsb.db;
 
-import com.sun.net.ssl.internal.www.protocol.https.HttpsURLConnectionOldImpl;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.http.HttpTransport;
+import com.yahoo.ycsb.json.JsonPoints;
 import io.prometheus.client.CollectorRegistry;
 import io.prometheus.client.Gauge;
 import io.prometheus.client.exporter.PushGateway;
 import org.apache.http.*;
-import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPut;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.entity.ContentType;
 
-import org.apache.http.util.EntityUtils;
+import org.apache.http.message.BasicNameValuePair;
 import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.io.*;
 import java.net.*;
@@ -43,7 +40,9 @@ public class PrometheusClient extends DB {
     private boolean _debug = true;
     private boolean useCount = true;
     private boolean usePlainTextFormat = true;
-    private CloseableHttpClient client;
+    private HttpTransport transport;
+    // series of query results, counted while streaming
+    private final JsonPoints points = new JsonPoints("result").capture("status");
     private int retries = 3;
     private boolean test = false;
 
@@ -96,9 +95,8 @@ public class PrometheusClient extends DB {
             }
             usePlainTextFormat = Boolean.parseBoolean(getProperties().getProperty("plainTextFormat", "true"));
             useCount = Boolean.parseBoolean(getProperties().getProperty("useCount", "true"));
-            RequestConfig requestConfig = RequestConfig.custom().build();
             if (!test) {
-                client = HttpClientBuilder.create().setDefaultRequestConfig(requestConfig).build();
+                transport = HttpTransport.acquire(getProperties());
             }
         } catch (Exception e) {
             throw new DBException(e);
@@ -121,73 +119,40 @@ public class PrometheusClient extends DB {
     private JSONArray runQuery(URL url, String queryStr) {
 		System.out.println("Running query " + queryStr + " to " + url);
         JSONArray jsonArr = new JSONArray();
-        HttpResponse response = null;
+        CloseableHttpResponse response = null;
         try {
             HttpPut postMethod = new HttpPut(url.toURI());
 
-            StringEntity requestEntity = new StringEntity(
-                    queryStr + "\n");
-            requestEntity.setContentType("text/html; charset=UTF-8\\n; version=0.0.4;");
             postMethod.addHeader("host", ip_pushgateway);
             postMethod.addHeader("Accept", "application/json");
-            postMethod.setEntity(requestEntity);
+            postMethod.setEntity(transport.entity(queryStr + "\n",
+                    ContentType.create("text/plain", "UTF-8").withParameters(new BasicNameValuePair("version", "0.0.4"))));
 
-            int tries = retries + 1;
-            while (true) {
-                tries--;
-                try {
-                    response = client.execute(postMethod);
-                    String inputLine = "";
-                    BufferedReader br = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-                    try {
-                        while ((inputLine = br.readLine()) != null) {
-                            System.out.println("1" + inputLine);
-                        }
-                        br.close();
-                    } catch (IOException e) {
-                        //e.printStackTrace();
-                    }
-                    break;
-                } catch (IOException e) {
-                    if (tries < 1) {
-                        System.err.print("ERROR: Connection to " + url.toString() + " failed " + retries + "times.");
-                        e.printStackTrace();
-                        if (response != null) {
-                            EntityUtils.consumeQuietly(response.getEntity());
-                        }
-                        postMethod.releaseConnection();
-                        return null;
-                    }
-                }
+            try {
+                response = transport.execute(postMethod);
+            } catch (IOException e) {
+                System.err.print("ERROR: Connection to " + url.toString() + " failed.");
+                e.printStackTrace();
+                return null;
             }
-            if (response.getStatusLine().getStatusCode() >= 200 && response.getStatusLine().getStatusCode() < 300) {
-                if (response.getStatusLine().getStatusCode() == HttpsURLConnectionOldImpl.HTTP_ACCEPTED) {
-                    // The pushgateway does not include an entity in the response when inserting
-                    if (response.getEntity().getContent().available() == 0) {
-                        jsonArr = new JSONArray();
-                        return jsonArr;
-                    }
+            if (HttpTransport.isSuccess(response)) {
+                String body = HttpTransport.readBody(response);
+                if (_debug) {
+                    System.out.println("Response: " + body);
                 }
-                if (response.getStatusLine().getStatusCode() != HttpURLConnection.HTTP_NO_CONTENT) {
-                    BufferedReader bis = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-                    StringBuilder builder = new StringBuilder();
-                    String line;
-                    while ((line = bis.readLine()) != null) {
-                        builder.append(line);
-                    }
-                    jsonArr = new JSONArray(builder.toString());
+                // The pushgateway does not include an entity in the response when inserting
+                if (response.getStatusLine().getStatusCode() != HttpURLConnection.HTTP_NO_CONTENT
+                        && body.trim().length() > 0) {
+                    jsonArr = new JSONArray(body);
                 }
-                EntityUtils.consumeQuietly(response.getEntity());
-                postMethod.releaseConnection();
             }
 
         } catch (Exception e) {
             System.err.println("ERROR: Error while trying to query " + url.toString() + " for '" + queryStr + "'.");
             e.printStackTrace();
-            if (response != null) {
-                EntityUtils.consumeQuietly(response.getEntity());
-            }
             return null;
+        } finally {
+            HttpTransport.release(response);
         }
         return jsonArr;
     }
@@ -201,7 +166,7 @@ public class PrometheusClient extends DB {
 		System.out.println("Cleanup called");
         try {
             if (!test) {
-                client.close();
+                transport.release();
             }
         } catch (Exception e) {
             throw new DBException(e);
@@ -225,13 +190,44 @@ public class PrometheusClient extends DB {
         if (timestamp == null) {
             return -1;
         }
-        int tries = retries + 1;
         HttpGet getMethod;
-        String queryString = "";
-        HttpResponse response = null;
-        JSONObject responseData;
+        String queryString;
+        CloseableHttpResponse response = null;
+
+        try {
+            queryString = readQuery(metric, timestamp.getTime(), tags);
+        } catch (UnsupportedEncodingException e) {
+            return -1;
+        }
 
-        // Construct query
+        if (_debug)
+            System.out.println("Input Query: " + urlQuery.toString() + queryString);
+        getMethod = new HttpGet(urlQuery.toString() + queryString);
+        if (test)
+            return SUCCESS;
+        try {
+            response = transport.execute(getMethod);
+            JsonPoints result = points.parse(response.getEntity().getContent());
+            reportResult(result.getCount(), result.getBytes());
+
+            if ("success".equals(result.getText("status"))) {
+                return SUCCESS;
+            }
+            return -1;
+        } catch (IOException e) {
+            System.err.print("ERROR: Connection to " + urlQuery.toString() + " failed.");
+            e.printStackTrace();
+            return -1;
+        } finally {
+            HttpTransport.release(response);
+        }
+    }
+
+    /**
+     * @return the label matchers of tags, each followed by a comma
+     */
+    private static String tagMatchers(HashMap<String, ArrayList<String>> tags) {
+        String queryString = "";
         for (Map.Entry entry : tags.entrySet()) {
             queryString += entry.getKey() + "=~\"";
             ArrayList<String> values = (ArrayList<String>) entry.getValue();
@@ -241,58 +237,23 @@ public class PrometheusClient extends DB {
             }
             queryString += "\",";
         }
-        queryString = "{" + (queryString.isEmpty() ? "" : queryString.substring(0, queryString.length() - 1)) + "}";
+        return queryString;
+    }
 
-        try {
-            queryString = URLEncoder.encode(queryString, "UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            return -1;
-        }
+    /**
+     * @return the query string of an instant query of metric and tags at timestampMs
+     */
+    static String readQuery(String metric, long timestampMs, HashMap<String, ArrayList<String>> tags)
+            throws UnsupportedEncodingException {
+        String queryString = tagMatchers(tags);
+        queryString = "{" + (queryString.isEmpty() ? "" : queryString.substring(0, queryString.length() - 1)) + "}";
+        queryString = URLEncoder.encode(queryString, "UTF-8");
 
         queryString = "?query=" + metric + queryString;
-        queryString += "&time=" + rfc3339Format.format(new Date(timestamp.getTime())).replace("+", "%2B");
-
-        if (_debug)
-            System.out.println("Input Query: " + urlQuery.toString() + queryString);
-        getMethod = new HttpGet(urlQuery.toString() + queryString);
-        loop:
-        while (true) {
-            tries--;
-            try {
-                if (test)
-                    return SUCCESS;
-
-                response = client.execute(getMethod);
-
-                String inputLine = "";
-                String content = "";
-                BufferedReader br = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-                try {
-                    while ((inputLine = br.readLine()) != null) {
-                        content += inputLine;
-                    }
-                    br.close();
-                } catch (IOException e) {
-                }
-                responseData = new JSONObject(content);
-
-                if (responseData.getString("status").equals("success")) {
-                    return SUCCESS;
-                }
-            } catch (IOException e) {
-                if (tries < 1) {
-                    System.err.print("ERROR: Connection to " + urlQuery.toString() + " failed " + retries + "times.");
-                    e.printStackTrace();
-                    if (response != null) {
-                        EntityUtils.consumeQuietly(response.getEntity());
-                    }
-                    EntityUtils.consumeQuietly(response.getEntity());
-                    getMethod.releaseConnection();
-                    return -1;
-                }
-                continue loop;
-            }
+        synchronized (rfc3339Format) {
+            queryString += "&time=" + rfc3339Format.format(new Date(timestampMs)).replace("+", "%2B");
         }
+        return queryString;
     }
 
     /**
@@ -321,41 +282,66 @@ public class PrometheusClient extends DB {
             return -1;
         }
 
-        NumberFormat durationOffsetFormat = new DecimalFormat("###");
-        int tries = retries + 1;
         HttpGet getMethod;
-        String queryString = "";
-        HttpResponse response = null;
-        JSONObject responseData;
-        double duration;
-        double offset;
-        double currentTime = new Date().getTime();
+        String queryString;
+        CloseableHttpResponse response = null;
 
-        for (Map.Entry entry : tags.entrySet()) {
-            queryString += entry.getKey() + "=~\"";
-            ArrayList<String> values = (ArrayList<String>) entry.getValue();
-            for (int i = 0; i < values.size(); i++) {
-                queryString += values.get(i)
-                        + (i + 1 < (values.size()) ? "|" : "");
+        try {
+            queryString = scanQuery(metric, startTs.getTime(), endTs.getTime(), tags, avg, count, sum,
+                    new Date().getTime());
+        } catch (UnsupportedEncodingException e) {
+            return -1;
+        }
+
+        if (_debug)
+            System.out.println("Input Query: " + urlQuery.toString() + queryString);
+        getMethod = new HttpGet(urlQuery.toString() + queryString);
+        if (test)
+            return SUCCESS;
+        try {
+            response = transport.execute(getMethod);
+            JsonPoints result = points.parse(response.getEntity().getContent());
+            reportResult(result.getCount(), result.getBytes());
+
+            if ("success".equals(result.getText("status"))) {
+                // no "result" if no data is included in the response
+                if (result.getCount() > 0)
+                    return SUCCESS;
+                else
+                    return -1;
             }
-            queryString += "\",";
+            return -1;
+        } catch (IOException e) {
+            System.err.print("ERROR: Connection to " + urlQuery.toString() + " failed.");
+            e.printStackTrace();
+            return -1;
+        } finally {
+            HttpTransport.release(response);
         }
+    }
+
+    /**
+     * @return the query string of an *_over_time query of metric and tags from startMs to endMs, at nowMs
+     */
+    String scanQuery(String metric, long startMs, long endMs, HashMap<String, ArrayList<String>> tags,
+                     boolean avg, boolean count, boolean sum, long nowMs) throws UnsupportedEncodingException {
+        NumberFormat durationOffsetFormat = new DecimalFormat("###");
+        String queryString = tagMatchers(tags);
+        double duration;
+        double offset;
+        double currentTime = nowMs;
 
          /* Application of aggregations by bucket not possible, timeValue and timeUnit ignored
          query_range would not be suitable, as only 11.000 entries are possible
          and those are made up interpolated values and those cannot be aggregated because of the response format */
-        duration = Math.ceil(((double) endTs.getTime() - startTs.getTime()) / 1000d);
-        offset = (long) Math.floor((currentTime - endTs.getTime()) / 1000d);
-        if ((currentTime - offset - duration) > (startTs.getTime() / 1000d))
+        duration = Math.ceil(((double) endMs - startMs) / 1000d);
+        offset = (long) Math.floor((currentTime - endMs) / 1000d);
+        if ((currentTime - offset - duration) > (startMs / 1000d))
             duration++;
 
         queryString = "{" + queryString.substring(0, queryString.length() - 1) + "}[" +
                 durationOffsetFormat.format(duration) + "s]offset " + durationOffsetFormat.format(offset) + "s)";
-        try {
-            queryString = URLEncoder.encode("(" + metric + queryString, "UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            return -1;
-        }
+        queryString = URLEncoder.encode("(" + metric + queryString, "UTF-8");
         // Duration are converted to seconds anyway, so always use those
         // No application of functions on buckets possible, timeValue is ignored
 
@@ -378,58 +364,24 @@ public class PrometheusClient extends DB {
 
 
         }
-        if (_debug)
-            System.out.println("Input Query: " + urlQuery.toString() + queryString);
-        getMethod = new HttpGet(urlQuery.toString() + queryString);
-        loop:
-        while (true) {
-            tries--;
-            try {
-                if (test)
-                    return SUCCESS;
-
-                response = client.execute(getMethod);
+        return queryString;
+    }
 
-                String inputLine = "";
-                String content = "";
-                BufferedReader br = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-                try {
-                    while ((inputLine = br.readLine()) != null) {
-                        content += inputLine;
-                    }
-                    br.close();
-                } catch (IOException e) {
-                }
-                responseData = new JSONObject(content);
-
-                if (responseData.getString("status").equals("success")) {
-
-                    try {
-                        if (responseData.getJSONObject("data").getJSONArray("result").length() > 0)
-                            return SUCCESS;
-                        else
-                            return -1;
-                    } catch (JSONException e) {
-                        // No data included in response
-                        EntityUtils.consumeQuietly(response.getEntity());
-                        getMethod.releaseConnection();
-                        return -1;
-                    }
-                }
-            } catch (IOException e) {
-                if (tries < 1) {
-                    System.err.print("ERROR: Connection to " + urlQuery.toString() + " failed " + retries + "times.");
-                    e.printStackTrace();
-                    if (response != null) {
-                        EntityUtils.consumeQuietly(response.getEntity());
-                    }
-                    EntityUtils.consumeQuietly(response.getEntity());
-                    getMethod.releaseConnection();
-                    return -1;
-                }
-                continue loop;
-            }
-        }
+    /**
+     * @return the push body of value in the text exposition format
+     */
+    static String insertBody(String metric, double value, HashMap<String, ByteIterator> tags) {
+        String queryString = "#TYPE " + metric + " gauge\n" + metric;
+        if (tags.size() > 0) {
+            queryString += "{";
+            for (String tagKey : tags.keySet())
+                queryString += tagKey + "=\"" +
+                        (tags.get(tagKey).toString().replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")) +
+                        "\",";
+            queryString = queryString.substring(0, queryString.length() - 1) + "} " + value;
+        } else
+            queryString += " " + value;
+        return queryString;
     }
 
     /**
@@ -450,16 +402,7 @@ public class PrometheusClient extends DB {
         }
         if (usePlainTextFormat) {
 			System.out.println("using Plain text format");
-            String queryString = "#TYPE " + metric + " gauge\n" + metric;
-            if (tags.size() > 0) {
-                queryString += "{";
-                for (String tagKey : tags.keySet())
-                    queryString += tagKey + "=\"" +
-                            (tags.get(tagKey).toString().replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")) +
-                            "\",";
-                queryString = queryString.substring(0, queryString.length() - 1) + "} " + value;
-            } else
-                queryString += " " + value;
+            String queryString = insertBody(metric, value, tags);
 
             try {
 
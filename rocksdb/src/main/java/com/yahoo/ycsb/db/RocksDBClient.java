@@ -0,0 +1,267 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.DataPoint;
+import com.yahoo.ycsb.TagFilter;
+import com.yahoo.ycsb.measurements.Measurements;
+import org.rocksdb.CompactionStyle;
+import org.rocksdb.ReadOptions;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores points in an embedded RocksDB, to look at effects of the I/O path (write amplification, compaction
+ * stalls, reads of cold data) locally without a database server.
+ * <p/>
+ * Every series (metric and combination of tag values) gets an id; a point is stored under the series id and its
+ * big-endian timestamp, see {@link RocksTSDB}. Reads are point lookups, scans are prefix iterators over the
+ * matching series, aggregated in-process: with avg, count or sum into buckets of timeValue timeUnit from startTs
+ * (into one bucket if timeValue is 0). Reads and scans that find no points return -1. Timestamps are stored in
+ * millisecond precision.
+ * <p/>
+ * All client threads share one database. When the last one is cleaned up, the statistics of RocksDB (stall time,
+ * bytes written by the client, by flushes and by compactions, ...) are reported as ROCKSDB measurements, so they
+ * appear in the output of every exporter.
+ * <p/>
+ * Properties:
+ * <ul>
+ * <li>rocksdb.dir: the database directory (default rocksdb-data)</li>
+ * <li>rocksdb.blockcachesize: block cache size in bytes (default 8388608)</li>
+ * <li>rocksdb.writebuffersize: memtable size in bytes (default 67108864)</li>
+ * <li>rocksdb.compactionstyle: level, universal or fifo (default level)</li>
+ * </ul>
+ */
+public class RocksDBClient extends DB {
+    public static final String DIR_PROPERTY = "rocksdb.dir";
+    public static final String DIR_PROPERTY_DEFAULT = "rocksdb-data";
+    public static final String BLOCK_CACHE_SIZE_PROPERTY = "rocksdb.blockcachesize";
+    public static final String BLOCK_CACHE_SIZE_PROPERTY_DEFAULT = "8388608";
+    public static final String WRITE_BUFFER_SIZE_PROPERTY = "rocksdb.writebuffersize";
+    public static final String WRITE_BUFFER_SIZE_PROPERTY_DEFAULT = "67108864";
+    public static final String COMPACTION_STYLE_PROPERTY = "rocksdb.compactionstyle";
+    public static final String COMPACTION_STYLE_PROPERTY_DEFAULT = "level";
+
+    private static final int SUCCESS = 0;
+    private static final int NOT_FOUND = -1;
+    private static final int ERROR = -2;
+
+    private static RocksTSDB store = null;
+    private static int clients = 0;
+
+    private RocksTSDB db;
+    private ReadOptions scanOptions;
+    private final StringBuilder seriesKey = new StringBuilder();
+    private final byte[] key = new byte[RocksTSDB.KEY_LENGTH];
+    private final ByteBuffer value = ByteBuffer.allocate(8);
+    private String[] names = new String[8];
+    private String[] values = new String[8];
+
+    @Override
+    public void init() throws DBException {
+        synchronized (RocksDBClient.class) {
+            if (store == null) {
+                String style = getProperties().getProperty(COMPACTION_STYLE_PROPERTY,
+                        COMPACTION_STYLE_PROPERTY_DEFAULT);
+                CompactionStyle compactionStyle;
+                try {
+                    compactionStyle = CompactionStyle.valueOf(style.toUpperCase());
+                }
+                catch (IllegalArgumentException e) {
+                    throw new DBException("Unknown " + COMPACTION_STYLE_PROPERTY + " '" + style
+                            + "', use level, universal or fifo.");
+                }
+                String dir = getProperties().getProperty(DIR_PROPERTY, DIR_PROPERTY_DEFAULT);
+                try {
+                    store = new RocksTSDB(dir,
+                            Long.parseLong(getProperties().getProperty(BLOCK_CACHE_SIZE_PROPERTY,
+                                    BLOCK_CACHE_SIZE_PROPERTY_DEFAULT)),
+                            Long.parseLong(getProperties().getProperty(WRITE_BUFFER_SIZE_PROPERTY,
+                                    WRITE_BUFFER_SIZE_PROPERTY_DEFAULT)),
+                            compactionStyle);
+                }
+                catch (RocksDBException e) {
+                    throw new DBException("Can't open RocksDB in " + dir + ": " + e);
+                }
+            }
+            db = store;
+            clients++;
+        }
+        scanOptions = new ReadOptions().setPrefixSameAsStart(true);
+    }
+
+    @Override
+    public void cleanup() throws DBException {
+        if (scanOptions != null) {
+            scanOptions.close();
+            scanOptions = null;
+        }
+        synchronized (RocksDBClient.class) {
+            if (db == null) {
+                return;
+            }
+            db = null;
+            if (--clients > 0) {
+                return;
+            }
+            Measurements measurements = Measurements.getMeasurements();
+            for (Map.Entry<String, Number> statistic : store.getStatistics().entrySet()) {
+                measurements.reportStatistic("ROCKSDB", statistic.getKey(), statistic.getValue());
+            }
+            store.close();
+            store = null;
+        }
+    }
+
+    private void ensureTagCapacity(int n) {
+        if (names.length < n) {
+            names = new String[n];
+            values = new String[n];
+        }
+    }
+
+    private int insert(String metric, long timestamp, double pointValue, int tagCount) {
+        RocksTSDB.sortTags(names, values, tagCount);
+        RocksTSDB.seriesKey(seriesKey, metric, names, values, tagCount);
+        try {
+            RocksTSDB.Series series = db.getOrCreateSeries(seriesKey.toString(), metric, names, values, tagCount);
+            value.clear();
+            value.putDouble(pointValue);
+            db.getDB().put(RocksTSDB.pointKey(key, series.id, timestamp), value.array());
+            return SUCCESS;
+        }
+        catch (RocksDBException e) {
+            System.err.println("ERROR: Insert into RocksDB failed: " + e);
+            return ERROR;
+        }
+    }
+
+    @Override
+    public int insert(DataPoint point) {
+        int n = point.getTagCount();
+        ensureTagCapacity(n);
+        for (int i = 0; i < n; i++) {
+            names[i] = point.getTagName(i);
+            values[i] = point.getTagValue(i);
+        }
+        return insert(point.getMetric(), point.getTimestamp(), point.getValue(), n);
+    }
+
+    @Override
+    public int insert(String metric, Timestamp timestamp, double value, HashMap<String, ByteIterator> tags) {
+        ensureTagCapacity(tags.size());
+        int n = 0;
+        for (Map.Entry<String, ByteIterator> tag : tags.entrySet()) {
+            names[n] = tag.getKey();
+            values[n] = tag.getValue().toString();
+            n++;
+        }
+        return insert(metric, timestamp.getTime(), value, n);
+    }
+
+    @Override
+    public int read(String metric, long timestamp, TimeUnit precision, TagFilter tags) {
+        long ts = precision.toMillis(timestamp);
+        int found = 0;
+        try {
+            for (RocksTSDB.Series series : db.find(metric, tags)) {
+                if (db.getDB().get(RocksTSDB.pointKey(key, series.id, ts)) != null) {
+                    found++;
+                }
+            }
+        }
+        catch (RocksDBException e) {
+            System.err.println("ERROR: Read from RocksDB failed: " + e);
+            return ERROR;
+        }
+        return found > 0 ? SUCCESS : NOT_FOUND;
+    }
+
+    @Override
+    public int read(String metric, Timestamp timestamp, HashMap<String, ArrayList<String>> tags) {
+        return read(metric, timestamp.getTime(), TimeUnit.MILLISECONDS, TagFilter.fromMap(tags));
+    }
+
+    @Override
+    public int scan(String metric, long startTs, long endTs, TimeUnit precision, TagFilter tags,
+                    boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+        long start = precision.toMillis(startTs);
+        long end = precision.toMillis(endTs);
+        boolean aggregate = avg || count || sum;
+        long bucketWidth = aggregate && timeValue > 0 ? timeUnit.toMillis(timeValue) : 0;
+        // bucket start -> count, sum
+        HashMap<Long, double[]> buckets = new HashMap<Long, double[]>();
+        long points = 0;
+        for (RocksTSDB.Series series : db.find(metric, tags)) {
+            RocksIterator it = db.getDB().newIterator(scanOptions);
+            try {
+                for (it.seek(RocksTSDB.pointKey(key, series.id, start)); it.isValid(); it.next()) {
+                    long ts = RocksTSDB.timestamp(it.key());
+                    if (ts > end) {
+                        break;
+                    }
+                    points++;
+                    if (aggregate) {
+                        Long bucket = bucketWidth > 0 ? start + (ts - start) / bucketWidth * bucketWidth : start;
+                        double[] countAndSum = buckets.get(bucket);
+                        if (countAndSum == null) {
+                            countAndSum = new double[2];
+                            buckets.put(bucket, countAndSum);
+                        }
+                        countAndSum[0]++;
+                        countAndSum[1] += ByteBuffer.wrap(it.value()).getDouble();
+                    }
+                }
+            }
+            finally {
+                it.close();
+            }
+        }
+        if (points == 0) {
+            return NOT_FOUND;
+        }
+        if (aggregate) {
+            reportResult(buckets.size(), -1);
+            if (buckets.size() == 1) {
+                double[] countAndSum = buckets.values().iterator().next();
+                reportAggregate(avg ? countAndSum[1] / countAndSum[0] : count ? countAndSum[0] : countAndSum[1]);
+            }
+        }
+        else {
+            reportResult(points, -1);
+        }
+        return SUCCESS;
+    }
+
+    @Override
+    public int scan(String metric, Timestamp startTs, Timestamp endTs, HashMap<String, ArrayList<String>> tags,
+                    boolean avg, boolean count, boolean sum, int timeValue, TimeUnit timeUnit) {
+        return scan(metric, startTs.getTime(), endTs.getTime(), TimeUnit.MILLISECONDS, TagFilter.fromMap(tags),
+                avg, count, sum, timeValue, timeUnit);
+    }
+}
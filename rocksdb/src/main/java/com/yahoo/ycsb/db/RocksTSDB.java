@@ -0,0 +1,281 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.db;
+
+import com.yahoo.ycsb.TagFilter;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.CompactionStyle;
+import org.rocksdb.Options;
+import org.rocksdb.ReadOptions;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.Statistics;
+import org.rocksdb.TickerType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The embedded RocksDB instance of {@link RocksDBClient} and its dictionary of series.
+ * <p/>
+ * Keys:
+ * <ul>
+ * <li>0x00, series key (UTF-8) -&gt; series id (8 bytes): the dictionary, read completely when the database is
+ * opened</li>
+ * <li>0x01, series id (8 bytes), timestamp (8 bytes) -&gt; value (8 bytes): the points; ids and timestamps are
+ * big-endian with the sign bit flipped, so the points of a series are sorted by time</li>
+ * </ul>
+ * The first 9 bytes of a point key are the prefix of the prefix extractor, so a scan of a series is a prefix
+ * iterator that never leaves the series.
+ */
+final class RocksTSDB {
+    static final Charset UTF8 = Charset.forName("UTF-8");
+    static final int PREFIX_LENGTH = 9;
+    static final int KEY_LENGTH = 17;
+    private static final byte DICTIONARY = 0;
+    private static final byte POINTS = 1;
+
+    /**
+     * One series: its id and metric and tags from the series key.
+     */
+    static final class Series {
+        final long id;
+        final String metric;
+        final String[] tagNames;
+        final String[] tagValues;
+
+        Series(long id, String metric, String[] tagNames, String[] tagValues) {
+            this.id = id;
+            this.metric = metric;
+            this.tagNames = tagNames;
+            this.tagValues = tagValues;
+        }
+
+        String getTagValue(String name) {
+            for (int i = 0; i < tagNames.length; i++) {
+                if (tagNames[i].equals(name)) {
+                    return tagValues[i];
+                }
+            }
+            return null;
+        }
+
+        boolean matches(TagFilter filter) {
+            for (int i = 0; i < filter.size(); i++) {
+                String value = getTagValue(filter.getTagName(i));
+                boolean found = false;
+                for (int j = 0; value != null && j < filter.getValueCount(i) && !found; j++) {
+                    found = filter.getValue(i, j).equals(value);
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final Statistics statistics;
+    private final Options options;
+    private final RocksDB db;
+    private final ConcurrentHashMap<String, Series> series = new ConcurrentHashMap<String, Series>();
+    private final ConcurrentHashMap<String, Series[]> seriesByMetric = new ConcurrentHashMap<String, Series[]>();
+    private long nextId = 0;
+
+    RocksTSDB(String dir, long blockCacheSize, long writeBufferSize, CompactionStyle compactionStyle)
+            throws RocksDBException {
+        RocksDB.loadLibrary();
+        statistics = new Statistics();
+        options = new Options()
+                .setCreateIfMissing(true)
+                .setStatistics(statistics)
+                .setWriteBufferSize(writeBufferSize)
+                .setCompactionStyle(compactionStyle)
+                .useFixedLengthPrefixExtractor(PREFIX_LENGTH)
+                .setTableFormatConfig(new BlockBasedTableConfig().setBlockCacheSize(blockCacheSize));
+        db = RocksDB.open(options, dir);
+        loadDictionary();
+    }
+
+    private void loadDictionary() {
+        ReadOptions readOptions = new ReadOptions().setTotalOrderSeek(true);
+        RocksIterator it = db.newIterator(readOptions);
+        try {
+            for (it.seek(new byte[]{DICTIONARY}); it.isValid() && it.key()[0] == DICTIONARY; it.next()) {
+                byte[] key = it.key();
+                String seriesKey = new String(key, 1, key.length - 1, UTF8);
+                long id = ByteBuffer.wrap(it.value()).getLong() ^ Long.MIN_VALUE;
+                add(seriesKey, parse(id, seriesKey));
+                nextId = Math.max(nextId, id + 1);
+            }
+        }
+        finally {
+            it.close();
+            readOptions.close();
+        }
+    }
+
+    /**
+     * @return the series of a series key "metric\0name=value\0name=value..."
+     */
+    private static Series parse(long id, String seriesKey) {
+        String[] parts = seriesKey.split("\0", -1);
+        String[] names = new String[parts.length - 1];
+        String[] values = new String[parts.length - 1];
+        for (int i = 1; i < parts.length; i++) {
+            int eq = parts[i].indexOf('=');
+            names[i - 1] = parts[i].substring(0, eq);
+            values[i - 1] = parts[i].substring(eq + 1);
+        }
+        return new Series(id, parts[0], names, values);
+    }
+
+    private void add(String seriesKey, Series s) {
+        series.put(seriesKey, s);
+        Series[] list = seriesByMetric.get(s.metric);
+        if (list == null) {
+            seriesByMetric.put(s.metric, new Series[]{s});
+        }
+        else {
+            list = Arrays.copyOf(list, list.length + 1);
+            list[list.length - 1] = s;
+            seriesByMetric.put(s.metric, list);
+        }
+    }
+
+    /**
+     * Builds the key of a series into key, see {@link #getOrCreateSeries}.
+     */
+    static void seriesKey(StringBuilder key, String metric, String[] names, String[] values, int n) {
+        key.setLength(0);
+        key.append(metric);
+        for (int i = 0; i < n; i++) {
+            key.append('\0').append(names[i]).append('=').append(values[i]);
+        }
+    }
+
+    /**
+     * Sorts the first n names and their values by name.
+     */
+    static void sortTags(String[] names, String[] values, int n) {
+        for (int i = 1; i < n; i++) {
+            String name = names[i];
+            String value = values[i];
+            int j = i - 1;
+            while (j >= 0 && names[j].compareTo(name) > 0) {
+                names[j + 1] = names[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            names[j + 1] = name;
+            values[j + 1] = value;
+        }
+    }
+
+    /**
+     * @return the series of the given key (metric and sorted tags), written to the dictionary if it is new
+     */
+    Series getOrCreateSeries(String seriesKey, String metric, String[] names, String[] values, int n)
+            throws RocksDBException {
+        Series s = series.get(seriesKey);
+        if (s != null) {
+            return s;
+        }
+        synchronized (this) {
+            s = series.get(seriesKey);
+            if (s == null) {
+                s = new Series(nextId++, metric, Arrays.copyOf(names, n), Arrays.copyOf(values, n));
+                byte[] keyBytes = seriesKey.getBytes(UTF8);
+                byte[] key = new byte[keyBytes.length + 1];
+                key[0] = DICTIONARY;
+                System.arraycopy(keyBytes, 0, key, 1, keyBytes.length);
+                db.put(key, ByteBuffer.allocate(8).putLong(s.id ^ Long.MIN_VALUE).array());
+                add(seriesKey, s);
+            }
+            return s;
+        }
+    }
+
+    /**
+     * @return all series of metric that have, for every tag of the filter, one of its values
+     */
+    ArrayList<Series> find(String metric, TagFilter filter) {
+        ArrayList<Series> found = new ArrayList<Series>();
+        Series[] list = seriesByMetric.get(metric);
+        if (list != null) {
+            for (Series s : list) {
+                if (s.matches(filter)) {
+                    found.add(s);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Writes the key of the point of series id at ts into key (of {@link #KEY_LENGTH} bytes).
+     */
+    static byte[] pointKey(byte[] key, long id, long ts) {
+        ByteBuffer.wrap(key).put(POINTS).putLong(id ^ Long.MIN_VALUE).putLong(ts ^ Long.MIN_VALUE);
+        return key;
+    }
+
+    /**
+     * @return the timestamp of a point key
+     */
+    static long timestamp(byte[] key) {
+        return ByteBuffer.wrap(key, PREFIX_LENGTH, 8).getLong() ^ Long.MIN_VALUE;
+    }
+
+    RocksDB getDB() {
+        return db;
+    }
+
+    /**
+     * @return the tickers of the engine that matter for I/O, by the measurement name they are exported with
+     */
+    LinkedHashMap<String, Number> getStatistics() {
+        LinkedHashMap<String, Number> stats = new LinkedHashMap<String, Number>();
+        long written = statistics.getTickerCount(TickerType.BYTES_WRITTEN);
+        long flushed = statistics.getTickerCount(TickerType.FLUSH_WRITE_BYTES);
+        long compacted = statistics.getTickerCount(TickerType.COMPACT_WRITE_BYTES);
+        stats.put("StallTime(us)", statistics.getTickerCount(TickerType.STALL_MICROS));
+        stats.put("BytesWritten", written);
+        stats.put("FlushBytesWritten", flushed);
+        stats.put("CompactionBytesWritten", compacted);
+        stats.put("CompactionBytesRead", statistics.getTickerCount(TickerType.COMPACT_READ_BYTES));
+        if (written > 0) {
+            stats.put("WriteAmplification", (double) (flushed + compacted) / written);
+        }
+        stats.put("BytesRead", statistics.getTickerCount(TickerType.BYTES_READ));
+        stats.put("BlockCacheHits", statistics.getTickerCount(TickerType.BLOCK_CACHE_HIT));
+        stats.put("BlockCacheMisses", statistics.getTickerCount(TickerType.BLOCK_CACHE_MISS));
+        return stats;
+    }
+
+    void close() {
+        db.close();
+        options.close();
+        statistics.close();
+    }
+}
@@ -1,8 +1,6 @@
 package com.yahoo.ycsb.db;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -12,22 +10,19 @@ import java.util.HashMap;
 import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
 
-import org.apache.http.HttpResponse;
-import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.util.EntityUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.http.HttpTransport;
+import com.yahoo.ycsb.json.JsonPoints;
 
 /**
  * Seriesly client for YCSB framework. It's possible to store tags, as seriesly
@@ -50,8 +45,9 @@ public class SerieslyClient extends DB {
 
 	private String ip = "localhost";
 	private int port = 3133;
-	private int retries = 3;
-	private CloseableHttpClient client;
+	private HttpTransport transport;
+	// groups of scan results, counted while streaming
+	private final JsonPoints points = new JsonPoints(JsonPoints.ROOT);
 
 	private URL db_url = null;
 
@@ -82,9 +78,8 @@ public class SerieslyClient extends DB {
 				}
 			}
 
-			RequestConfig requestConfig = RequestConfig.custom().build();
 			if (!test) {
-				client = HttpClientBuilder.create().setDefaultRequestConfig(requestConfig).build();
+				transport = HttpTransport.acquire(getProperties());
 			}
 
 		} catch (Exception e) {
@@ -114,7 +109,7 @@ public class SerieslyClient extends DB {
 	public void cleanup() throws DBException {
 		try {
 			if (!test) {
-				client.close();
+				transport.release();
 			}
 		} catch (Exception e) {
 			throw new DBException(e);
@@ -123,40 +118,26 @@ public class SerieslyClient extends DB {
 
 	private Integer doPut(URL url) {
 		Integer statusCode;
-		HttpResponse response = null;
+		CloseableHttpResponse response = null;
 		try {
 			HttpPut putMethod = new HttpPut(url.toString());
 
-			int tries = retries + 1;
-			while (true) {
-				tries--;
-				try {
-					response = client.execute(putMethod);
-					break;
-				} catch (IOException e) {
-					if (tries < 1) {
-						System.err.print("ERROR: Connection to " + url.toString() + " failed " + retries + " times.");
-						e.printStackTrace();
-						if (response != null) {
-							EntityUtils.consumeQuietly(response.getEntity());
-						}
-						putMethod.releaseConnection();
-						return null;
-					}
-				}
+			try {
+				response = transport.execute(putMethod);
+			} catch (IOException e) {
+				System.err.print("ERROR: Connection to " + url.toString() + " failed.");
+				e.printStackTrace();
+				return null;
 			}
 
 			statusCode = response.getStatusLine().getStatusCode();
-			EntityUtils.consumeQuietly(response.getEntity());
-			putMethod.releaseConnection();
 
 		} catch (Exception e) {
 			System.err.println("ERROR: Error while trying to send PUT request '" + url.toString() + "'.");
 			e.printStackTrace();
-			if (response != null) {
-				EntityUtils.consumeQuietly(response.getEntity());
-			}
 			return null;
+		} finally {
+			HttpTransport.release(response);
 		}
 
 		return statusCode;
@@ -171,42 +152,27 @@ public class SerieslyClient extends DB {
 
 	private Integer doPost(URL url, String queryStr) {
 		Integer statusCode;
-		HttpResponse response = null;
+		CloseableHttpResponse response = null;
 		try {
 			HttpPost postMethod = new HttpPost(url.toString());
-			StringEntity requestEntity = new StringEntity(queryStr, ContentType.APPLICATION_JSON);
-			postMethod.setEntity(requestEntity);
-
-			int tries = retries + 1;
-			while (true) {
-				tries--;
-				try {
-					response = client.execute(postMethod);
-					break;
-				} catch (IOException e) {
-					if (tries < 1) {
-						System.err.print("ERROR: Connection to " + url.toString() + " failed " + retries + " times.");
-						e.printStackTrace();
-						if (response != null) {
-							EntityUtils.consumeQuietly(response.getEntity());
-						}
-						postMethod.releaseConnection();
-						return null;
-					}
-				}
+			postMethod.setEntity(transport.entity(queryStr, ContentType.APPLICATION_JSON));
+
+			try {
+				response = transport.execute(postMethod);
+			} catch (IOException e) {
+				System.err.print("ERROR: Connection to " + url.toString() + " failed.");
+				e.printStackTrace();
+				return null;
 			}
 
 			statusCode = response.getStatusLine().getStatusCode();
-			EntityUtils.consumeQuietly(response.getEntity());
-			postMethod.releaseConnection();
 
 		} catch (Exception e) {
 			System.err.println("ERROR: Errror while trying to query " + url.toString() + " for '" + queryStr + "'.");
 			e.printStackTrace();
-			if (response != null) {
-				EntityUtils.consumeQuietly(response.getEntity());
-			}
 			return null;
+		} finally {
+			HttpTransport.release(response);
 		}
 
 		return statusCode;
@@ -215,58 +181,75 @@ public class SerieslyClient extends DB {
 	private JSONObject doGet(URL url) {
 
 		JSONObject jsonObject = new JSONObject();
-		HttpResponse response = null;
+		CloseableHttpResponse response = null;
 		try {
 			HttpGet getMethod = new HttpGet(url.toString());
 			getMethod.addHeader("accept", "application/json");
 
-			int tries = retries + 1;
-			while (true) {
-				tries--;
-				try {
-					response = client.execute(getMethod);
-					break;
-				} catch (IOException e) {
-					if (tries < 1) {
-						System.err.print("ERROR: Connection to " + url.toString() + " failed " + retries + " times.");
-						e.printStackTrace();
-						if (response != null) {
-							EntityUtils.consumeQuietly(response.getEntity());
-						}
-						getMethod.releaseConnection();
-						return null;
-					}
-				}
+			try {
+				response = transport.execute(getMethod);
+			} catch (IOException e) {
+				System.err.print("ERROR: Connection to " + url.toString() + " failed.");
+				e.printStackTrace();
+				return null;
 			}
 
 			if (response.getStatusLine().getStatusCode() == HttpURLConnection.HTTP_OK) {
 
-				BufferedReader bis = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-				StringBuilder builder = new StringBuilder();
-				String line;
-				while ((line = bis.readLine()) != null) {
-					builder.append(line);
-				}
-
-				if (builder.length() > 0) {
-					jsonObject = new JSONObject(builder.toString());
+				String body = HttpTransport.readBody(response);
+				if (body.trim().length() > 0) {
+					jsonObject = new JSONObject(body);
 				}
 			}
-			EntityUtils.consumeQuietly(response.getEntity());
-			getMethod.releaseConnection();
 
 		} catch (Exception e) {
 			System.err.println("ERROR: Errror while trying to query " + url.toString() + ".");
 			e.printStackTrace();
-			if (response != null) {
-				EntityUtils.consumeQuietly(response.getEntity());
-			}
 			return null;
+		} finally {
+			HttpTransport.release(response);
 		}
 
 		return jsonObject;
 	}
 
+	/**
+	 * Like {@link #doGet(URL)} but counts the groups of the result in points
+	 * instead of building it.
+	 */
+	private JsonPoints doGet(URL url, JsonPoints points) {
+
+		CloseableHttpResponse response = null;
+		try {
+			HttpGet getMethod = new HttpGet(url.toString());
+			getMethod.addHeader("accept", "application/json");
+
+			try {
+				response = transport.execute(getMethod);
+			} catch (IOException e) {
+				System.err.print("ERROR: Connection to " + url.toString() + " failed.");
+				e.printStackTrace();
+				return null;
+			}
+
+			points.clear();
+			if (response.getStatusLine().getStatusCode() == HttpURLConnection.HTTP_OK
+					&& response.getEntity() != null) {
+
+				points.parse(response.getEntity().getContent());
+			}
+
+		} catch (Exception e) {
+			System.err.println("ERROR: Errror while trying to query " + url.toString() + ".");
+			e.printStackTrace();
+			return null;
+		} finally {
+			HttpTransport.release(response);
+		}
+
+		return points;
+	}
+
 	/**
 	 * Read a record from the database. Each value from the result will be
 	 * stored in a HashMap
@@ -402,20 +385,19 @@ public class SerieslyClient extends DB {
 				System.out.println("QueryURL: " + newQueryURL.toString());
 			}
 
-			JSONObject jsonObject = doGet(newQueryURL);
-
-			String[] elementNames = JSONObject.getNames(jsonObject);
-
-			JSONArray jsonArray = jsonObject.getJSONArray(elementNames[0]);
+			JsonPoints result = doGet(newQueryURL, points);
+			if (result != null) {
+				reportResult(result.getCount(), result.getBytes());
+			}
 
-			if (jsonArray == null || jsonArray.length() < 1) {
+			if (result == null || result.getCount() < 1) {
 
 				System.err.println("ERROR: Found no values for metric: " + metric + ".");
 				return -1;
 
 			}  else {
 				if (_debug) {
-					System.out.println("Found: " + jsonArray.length() + " items in response");
+					System.out.println("Found: " + result.getCount() + " groups in response");
 				}
 			}
 
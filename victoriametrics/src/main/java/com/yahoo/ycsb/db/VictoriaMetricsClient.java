@@ -4,21 +4,15 @@ import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
 
-import org.apache.http.HttpResponse;
-import org.apache.http.client.config.RequestConfig;
+import com.yahoo.ycsb.http.HttpTransport;
+import com.yahoo.ycsb.json.JsonPoints;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.util.EntityUtils;
 import org.influxdb.InfluxDB;
 import org.influxdb.InfluxDBFactory;
 import org.influxdb.dto.Point;
-import org.json.JSONException;
-import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.net.URLEncoder;
@@ -44,8 +38,9 @@ public class VictoriaMetricsClient extends DB {
     private String valueFieldName = "value"; // in which field should the value be?
 
     private InfluxDB influxClient;
-    private CloseableHttpClient victoriaClient;
-    private int retries = 3;
+    private HttpTransport transport;
+    // series of query results, counted while streaming
+    private final JsonPoints points = new JsonPoints("result").capture("status");
     private URL urlQuery = null;
 
     private final int SUCCESS = 0;
@@ -73,8 +68,7 @@ public class VictoriaMetricsClient extends DB {
                 this.influxClient = this.influxClient.setLogLevel(InfluxDB.LogLevel.FULL);
             }
             urlQuery = new URL("http", ip, port, queryURLInfix);
-            RequestConfig requestConfig = RequestConfig.custom().build();
-            victoriaClient = HttpClientBuilder.create().setDefaultRequestConfig(requestConfig).build();
+            transport = HttpTransport.acquire(getProperties());
         }
         catch (retrofit.RetrofitError e) {
             throw new DBException(String.format("Can't connect to %s:%s.)", ip, port)+e);
@@ -96,6 +90,10 @@ public class VictoriaMetricsClient extends DB {
         if (_debug) {
             System.out.println("Cleanup...");
         }
+        if (transport != null) {
+            transport.release();
+            transport = null;
+        }
     }
 
     /**
@@ -116,11 +114,9 @@ public class VictoriaMetricsClient extends DB {
         if (timestamp == null) {
             return -1;
         }
-        int tries = retries + 1;
         HttpGet getMethod;
         String queryString = "";
-        HttpResponse response = null;
-        JSONObject responseData;
+        CloseableHttpResponse response = null;
 
         // Construct query
         for (Map.Entry entry : tags.entrySet()) {
@@ -147,46 +143,28 @@ public class VictoriaMetricsClient extends DB {
         if (_debug)
             System.out.println("Read Query: " + urlQuery.toString() + queryString);
         getMethod = new HttpGet(urlQuery.toString() + queryString);
-        loop:
-        while (true) {
-            tries--;
-            try {
-                response = victoriaClient.execute(getMethod);
-                String inputLine = "";
-                String content = "";
-                BufferedReader br = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-                try {
-                    while ((inputLine = br.readLine()) != null) {
-                        content += inputLine;
-                    }
-                    br.close();
-                } catch (IOException e) {
-                }
-                responseData = new JSONObject(content);
-                if (responseData.getString("status").equals("success")) {
-                    if (responseData.getJSONObject("data").getJSONArray("result").length() > 0) {
-                        if (_debug)
-                            System.out.println("Found " + responseData.getJSONObject("data").getJSONArray("result").length() + " data sets");
-                        return SUCCESS;
-                    }
-                    else
+        try {
+            response = transport.execute(getMethod);
+            JsonPoints result = points.parse(response.getEntity().getContent());
+            reportResult(result.getCount(), result.getBytes());
+            if ("success".equals(result.getText("status"))) {
+                if (result.getCount() > 0) {
                     if (_debug)
-                        System.out.println("No data in response");
-                    return -1;
-                }
-            } catch (IOException e) {
-                if (tries < 1) {
-                    System.err.print("ERROR: Connection to " + urlQuery.toString() + " failed " + retries + "times.");
-                    e.printStackTrace();
-                    if (response != null) {
-                        EntityUtils.consumeQuietly(response.getEntity());
-                    }
-                    EntityUtils.consumeQuietly(response.getEntity());
-                    getMethod.releaseConnection();
-                    return -1;
+                        System.out.println("Found " + result.getCount() + " data sets");
+                    return SUCCESS;
                 }
-                continue loop;
+                else
+                if (_debug)
+                    System.out.println("No data in response");
+                return -1;
             }
+            return -1;
+        } catch (IOException e) {
+            System.err.print("ERROR: Connection to " + urlQuery.toString() + " failed.");
+            e.printStackTrace();
+            return -1;
+        } finally {
+            HttpTransport.release(response);
         }
     }
 
@@ -217,11 +195,9 @@ public class VictoriaMetricsClient extends DB {
         }
 
         NumberFormat durationOffsetFormat = new DecimalFormat("###");
-        int tries = retries + 1;
         HttpGet getMethod;
         String queryString = "";
-        HttpResponse response = null;
-        JSONObject responseData;
+        CloseableHttpResponse response = null;
         double duration;
         double offset;
         double currentTime = new Date().getTime();
@@ -270,58 +246,34 @@ public class VictoriaMetricsClient extends DB {
         if (_debug)
             System.out.println("Query: " + urlQuery.toString() + queryString);
         getMethod = new HttpGet(urlQuery.toString() + queryString);
-        loop:
-        while (true) {
-            tries--;
-            try {
-                response = victoriaClient.execute(getMethod);
-                String inputLine = "";
-                String content = "";
-                BufferedReader br = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-                try {
-                    while ((inputLine = br.readLine()) != null) {
-                        content += inputLine;
-                    }
-                    br.close();
-                } catch (IOException e) {
-                }
-                responseData = new JSONObject(content);
-                if (responseData.getString("status").equals("success")) {
-                    try {
-                        if (responseData.getJSONObject("data").getJSONArray("result").length() > 0) {
-                            if (_debug) {
-                                System.out.println("Found " + responseData.getJSONObject("data").getJSONArray("result").length() + " data sets");
-                                System.out.println("SCAN done.");
-                            }
-                            return SUCCESS;
-                        }
-                        else {
-                            if (_debug) {
-                                System.out.println("No data in response");
-                                System.out.println("SCAN done.");
-                            }
-                            return -1;
-                        }
-                    } catch (JSONException e) {
-                        // No data included in response
-                        EntityUtils.consumeQuietly(response.getEntity());
-                        getMethod.releaseConnection();
-                        return -1;
+        try {
+            response = transport.execute(getMethod);
+            JsonPoints result = points.parse(response.getEntity().getContent());
+            reportResult(result.getCount(), result.getBytes());
+            if ("success".equals(result.getText("status"))) {
+                // no "result" if no data is included in the response
+                if (result.getCount() > 0) {
+                    if (_debug) {
+                        System.out.println("Found " + result.getCount() + " data sets");
+                        System.out.println("SCAN done.");
                     }
+                    return SUCCESS;
                 }
-            } catch (IOException e) {
-                if (tries < 1) {
-                    System.err.print("ERROR: Connection to " + urlQuery.toString() + " failed " + retries + "times.");
-                    e.printStackTrace();
-                    if (response != null) {
-                        EntityUtils.consumeQuietly(response.getEntity());
+                else {
+                    if (_debug) {
+                        System.out.println("No data in response");
+                        System.out.println("SCAN done.");
                     }
-                    EntityUtils.consumeQuietly(response.getEntity());
-                    getMethod.releaseConnection();
                     return -1;
                 }
-                continue loop;
             }
+            return -1;
+        } catch (IOException e) {
+            System.err.print("ERROR: Connection to " + urlQuery.toString() + " failed.");
+            e.printStackTrace();
+            return -1;
+        } finally {
+            HttpTransport.release(response);
         }
     }
 